@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+import android.content.Context;
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.CarrierConfigManager.CarrierConfigChangeListener;
+import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
+import com.android.internal.util.IndentingPrintWriter;
+import com.android.telephony.Rlog;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Process-wide snapshot of the carrier configs of the active subscriptions.
+ *
+ * <p>The carrier config of a subscription is requested from {@link CarrierConfigManager} once,
+ * and then only refreshed when the carrier config of its slot changes, so components read their
+ * configs without a binder call. Components that re-read their configs when the carrier config
+ * changes should register with {@link #registerCarrierConfigChangeListener}, which notifies them
+ * after the snapshot is refreshed.
+ *
+ * <p>The bundles returned by this class are shared and must not be modified.
+ */
+public class CarrierConfigCache {
+    private static final String TAG = "CarrierConfigCache";
+
+    private static CarrierConfigCache sInstance;
+
+    @Nullable
+    private final CarrierConfigManager mCarrierConfigManager;
+
+    /** The carrier configs indexed by subscription id. */
+    @GuardedBy("mLock")
+    @NonNull
+    private final SparseArray<PersistableBundle> mConfigs = new SparseArray<>();
+
+    /** The subscription id of each slot, as reported by the last carrier config change. */
+    @GuardedBy("mLock")
+    @NonNull
+    private final SparseIntArray mSlotSubIds = new SparseIntArray();
+
+    /**
+     * Incremented on every carrier config change, so a config requested before a change is not
+     * cached after it.
+     */
+    @GuardedBy("mLock")
+    private int mGeneration;
+
+    @GuardedBy("mLock")
+    private int mHitCount;
+
+    @GuardedBy("mLock")
+    private int mRequestCount;
+
+    @NonNull
+    private final Object mLock = new Object();
+
+    /** The registered listeners and their executors. */
+    @GuardedBy("mListeners")
+    @NonNull
+    private final ArrayMap<CarrierConfigChangeListener, Executor> mListeners = new ArrayMap<>();
+
+    /**
+     * Get the instance of the carrier config cache, creating it if needed.
+     *
+     * @param context The context.
+     * @return The instance.
+     */
+    @NonNull
+    public static synchronized CarrierConfigCache getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new CarrierConfigCache(context);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    public CarrierConfigCache(@NonNull Context context) {
+        mCarrierConfigManager = context.getSystemService(CarrierConfigManager.class);
+        if (mCarrierConfigManager != null) {
+            mCarrierConfigManager.registerCarrierConfigChangeListener(Runnable::run,
+                    this::onCarrierConfigChanged);
+        }
+    }
+
+    private void onCarrierConfigChanged(int slotIndex, int subId, int carrierId,
+            int specificCarrierId) {
+        log("onCarrierConfigChanged: slotIndex=" + slotIndex + ", subId=" + subId);
+        synchronized (mLock) {
+            mGeneration++;
+            int oldSubId = mSlotSubIds.get(slotIndex, subId);
+            mConfigs.remove(oldSubId);
+            mConfigs.remove(subId);
+            mSlotSubIds.put(slotIndex, subId);
+        }
+        // Refresh the snapshot before the listeners read it.
+        getConfigForSubId(subId);
+
+        Map<CarrierConfigChangeListener, Executor> listeners;
+        synchronized (mListeners) {
+            listeners = new ArrayMap<>(mListeners);
+        }
+        for (Map.Entry<CarrierConfigChangeListener, Executor> entry : listeners.entrySet()) {
+            CarrierConfigChangeListener listener = entry.getKey();
+            entry.getValue().execute(() -> listener.onCarrierConfigChanged(
+                    slotIndex, subId, carrierId, specificCarrierId));
+        }
+    }
+
+    /**
+     * Register a listener notified when the carrier config changes, after the cached config is
+     * refreshed. See {@link CarrierConfigManager#registerCarrierConfigChangeListener}.
+     *
+     * @param executor The executor to notify the listener on.
+     * @param listener The listener.
+     */
+    public void registerCarrierConfigChangeListener(@NonNull Executor executor,
+            @NonNull CarrierConfigChangeListener listener) {
+        synchronized (mListeners) {
+            mListeners.put(listener, executor);
+        }
+    }
+
+    /**
+     * Unregister a listener.
+     *
+     * @param listener The listener.
+     */
+    public void unregisterCarrierConfigChangeListener(
+            @NonNull CarrierConfigChangeListener listener) {
+        synchronized (mListeners) {
+            mListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Get the carrier config of a subscription.
+     *
+     * @param subId The subscription id.
+     * @return The carrier config, or the default config if it is not available. The bundle is
+     * shared and must not be modified.
+     */
+    @NonNull
+    public PersistableBundle getConfigForSubId(int subId) {
+        int generation;
+        synchronized (mLock) {
+            mRequestCount++;
+            PersistableBundle config = mConfigs.get(subId);
+            if (config != null) {
+                mHitCount++;
+                return config;
+            }
+            generation = mGeneration;
+        }
+
+        PersistableBundle config = null;
+        if (mCarrierConfigManager != null) {
+            config = mCarrierConfigManager.getConfigForSubId(subId);
+        }
+        if (config == null) {
+            // Not cached, so that the config is requested again once it is available.
+            return CarrierConfigManager.getDefaultConfig();
+        }
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mConfigs.put(subId, config);
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Get a boolean carrier config value.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    public boolean getBoolean(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getBoolean(key);
+    }
+
+    /**
+     * Get an int carrier config value.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    public int getInt(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getInt(key);
+    }
+
+    /**
+     * Get a long carrier config value.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    public long getLong(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getLong(key);
+    }
+
+    /**
+     * Get a string carrier config value.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    @Nullable
+    public String getString(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getString(key);
+    }
+
+    /**
+     * Get an int array carrier config value. The array is shared and must not be modified.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    @Nullable
+    public int[] getIntArray(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getIntArray(key);
+    }
+
+    /**
+     * Get a string array carrier config value. The array is shared and must not be modified.
+     *
+     * @param subId The subscription id.
+     * @param key The carrier config key.
+     * @return The value.
+     */
+    @Nullable
+    public String[] getStringArray(int subId, @NonNull String key) {
+        return getConfigForSubId(subId).getStringArray(key);
+    }
+
+    /**
+     * Dump the state of the cache.
+     *
+     * @param pw The print writer.
+     */
+    public void dump(@NonNull IndentingPrintWriter pw) {
+        pw.println(TAG + ":");
+        pw.increaseIndent();
+        synchronized (mLock) {
+            pw.println("mSlotSubIds=" + mSlotSubIds);
+            pw.println("cached subIds=" + mConfigs.size() + ", requests=" + mRequestCount
+                    + ", hits=" + mHitCount + ", generation=" + mGeneration);
+        }
+        synchronized (mListeners) {
+            pw.println("listeners=" + mListeners.size());
+        }
+        pw.decreaseIndent();
+    }
+
+    private static void log(@NonNull String s) {
+        Rlog.d(TAG, s);
+    }
+}
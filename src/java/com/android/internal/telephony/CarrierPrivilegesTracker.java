@@ -68,6 +68,7 @@ import android.util.Pair;
 
 import com.android.internal.annotations.GuardedBy;
 import com.android.internal.telephony.flags.FeatureFlags;
+import com.android.internal.telephony.uicc.IccUtils;
 import com.android.internal.telephony.uicc.UiccPort;
 import com.android.internal.telephony.uicc.UiccProfile;
 import com.android.internal.telephony.util.WorkerThread;
@@ -202,6 +203,11 @@ public class CarrierPrivilegesTracker extends Handler {
     @NonNull private final Map<String, Set<Integer>> mInstalledPackageCertHashes = new ArrayMap<>();
     // Map of PackageName -> UIDs for that Package
     @NonNull private final Map<String, Set<Integer>> mCachedUids = new ArrayMap<>();
+    // Map of certificate hash hash code -> effective rules carrying that certificate hash. Compiled
+    // from the test override rules, or the SIM and carrier config rules, whenever they change.
+    @NonNull private final Map<Integer, List<IndexedRule>> mRuleIndex = new ArrayMap<>();
+    // Map of PackageName -> privileged status, only for the installed packages that are privileged
+    @NonNull private final Map<String, Integer> mPackagePrivilegedStatus = new ArrayMap<>();
 
     // This should be used to guard critical section either with
     // mPrivilegedPackageInfoLock.readLock() or mPrivilegedPackageInfoLock.writeLock(), but never
@@ -608,6 +614,8 @@ public class CarrierPrivilegesTracker extends Handler {
                     + " cert hashes=" + mInstalledPackageCertHashes.get(pkgName));
         }
 
+        // Only the changed package needs to be evaluated against the rules.
+        updatePackagePrivilegedStatus(pkg.packageName);
         maybeUpdatePrivilegedPackagesAndNotifyRegistrants();
     }
 
@@ -648,6 +656,7 @@ public class CarrierPrivilegesTracker extends Handler {
             Rlog.e(TAG, "Unknown package was uninstalled or disabled by user: " + pkgName);
             return;
         }
+        mPackagePrivilegedStatus.remove(pkgName);
 
         if (VDBG) {
             Rlog.d(TAG, "Package removed or disabled by user: pkg=" + Rlog.pii(TAG, pkgName));
@@ -663,7 +672,8 @@ public class CarrierPrivilegesTracker extends Handler {
         // Cache SIM rules
         mUiccRules.addAll(getSimRules());
 
-        // Cache all installed packages and their certs
+        // Compile the rules, then cache all installed packages, their certs and privileged status
+        rebuildRuleIndex();
         refreshInstalledPackageCache();
 
         // Okay because no registrants exist yet
@@ -693,6 +703,7 @@ public class CarrierPrivilegesTracker extends Handler {
             // just in case to ensure consistency.
             getUidsForPackage(pkg.packageName, /* invalidateCache= */ true);
         }
+        updateAllPackagesPrivilegedStatus();
     }
 
     @NonNull
@@ -712,7 +723,7 @@ public class CarrierPrivilegesTracker extends Handler {
         currentRules.clear();
         currentRules.addAll(updatedRules);
 
-        maybeUpdatePrivilegedPackagesAndNotifyRegistrants();
+        onRulesChanged();
     }
 
     private void maybeUpdatePrivilegedPackagesAndNotifyRegistrants() {
@@ -772,18 +783,102 @@ public class CarrierPrivilegesTracker extends Handler {
                 mTelephonyManager, am.getCurrentUser(), mContext);
     }
 
+    /** An effective rule, along with where it comes from. */
+    private static final class IndexedRule {
+        @NonNull final UiccAccessRule mRule;
+        // Whether the rule is from the SIM (or a test override), as opposed to carrier config
+        final boolean mFromSim;
+
+        IndexedRule(@NonNull UiccAccessRule rule, boolean fromSim) {
+            mRule = rule;
+            mFromSim = fromSim;
+        }
+    }
+
+    private void onRulesChanged() {
+        rebuildRuleIndex();
+        updateAllPackagesPrivilegedStatus();
+        maybeUpdatePrivilegedPackagesAndNotifyRegistrants();
+    }
+
+    /**
+     * Compiles the effective rules into {@link #mRuleIndex}, keyed by certificate hash hash code.
+     * Package names are kept in the rules and checked as a secondary filter.
+     */
+    private void rebuildRuleIndex() {
+        mRuleIndex.clear();
+        // Non-null (whether empty or not) test override rule will ignore the UICC and CC rules
+        if (mTestOverrideRules != null) {
+            addRulesToIndex(mTestOverrideRules, /* fromSim= */ true);
+        } else {
+            addRulesToIndex(mUiccRules, /* fromSim= */ true);
+            addRulesToIndex(mCarrierConfigRules, /* fromSim= */ false);
+        }
+    }
+
+    private void addRulesToIndex(@NonNull List<UiccAccessRule> rules, boolean fromSim) {
+        for (UiccAccessRule rule : rules) {
+            int hashHash = UiccAccessRule.getCertificateHashHashCode(
+                    IccUtils.hexStringToBytes(rule.getCertificateHexString()));
+            List<IndexedRule> indexedRules = mRuleIndex.get(hashHash);
+            if (indexedRules == null) {
+                indexedRules = new ArrayList<>(1);
+                mRuleIndex.put(hashHash, indexedRules);
+            }
+            indexedRules.add(new IndexedRule(rule, fromSim));
+        }
+    }
+
+    /** Re-evaluates the privileged status of every installed package against the rule index. */
+    private void updateAllPackagesPrivilegedStatus() {
+        mPackagePrivilegedStatus.clear();
+        if (mRuleIndex.isEmpty()) return;
+        for (String pkgName : mInstalledPackageCertHashes.keySet()) {
+            updatePackagePrivilegedStatus(pkgName);
+        }
+    }
+
+    /** Re-evaluates the privileged status of a single installed package. */
+    private void updatePackagePrivilegedStatus(@NonNull String pkgName) {
+        mPackagePrivilegedStatus.remove(pkgName);
+        Set<Integer> hashHashes = mInstalledPackageCertHashes.get(pkgName);
+        if (hashHashes == null) return;
+
+        List<IndexedRule> candidates = getCandidateRules(pkgName, hashHashes);
+        if (candidates.isEmpty()) return;
+
+        int priv = getPackagePrivilegedStatus(pkgName, getCertsForPackage(pkgName), candidates);
+        if (priv != PACKAGE_NOT_PRIVILEGED) {
+            mPackagePrivilegedStatus.put(pkgName, priv);
+        }
+    }
+
+    /** Returns the rules whose certificate hash hash code and package name match the package. */
+    @NonNull
+    private List<IndexedRule> getCandidateRules(
+            @NonNull String pkgName, @NonNull Set<Integer> hashHashes) {
+        List<IndexedRule> candidates = Collections.emptyList();
+        for (Integer hashHash : hashHashes) {
+            List<IndexedRule> indexedRules = mRuleIndex.get(hashHash);
+            if (indexedRules == null) continue;
+            for (IndexedRule indexedRule : indexedRules) {
+                if (indexedRule.mRule.hasMatchingCertificateHashHashAndPackageName(
+                        hashHash, pkgName)) {
+                    if (candidates.isEmpty()) candidates = new ArrayList<>(1);
+                    candidates.add(indexedRule);
+                }
+            }
+        }
+        return candidates;
+    }
+
     @NonNull
     private PrivilegedPackageInfo getCurrentPrivilegedPackagesForAllUsers() {
         Set<String> carrierServiceEligiblePackages = new ArraySet<>();
         Set<String> privilegedPackageNames = new ArraySet<>();
         Set<Integer> privilegedUids = new ArraySet<>();
-        for (Map.Entry<String, Set<Integer>> e : mInstalledPackageCertHashes.entrySet()) {
-            if (!isPackageMaybePrivileged(e.getKey(), e.getValue())) continue;
-
-            Set<byte[]> fullCerts = getCertsForPackage(e.getKey());
-
-            final int priv = getPackagePrivilegedStatus(e.getKey(), fullCerts);
-            switch (priv) {
+        for (Map.Entry<String, Integer> e : mPackagePrivilegedStatus.entrySet()) {
+            switch (e.getValue()) {
                 case PACKAGE_PRIVILEGED_FROM_SIM:
                 case PACKAGE_PRIVILEGED_FROM_CARRIER_SERVICE_TEST_OVERRIDE: // fallthrough
                     carrierServiceEligiblePackages.add(e.getKey());
@@ -801,66 +896,31 @@ public class CarrierPrivilegesTracker extends Handler {
                 getCarrierService(carrierServiceEligiblePackages));
     }
 
-    private boolean isPackageMaybePrivileged(
-            @NonNull String pkgName, @NonNull Set<Integer> hashHashes) {
-        for (Integer hashHash : hashHashes) {
-            // Non-null (whether empty or not) test override rule will ignore the UICC and CC rules
-            if (mTestOverrideRules != null) {
-                for (UiccAccessRule rule : mTestOverrideRules) {
-                    if (rule.hasMatchingCertificateHashHashAndPackageName(hashHash, pkgName)) {
-                        return true;
-                    }
-                }
-            } else {
-                for (UiccAccessRule rule : mUiccRules) {
-                    if (rule.hasMatchingCertificateHashHashAndPackageName(hashHash, pkgName)) {
-                        return true;
-                    }
-                }
-                for (UiccAccessRule rule : mCarrierConfigRules) {
-                    if (rule.hasMatchingCertificateHashHashAndPackageName(hashHash, pkgName)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
     /**
      * Returns the privilege status of the provided package.
      *
      * <p>Returned privilege status depends on whether a package matches the certificates from
-     * carrier config, from test overrides or from certificates stored on the SIM.
+     * carrier config, from test overrides or from certificates stored on the SIM. Only the
+     * candidate rules found through the rule index are checked against the full certificates.
      */
-    private int getPackagePrivilegedStatus(@NonNull String pkgName, @NonNull Set<byte[]> certs) {
-        // Double-nested for loops, but each collection should contain at most 2 elements in nearly
-        // every case.
-        // TODO(b/184382310) find a way to speed this up
-        for (byte[] cert : certs) {
-            // Non-null (whether empty or not) test override rule will ignore the UICC and CC rules
-            if (mTestOverrideRules != null) {
-                for (UiccAccessRule rule : mTestOverrideRules) {
-                    if (rule.hasMatchingCertificateHashAndPackageName(cert, pkgName)) {
-                        return PACKAGE_PRIVILEGED_FROM_SIM;
-                    }
+    private int getPackagePrivilegedStatus(@NonNull String pkgName, @NonNull Set<byte[]> certs,
+            @NonNull List<IndexedRule> candidates) {
+        int priv = PACKAGE_NOT_PRIVILEGED;
+        for (IndexedRule indexedRule : candidates) {
+            for (byte[] cert : certs) {
+                if (!indexedRule.mRule.hasMatchingCertificateHashAndPackageName(cert, pkgName)) {
+                    continue;
                 }
-            } else {
-                for (UiccAccessRule rule : mUiccRules) {
-                    if (rule.hasMatchingCertificateHashAndPackageName(cert, pkgName)) {
-                        return PACKAGE_PRIVILEGED_FROM_SIM;
-                    }
-                }
-                for (UiccAccessRule rule : mCarrierConfigRules) {
-                    if (rule.hasMatchingCertificateHashAndPackageName(cert, pkgName)) {
-                        return pkgName.equals(mTestOverrideCarrierServicePackage)
-                                ? PACKAGE_PRIVILEGED_FROM_CARRIER_SERVICE_TEST_OVERRIDE
-                                : PACKAGE_PRIVILEGED_FROM_CARRIER_CONFIG;
-                    }
+                if (indexedRule.mFromSim) {
+                    // SIM rules take precedence over carrier config rules.
+                    return PACKAGE_PRIVILEGED_FROM_SIM;
                 }
+                priv = pkgName.equals(mTestOverrideCarrierServicePackage)
+                        ? PACKAGE_PRIVILEGED_FROM_CARRIER_SERVICE_TEST_OVERRIDE
+                        : PACKAGE_PRIVILEGED_FROM_CARRIER_CONFIG;
             }
         }
-        return PACKAGE_NOT_PRIVILEGED;
+        return priv;
     }
 
     @NonNull
@@ -917,6 +977,7 @@ public class CarrierPrivilegesTracker extends Handler {
         pw.println("CarrierPrivilegesTracker - Test-override rules: " + mTestOverrideRules);
         pw.println("CarrierPrivilegesTracker - SIM-loaded rules: " + mUiccRules);
         pw.println("CarrierPrivilegesTracker - Carrier config rules: " + mCarrierConfigRules);
+        pw.println("CarrierPrivilegesTracker - Indexed certificate hashes: " + mRuleIndex.size());
         if (VDBG) {
             pw.println(
                     "CarrierPrivilegesTracker - Obfuscated Pkgs + Certs: "
@@ -973,11 +1034,16 @@ public class CarrierPrivilegesTracker extends Handler {
         } else {
             mTestOverrideRules = Arrays.asList(UiccAccessRule.decodeRulesFromCarrierConfig(
                     new String[]{carrierPrivilegeRules}));
+        }
+        rebuildRuleIndex();
+        if (mTestOverrideRules != null && !mTestOverrideRules.isEmpty()) {
             // TODO(b/215239409): remove the additional cache refresh for test override cases.
             // Test override doesn't respect if the package for the specified cert has been removed
             // or hidden since initialization. Refresh the cache again to get the pkg/uid with the
             // best effort.
             refreshInstalledPackageCache();
+        } else {
+            updateAllPackagesPrivilegedStatus();
         }
         maybeUpdatePrivilegedPackagesAndNotifyRegistrants();
     }
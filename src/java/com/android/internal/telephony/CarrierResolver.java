@@ -38,9 +38,12 @@ import android.telephony.PhoneStateListener;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.LocalLog;
 import android.util.Log;
+import android.util.SparseArray;
 
+import com.android.internal.annotations.GuardedBy;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.flags.FeatureFlags;
 import com.android.internal.telephony.metrics.CarrierIdMatchStats;
@@ -57,6 +60,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * CarrierResolver identifies the subscription carrier and returns a canonical carrier Id
@@ -86,6 +90,8 @@ public class CarrierResolver extends Handler {
     private Integer mCarrierListVersion;
     // cached matching rules based mccmnc to speed up resolution
     private List<CarrierMatchingRule> mCarrierMatchingRulesOnMccMnc = new ArrayList<>();
+    // carrier id table shared by all phones and the static helpers
+    private static final CarrierIdTable sCarrierIdTable = new CarrierIdTable();
     // cached carrier Id
     private int mCarrierId = TelephonyManager.UNKNOWN_CARRIER_ID;
     // cached specific carrier Id
@@ -294,6 +300,8 @@ public class CarrierResolver extends Handler {
             case CARRIER_ID_DB_UPDATE_EVENT:
                 // clean the cached carrier list version, so that a new one will be queried.
                 mCarrierListVersion = null;
+                // the shared table is only reloaded once for all phones.
+                sCarrierIdTable.invalidateIfVersionChanged(mContext);
                 loadCarrierMatchingRulesOnMccMnc(true /* update carrier config*/, false);
                 break;
             case PREFER_APN_UPDATE_EVENT:
@@ -333,30 +341,18 @@ public class CarrierResolver extends Handler {
             boolean isSimOverride) {
         try {
             String mccmnc = mTelephonyMgr.getSimOperatorNumericForPhone(mPhone.getPhoneId());
-            Cursor cursor = mContext.getContentResolver().query(
-                    CarrierId.All.CONTENT_URI,
-                    /* projection */ null,
-                    /* selection */ CarrierId.All.MCCMNC + "=?",
-                    /* selectionArgs */ new String[]{mccmnc}, null);
-            try {
-                if (cursor != null) {
-                    if (VDBG) {
-                        logd("[loadCarrierMatchingRules]- " + cursor.getCount()
-                                + " Records(s) in DB" + " mccmnc: " + mccmnc);
-                    }
-                    mCarrierMatchingRulesOnMccMnc.clear();
-                    while (cursor.moveToNext()) {
-                        mCarrierMatchingRulesOnMccMnc.add(makeCarrierMatchingRule(cursor));
-                    }
-                    matchSubscriptionCarrier(updateCarrierConfig, isSimOverride);
-
-                    // Generate metrics related to carrier ID table version.
-                    CarrierIdMatchStats.sendCarrierIdTableVersion(getCarrierListVersion());
-                }
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
+            List<CarrierMatchingRule> rules = sCarrierIdTable.getRulesOnMccMnc(mContext, mccmnc);
+            if (rules != null) {
+                if (VDBG) {
+                    logd("[loadCarrierMatchingRules]- " + rules.size()
+                            + " Records(s) in DB" + " mccmnc: " + mccmnc);
                 }
+                mCarrierMatchingRulesOnMccMnc.clear();
+                mCarrierMatchingRulesOnMccMnc.addAll(rules);
+                matchSubscriptionCarrier(updateCarrierConfig, isSimOverride);
+
+                // Generate metrics related to carrier ID table version.
+                CarrierIdMatchStats.sendCarrierIdTableVersion(getCarrierListVersion());
             }
         } catch (Exception ex) {
             loge("[loadCarrierMatchingRules]- ex: " + ex);
@@ -364,62 +360,7 @@ public class CarrierResolver extends Handler {
     }
 
     private String getCarrierNameFromId(int cid) {
-        try {
-            Cursor cursor = mContext.getContentResolver().query(
-                    CarrierId.All.CONTENT_URI,
-                    /* projection */ null,
-                    /* selection */ CarrierId.CARRIER_ID + "=?",
-                    /* selectionArgs */ new String[]{cid + ""}, null);
-            try {
-                if (cursor != null) {
-                    if (VDBG) {
-                        logd("[getCarrierNameFromId]- " + cursor.getCount()
-                                + " Records(s) in DB" + " cid: " + cid);
-                    }
-                    while (cursor.moveToNext()) {
-                        return cursor.getString(cursor.getColumnIndex(CarrierId.CARRIER_NAME));
-                    }
-                }
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
-            }
-        } catch (Exception ex) {
-            loge("[getCarrierNameFromId]- ex: " + ex);
-        }
-        return null;
-    }
-
-    private static List<CarrierMatchingRule> getCarrierMatchingRulesFromMccMnc(
-            @NonNull Context context, String mccmnc) {
-        List<CarrierMatchingRule> rules = new ArrayList<>();
-        try {
-            Cursor cursor = context.getContentResolver().query(
-                    CarrierId.All.CONTENT_URI,
-                    /* projection */ null,
-                    /* selection */ CarrierId.All.MCCMNC + "=?",
-                    /* selectionArgs */ new String[]{mccmnc}, null);
-            try {
-                if (cursor != null) {
-                    if (VDBG) {
-                        logd("[loadCarrierMatchingRules]- " + cursor.getCount()
-                                + " Records(s) in DB" + " mccmnc: " + mccmnc);
-                    }
-                    rules.clear();
-                    while (cursor.moveToNext()) {
-                        rules.add(makeCarrierMatchingRule(cursor));
-                    }
-                }
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
-            }
-        } catch (Exception ex) {
-            loge("[loadCarrierMatchingRules]- ex: " + ex);
-        }
-        return rules;
+        return sCarrierIdTable.getCarrierName(mContext, cid);
     }
 
     private String getPreferApn() {
@@ -558,6 +499,182 @@ public class CarrierResolver extends Handler {
         }
     }
 
+    /**
+     * Process-wide in-memory copy of the carrier id table, indexed by MCCMNC and shared by all
+     * phones and the static helpers, so that carrier identification does not query the carrier id
+     * provider on every SIM load or lookup.
+     *
+     * The table is loaded lazily with a single query and is only reloaded when the carrier id
+     * database is updated with a new carrier list version.
+     */
+    private static class CarrierIdTable {
+        // matching rules grouped by mccmnc, in database order.
+        @GuardedBy("this")
+        private final Map<String, List<CarrierMatchingRule>> mRulesOnMccMnc = new ArrayMap<>();
+        // user-facing carrier name of each carrier id.
+        @GuardedBy("this")
+        private final SparseArray<String> mCarrierNames = new SparseArray<>();
+        @GuardedBy("this")
+        private boolean mLoaded;
+        // carrier list version of the loaded table.
+        @GuardedBy("this")
+        private int mCarrierListVersion = TelephonyManager.UNKNOWN_CARRIER_ID_LIST_VERSION;
+        // number of rules in the loaded table.
+        @GuardedBy("this")
+        private int mRuleCount;
+        // number of times the table has been loaded from the provider.
+        @GuardedBy("this")
+        private int mLoadCount;
+
+        /**
+         * @return copies of the matching rules on the given mccmnc, or {@code null} if the table
+         * could not be loaded.
+         */
+        @Nullable
+        synchronized List<CarrierMatchingRule> getRulesOnMccMnc(@NonNull Context context,
+                String mccmnc) {
+            if (!loadIfNeeded(context)) return null;
+            List<CarrierMatchingRule> rules = mRulesOnMccMnc.get(mccmnc);
+            List<CarrierMatchingRule> copies = new ArrayList<>();
+            if (rules != null) {
+                // matching updates the rule score, so callers get their own copies.
+                for (CarrierMatchingRule rule : rules) {
+                    copies.add(new CarrierMatchingRule(rule));
+                }
+            }
+            return copies;
+        }
+
+        /**
+         * @return the rule on the given mccmnc which has no other attribute set, or {@code null}
+         * if there is no such rule.
+         */
+        @Nullable
+        synchronized CarrierMatchingRule getMccMncOnlyRule(@NonNull Context context,
+                String mccmnc) {
+            if (!loadIfNeeded(context)) return null;
+            List<CarrierMatchingRule> rules = mRulesOnMccMnc.get(mccmnc);
+            if (rules == null) return null;
+            for (CarrierMatchingRule rule : rules) {
+                if (rule.imsiPrefixPattern == null && rule.iccidPrefix == null
+                        && rule.gid1 == null && rule.gid2 == null && rule.plmn == null
+                        && rule.spn == null && rule.apn == null
+                        && rule.privilegeAccessRule == null) {
+                    return new CarrierMatchingRule(rule);
+                }
+            }
+            return null;
+        }
+
+        @Nullable
+        synchronized String getCarrierName(@NonNull Context context, int cid) {
+            if (!loadIfNeeded(context)) return null;
+            return mCarrierNames.get(cid);
+        }
+
+        /**
+         * Drop the loaded table if the carrier list version in the database is different from the
+         * loaded one. The table will be reloaded on next access.
+         */
+        synchronized void invalidateIfVersionChanged(@NonNull Context context) {
+            if (!mLoaded) return;
+            int version = queryCarrierListVersion(context);
+            if (version == TelephonyManager.UNKNOWN_CARRIER_ID_LIST_VERSION
+                    || version != mCarrierListVersion) {
+                logd("[CarrierIdTable] version changed from " + mCarrierListVersion + " to "
+                        + version);
+                clear();
+            }
+        }
+
+        synchronized void clear() {
+            mRulesOnMccMnc.clear();
+            mCarrierNames.clear();
+            mRuleCount = 0;
+            mCarrierListVersion = TelephonyManager.UNKNOWN_CARRIER_ID_LIST_VERSION;
+            mLoaded = false;
+        }
+
+        @GuardedBy("this")
+        private boolean loadIfNeeded(@NonNull Context context) {
+            if (mLoaded) return true;
+            try (Cursor cursor = context.getContentResolver().query(
+                    CarrierId.All.CONTENT_URI,
+                    /* projection */ null,
+                    /* selection */ null,
+                    /* selectionArgs */ null, null)) {
+                if (cursor == null) return false;
+                mRulesOnMccMnc.clear();
+                mCarrierNames.clear();
+                while (cursor.moveToNext()) {
+                    CarrierMatchingRule rule = makeCarrierMatchingRule(cursor);
+                    List<CarrierMatchingRule> rules = mRulesOnMccMnc.get(rule.mccMnc);
+                    if (rules == null) {
+                        rules = new ArrayList<>();
+                        mRulesOnMccMnc.put(rule.mccMnc, rules);
+                    }
+                    rules.add(rule);
+                    if (rule.mName != null && mCarrierNames.get(rule.mCid) == null) {
+                        mCarrierNames.put(rule.mCid, rule.mName);
+                    }
+                }
+                mRuleCount = cursor.getCount();
+            } catch (Exception ex) {
+                loge("[CarrierIdTable]- ex: " + ex);
+                clear();
+                return false;
+            }
+            mCarrierListVersion = queryCarrierListVersion(context);
+            mLoaded = true;
+            mLoadCount++;
+            logd("[CarrierIdTable] loaded " + mRuleCount + " rules on " + mRulesOnMccMnc.size()
+                    + " mccmnc, version: " + mCarrierListVersion);
+            return true;
+        }
+
+        private static int queryCarrierListVersion(@NonNull Context context) {
+            try (Cursor cursor = context.getContentResolver().query(
+                    Uri.withAppendedPath(CarrierId.All.CONTENT_URI, "get_version"),
+                    null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    return cursor.getInt(0);
+                }
+            } catch (Exception ex) {
+                loge("[CarrierIdTable] get version ex: " + ex);
+            }
+            return TelephonyManager.UNKNOWN_CARRIER_ID_LIST_VERSION;
+        }
+
+        synchronized void dump(@NonNull IndentingPrintWriter ipw) {
+            ipw.println("CarrierIdTable: loaded=" + mLoaded
+                    + " version=" + mCarrierListVersion
+                    + " rules=" + mRuleCount
+                    + " mccmnc=" + mRulesOnMccMnc.size()
+                    + " loadCount=" + mLoadCount);
+        }
+
+        @VisibleForTesting
+        synchronized int getLoadCount() {
+            return mLoadCount;
+        }
+    }
+
+    /**
+     * Clear the process-wide carrier id table so that it is reloaded from the provider.
+     */
+    @VisibleForTesting
+    public static void clearCarrierIdTable() {
+        sCarrierIdTable.clear();
+    }
+
+    /**
+     * @return the number of times the process-wide carrier id table has been loaded.
+     */
+    @VisibleForTesting
+    public static int getCarrierIdTableLoadCount() {
+        return sCarrierIdTable.getLoadCount();
+    }
+
     private static CarrierMatchingRule makeCarrierMatchingRule(Cursor cursor) {
         String certs = cursor.getString(
                 cursor.getColumnIndexOrThrow(CarrierId.All.PRIVILEGE_ACCESS_RULE));
@@ -1054,8 +1171,9 @@ public class CarrierResolver extends Handler {
 
         int carrierId = TelephonyManager.UNKNOWN_CARRIER_ID;
         int maxScore = CarrierMatchingRule.SCORE_INVALID;
-        List<CarrierMatchingRule> rules = getCarrierMatchingRulesFromMccMnc(
+        List<CarrierMatchingRule> rules = sCarrierIdTable.getRulesOnMccMnc(
                 context, targetRule.mccMnc);
+        if (rules == null) return carrierId;
         for (CarrierMatchingRule rule : rules) {
             rule.match(targetRule);
             if (rule.mScore > maxScore) {
@@ -1078,65 +1196,46 @@ public class CarrierResolver extends Handler {
     public static List<Integer> getCarrierIdsFromApnQuery(@NonNull Context context,
                                                           String mccmnc, String mvnoCase,
                                                           String mvnoData) {
-        String selection = CarrierId.All.MCCMNC + "=" + mccmnc;
-        // build the proper query
-        if ("spn".equals(mvnoCase) && mvnoData != null) {
-            selection += " AND " + CarrierId.All.SPN + "='" + mvnoData + "'";
-        } else if ("imsi".equals(mvnoCase) && mvnoData != null) {
-            selection += " AND " + CarrierId.All.IMSI_PREFIX_XPATTERN + "='" + mvnoData + "'";
-        } else if ("gid1".equals(mvnoCase) && mvnoData != null) {
-            selection += " AND " + CarrierId.All.GID1 + "='" + mvnoData + "'";
-        } else if ("gid2".equals(mvnoCase) && mvnoData != null) {
-            selection += " AND " + CarrierId.All.GID2 + "='" + mvnoData +"'";
-        } else {
+        List<Integer> ids = new ArrayList<>();
+        List<CarrierMatchingRule> rules = sCarrierIdTable.getRulesOnMccMnc(context, mccmnc);
+        if (rules == null) {
+            logd("[getCarrierIdsFromApnQuery]- carrier id table not available");
+            return ids;
+        }
+        if (mvnoData == null || !("spn".equals(mvnoCase) || "imsi".equals(mvnoCase)
+                || "gid1".equals(mvnoCase) || "gid2".equals(mvnoCase))) {
             logd("mvno case empty or other invalid values");
         }
-
-        List<Integer> ids = new ArrayList<>();
-        try {
-            Cursor cursor = context.getContentResolver().query(
-                    CarrierId.All.CONTENT_URI,
-                    /* projection */ null,
-                    /* selection */ selection,
-                    /* selectionArgs */ null, null);
-            try {
-                if (cursor != null) {
-                    if (VDBG) {
-                        logd("[getCarrierIdsFromApnQuery]- " + cursor.getCount()
-                                + " Records(s) in DB");
-                    }
-                    while (cursor.moveToNext()) {
-                        int cid = cursor.getInt(cursor.getColumnIndex(CarrierId.CARRIER_ID));
-                        if (!ids.contains(cid)) {
-                            ids.add(cid);
-                        }
-                    }
-                }
-            } finally {
-                if (cursor != null) {
-                    cursor.close();
-                }
+        for (CarrierMatchingRule rule : rules) {
+            if (matchesMvno(rule, mvnoCase, mvnoData) && !ids.contains(rule.mCid)) {
+                ids.add(rule.mCid);
             }
-        } catch (Exception ex) {
-            loge("[getCarrierIdsFromApnQuery]- ex: " + ex);
         }
-        logd(selection + " " + ids);
+        logd("[getCarrierIdsFromApnQuery] mccmnc: " + mccmnc + " mvno_type: " + mvnoCase
+                + " mvno_data: " + mvnoData + " " + ids);
         return ids;
     }
 
+    // exact match on the mvno attribute, same as the former selection on the carrier id table.
+    private static boolean matchesMvno(@NonNull CarrierMatchingRule rule, String mvnoCase,
+            String mvnoData) {
+        if (mvnoData == null) return true;
+        if ("spn".equals(mvnoCase)) {
+            return mvnoData.equals(rule.spn);
+        } else if ("imsi".equals(mvnoCase)) {
+            return mvnoData.equals(rule.imsiPrefixPattern);
+        } else if ("gid1".equals(mvnoCase)) {
+            return mvnoData.equals(rule.gid1);
+        } else if ("gid2".equals(mvnoCase)) {
+            return mvnoData.equals(rule.gid2);
+        }
+        return true;
+    }
+
     // static helper function to get carrier id from mccmnc
     public static int getCarrierIdFromMccMnc(@NonNull Context context, String mccmnc) {
-        try (Cursor cursor = getCursorForMccMnc(context, mccmnc)) {
-            if (cursor == null || !cursor.moveToNext()) return TelephonyManager.UNKNOWN_CARRIER_ID;
-            if (VDBG) {
-                logd("[getCarrierIdFromMccMnc]- " + cursor.getCount()
-                        + " Records(s) in DB" + " mccmnc: " + mccmnc);
-            }
-            return cursor.getInt(cursor.getColumnIndex(CarrierId.CARRIER_ID));
-        } catch (Exception ex) {
-            loge("[getCarrierIdFromMccMnc]- ex: " + ex);
-        }
-        return TelephonyManager.UNKNOWN_CARRIER_ID;
+        CarrierMatchingRule rule = sCarrierIdTable.getMccMncOnlyRule(context, mccmnc);
+        return rule == null ? TelephonyManager.UNKNOWN_CARRIER_ID : rule.mCid;
     }
 
     /**
@@ -1149,41 +1248,8 @@ public class CarrierResolver extends Handler {
      */
     @Nullable
     public static String getCarrierNameFromMccMnc(@NonNull Context context, String mccmnc) {
-        try (Cursor cursor = getCursorForMccMnc(context, mccmnc)) {
-            if (cursor == null || !cursor.moveToNext()) return null;
-            if (VDBG) {
-                logd("[getCarrierNameFromMccMnc]- " + cursor.getCount()
-                        + " Records(s) in DB" + " mccmnc: " + mccmnc);
-            }
-            return cursor.getString(cursor.getColumnIndex(CarrierId.CARRIER_NAME));
-        } catch (Exception ex) {
-            loge("[getCarrierNameFromMccMnc]- ex: " + ex);
-        }
-        return null;
-    }
-
-    @Nullable
-    private static Cursor getCursorForMccMnc(@NonNull Context context, String mccmnc) {
-        try {
-            Cursor cursor = context.getContentResolver().query(
-                    CarrierId.All.CONTENT_URI,
-                    /* projection */ null,
-                    /* selection */ CarrierId.All.MCCMNC + "=? AND "
-                            + CarrierId.All.GID1 + " is NULL AND "
-                            + CarrierId.All.GID2 + " is NULL AND "
-                            + CarrierId.All.IMSI_PREFIX_XPATTERN + " is NULL AND "
-                            + CarrierId.All.SPN + " is NULL AND "
-                            + CarrierId.All.ICCID_PREFIX + " is NULL AND "
-                            + CarrierId.All.PLMN + " is NULL AND "
-                            + CarrierId.All.PRIVILEGE_ACCESS_RULE + " is NULL AND "
-                            + CarrierId.All.APN + " is NULL",
-                    /* selectionArgs */ new String[]{mccmnc},
-                    null);
-            return cursor;
-        } catch (Exception ex) {
-            loge("[getCursorForMccMnc]- ex: " + ex);
-            return null;
-        }
+        CarrierMatchingRule rule = sCarrierIdTable.getMccMncOnlyRule(context, mccmnc);
+        return rule == null ? null : rule.mName;
     }
 
     private static boolean equals(String a, String b, boolean ignoreCase) {
@@ -1218,6 +1284,7 @@ public class CarrierResolver extends Handler {
         ipw.println("mCarrierName: " + mCarrierName);
         ipw.println("mSpecificCarrierName: " + mSpecificCarrierName);
         ipw.println("carrier_list_version: " + getCarrierListVersion());
+        sCarrierIdTable.dump(ipw);
 
         ipw.println("mCarrierMatchingRules on mccmnc: "
                 + mTelephonyMgr.getSimOperatorNumericForPhone(mPhone.getPhoneId()));
@@ -2707,4 +2707,11 @@ public interface CommandsInterface {
     default void notifyImsDataNetwork(@RadioAccessNetworkType int accessNetwork,
             @DataState int dataNetworkState, @TransportType int physicalTransportType,
             int physicalNetworkSlotIndex, @Nullable Message result) {}
+
+    /**
+     * Forget the last signal strength, cell info and physical channel config indications, so the
+     * next ones are delivered even if they carry the same values. This should be called whenever
+     * the state derived from these indications is reset, e.g. on radio off.
+     */
+    default void resetIndicationCoalescing() {}
 }
@@ -17,7 +17,11 @@
 package com.android.internal.telephony;
 
 import android.annotation.NonNull;
+import android.annotation.Nullable;
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DeviceConfig;
 import android.telephony.Annotation;
 import android.telephony.Annotation.RadioPowerState;
 import android.telephony.Annotation.SrvccState;
@@ -34,6 +38,7 @@ import android.telephony.PreciseCallState;
 import android.telephony.PreciseDataConnectionState;
 import android.telephony.SecurityAlgorithmUpdate;
 import android.telephony.ServiceState;
+import android.telephony.SignalStrength;
 import android.telephony.TelephonyDisplayInfo;
 import android.telephony.TelephonyManager.DataEnabledReason;
 import android.telephony.TelephonyManager.EmergencyCallbackModeStopReason;
@@ -44,11 +49,18 @@ import android.telephony.ims.ImsCallSession;
 import android.telephony.ims.ImsReasonInfo;
 import android.telephony.ims.MediaQualityStatus;
 import android.telephony.satellite.NtnSignalStrength;
+import android.text.TextUtils;
+import android.util.SparseArray;
 
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.flags.FeatureFlags;
+import com.android.internal.util.IndentingPrintWriter;
 import com.android.telephony.Rlog;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -59,17 +71,313 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
     private static final String LOG_TAG = "DefaultPhoneNotifier";
     private static final boolean DBG = false; // STOPSHIP if true
 
+    /**
+     * DeviceConfig key of the time window in milliseconds to coalesce the state notifications
+     * within. 0 disables coalescing.
+     */
+    private static final String KEY_NOTIFICATION_COALESCING_WINDOW_MILLIS =
+            "notification_coalescing_window_millis";
+
+    /** State notifications that can be coalesced. */
+    private static final int TYPE_SERVICE_STATE = 0;
+    private static final int TYPE_SIGNAL_STRENGTH = 1;
+    private static final int TYPE_CELL_INFO = 2;
+    private static final int TYPE_DISPLAY_INFO = 3;
+    private static final int TYPE_PHYSICAL_CHANNEL_CONFIG = 4;
+    private static final int TYPE_BARRING_INFO = 5;
+    /** Matches no single type, to take the held notifications of all types. */
+    private static final int TYPE_ALL = -1;
+    private static final String[] TYPE_NAMES = {"ServiceState", "SignalStrength", "CellInfo",
+            "DisplayInfo", "PhysicalChannelConfig", "BarringInfo"};
+
+    /**
+     * The state notifications of a type on a phone within a coalescing window. The first
+     * notification is sent right away and opens the window. The ones after it replace each other
+     * until the window ends, and only the last one is sent.
+     *
+     * <p>The coalesced notifications of a phone are sent in the order they were issued across
+     * types: before one is sent, the notifications of the other types issued before it and still
+     * held are sent first. Notifications of the other, never coalesced, types are not ordered
+     * against the held ones.
+     */
+    private static class CoalescingWindow {
+        /** The order in which the pending notification was issued. */
+        long sequence;
+        /** The subscription id of the pending notification. */
+        int subId;
+        /** The payload of the pending notification. */
+        @Nullable
+        Object payload;
+        /** Sends the pending notification. {@code null} if there is no pending notification. */
+        @Nullable
+        Runnable send;
+    }
+
+    /** A state notification sent to the registry. */
+    private static class SentNotification {
+        final int subId;
+        @Nullable
+        final Object payload;
+
+        SentNotification(int subId, @Nullable Object payload) {
+            this.subId = subId;
+            this.payload = payload;
+        }
+    }
+
     private TelephonyRegistryManager mTelephonyRegistryMgr;
 
     /** Feature flags */
     @NonNull
     private final FeatureFlags mFeatureFlags;
 
+    @NonNull
+    private final Handler mHandler;
+
+    private final Object mLock = new Object();
+
+    /**
+     * The time window to coalesce the state notifications within. 0 if disabled. Shared by all
+     * instances, so the DeviceConfig listener updating it is only registered once.
+     */
+    private static volatile long sCoalescingWindowMillis;
+
+    /** {@code true} if the DeviceConfig listener updating the coalescing window is registered. */
+    @GuardedBy("DefaultPhoneNotifier.class")
+    private static boolean sDeviceConfigListenerRegistered;
+
+    /** (phone id, type) to the open coalescing window. */
+    @GuardedBy("mLock")
+    private final SparseArray<CoalescingWindow> mCoalescingWindows = new SparseArray<>();
+
+    /** The order in which the next coalesced notification is issued. */
+    @GuardedBy("mLock")
+    private long mNextSequence;
+
+    /** (phone id, type) to the last notification sent to the registry. */
+    @GuardedBy("mLock")
+    private final SparseArray<SentNotification> mSentNotifications = new SparseArray<>();
+
+    /** The number of state notifications sent to the registry, by type. */
+    @GuardedBy("mLock")
+    private final long[] mSentCounts = new long[TYPE_NAMES.length];
+
+    /** The number of state notifications replaced by a later one, by type. */
+    @GuardedBy("mLock")
+    private final long[] mCoalescedCounts = new long[TYPE_NAMES.length];
+
+    /** The number of state notifications not sent as nothing changed, by type. */
+    @GuardedBy("mLock")
+    private final long[] mUnchangedCounts = new long[TYPE_NAMES.length];
 
     public DefaultPhoneNotifier(Context context, @NonNull FeatureFlags featureFlags) {
         mTelephonyRegistryMgr = (TelephonyRegistryManager) context.getSystemService(
             Context.TELEPHONY_REGISTRY_SERVICE);
         mFeatureFlags = featureFlags;
+        // Looper.myLooper is only null during mock tests
+        mHandler = new Handler(Looper.myLooper() != null ? Looper.myLooper()
+                : Looper.getMainLooper());
+        registerDeviceConfigListener();
+    }
+
+    /**
+     * Read the coalescing window from DeviceConfig and keep it updated. Only the first call
+     * registers the listener.
+     */
+    private static synchronized void registerDeviceConfigListener() {
+        if (sDeviceConfigListenerRegistered) return;
+        sDeviceConfigListenerRegistered = true;
+        sCoalescingWindowMillis = DeviceConfig.getLong(DeviceConfig.NAMESPACE_TELEPHONY,
+                KEY_NOTIFICATION_COALESCING_WINDOW_MILLIS, 0);
+        DeviceConfig.addOnPropertiesChangedListener(
+                DeviceConfig.NAMESPACE_TELEPHONY, Runnable::run,
+                properties -> {
+                    if (TextUtils.equals(DeviceConfig.NAMESPACE_TELEPHONY,
+                            properties.getNamespace())) {
+                        sCoalescingWindowMillis = properties.getLong(
+                                KEY_NOTIFICATION_COALESCING_WINDOW_MILLIS, 0);
+                    }
+                });
+    }
+
+    /**
+     * Set the time window to coalesce the state notifications within.
+     *
+     * @param windowMillis The time window in milliseconds. 0 disables coalescing.
+     */
+    @VisibleForTesting
+    public void setCoalescingWindowMillis(long windowMillis) {
+        sCoalescingWindowMillis = windowMillis;
+    }
+
+    /** @return {@code true} if the state notifications are coalesced. */
+    private boolean isCoalescing() {
+        return sCoalescingWindowMillis > 0;
+    }
+
+    /**
+     * Send a state notification to the registry, or hold it until the end of the coalescing
+     * window if another notification of the same type on the phone was sent recently. A
+     * notification is not sent if it's the same as the last one sent.
+     *
+     * @param phoneId The phone id.
+     * @param subId The subscription id.
+     * @param type The type of the notification.
+     * @param payload The payload of the notification, which must not be modified afterwards.
+     * @param send Sends the notification to the registry.
+     */
+    private void notifyCoalesced(int phoneId, int subId, int type, @Nullable Object payload,
+            @NonNull Runnable send) {
+        final long windowMillis = sCoalescingWindowMillis;
+        if (windowMillis <= 0) {
+            notifyUncoalesced(phoneId, type, send);
+            return;
+        }
+
+        final int key = phoneId * TYPE_NAMES.length + type;
+        final List<Runnable> sendNow = new ArrayList<>();
+        synchronized (mLock) {
+            final long sequence = mNextSequence++;
+            CoalescingWindow window = mCoalescingWindows.get(key);
+            if (window == null) {
+                window = new CoalescingWindow();
+                mCoalescingWindows.put(key, window);
+                mHandler.postDelayed(() -> onCoalescingWindowEnd(phoneId, type),
+                        windowMillis);
+                takeEarlierNotificationsLocked(phoneId, type, sequence, sendNow);
+                addNotificationLocked(key, type, subId, payload, send, sendNow);
+            } else if (window.send == null || window.subId == subId) {
+                if (window.send != null) mCoalescedCounts[type]++;
+                window.sequence = sequence;
+                window.subId = subId;
+                window.payload = payload;
+                window.send = send;
+                return;
+            } else {
+                // The pending notification is for another subscription and is not replaced.
+                takeEarlierNotificationsLocked(phoneId, type, window.sequence, sendNow);
+                addNotificationLocked(key, type, window.subId, window.payload, window.send,
+                        sendNow);
+                window.sequence = sequence;
+                window.subId = subId;
+                window.payload = payload;
+                window.send = send;
+            }
+            // Sent under the lock, so a notification issued later can't overtake them.
+            sendNow.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Send a state notification to the registry right away. The notifications of the phone still
+     * held from when coalescing was enabled are sent first, so they can't overtake it.
+     *
+     * @param phoneId The phone id.
+     * @param type The type of the notification.
+     * @param send Sends the notification to the registry.
+     */
+    private void notifyUncoalesced(int phoneId, int type, @NonNull Runnable send) {
+        synchronized (mLock) {
+            if (mCoalescingWindows.size() > 0) {
+                final List<Runnable> sendNow = new ArrayList<>();
+                takeEarlierNotificationsLocked(phoneId, TYPE_ALL, Long.MAX_VALUE, sendNow);
+                sendNow.forEach(Runnable::run);
+            }
+            // Not recorded, so the next coalesced notification of the type is always sent.
+            mSentNotifications.remove(phoneId * TYPE_NAMES.length + type);
+            send.run();
+        }
+    }
+
+    /**
+     * Called when a coalescing window ends. The pending notification is sent and a new window is
+     * opened, so that a burst of notifications keeps being coalesced.
+     *
+     * @param phoneId The phone id.
+     * @param type The type of the notification.
+     */
+    private void onCoalescingWindowEnd(int phoneId, int type) {
+        final int key = phoneId * TYPE_NAMES.length + type;
+        final List<Runnable> sendNow = new ArrayList<>();
+        synchronized (mLock) {
+            CoalescingWindow window = mCoalescingWindows.get(key);
+            if (window == null) return;
+            if (window.send == null || sCoalescingWindowMillis <= 0) {
+                mCoalescingWindows.remove(key);
+                if (window.send == null) return;
+            } else {
+                mHandler.postDelayed(() -> onCoalescingWindowEnd(phoneId, type),
+                        sCoalescingWindowMillis);
+            }
+            takeEarlierNotificationsLocked(phoneId, type, window.sequence, sendNow);
+            addNotificationLocked(key, type, window.subId, window.payload, window.send,
+                    sendNow);
+            window.payload = null;
+            window.send = null;
+            sendNow.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Take the notifications of the other types on the phone which were issued before the given
+     * one and are still held, so they are sent first.
+     *
+     * @param phoneId The phone id.
+     * @param type The type of the notification about to be sent, or {@link #TYPE_ALL} to take the
+     * held notifications of all types.
+     * @param sequence The order in which the notification about to be sent was issued.
+     * @param sendNow The notifications to send, in order.
+     */
+    @GuardedBy("mLock")
+    private void takeEarlierNotificationsLocked(int phoneId, int type, long sequence,
+            @NonNull List<Runnable> sendNow) {
+        List<Integer> earlierKeys = new ArrayList<>();
+        for (int otherType = 0; otherType < TYPE_NAMES.length; otherType++) {
+            if (otherType == type) continue;
+            int key = phoneId * TYPE_NAMES.length + otherType;
+            CoalescingWindow window = mCoalescingWindows.get(key);
+            if (window != null && window.send != null && window.sequence < sequence) {
+                earlierKeys.add(key);
+            }
+        }
+        earlierKeys.sort((a, b) -> Long.compare(mCoalescingWindows.get(a).sequence,
+                mCoalescingWindows.get(b).sequence));
+        for (int key : earlierKeys) {
+            CoalescingWindow window = mCoalescingWindows.get(key);
+            addNotificationLocked(key, key % TYPE_NAMES.length, window.subId, window.payload,
+                    window.send, sendNow);
+            window.payload = null;
+            window.send = null;
+        }
+    }
+
+    /**
+     * Add a notification to the ones to send, unless it's the same as the last one sent.
+     */
+    @GuardedBy("mLock")
+    private void addNotificationLocked(int key, int type, int subId, @Nullable Object payload,
+            @NonNull Runnable send, @NonNull List<Runnable> sendNow) {
+        Runnable notification = takeNotificationLocked(key, type, subId, payload, send);
+        if (notification != null) sendNow.add(notification);
+    }
+
+    /**
+     * Record a notification to be sent to the registry.
+     *
+     * @return The notification to send, or {@code null} if it's the same as the last one sent.
+     */
+    @GuardedBy("mLock")
+    @Nullable
+    private Runnable takeNotificationLocked(int key, int type, int subId,
+            @Nullable Object payload, @NonNull Runnable send) {
+        SentNotification sent = mSentNotifications.get(key);
+        if (sent != null && sent.subId == subId && Objects.equals(sent.payload, payload)) {
+            mUnchangedCounts[type]++;
+            return null;
+        }
+        mSentNotifications.put(key, new SentNotification(subId, payload));
+        mSentCounts[type]++;
+        return send;
     }
 
     @Override
@@ -100,7 +408,18 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
             ss = new ServiceState();
             ss.setStateOutOfService();
         }
-        mTelephonyRegistryMgr.notifyServiceStateChanged(phoneId, subId, ss);
+        if (isCoalescing()) {
+            // The service state tracker reuses its service state objects.
+            final ServiceState serviceState = new ServiceState(ss);
+            notifyCoalesced(phoneId, subId, TYPE_SERVICE_STATE, serviceState,
+                    () -> mTelephonyRegistryMgr.notifyServiceStateChanged(phoneId, subId,
+                            serviceState));
+            return;
+        }
+        final ServiceState serviceState = ss;
+        notifyUncoalesced(phoneId, TYPE_SERVICE_STATE,
+                () -> mTelephonyRegistryMgr.notifyServiceStateChanged(phoneId, subId,
+                        serviceState));
     }
 
     @Override
@@ -112,8 +431,17 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
             Rlog.d(LOG_TAG, "notifySignalStrength: mRegistryMgr=" + mTelephonyRegistryMgr
                 + " ss=" + sender.getSignalStrength() + " sender=" + sender);
         }
-        mTelephonyRegistryMgr.notifySignalStrengthChanged(phoneId, subId,
-                sender.getSignalStrength());
+        if (isCoalescing()) {
+            final SignalStrength signalStrength = new SignalStrength(sender.getSignalStrength());
+            notifyCoalesced(phoneId, subId, TYPE_SIGNAL_STRENGTH, signalStrength,
+                    () -> mTelephonyRegistryMgr.notifySignalStrengthChanged(phoneId, subId,
+                            signalStrength));
+            return;
+        }
+        final SignalStrength signalStrength = sender.getSignalStrength();
+        notifyUncoalesced(phoneId, TYPE_SIGNAL_STRENGTH,
+                () -> mTelephonyRegistryMgr.notifySignalStrengthChanged(phoneId, subId,
+                        signalStrength));
     }
 
     @Override
@@ -159,7 +487,14 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
     @Override
     public void notifyCellInfo(Phone sender, List<CellInfo> cellInfo) {
         int subId = sender.getSubId();
-        mTelephonyRegistryMgr.notifyCellInfoChanged(subId, cellInfo);
+        if (isCoalescing()) {
+            final List<CellInfo> cellInfoList = cellInfo == null ? null : new ArrayList<>(cellInfo);
+            notifyCoalesced(sender.getPhoneId(), subId, TYPE_CELL_INFO, cellInfoList,
+                    () -> mTelephonyRegistryMgr.notifyCellInfoChanged(subId, cellInfoList));
+            return;
+        }
+        notifyUncoalesced(sender.getPhoneId(), TYPE_CELL_INFO,
+                () -> mTelephonyRegistryMgr.notifyCellInfoChanged(subId, cellInfo));
     }
 
     /**
@@ -222,8 +557,17 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
 
     @Override
     public void notifyDisplayInfoChanged(Phone sender, TelephonyDisplayInfo telephonyDisplayInfo) {
-        mTelephonyRegistryMgr.notifyDisplayInfoChanged(sender.getPhoneId(), sender.getSubId(),
-                telephonyDisplayInfo);
+        final int phoneId = sender.getPhoneId();
+        final int subId = sender.getSubId();
+        if (isCoalescing()) {
+            notifyCoalesced(phoneId, subId, TYPE_DISPLAY_INFO, telephonyDisplayInfo,
+                    () -> mTelephonyRegistryMgr.notifyDisplayInfoChanged(phoneId, subId,
+                            telephonyDisplayInfo));
+            return;
+        }
+        notifyUncoalesced(phoneId, TYPE_DISPLAY_INFO,
+                () -> mTelephonyRegistryMgr.notifyDisplayInfoChanged(phoneId, subId,
+                        telephonyDisplayInfo));
     }
 
     @Override
@@ -270,15 +614,35 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
 
     @Override
     public void notifyBarringInfoChanged(Phone sender, BarringInfo barringInfo) {
-        mTelephonyRegistryMgr.notifyBarringInfoChanged(sender.getPhoneId(), sender.getSubId(),
-                barringInfo);
+        final int phoneId = sender.getPhoneId();
+        final int subId = sender.getSubId();
+        if (isCoalescing()) {
+            notifyCoalesced(phoneId, subId, TYPE_BARRING_INFO, barringInfo,
+                    () -> mTelephonyRegistryMgr.notifyBarringInfoChanged(phoneId, subId,
+                            barringInfo));
+            return;
+        }
+        notifyUncoalesced(phoneId, TYPE_BARRING_INFO,
+                () -> mTelephonyRegistryMgr.notifyBarringInfoChanged(phoneId, subId,
+                        barringInfo));
     }
 
     @Override
     public void notifyPhysicalChannelConfig(Phone sender,
                                                    List<PhysicalChannelConfig> configs) {
-        mTelephonyRegistryMgr.notifyPhysicalChannelConfigForSubscriber(
-                sender.getPhoneId(), sender.getSubId(), configs);
+        final int phoneId = sender.getPhoneId();
+        final int subId = sender.getSubId();
+        if (isCoalescing()) {
+            final List<PhysicalChannelConfig> configList =
+                    configs == null ? null : new ArrayList<>(configs);
+            notifyCoalesced(phoneId, subId, TYPE_PHYSICAL_CHANNEL_CONFIG, configList,
+                    () -> mTelephonyRegistryMgr.notifyPhysicalChannelConfigForSubscriber(
+                            phoneId, subId, configList));
+            return;
+        }
+        notifyUncoalesced(phoneId, TYPE_PHYSICAL_CHANNEL_CONFIG,
+                () -> mTelephonyRegistryMgr.notifyPhysicalChannelConfigForSubscriber(
+                        phoneId, subId, configs));
     }
 
     @Override
@@ -399,4 +763,22 @@ public class DefaultPhoneNotifier implements PhoneNotifier {
     private void log(String s) {
         Rlog.d(LOG_TAG, s);
     }
+
+    /**
+     * Dump the state of DefaultPhoneNotifier
+     *
+     * @param pw print writer.
+     */
+    public void dump(@NonNull IndentingPrintWriter pw) {
+        pw.println("DefaultPhoneNotifier:");
+        pw.increaseIndent();
+        pw.println("sCoalescingWindowMillis=" + sCoalescingWindowMillis);
+        synchronized (mLock) {
+            for (int type = 0; type < TYPE_NAMES.length; type++) {
+                pw.println(TYPE_NAMES[type] + ": sent=" + mSentCounts[type] + ", coalesced="
+                        + mCoalescedCounts[type] + ", unchanged=" + mUnchangedCounts[type]);
+            }
+        }
+        pw.decreaseIndent();
+    }
 }
@@ -38,7 +38,6 @@ import android.net.TetheringManager;
 import android.os.BatteryManager;
 import android.os.Handler;
 import android.os.Message;
-import android.os.PersistableBundle;
 import android.os.PowerManager;
 import android.os.Registrant;
 import android.os.RegistrantList;
@@ -96,6 +95,76 @@ public class DeviceStateMonitor extends Handler {
     private static final int NR_NSA_TRACKING_INDICATIONS_EXTENDED = 1;
     private static final int NR_NSA_TRACKING_INDICATIONS_ALWAYS_ON = 2;
 
+    /** The policy to enable the indications for power consumption's sake is met. */
+    private static final int CONDITION_HIGH_POWER_CONSUMPTION = 1 << 0;
+    /** The policy to enable the NR tracking indications is met. */
+    private static final int CONDITION_NR_TRACKING = 1 << 1;
+    /** A system service always listens to signal strength changes and the radio is on. */
+    private static final int CONDITION_ALWAYS_REPORT_SIGNAL_STRENGTH = 1 << 2;
+    /** The carrier config allows the modem display network type. */
+    private static final int CONDITION_MODEM_DISPLAY_NETWORK_TYPE = 1 << 3;
+
+    /** The conditions have not been evaluated yet. */
+    private static final int CONDITIONS_UNKNOWN = -1;
+
+    /**
+     * A rule to enable an indication from the modem. The indication is enabled if all the
+     * conditions of any of the condition sets are met.
+     */
+    private static final class IndicationRule {
+        /** The indication. See IndicationFilter defined in types.hal. */
+        final int filter;
+        @NonNull
+        final String name;
+        /** The condition sets. An empty condition set is always met. */
+        @NonNull
+        final int[] conditionSets;
+
+        IndicationRule(int filter, @NonNull String name, @NonNull int... conditionSets) {
+            this.filter = filter;
+            this.name = name;
+            this.conditionSets = conditionSets;
+        }
+
+        boolean isEnabled(int conditions) {
+            for (int conditionSet : conditionSets) {
+                if ((conditions & conditionSet) == conditionSet) return true;
+            }
+            return false;
+        }
+    }
+
+    /** The rules to enable the indications from the modem. */
+    private static final IndicationRule[] INDICATION_RULES = {
+            // Registration Failure is always reported.
+            new IndicationRule(IndicationFilter.REGISTRATION_FAILURE, "REGISTRATION_FAILURE", 0),
+            // See android.hardware.radio@1.2::IndicationFilter::SIGNAL_STRENGTH. If the radio is
+            // off no indications should be sent regardless, but in the rare case that something
+            // registers/unregisters for always-on indications and the radio is off, we might as
+            // well ignore it.
+            new IndicationRule(IndicationFilter.SIGNAL_STRENGTH, "SIGNAL_STRENGTH",
+                    CONDITION_HIGH_POWER_CONSUMPTION, CONDITION_ALWAYS_REPORT_SIGNAL_STRENGTH),
+            // When off, only significant changes will trigger the network update unsolicited
+            // response. See android.hardware.radio@1.2::IndicationFilter::FULL_NETWORK_STATE.
+            new IndicationRule(IndicationFilter.FULL_NETWORK_STATE, "FULL_NETWORK_STATE",
+                    CONDITION_NR_TRACKING),
+            // See android.hardware.radio@1.2::IndicationFilter::DATA_CALL_DORMANCY_CHANGED.
+            new IndicationRule(IndicationFilter.DATA_CALL_DORMANCY_CHANGED,
+                    "DATA_CALL_DORMANCY_CHANGED", CONDITION_NR_TRACKING),
+            // See android.hardware.radio@1.2::IndicationFilter::LINK_CAPACITY_ESTIMATE.
+            new IndicationRule(IndicationFilter.LINK_CAPACITY_ESTIMATE, "LINK_CAPACITY_ESTIMATE",
+                    CONDITION_HIGH_POWER_CONSUMPTION),
+            // See android.hardware.radio@1.2::IndicationFilter::PHYSICAL_CHANNEL_CONFIG.
+            new IndicationRule(IndicationFilter.PHYSICAL_CHANNEL_CONFIG, "PHYSICAL_CHANNEL_CONFIG",
+                    CONDITION_NR_TRACKING),
+            // See android.hardware.radio@1.5::IndicationFilter::BARRING_INFO.
+            new IndicationRule(IndicationFilter.BARRING_INFO, "BARRING_INFO",
+                    CONDITION_HIGH_POWER_CONSUMPTION),
+            new IndicationRule(IndicationFilter.DISPLAY_NETWORK_TYPE_CHANGED,
+                    "DISPLAY_NETWORK_TYPE_CHANGED",
+                    CONDITION_HIGH_POWER_CONSUMPTION | CONDITION_MODEM_DISPLAY_NETWORK_TYPE),
+    };
+
     private final Phone mPhone;
     @NonNull
     private final FeatureFlags mFeatureFlags;
@@ -222,6 +291,12 @@ public class DeviceStateMonitor extends Handler {
      */
     private int mUnsolicitedResponseFilter = IndicationFilter.ALL;
 
+    /** The conditions the indication rules were last evaluated over. */
+    private int mIndicationConditions = CONDITIONS_UNKNOWN;
+
+    /** The number of filter updates not sent to the modem because the filter didn't change. */
+    private int mSkippedFilterUpdateCount;
+
     private final DisplayManager.DisplayListener mDisplayListener =
             new DisplayManager.DisplayListener() {
                 @Override
@@ -307,17 +382,14 @@ public class DeviceStateMonitor extends Handler {
         // Assuming tethering is always off after boot up.
         mIsTetheringOn = false;
         mIsLowDataExpected = false;
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (ccm != null) {
-            // Update device state for display network type base on carrier config
-            ccm.registerCarrierConfigChangeListener(this::post,
-                    (slotIndex, subId, carrierId, specificCarrierId) -> {
-                        if (slotIndex == mPhone.getPhoneId()) {
-                            onUpdateDeviceState(EVENT_DISPLAY_NETWORK_TYPE_CARRIER_CONFIG_CHANGED,
-                                    isModemDisplayNetworkTypeEnabled());
-                        }
-                    });
-        }
+        // Update device state for display network type base on carrier config
+        CarrierConfigCache.getInstance(mPhone.getContext()).registerCarrierConfigChangeListener(
+                this::post, (slotIndex, subId, carrierId, specificCarrierId) -> {
+                    if (slotIndex == mPhone.getPhoneId()) {
+                        onUpdateDeviceState(EVENT_DISPLAY_NETWORK_TYPE_CARRIER_CONFIG_CHANGED,
+                                isModemDisplayNetworkTypeEnabled());
+                    }
+                });
         mCarrierRequiredModemDisplayNetworkType = isModemDisplayNetworkTypeEnabled();
 
         log("DeviceStateMonitor mIsTetheringOn=" + mIsTetheringOn
@@ -387,70 +459,39 @@ public class DeviceStateMonitor extends Handler {
     }
 
     /**
-     * @return True if signal strength update should be enabled. See details in
-     *         android.hardware.radio@1.2::IndicationFilter::SIGNAL_STRENGTH.
-     */
-    private boolean shouldEnableSignalStrengthReports() {
-        // We should enable signal strength update if one of the following condition is true.
-        // 1. Whenever the conditions for high power usage are met.
-        // 2. Any of system services is registrating to always listen to signal strength changes
-        //    and the radio is on (if radio is off no indications should be sent regardless, but
-        //    in the rare case that something registers/unregisters for always-on indications
-        //    and the radio is off, we might as well ignore it).
-        return shouldEnableHighPowerConsumptionIndications()
-                || (mIsAlwaysSignalStrengthReportingEnabled && mIsRadioOn);
-    }
-
-    /**
-     * @return True if full network state update should be enabled. When off, only significant
-     *         changes will trigger the network update unsolicited response. See details in
-     *         android.hardware.radio@1.2::IndicationFilter::FULL_NETWORK_STATE.
-     */
-    private boolean shouldEnableFullNetworkStateReports() {
-        return shouldEnableNrTrackingIndications();
-    }
-
-    /**
-     * @return True if data call dormancy changed update should be enabled. See details in
-     *         android.hardware.radio@1.2::IndicationFilter::DATA_CALL_DORMANCY_CHANGED.
-     */
-    private boolean shouldEnableDataCallDormancyChangedReports() {
-        return shouldEnableNrTrackingIndications();
-    }
-
-    /**
-     * @return True if link capacity estimate update should be enabled. See details in
-     *         android.hardware.radio@1.2::IndicationFilter::LINK_CAPACITY_ESTIMATE.
-     */
-    private boolean shouldEnableLinkCapacityEstimateReports() {
-        return shouldEnableHighPowerConsumptionIndications();
-    }
-
-    /**
-     * @return True if physical channel config update should be enabled. See details in
-     *         android.hardware.radio@1.2::IndicationFilter::PHYSICAL_CHANNEL_CONFIG.
-     */
-    private boolean shouldEnablePhysicalChannelConfigReports() {
-        return shouldEnableNrTrackingIndications();
-    }
-
-    /**
-     * @return True if display network type changed update should be enabled.
-     * This is enabled if:
-     * 1. The carrier config allows it.
-     * 2. Not in high power consumption mode.
+     * Evaluate the conditions the indication rules are evaluated over.
+     *
+     * @return The conditions met. The combination of CONDITION_* constants.
      */
-    private boolean shouldEnableDisplayNetworkTypeReports() {
-        return mCarrierRequiredModemDisplayNetworkType
-                && shouldEnableHighPowerConsumptionIndications();
+    private int computeIndicationConditions() {
+        int conditions = 0;
+        if (shouldEnableHighPowerConsumptionIndications()) {
+            conditions |= CONDITION_HIGH_POWER_CONSUMPTION;
+        }
+        if (shouldEnableNrTrackingIndications()) {
+            conditions |= CONDITION_NR_TRACKING;
+        }
+        if (mIsAlwaysSignalStrengthReportingEnabled && mIsRadioOn) {
+            conditions |= CONDITION_ALWAYS_REPORT_SIGNAL_STRENGTH;
+        }
+        if (mCarrierRequiredModemDisplayNetworkType) {
+            conditions |= CONDITION_MODEM_DISPLAY_NETWORK_TYPE;
+        }
+        return conditions;
     }
 
     /**
-     * @return True if barring info update should be enabled. See details in
-     *         android.hardware.radio@1.5::IndicationFilter::BARRING_INFO.
+     * @param conditions The conditions met.
+     * @return The unsolicited response filter with the indications whose rules are met.
      */
-    private boolean shouldEnableBarringInfoReports() {
-        return shouldEnableHighPowerConsumptionIndications();
+    private static int computeIndicationFilter(int conditions) {
+        int filter = 0;
+        for (IndicationRule rule : INDICATION_RULES) {
+            if (rule.isEnabled(conditions)) {
+                filter |= rule.filter;
+            }
+        }
+        return filter;
     }
 
     /**
@@ -547,7 +588,10 @@ public class DeviceStateMonitor extends Handler {
      * @param state True if enabled/on, otherwise disabled/off.
      */
     private void onUpdateDeviceState(int eventType, boolean state) {
-        final boolean shouldEnableBarringInfoReportsOld = shouldEnableBarringInfoReports();
+        if (mIndicationConditions == CONDITIONS_UNKNOWN) {
+            mIndicationConditions = computeIndicationConditions();
+        }
+        final int oldFilter = computeIndicationFilter(mIndicationConditions);
         final boolean wasHighPowerEnabled = shouldEnableHighPowerConsumptionIndications();
         boolean wasScreenOn = mIsScreenOn;
         switch (eventType) {
@@ -611,37 +655,8 @@ public class DeviceStateMonitor extends Handler {
             sendDeviceState(LOW_DATA_EXPECTED, mIsLowDataExpected);
         }
 
-        // Registration Failure is always reported.
-        int newFilter = IndicationFilter.REGISTRATION_FAILURE;
-
-        if (shouldEnableSignalStrengthReports()) {
-            newFilter |= IndicationFilter.SIGNAL_STRENGTH;
-        }
-
-        if (shouldEnableFullNetworkStateReports()) {
-            newFilter |= IndicationFilter.FULL_NETWORK_STATE;
-        }
-
-        if (shouldEnableDataCallDormancyChangedReports()) {
-            newFilter |= IndicationFilter.DATA_CALL_DORMANCY_CHANGED;
-        }
-
-        if (shouldEnableLinkCapacityEstimateReports()) {
-            newFilter |= IndicationFilter.LINK_CAPACITY_ESTIMATE;
-        }
-
-        if (shouldEnablePhysicalChannelConfigReports()) {
-            newFilter |= IndicationFilter.PHYSICAL_CHANNEL_CONFIG;
-        }
-
-        final boolean shouldEnableBarringInfoReports = shouldEnableBarringInfoReports();
-        if (shouldEnableBarringInfoReports) {
-            newFilter |= IndicationFilter.BARRING_INFO;
-        }
-
-        if (shouldEnableDisplayNetworkTypeReports()) {
-            newFilter |= IndicationFilter.DISPLAY_NETWORK_TYPE_CHANGED;
-        }
+        mIndicationConditions = computeIndicationConditions();
+        final int newFilter = computeIndicationFilter(mIndicationConditions);
 
         // notify PhysicalChannelConfig registrants if state changes
         if ((newFilter & IndicationFilter.PHYSICAL_CHANNEL_CONFIG)
@@ -653,14 +668,15 @@ public class DeviceStateMonitor extends Handler {
         setUnsolResponseFilter(newFilter, false);
 
         // Pull barring info AFTER setting filter, the order matters
-        if (shouldEnableBarringInfoReports && !shouldEnableBarringInfoReportsOld) {
+        if ((newFilter & IndicationFilter.BARRING_INFO) != 0
+                && (oldFilter & IndicationFilter.BARRING_INFO) == 0) {
             if (DBG) log("Manually pull barring info...", true);
             // use a null message since we don't care of receiving response
             mPhone.mCi.getBarringInfo(null);
         }
 
         // Determine whether to notify registrants about the non-terrestrial signal strength change.
-        if (shouldEnableSignalStrengthReports()) {
+        if ((newFilter & IndicationFilter.SIGNAL_STRENGTH) != 0) {
             mSignalStrengthReportDecisionCallbackRegistrants.notifyResult(true);
         } else {
             mSignalStrengthReportDecisionCallbackRegistrants.notifyResult(false);
@@ -726,6 +742,8 @@ public class DeviceStateMonitor extends Handler {
             log("old filter: " + mUnsolicitedResponseFilter + ", new filter: " + newFilter, true);
             mPhone.mCi.setUnsolResponseFilter(newFilter, null);
             mUnsolicitedResponseFilter = newFilter;
+        } else {
+            mSkippedFilterUpdateCount++;
         }
     }
 
@@ -824,16 +842,8 @@ public class DeviceStateMonitor extends Handler {
     }
 
     private boolean isModemDisplayNetworkTypeEnabled() {
-        PersistableBundle config = CarrierConfigManager.getDefaultConfig();
-        CarrierConfigManager configManager = (CarrierConfigManager)
-                mPhone.getContext().getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        if (configManager != null) {
-            PersistableBundle b = configManager.getConfigForSubId(mPhone.getSubId());
-            if (b != null) {
-                config = b;
-            }
-        }
-        return config.getBoolean(CarrierConfigManager.KEY_USE_MODEM_DISPLAY_NETWORK_TYPE_BOOL);
+        return CarrierConfigCache.getInstance(mPhone.getContext()).getBoolean(mPhone.getSubId(),
+                CarrierConfigManager.KEY_USE_MODEM_DISPLAY_NETWORK_TYPE_BOOL);
     }
 
     /**
@@ -931,6 +941,22 @@ public class DeviceStateMonitor extends Handler {
         ipw.println("mIsAlwaysSignalStrengthReportingEnabled="
                 + mIsAlwaysSignalStrengthReportingEnabled);
         ipw.println("mIsRadioOn=" + mIsRadioOn);
+        final boolean conditionsKnown = mIndicationConditions != CONDITIONS_UNKNOWN;
+        ipw.println("Indication policy: conditions="
+                + (conditionsKnown ? "0x" + Integer.toHexString(mIndicationConditions)
+                        : "unknown")
+                + ", skipped filter updates=" + mSkippedFilterUpdateCount);
+        ipw.increaseIndent();
+        for (IndicationRule rule : INDICATION_RULES) {
+            ipw.print(rule.name + ": enabled="
+                    + (conditionsKnown ? rule.isEnabled(mIndicationConditions) : "unknown")
+                    + ", conditions=");
+            for (int conditionSet : rule.conditionSets) {
+                ipw.print("[0x" + Integer.toHexString(conditionSet) + "]");
+            }
+            ipw.println();
+        }
+        ipw.decreaseIndent();
         ipw.println("Local logs:");
         ipw.increaseIndent();
         mLocalLog.dump(fd, ipw, args);
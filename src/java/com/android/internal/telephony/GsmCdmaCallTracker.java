@@ -50,8 +50,10 @@ import com.android.telephony.Rlog;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * @hide
@@ -78,6 +80,40 @@ public class GsmCdmaCallTracker extends CallTracker {
     private ArrayList<GsmCdmaConnection> mDroppedDuringPoll =
             new ArrayList<GsmCdmaConnection>(MAX_CONNECTIONS_GSM);
 
+    /**
+     * What a connection slot looked like after it was last processed by handlePollCalls(). A slot
+     * whose connection, call state and driver call are all unchanged in the next poll does not
+     * need to be processed again.
+     */
+    private static class PolledSlot {
+        final DriverCall mDriverCall;
+        final int mDriverCallHash;
+        final GsmCdmaConnection mConnection;
+        final GsmCdmaCall.State mState;
+
+        PolledSlot(DriverCall dc, GsmCdmaConnection conn) {
+            mDriverCall = dc;
+            mDriverCallHash = hashDriverCall(dc);
+            mConnection = conn;
+            mState = conn.getState();
+        }
+    }
+
+    // last processed state of each connection slot, null if the slot was empty
+    private final PolledSlot[] mLastPolledSlots = new PolledSlot[MAX_CONNECTIONS_GSM];
+
+    // a poll was requested while another one was in flight, so another one is issued once the
+    // in-flight result arrives
+    private boolean mRepollRequested;
+
+    // poll statistics
+    private long mPollsIssued;
+    private long mPollResultsObsolete;
+    private long mPollResults;
+    private long mPollResultsUnchanged;
+    private long mPollResultsWithChanges;
+    private long mSlotsSkipped;
+
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
     public GsmCdmaCall mRingingCall = new GsmCdmaCall(this);
     // A call that is ringing or (call) waiting
@@ -197,6 +233,7 @@ public class GsmCdmaCallTracker extends CallTracker {
         }
 
         mPendingMO = null;
+        Arrays.fill(mLastPolledSlots, null);
         clearDisconnected();
     }
 
@@ -674,8 +711,7 @@ public class GsmCdmaCallTracker extends CallTracker {
                 mPendingOperations + ", needsPoll=" + mNeedsPoll);
 
         if (mPendingOperations == 0 && mNeedsPoll) {
-            mLastRelevantPoll = obtainMessage(EVENT_POLL_CALLS_RESULT);
-            mCi.getCurrentCalls(mLastRelevantPoll);
+            issuePoll();
         } else if (mPendingOperations < 0) {
             // this should never happen
             Rlog.e(LOG_TAG,"GsmCdmaCallTracker.pendingOperations < 0");
@@ -683,6 +719,27 @@ public class GsmCdmaCallTracker extends CallTracker {
         }
     }
 
+    @Override
+    protected void pollCallsWhenSafe() {
+        mNeedsPoll = true;
+
+        if (checkNoOperationsPending()) {
+            if (mLastRelevantPoll != null) {
+                // Collapse with the poll in flight, whose result may already be outdated.
+                mRepollRequested = true;
+                return;
+            }
+            issuePoll();
+        }
+    }
+
+    private void issuePoll() {
+        mRepollRequested = false;
+        mPollsIssued++;
+        mLastRelevantPoll = obtainMessage(EVENT_POLL_CALLS_RESULT);
+        mCi.getCurrentCalls(mLastRelevantPoll);
+    }
+
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
     private void updatePhoneState() {
         PhoneConstants.State oldState = mState;
@@ -734,6 +791,33 @@ public class GsmCdmaCallTracker extends CallTracker {
             return;
         }
 
+        // polledCall list is sparse
+        DriverCall[] slotCalls = new DriverCall[mConnections.length];
+        for (int i = 0, curDC = 0, dcSize = polledCalls.size(); i < mConnections.length; i++) {
+            if (curDC < dcSize) {
+                DriverCall dc = (DriverCall) polledCalls.get(curDC);
+                if (dc.index == i + 1) {
+                    slotCalls[i] = dc;
+                    curDC++;
+                }
+            }
+        }
+
+        mPollResults++;
+        if (isPollResultUnchanged(slotCalls)) {
+            if (DBG_POLL) log("poll: unchanged");
+            mPollResultsUnchanged++;
+            if (REPEAT_POLLING) {
+                for (DriverCall dc : slotCalls) {
+                    if (dc != null && isTransientState(dc)) {
+                        pollCallsAfterDelay();
+                        break;
+                    }
+                }
+            }
+            return;
+        }
+
         Connection newRinging = null; //or waiting
         ArrayList<Connection> newUnknownConnectionsGsm = new ArrayList<Connection>();
         boolean hasNonHangupStateChanged = false;   // Any change besides
@@ -743,21 +827,12 @@ public class GsmCdmaCallTracker extends CallTracker {
         boolean unknownConnectionAppeared = false;
         int handoverConnectionsSize = mHandoverConnections.size();
 
-        for (int i = 0, curDC = 0, dcSize = polledCalls.size()
-                ; i < mConnections.length; i++) {
+        for (int i = 0; i < mConnections.length; i++) {
             GsmCdmaConnection conn = mConnections[i];
-            DriverCall dc = null;
-
-            // polledCall list is sparse
-            if (curDC < dcSize) {
-                dc = (DriverCall) polledCalls.get(curDC);
-
-                if (dc.index == i+1) {
-                    curDC++;
-                } else {
-                    dc = null;
-                }
-            }
+            DriverCall dc = slotCalls[i];
+            PolledSlot lastSlot = mLastPolledSlots[i];
+            // only recorded again once the whole poll has been processed
+            mLastPolledSlots[i] = null;
 
             if (DBG_POLL) log("poll: conn[i=" + i + "]=" +
                     conn+", dc=" + dc);
@@ -863,23 +938,21 @@ public class GsmCdmaCallTracker extends CallTracker {
                 } // else something strange happened
                 hasNonHangupStateChanged = true;
             } else if (conn != null && dc != null) { /* implicit conn.compareTo(dc) */
-                // Call collision case
-                boolean changed;
-                changed = conn.update(dc);
-                hasNonHangupStateChanged = hasNonHangupStateChanged || changed;
+                if (isSlotUnchanged(lastSlot, conn, dc)) {
+                    // Nothing changed on this call since the last poll
+                    mSlotsSkipped++;
+                } else {
+                    // Call collision case
+                    boolean changed;
+                    changed = conn.update(dc);
+                    hasNonHangupStateChanged = hasNonHangupStateChanged || changed;
+                }
             }
 
             if (REPEAT_POLLING) {
                 if (dc != null) {
                     // FIXME with RIL, we should not need this anymore
-                    if ((dc.state == DriverCall.State.DIALING
-                            /*&& cm.getOption(cm.OPTION_POLL_DIALING)*/)
-                        || (dc.state == DriverCall.State.ALERTING
-                            /*&& cm.getOption(cm.OPTION_POLL_ALERTING)*/)
-                        || (dc.state == DriverCall.State.INCOMING
-                            /*&& cm.getOption(cm.OPTION_POLL_INCOMING)*/)
-                        || (dc.state == DriverCall.State.WAITING
-                            /*&& cm.getOption(cm.OPTION_POLL_WAITING)*/)) {
+                    if (isTransientState(dc)) {
                         // Sometimes there's no unsolicited notification
                         // for state transitions
                         needsPollDelay = true;
@@ -888,6 +961,12 @@ public class GsmCdmaCallTracker extends CallTracker {
             }
         }
 
+        for (int i = 0; i < mConnections.length; i++) {
+            if (mConnections[i] != null && slotCalls[i] != null) {
+                mLastPolledSlots[i] = new PolledSlot(slotCalls[i], mConnections[i]);
+            }
+        }
+
         // This is the first poll after an ATD.
         // We expect the pending call to appear in the list
         // If it does not, we land here
@@ -988,6 +1067,7 @@ public class GsmCdmaCallTracker extends CallTracker {
         }
 
         if (hasNonHangupStateChanged || newRinging != null || hasAnyCallDisconnected) {
+            mPollResultsWithChanges++;
             mPhone.notifyPreciseCallStateChanged();
             updateMetrics(mConnections);
         }
@@ -1010,6 +1090,78 @@ public class GsmCdmaCallTracker extends CallTracker {
         mPhone.getVoiceCallSessionStats().onRilCallListChanged(activeConnections);
     }
 
+    /**
+     * @return true if the poll result is the same as the previously processed one, and nothing
+     * else is pending, so that processing it would not change anything.
+     */
+    private boolean isPollResultUnchanged(DriverCall[] slotCalls) {
+        if (mPendingMO != null || !mDroppedDuringPoll.isEmpty()
+                || !mHandoverConnections.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < mConnections.length; i++) {
+            GsmCdmaConnection conn = mConnections[i];
+            DriverCall dc = slotCalls[i];
+            if (conn == null && dc == null) continue;
+            if (conn == null || dc == null || !isSlotUnchanged(mLastPolledSlots[i], conn, dc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSlotUnchanged(PolledSlot lastSlot, GsmCdmaConnection conn,
+            DriverCall dc) {
+        // The call state is also compared as it can be changed locally, e.g. on hangup.
+        return lastSlot != null
+                && lastSlot.mConnection == conn
+                && lastSlot.mState == conn.getState()
+                && lastSlot.mDriverCallHash == hashDriverCall(dc)
+                && isSameDriverCall(lastSlot.mDriverCall, dc);
+    }
+
+    private static int hashDriverCall(DriverCall dc) {
+        int hash = Objects.hash(dc.index, dc.isMT, dc.state, dc.isMpty, dc.number,
+                dc.forwardedNumber, dc.TOA, dc.isVoice, dc.isVoicePrivacy, dc.als,
+                dc.numberPresentation, dc.name, dc.namePresentation, dc.audioQuality);
+        if (dc.uusInfo != null) {
+            hash = 31 * hash + Objects.hash(dc.uusInfo.getType(), dc.uusInfo.getDcs());
+            hash = 31 * hash + Arrays.hashCode(dc.uusInfo.getUserData());
+        }
+        return hash;
+    }
+
+    private static boolean isSameDriverCall(DriverCall a, DriverCall b) {
+        return a.index == b.index
+                && a.isMT == b.isMT
+                && a.state == b.state
+                && a.isMpty == b.isMpty
+                && TextUtils.equals(a.number, b.number)
+                && TextUtils.equals(a.forwardedNumber, b.forwardedNumber)
+                && a.TOA == b.TOA
+                && a.isVoice == b.isVoice
+                && a.isVoicePrivacy == b.isVoicePrivacy
+                && a.als == b.als
+                && a.numberPresentation == b.numberPresentation
+                && TextUtils.equals(a.name, b.name)
+                && a.namePresentation == b.namePresentation
+                && a.audioQuality == b.audioQuality
+                && isSameUusInfo(a.uusInfo, b.uusInfo);
+    }
+
+    private static boolean isSameUusInfo(UUSInfo a, UUSInfo b) {
+        if (a == null || b == null) return a == b;
+        return a.getType() == b.getType() && a.getDcs() == b.getDcs()
+                && Arrays.equals(a.getUserData(), b.getUserData());
+    }
+
+    private static boolean isTransientState(DriverCall dc) {
+        return dc.state == DriverCall.State.DIALING
+                || dc.state == DriverCall.State.ALERTING
+                || dc.state == DriverCall.State.INCOMING
+                || dc.state == DriverCall.State.WAITING;
+    }
+
     private void handleRadioNotAvailable() {
         // handlePollCalls will clear out its
         // call list when it gets the CommandException
@@ -1203,12 +1355,19 @@ public class GsmCdmaCallTracker extends CallTracker {
             case EVENT_POLL_CALLS_RESULT:
                 if (DBG_POLL) Rlog.d(LOG_TAG, "Event EVENT_POLL_CALLS_RESULT Received");
 
-                if (msg == mLastRelevantPoll) {
+                if (msg == mLastRelevantPoll && mRepollRequested) {
+                    // The result may predate the change that requested the poll, poll again.
+                    mPollResultsObsolete++;
+                    issuePoll();
+                } else if (msg == mLastRelevantPoll) {
                     if (DBG_POLL) log(
                             "handle EVENT_POLL_CALL_RESULT: set needsPoll=F");
                     mNeedsPoll = false;
                     mLastRelevantPoll = null;
                     handlePollCalls((AsyncResult)msg.obj);
+                } else {
+                    // An operation was started since, this result may be outdated
+                    mPollResultsObsolete++;
                 }
             break;
 
@@ -1486,6 +1645,36 @@ public class GsmCdmaCallTracker extends CallTracker {
         pw.println(" mPhone=" + mPhone);
         pw.println(" mDesiredMute=" + mDesiredMute);
         pw.println(" mState=" + mState);
+        pw.println(" polls: issued=" + mPollsIssued
+                + ", obsolete=" + mPollResultsObsolete
+                + ", results=" + mPollResults
+                + ", unchanged=" + mPollResultsUnchanged
+                + ", withChanges=" + mPollResultsWithChanges
+                + ", slotsSkipped=" + mSlotsSkipped);
+    }
+
+    /** @return the number of getCurrentCalls requests sent to the modem. */
+    @VisibleForTesting
+    public long getPollsIssuedCount() {
+        return mPollsIssued;
+    }
+
+    /** @return the number of poll results discarded because they may be outdated. */
+    @VisibleForTesting
+    public long getObsoletePollResultsCount() {
+        return mPollResultsObsolete;
+    }
+
+    /** @return the number of poll results ignored because nothing changed. */
+    @VisibleForTesting
+    public long getUnchangedPollResultsCount() {
+        return mPollResultsUnchanged;
+    }
+
+    /** @return the number of poll results which changed the call state. */
+    @VisibleForTesting
+    public long getPollResultsWithChangesCount() {
+        return mPollResultsWithChanges;
     }
 
     @Override
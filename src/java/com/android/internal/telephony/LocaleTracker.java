@@ -30,6 +30,8 @@ import android.os.AsyncResult;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.sysprop.TelephonyProperties;
 import android.telephony.CellInfo;
@@ -84,6 +86,9 @@ public class LocaleTracker extends Handler {
     /** Event to override the current locale */
     private static final int EVENT_OVERRIDE_LOCALE = 7;
 
+    /** Event for screen on/off */
+    private static final int EVENT_SCREEN_STATE_CHANGED = 8;
+
     /**
      * The broadcast intent action to override the current country for testing purposes
      *
@@ -157,6 +162,15 @@ public class LocaleTracker extends Handler {
     /** Count of invalid cell info we've got so far. Will reset once we get a successful one */
     private int mFailCellInfoCount;
 
+    /** The time the last valid cell info was received, solicited or unsolicited. */
+    private long mLastCellInfoTimeMillis;
+
+    /**
+     * Whether the screen is on. Periodic cell info polling is paused while the screen is off, and
+     * resumed when the screen turns on if the last cell info is older than the polling delay.
+     */
+    private boolean mIsScreenOn;
+
     /** The ISO-3166 two-letter code of device's current country */
     @Nullable
     private String mCurrentCountryIso;
@@ -200,6 +214,10 @@ public class LocaleTracker extends Handler {
                 log("Received country override: " + countryOverride);
                 // countryOverride null to reset the override.
                 obtainMessage(EVENT_OVERRIDE_LOCALE, countryOverride).sendToTarget();
+            } else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
+                obtainMessage(EVENT_SCREEN_STATE_CHANGED, 1, 0).sendToTarget();
+            } else if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+                obtainMessage(EVENT_SCREEN_STATE_CHANGED, 0, 0).sendToTarget();
             }
         }
     };
@@ -274,6 +292,10 @@ public class LocaleTracker extends Handler {
                 updateLocale();
                 break;
 
+            case EVENT_SCREEN_STATE_CHANGED:
+                onScreenStateChanged(msg.arg1 == 1);
+                break;
+
             default:
                 throw new IllegalStateException("Unexpected message arrives. msg = " + msg.what);
         }
@@ -294,9 +316,13 @@ public class LocaleTracker extends Handler {
         mSimState = TelephonyManager.SIM_STATE_UNKNOWN;
         mTag = LocaleTracker.class.getSimpleName() + "-" + mPhone.getPhoneId();
         mFeatureFlags = featureFlags;
+        final PowerManager powerManager = mPhone.getContext().getSystemService(PowerManager.class);
+        mIsScreenOn = powerManager == null || powerManager.isInteractive();
 
         final IntentFilter filter = new IntentFilter();
         filter.addAction(TelephonyManager.ACTION_SIM_CARD_STATE_CHANGED);
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
         if (TelephonyUtils.IS_DEBUGGABLE) {
             filter.addAction(ACTION_COUNTRY_OVERRIDE);
         }
@@ -459,12 +485,17 @@ public class LocaleTracker extends Handler {
         removeMessages(EVENT_REQUEST_CELL_INFO);
         if (succeeded) {
             resetCellInfoRetry();
+            mLastCellInfoTimeMillis = SystemClock.elapsedRealtime();
             // Now we need to get the cell info from the modem periodically
             // even if we already got the cell info because the user can move.
             removeMessages(EVENT_UNSOL_CELL_INFO);
             removeMessages(EVENT_RESPONSE_CELL_INFO);
-            sendMessageDelayed(obtainMessage(EVENT_REQUEST_CELL_INFO),
-                    CELL_INFO_PERIODIC_POLLING_DELAY_MS);
+            if (mIsScreenOn) {
+                sendMessageDelayed(obtainMessage(EVENT_REQUEST_CELL_INFO),
+                        CELL_INFO_PERIODIC_POLLING_DELAY_MS);
+            } else if (DBG) {
+                log("Screen is off. Pause periodic cell info polling.");
+            }
         } else {
             // If we can't get a valid cell info. Try it again later.
             long delay = getCellInfoDelayTime(++mFailCellInfoCount);
@@ -473,6 +504,24 @@ public class LocaleTracker extends Handler {
         }
     }
 
+    private void onScreenStateChanged(boolean isScreenOn) {
+        if (mIsScreenOn == isScreenOn) return;
+        mIsScreenOn = isScreenOn;
+        // Retries for a valid cell info keep their own backoff regardless of the screen state.
+        if (!mIsTracking || mFailCellInfoCount > 0 || mLastCellInfoTimeMillis == 0) return;
+        if (isScreenOn) {
+            // Resume the periodic polling. The last cell info could have been received long ago.
+            long delay = Math.max(0, mLastCellInfoTimeMillis + CELL_INFO_PERIODIC_POLLING_DELAY_MS
+                    - SystemClock.elapsedRealtime());
+            if (DBG) log("Screen is on. Resume cell info polling in " + delay / 1000 + " secs.");
+            removeMessages(EVENT_REQUEST_CELL_INFO);
+            sendMessageDelayed(obtainMessage(EVENT_REQUEST_CELL_INFO), delay);
+        } else {
+            if (DBG) log("Screen is off. Pause periodic cell info polling.");
+            removeMessages(EVENT_REQUEST_CELL_INFO);
+        }
+    }
+
     /**
      * Get the delay time to get cell info from modem. The delay time grows exponentially to prevent
      * battery draining.
@@ -518,6 +567,7 @@ public class LocaleTracker extends Handler {
         if (DBG) log(msg);
         mLocalLog.log(msg);
         mCellInfoList = null;
+        mLastCellInfoTimeMillis = 0;
         resetCellInfoRetry();
     }
 
@@ -798,6 +848,8 @@ public class LocaleTracker extends Handler {
         }
 
         ipw.println("mFailCellInfoCount = " + mFailCellInfoCount);
+        ipw.println("mLastCellInfoTimeMillis = " + mLastCellInfoTimeMillis);
+        ipw.println("mIsScreenOn = " + mIsScreenOn);
         ipw.println("Local logs:");
         ipw.increaseIndent();
         mLocalLog.dump(fd, ipw, args);
@@ -111,6 +111,11 @@ public class NetworkIndication extends IRadioNetworkIndication.Stub {
     public void cellInfoList(int indicationType,
             android.hardware.radio.network.CellInfo[] records) {
         mRil.processIndication(HAL_SERVICE_NETWORK, indicationType);
+        mRil.mIndicationCoalescer.onIndication(RIL_UNSOL_CELL_INFO_LIST, records,
+                () -> notifyCellInfoList(records));
+    }
+
+    private void notifyCellInfoList(android.hardware.radio.network.CellInfo[] records) {
         ArrayList<CellInfo> response = RILUtils.convertHalCellInfoList(records);
         if (mRil.isLogOrTrace()) mRil.unsljLogRet(RIL_UNSOL_CELL_INFO_LIST, response);
         mRil.mRilCellInfoListRegistrants.notifyRegistrants(new AsyncResult(null, response, null));
@@ -142,6 +147,12 @@ public class NetworkIndication extends IRadioNetworkIndication.Stub {
     public void currentPhysicalChannelConfigs(int indicationType,
             android.hardware.radio.network.PhysicalChannelConfig[] configs) {
         mRil.processIndication(HAL_SERVICE_NETWORK, indicationType);
+        mRil.mIndicationCoalescer.onIndication(RIL_UNSOL_PHYSICAL_CHANNEL_CONFIG,
+                configs, () -> notifyPhysicalChannelConfigs(configs));
+    }
+
+    private void notifyPhysicalChannelConfigs(
+            android.hardware.radio.network.PhysicalChannelConfig[] configs) {
         List<PhysicalChannelConfig> response = new ArrayList<>(configs.length);
         try {
             for (android.hardware.radio.network.PhysicalChannelConfig config : configs) {
@@ -203,7 +214,12 @@ public class NetworkIndication extends IRadioNetworkIndication.Stub {
     public void currentSignalStrength(int indicationType,
             android.hardware.radio.network.SignalStrength signalStrength) {
         mRil.processIndication(HAL_SERVICE_NETWORK, indicationType);
+        mRil.mIndicationCoalescer.onIndication(RIL_UNSOL_SIGNAL_STRENGTH,
+                signalStrength, () -> notifySignalStrength(signalStrength));
+    }
 
+    private void notifySignalStrength(
+            android.hardware.radio.network.SignalStrength signalStrength) {
         SignalStrength ss = RILUtils.convertHalSignalStrength(signalStrength);
 
         // Note this is set to "verbose" because it happens frequently
@@ -18,6 +18,9 @@ package com.android.internal.telephony;
 
 import static android.telephony.TelephonyManager.HAL_SERVICE_NETWORK;
 
+import static com.android.internal.telephony.RILConstants.RIL_UNSOL_CELL_INFO_LIST;
+import static com.android.internal.telephony.RILConstants.RIL_UNSOL_SIGNAL_STRENGTH;
+
 import android.hardware.radio.RadioError;
 import android.hardware.radio.RadioResponseInfo;
 import android.hardware.radio.network.IRadioNetworkResponse;
@@ -133,6 +136,7 @@ public class NetworkResponse extends IRadioNetworkResponse.Stub {
         if (rr != null) {
             ArrayList<CellInfo> ret = RILUtils.convertHalCellInfoList(cellInfo);
             if (responseInfo.error == RadioError.NONE) {
+                mRil.mIndicationCoalescer.onSolicitedResponse(RIL_UNSOL_CELL_INFO_LIST, cellInfo);
                 RadioResponse.sendMessageResponse(rr.mResult, ret);
             }
             mRil.processResponseDone(rr, responseInfo, ret);
@@ -198,6 +202,8 @@ public class NetworkResponse extends IRadioNetworkResponse.Stub {
         if (rr != null) {
             SignalStrength ret = RILUtils.convertHalSignalStrength(signalStrength);
             if (responseInfo.error == RadioError.NONE) {
+                mRil.mIndicationCoalescer.onSolicitedResponse(RIL_UNSOL_SIGNAL_STRENGTH,
+                        signalStrength);
                 RadioResponse.sendMessageResponse(rr.mResult, ret);
             }
             mRil.processResponseDone(rr, responseInfo, ret);
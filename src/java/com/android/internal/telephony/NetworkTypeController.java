@@ -63,11 +63,9 @@ import java.io.FileDescriptor;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -97,6 +95,18 @@ public class NetworkTypeController extends StateMachine {
             STATE_CONNECTED_RRC_IDLE, STATE_NOT_RESTRICTED_RRC_IDLE, STATE_NOT_RESTRICTED_RRC_CON,
             STATE_RESTRICTED, STATE_LEGACY };
 
+    /**
+     * The ids of the 5G states, which are their indexes in {@link #ALL_STATES}. Timer rules are
+     * compiled into tables indexed by these ids so that state transitions do not need any string
+     * lookup.
+     */
+    private static final int STATE_ID_NONE = -1;
+    private static final int STATE_ID_CONNECTED_NR_ADVANCED = 0;
+    private static final int STATE_ID_CONNECTED = 1;
+    private static final int STATE_ID_CONNECTED_RRC_IDLE = 2;
+    /** Id of {@link #STATE_ANY}, which is only used as a wildcard in the timer rules. */
+    private static final int STATE_ID_ANY = ALL_STATES.length;
+
     /** Stop all timers and go to current state. */
     public static final int EVENT_UPDATE = 0;
     /** Quit after processing all existing messages. */
@@ -196,7 +206,9 @@ public class NetworkTypeController extends StateMachine {
                 }
             };
 
-    @NonNull private Map<String, OverrideTimerRule> mOverrideTimerRules = new HashMap<>();
+    /** The timer rules indexed by state id. See {@link #getStateId(String)}. */
+    @NonNull private OverrideTimerRule[] mOverrideTimerRules =
+            new OverrideTimerRule[ALL_STATES.length];
     @NonNull private String mLteEnhancedPattern = "";
     @Annotation.OverrideNetworkType private int mOverrideNetworkType;
     private static final ModemDisplayNetworkType DEFAULT_MODEM_NETWORK_TYPE =
@@ -218,11 +230,11 @@ public class NetworkTypeController extends StateMachine {
     private boolean mRatchetPccFieldsForSameAnchorNrCell;
     private boolean mUseModemDisplayNetworkType;
     @NonNull private final Set<Integer> mAdditionalNrAdvancedBands = new HashSet<>();
-    @NonNull private String mPrimaryTimerState;
-    @NonNull private String mSecondaryTimerState;
+    private int mPrimaryTimerState;
+    private int mSecondaryTimerState;
     private int mNrAdvancedBandsSecondaryTimer;
     private int mNrAdvancedPciChangeSecondaryTimer;
-    @NonNull private String mPreviousState;
+    private int mPreviousState;
     @LinkStatus private int mPhysicalLinkStatus;
     private boolean mIsPhysicalChannelConfig16Supported;
     private boolean mIsNrAdvancedAllowedByPco = false;
@@ -238,6 +250,14 @@ public class NetworkTypeController extends StateMachine {
     @NonNull private ServiceState mServiceState;
     /** Used to track link status to be DORMANT or ACTIVE */
     @Nullable private List<PhysicalChannelConfig> mPhysicalChannelConfigs;
+    /**
+     * A copy of the last non-empty physical channel configs fully processed, used to skip
+     * recomputing the ratcheted bands and bandwidths when the modem reports the same configs.
+     * {@code null} if the next update must be processed.
+     */
+    @Nullable private List<PhysicalChannelConfig> mLastProcessedPhysicalChannelConfigs;
+    /** The number of physical channel config updates skipped since nothing changed. */
+    private int mSkippedPhysicalChannelConfigUpdateCount;
 
     // Ratchet physical channel config fields to prevent 5G/5G+ flickering
     @NonNull private Set<Integer> mRatchetedNrBands = new HashSet<>();
@@ -330,9 +350,9 @@ public class NetworkTypeController extends StateMachine {
         mDisplayInfoController = displayInfoController;
         mOverrideNetworkType = TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE;
         mIsPhysicalChannelConfigOn = true;
-        mPrimaryTimerState = "";
-        mSecondaryTimerState = "";
-        mPreviousState = "";
+        mPrimaryTimerState = STATE_ID_NONE;
+        mSecondaryTimerState = STATE_ID_NONE;
+        mPreviousState = STATE_ID_NONE;
         DefaultState defaultState = new DefaultState();
         addState(defaultState);
         addState(mLegacyState, defaultState);
@@ -443,10 +463,8 @@ public class NetworkTypeController extends StateMachine {
         IntentFilter filter = new IntentFilter();
         filter.addAction(PowerManager.ACTION_DEVICE_IDLE_MODE_CHANGED);
         mPhone.getContext().registerReceiver(mIntentReceiver, filter, null, mPhone);
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (ccm != null) {
-            ccm.registerCarrierConfigChangeListener(Runnable::run, mCarrierConfigChangeListener);
-        }
+        CarrierConfigCache.getInstance(mPhone.getContext()).registerCarrierConfigChangeListener(
+                Runnable::run, mCarrierConfigChangeListener);
     }
 
     private void unRegisterForAllEvents() {
@@ -458,22 +476,13 @@ public class NetworkTypeController extends StateMachine {
         mPhone.getDataNetworkController().unregisterDataNetworkControllerCallback(
                 mDataNetworkControllerCallback);
         mPhone.getContext().unregisterReceiver(mIntentReceiver);
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (ccm != null && mCarrierConfigChangeListener != null) {
-            ccm.unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
-        }
+        CarrierConfigCache.getInstance(mPhone.getContext())
+                .unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
     }
 
     private void parseCarrierConfigs() {
-        PersistableBundle config = CarrierConfigManager.getDefaultConfig();
-        CarrierConfigManager configManager =
-                mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (configManager != null) {
-            PersistableBundle b = configManager.getConfigForSubId(mPhone.getSubId());
-            if (b != null) {
-                config = b;
-            }
-        }
+        PersistableBundle config = CarrierConfigCache.getInstance(mPhone.getContext())
+                .getConfigForSubId(mPhone.getSubId());
         mLteEnhancedPattern = config.getString(
                 CarrierConfigManager.KEY_SHOW_CARRIER_DATA_ICON_PATTERN_STRING);
         mIsTimerResetEnabledForLegacyStateRrcIdle = config.getBoolean(
@@ -516,7 +525,11 @@ public class NetworkTypeController extends StateMachine {
                 CarrierConfigManager.KEY_5G_ICON_DISPLAY_GRACE_PERIOD_STRING);
         String overrideSecondaryTimerRule = config.getString(
                 CarrierConfigManager.KEY_5G_ICON_DISPLAY_SECONDARY_GRACE_PERIOD_STRING);
-        createTimerRules(nrIconConfiguration, overrideTimerRule, overrideSecondaryTimerRule);
+        mOverrideTimerRules = createTimerRules(
+                nrIconConfiguration, overrideTimerRule, overrideSecondaryTimerRule);
+        if (DBG) log("mOverrideTimerRules: " + Arrays.toString(mOverrideTimerRules));
+        // The PCC fields depend on the carrier configs, so they must be recomputed.
+        mLastProcessedPhysicalChannelConfigs = null;
         updatePhysicalChannelConfigs(
                 mPhone.getServiceStateTracker().getPhysicalChannelConfigList());
         if (isUsingPhysicalChannelConfigForRrcDetection()) {
@@ -529,8 +542,10 @@ public class NetworkTypeController extends StateMachine {
         }
     }
 
-    private void createTimerRules(String icons, String timers, String secondaryTimers) {
-        Map<String, OverrideTimerRule> tempRules = new HashMap<>();
+    @NonNull
+    private OverrideTimerRule[] createTimerRules(String icons, String timers,
+            String secondaryTimers) {
+        OverrideTimerRule[] tempRules = new OverrideTimerRule[ALL_STATES.length];
         if (!TextUtils.isEmpty(icons)) {
             // Format: "STATE:ICON,STATE2:ICON2"
             for (String pair : icons.trim().split(",")) {
@@ -539,6 +554,11 @@ public class NetworkTypeController extends StateMachine {
                     if (DBG) loge("Invalid 5G icon configuration, config = " + pair);
                     continue;
                 }
+                int state = getStateId(kv[0]);
+                if (state == STATE_ID_NONE || state == STATE_ID_ANY) {
+                    if (DBG) loge("Invalid 5G icon state = " + kv[0]);
+                    continue;
+                }
                 int icon = TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE;
                 if (kv[1].equals(ICON_5G)) {
                     icon = TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NR_NSA;
@@ -547,14 +567,14 @@ public class NetworkTypeController extends StateMachine {
                 } else {
                     if (DBG) loge("Invalid 5G icon = " + kv[1]);
                 }
-                tempRules.put(kv[0], new OverrideTimerRule(kv[0], icon));
+                tempRules[state] = new OverrideTimerRule(state, icon);
             }
         }
         // Ensure all states have an associated OverrideTimerRule and icon
-        for (String state : ALL_STATES) {
-            if (!tempRules.containsKey(state)) {
-                tempRules.put(state, new OverrideTimerRule(
-                        state, TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE));
+        for (int state = 0; state < ALL_STATES.length; state++) {
+            if (tempRules[state] == null) {
+                tempRules[state] = new OverrideTimerRule(
+                        state, TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE);
             }
         }
 
@@ -566,20 +586,24 @@ public class NetworkTypeController extends StateMachine {
                     if (DBG) loge("Invalid 5G icon timer configuration, config = " + triple);
                     continue;
                 }
+                int from = getStateId(kv[0]);
+                int to = getStateId(kv[1]);
+                if (from == STATE_ID_NONE || to == STATE_ID_NONE) {
+                    if (DBG) loge("Invalid 5G icon timer states, config = " + triple);
+                    continue;
+                }
                 int duration;
                 try {
                     duration = Integer.parseInt(kv[2]);
                 } catch (NumberFormatException e) {
                     continue;
                 }
-                if (kv[0].equals(STATE_ANY)) {
-                    for (String state : ALL_STATES) {
-                        OverrideTimerRule node = tempRules.get(state);
-                        node.addTimer(kv[1], duration);
+                if (from == STATE_ID_ANY) {
+                    for (OverrideTimerRule node : tempRules) {
+                        node.addTimer(to, duration);
                     }
                 } else {
-                    OverrideTimerRule node = tempRules.get(kv[0]);
-                    node.addTimer(kv[1], duration);
+                    tempRules[from].addTimer(to, duration);
                 }
             }
         }
@@ -594,41 +618,59 @@ public class NetworkTypeController extends StateMachine {
                     }
                     continue;
                 }
+                int primary = getStateId(kv[0]);
+                int secondary = getStateId(kv[1]);
+                if (primary == STATE_ID_NONE || secondary == STATE_ID_NONE) {
+                    if (DBG) loge("Invalid 5G icon secondary timer states, config = " + triple);
+                    continue;
+                }
                 int duration;
                 try {
                     duration = Integer.parseInt(kv[2]);
                 } catch (NumberFormatException e) {
                     continue;
                 }
-                if (kv[0].equals(STATE_ANY)) {
-                    for (String state : ALL_STATES) {
-                        OverrideTimerRule node = tempRules.get(state);
-                        node.addSecondaryTimer(kv[1], duration);
+                if (primary == STATE_ID_ANY) {
+                    for (OverrideTimerRule node : tempRules) {
+                        node.addSecondaryTimer(secondary, duration);
                     }
                 } else {
-                    OverrideTimerRule node = tempRules.get(kv[0]);
-                    node.addSecondaryTimer(kv[1], duration);
+                    tempRules[primary].addSecondaryTimer(secondary, duration);
                 }
             }
         }
 
         // TODO: Remove this workaround to make STATE_CONNECTED_RRC_IDLE backwards compatible with
         //  STATE_CONNECTED once carrier configs are updated.
-        OverrideTimerRule nrRules = tempRules.get(STATE_CONNECTED);
-        if (!tempRules.get(STATE_CONNECTED_RRC_IDLE).isDefined() && nrRules.isDefined()) {
-            OverrideTimerRule nrIdleRules =
-                    new OverrideTimerRule(STATE_CONNECTED_RRC_IDLE, nrRules.mOverrideType);
-            for (Map.Entry<String, Integer> entry : nrIdleRules.mPrimaryTimers.entrySet()) {
-                nrIdleRules.addTimer(entry.getKey(), entry.getValue());
-            }
-            for (Map.Entry<String, Integer> entry : nrIdleRules.mSecondaryTimers.entrySet()) {
-                nrIdleRules.addSecondaryTimer(entry.getKey(), entry.getValue());
-            }
-            tempRules.put(STATE_CONNECTED_RRC_IDLE, nrIdleRules);
+        OverrideTimerRule nrRules = tempRules[STATE_ID_CONNECTED];
+        if (!tempRules[STATE_ID_CONNECTED_RRC_IDLE].isDefined() && nrRules.isDefined()) {
+            tempRules[STATE_ID_CONNECTED_RRC_IDLE] =
+                    new OverrideTimerRule(STATE_ID_CONNECTED_RRC_IDLE, nrRules.mOverrideType);
+        }
+        return tempRules;
+    }
+
+    /**
+     * @param state The 5G state name, see {@link #ALL_STATES} and {@link #STATE_ANY}.
+     * @return The id of the state, or {@link #STATE_ID_NONE} if the state is unknown.
+     */
+    private static int getStateId(@NonNull String state) {
+        for (int i = 0; i < ALL_STATES.length; i++) {
+            // The state names are constants, so this is usually a reference comparison.
+            if (ALL_STATES[i].equals(state)) return i;
         }
+        return STATE_ANY.equals(state) ? STATE_ID_ANY : STATE_ID_NONE;
+    }
 
-        mOverrideTimerRules = tempRules;
-        if (DBG) log("mOverrideTimerRules: " + mOverrideTimerRules);
+    /**
+     * @param state The id of a 5G state.
+     * @return The name of the state for logging.
+     */
+    @NonNull
+    private static String stateIdToString(int state) {
+        if (state == STATE_ID_ANY) return STATE_ANY;
+        if (state < 0 || state >= ALL_STATES.length) return "";
+        return ALL_STATES[state];
     }
 
     private void updateOverrideNetworkType() {
@@ -693,7 +735,7 @@ public class NetworkTypeController extends StateMachine {
         }
 
         for (String key : keys) {
-            OverrideTimerRule rule = mOverrideTimerRules.get(key);
+            OverrideTimerRule rule = mOverrideTimerRules[getStateId(key)];
             if (rule != null && rule.mOverrideType
                     != TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE) {
                 return rule.mOverrideType;
@@ -787,14 +829,16 @@ public class NetworkTypeController extends StateMachine {
                     transitionToCurrentState();
                     break;
                 case EVENT_PRIMARY_TIMER_EXPIRED:
-                    if (DBG) log("Primary timer expired for state: " + mPrimaryTimerState);
+                    if (DBG) log("Primary timer expired for state: "
+                            + stateIdToString(mPrimaryTimerState));
                     transitionWithSecondaryTimerTo((IState) msg.obj);
                     break;
                 case EVENT_SECONDARY_TIMER_EXPIRED:
-                    if (DBG) log("Secondary timer expired for state: " + mSecondaryTimerState);
+                    if (DBG) log("Secondary timer expired for state: "
+                            + stateIdToString(mSecondaryTimerState));
                     mIsSecondaryTimerActive = false;
                     mSecondaryTimerExpireTimestamp = 0;
-                    mSecondaryTimerState = "";
+                    mSecondaryTimerState = STATE_ID_NONE;
                     updateTimers();
                     mLastShownNrDueToAdvancedBand = false;
                     updateOverrideNetworkType();
@@ -806,6 +850,7 @@ public class NetworkTypeController extends StateMachine {
                     mRatchetedNrBandwidths.clear();
                     mLastAnchorNrCellId = PhysicalChannelConfig.PHYSICAL_CELL_ID_UNKNOWN;
                     mDoesPccListIndicateIdle = false;
+                    mLastProcessedPhysicalChannelConfigs = null;
                     mIsNrAdvancedAllowedByPco = false;
                     mInVoiceCall = false;
                     mPhysicalChannelConfigs = null;
@@ -892,7 +937,7 @@ public class NetworkTypeController extends StateMachine {
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
                 mIsNrRestricted = isNrRestricted();
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -950,7 +995,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -973,7 +1018,7 @@ public class NetworkTypeController extends StateMachine {
             updateTimers();
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -1033,7 +1078,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -1056,7 +1101,7 @@ public class NetworkTypeController extends StateMachine {
             updateTimers();
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -1116,7 +1161,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -1139,7 +1184,7 @@ public class NetworkTypeController extends StateMachine {
             updateTimers();
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -1201,7 +1246,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -1224,7 +1269,7 @@ public class NetworkTypeController extends StateMachine {
             updateTimers();
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -1278,7 +1323,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -1302,7 +1347,7 @@ public class NetworkTypeController extends StateMachine {
             updateTimers();
             updateOverrideNetworkType();
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
         }
 
@@ -1363,7 +1408,7 @@ public class NetworkTypeController extends StateMachine {
                     return NOT_HANDLED;
             }
             if (!mIsPrimaryTimerActive && !mIsSecondaryTimerActive) {
-                mPreviousState = getName();
+                mPreviousState = getStateId(getName());
             }
             return HANDLED;
         }
@@ -1399,6 +1444,17 @@ public class NetworkTypeController extends StateMachine {
             mPrimaryCellChangedWhileIdle = false;
             mPhysicalChannelConfigs = physicalChannelConfigs;
             mDoesPccListIndicateIdle = true;
+            mLastProcessedPhysicalChannelConfigs = null;
+            return;
+        }
+
+        if (!isPccListEmpty && !mDoesPccListIndicateIdle
+                && physicalChannelConfigs.equals(mLastProcessedPhysicalChannelConfigs)) {
+            // Same anchor cell, bands and bandwidths, so the ratcheted fields do not change and
+            // the PCI did not change either.
+            mSkippedPhysicalChannelConfigUpdateCount++;
+            mPciChangedDuringPrimaryTimer = false;
+            mPhysicalChannelConfigs = physicalChannelConfigs;
             return;
         }
 
@@ -1471,6 +1527,9 @@ public class NetworkTypeController extends StateMachine {
                 && mIsPrimaryTimerActive;
         mLastAnchorNrCellId = anchorNrCellId;
         mPhysicalChannelConfigs = physicalChannelConfigs;
+        // Keep a copy since the list may be modified by the sender.
+        mLastProcessedPhysicalChannelConfigs =
+                isPccListEmpty ? null : new ArrayList<>(physicalChannelConfigs);
         mDoesPccListIndicateIdle = false;
         if (DBG) {
             log("Physical channel configs updated: anchorNrCell=" + mLastAnchorNrCellId
@@ -1485,7 +1544,8 @@ public class NetworkTypeController extends StateMachine {
     private void reduceSecondaryTimerIfNeeded() {
         if (!mIsSecondaryTimerActive || mNrAdvancedBandsSecondaryTimer <= 0) return;
         // Secondary timer is active, so we must have a valid secondary rule right now.
-        OverrideTimerRule secondaryRule = mOverrideTimerRules.get(mPrimaryTimerState);
+        OverrideTimerRule secondaryRule = mPrimaryTimerState == STATE_ID_NONE
+                ? null : mOverrideTimerRules[mPrimaryTimerState];
         if (secondaryRule != null) {
             int secondaryDuration = secondaryRule.getSecondaryTimer(mSecondaryTimerState);
             long durationMillis = secondaryDuration * 1000L;
@@ -1493,12 +1553,13 @@ public class NetworkTypeController extends StateMachine {
             if ((mSecondaryTimerExpireTimestamp - now) > durationMillis) {
                 if (DBG) log("Due to PCI change, reduce the secondary timer to " + durationMillis);
                 removeMessages(EVENT_SECONDARY_TIMER_EXPIRED);
-                sendMessageDelayed(EVENT_SECONDARY_TIMER_EXPIRED, mSecondaryTimerState,
-                        durationMillis);
+                sendMessageDelayed(EVENT_SECONDARY_TIMER_EXPIRED,
+                        stateIdToString(mSecondaryTimerState), durationMillis);
                 mSecondaryTimerExpireTimestamp = now + durationMillis;
             }
         } else {
-            loge("!! Secondary timer is active, but found no rule for " + mPrimaryTimerState);
+            loge("!! Secondary timer is active, but found no rule for "
+                    + stateIdToString(mPrimaryTimerState));
         }
     }
 
@@ -1506,19 +1567,26 @@ public class NetworkTypeController extends StateMachine {
         String destName = destState.getName();
         if (mIsPrimaryTimerActive) {
             log("Transition without timer from " + getCurrentState().getName() + " to " + destName
-                    + " due to existing " + mPrimaryTimerState + " primary timer.");
+                    + " due to existing " + stateIdToString(mPrimaryTimerState)
+                    + " primary timer.");
         } else if (mIsTimerResetEnabledOnVoiceQos && mInVoiceCall) {
             log("Skip primary timer to " + destName + " due to in call");
         } else {
             if (DBG) {
-                log("Transition with primary timer from " + mPreviousState + " to " + destName);
+                log("Transition with primary timer from " + stateIdToString(mPreviousState)
+                        + " to " + destName);
             }
-            OverrideTimerRule rule = mOverrideTimerRules.get(mPreviousState);
-            if (!mIsDeviceIdleMode && rule != null && rule.getTimer(destName) > 0) {
-                int duration = rule.getTimer(destName);
-                if (DBG) log(duration + "s primary timer started for state: " + mPreviousState);
+            OverrideTimerRule rule = mPreviousState == STATE_ID_NONE
+                    ? null : mOverrideTimerRules[mPreviousState];
+            int destId = getStateId(destName);
+            if (!mIsDeviceIdleMode && rule != null && rule.getTimer(destId) > 0) {
+                int duration = rule.getTimer(destId);
+                if (DBG) {
+                    log(duration + "s primary timer started for state: "
+                            + stateIdToString(mPreviousState));
+                }
                 mPrimaryTimerState = mPreviousState;
-                mPreviousState = getCurrentState().getName();
+                mPreviousState = getStateId(getCurrentState().getName());
                 mIsPrimaryTimerActive = true;
                 sendMessageDelayed(EVENT_PRIMARY_TIMER_EXPIRED, destState, duration * 1000L);
             }
@@ -1528,7 +1596,9 @@ public class NetworkTypeController extends StateMachine {
 
     private void transitionWithSecondaryTimerTo(IState destState) {
         String currentName = getCurrentState().getName();
-        OverrideTimerRule rule = mOverrideTimerRules.get(mPrimaryTimerState);
+        int currentId = getStateId(currentName);
+        OverrideTimerRule rule = mPrimaryTimerState == STATE_ID_NONE
+                ? null : mOverrideTimerRules[mPrimaryTimerState];
         int duration = -1;
         if (DBG) {
             log("Transition with secondary timer from " + currentName + " to "
@@ -1537,8 +1607,8 @@ public class NetworkTypeController extends StateMachine {
         if (mIsTimerResetEnabledOnVoiceQos && mInVoiceCall) {
             log("Skip secondary timer from " + currentName + " to "
                     + destState.getName() + " due to in call");
-        } else if (!mIsDeviceIdleMode && rule != null && rule.getSecondaryTimer(currentName) > 0) {
-            duration = rule.getSecondaryTimer(currentName);
+        } else if (!mIsDeviceIdleMode && rule != null && rule.getSecondaryTimer(currentId) > 0) {
+            duration = rule.getSecondaryTimer(currentId);
             if (mLastShownNrDueToAdvancedBand && mNrAdvancedBandsSecondaryTimer > 0) {
                 duration = mNrAdvancedBandsSecondaryTimer;
                 if (DBG) log("timer adjusted by nr_advanced_bands_secondary_timer_seconds_int");
@@ -1551,8 +1621,8 @@ public class NetworkTypeController extends StateMachine {
         }
 
         if (duration > 0) {
-            mSecondaryTimerState = currentName;
-            mPreviousState = currentName;
+            mSecondaryTimerState = currentId;
+            mPreviousState = currentId;
             mIsSecondaryTimerActive = true;
             long durationMillis = duration * 1000L;
             mSecondaryTimerExpireTimestamp = SystemClock.uptimeMillis() + durationMillis;
@@ -1585,7 +1655,7 @@ public class NetworkTypeController extends StateMachine {
             transitionState = mLegacyState;
         }
         if (!transitionState.equals(getCurrentState())) {
-            mPreviousState = getCurrentState().getName();
+            mPreviousState = getStateId(getCurrentState().getName());
             transitionTo(transitionState);
         } else {
             updateOverrideNetworkType();
@@ -1600,44 +1670,46 @@ public class NetworkTypeController extends StateMachine {
             return;
         }
 
-        String currentState = getCurrentState().getName();
+        String currentName = getCurrentState().getName();
+        int currentState = getStateId(currentName);
 
-        if (mIsPrimaryTimerActive && mPrimaryTimerState.equals(currentState)) {
+        if (mIsPrimaryTimerActive && mPrimaryTimerState == currentState) {
             // remove primary timer if device goes back to the original state
             if (DBG) {
                 log("Remove primary timer since primary timer state ("
-                        + mPrimaryTimerState + ") was reestablished.");
+                        + currentName + ") was reestablished.");
             }
             removeMessages(EVENT_PRIMARY_TIMER_EXPIRED);
             mIsPrimaryTimerActive = false;
             mPciChangedDuringPrimaryTimer = false;
-            mPrimaryTimerState = "";
+            mPrimaryTimerState = STATE_ID_NONE;
             transitionToCurrentState();
             return;
         }
 
-        if (mIsSecondaryTimerActive && !mSecondaryTimerState.equals(currentState)) {
+        if (mIsSecondaryTimerActive && mSecondaryTimerState != currentState) {
             // remove secondary timer if devices is no longer in secondary timer state
             if (DBG) {
-                log("Remove secondary timer since current state (" +  currentState
-                        + ") is no longer secondary timer state (" + mSecondaryTimerState + ").");
+                log("Remove secondary timer since current state (" +  currentName
+                        + ") is no longer secondary timer state ("
+                        + stateIdToString(mSecondaryTimerState) + ").");
             }
             removeMessages(EVENT_SECONDARY_TIMER_EXPIRED);
             mIsSecondaryTimerActive = false;
             mSecondaryTimerExpireTimestamp = 0;
-            mSecondaryTimerState = "";
+            mSecondaryTimerState = STATE_ID_NONE;
             transitionToCurrentState();
             return;
         }
 
         if (mIsPrimaryTimerActive || mIsSecondaryTimerActive) {
-            if (currentState.equals(STATE_CONNECTED_NR_ADVANCED)) {
+            if (currentState == STATE_ID_CONNECTED_NR_ADVANCED) {
                 if (DBG) log("Reset timers since state is NR_ADVANCED.");
                 resetAllTimers();
-            } else if ((currentState.equals(STATE_CONNECTED)
-                    || currentState.equals(STATE_CONNECTED_RRC_IDLE))
-                    && !mPrimaryTimerState.equals(STATE_CONNECTED_NR_ADVANCED)
-                    && !mSecondaryTimerState.equals(STATE_CONNECTED_NR_ADVANCED)) {
+            } else if ((currentState == STATE_ID_CONNECTED
+                    || currentState == STATE_ID_CONNECTED_RRC_IDLE)
+                    && mPrimaryTimerState != STATE_ID_CONNECTED_NR_ADVANCED
+                    && mSecondaryTimerState != STATE_ID_CONNECTED_NR_ADVANCED) {
                 if (DBG) log("Reset non-NR advanced timers since state is NR connected/idle");
                 resetAllTimers();
             } else {
@@ -1657,8 +1729,8 @@ public class NetworkTypeController extends StateMachine {
         mPciChangedDuringPrimaryTimer = false;
         mIsSecondaryTimerActive = false;
         mSecondaryTimerExpireTimestamp = 0;
-        mPrimaryTimerState = "";
-        mSecondaryTimerState = "";
+        mPrimaryTimerState = STATE_ID_NONE;
+        mSecondaryTimerState = STATE_ID_NONE;
 
         mLastShownNrDueToAdvancedBand = false;
     }
@@ -1668,8 +1740,11 @@ public class NetworkTypeController extends StateMachine {
      * created in {@link #parseCarrierConfigs()} based on various carrier configs.
      */
     private static class OverrideTimerRule {
-        /** The 5G state this timer rule applies for. See {@link #ALL_STATES}. */
-        final String mState;
+        /** Timer duration of a state with no timer defined. */
+        private static final int TIMER_UNDEFINED = -1;
+
+        /** The id of the 5G state this timer rule applies for. See {@link #getStateId(String)}. */
+        final int mState;
 
         /**
          * The override network type associated with this 5G state. This is the icon that will be
@@ -1678,61 +1753,66 @@ public class NetworkTypeController extends StateMachine {
         final int mOverrideType;
 
         /**
-         * A map of destination states and associated timers. If the 5G state changes from mState
-         * to the destination state, keep the override type until either the primary timer expires
-         * or mState is regained.
+         * Timers indexed by destination state id, including {@link #STATE_ID_ANY}. If the 5G state
+         * changes from mState to the destination state, keep the override type until either the
+         * primary timer expires or mState is regained.
          */
-        final Map<String, Integer> mPrimaryTimers;
+        final int[] mPrimaryTimers = newTimers();
 
         /**
-         * A map of secondary states and associated timers. After the primary timer expires, keep
-         * the override type until either the secondary timer expires or the device is no longer in
-         * the secondary state.
+         * Timers indexed by secondary state id, including {@link #STATE_ID_ANY}. After the
+         * primary timer expires, keep the override type until either the secondary timer expires
+         * or the device is no longer in the secondary state.
          */
-        final Map<String, Integer> mSecondaryTimers;
+        final int[] mSecondaryTimers = newTimers();
 
-        OverrideTimerRule(String state, int overrideType) {
+        OverrideTimerRule(int state, int overrideType) {
             mState = state;
             mOverrideType = overrideType;
-            mPrimaryTimers = new HashMap<>();
-            mSecondaryTimers = new HashMap<>();
+        }
+
+        private static int[] newTimers() {
+            int[] timers = new int[STATE_ID_ANY + 1];
+            Arrays.fill(timers, TIMER_UNDEFINED);
+            return timers;
         }
 
         /**
          * Add a primary timer.
-         * @param destination Transitions from mState to the destination state.
+         * @param destination Transitions from mState to the destination state id.
          * @param duration How long to keep the override type after transition to destination state.
          */
-        public void addTimer(String destination, int duration) {
-            mPrimaryTimers.put(destination, duration);
+        public void addTimer(int destination, int duration) {
+            mPrimaryTimers[destination] = duration;
         }
 
         /**
          * Add a secondary timer
-         * @param secondaryState Stays in secondaryState after primary timer expires.
+         * @param secondaryState Stays in secondaryState id after primary timer expires.
          * @param duration How long to keep the override type while in secondaryState.
          */
-        public void addSecondaryTimer(String secondaryState, int duration) {
-            mSecondaryTimers.put(secondaryState, duration);
+        public void addSecondaryTimer(int secondaryState, int duration) {
+            mSecondaryTimers[secondaryState] = duration;
         }
 
         /**
          * @return Primary timer duration from mState to destination state, or 0 if not defined.
          */
-        public int getTimer(String destination) {
-            Integer timer = mPrimaryTimers.get(destination);
-            timer = timer == null ? mPrimaryTimers.get(STATE_ANY) : timer;
-            return timer == null ? 0 : timer;
+        public int getTimer(int destination) {
+            return getTimer(mPrimaryTimers, destination);
         }
 
         /**
          * @return Secondary timer duration for secondaryState, or 0 if not defined.
          */
-        public int getSecondaryTimer(String secondaryState) {
-            Integer secondaryTimer = mSecondaryTimers.get(secondaryState);
-            secondaryTimer = secondaryTimer == null
-                    ? mSecondaryTimers.get(STATE_ANY) : secondaryTimer;
-            return secondaryTimer == null ? 0 : secondaryTimer;
+        public int getSecondaryTimer(int secondaryState) {
+            return getTimer(mSecondaryTimers, secondaryState);
+        }
+
+        private static int getTimer(int[] timers, int state) {
+            int timer = state >= 0 && state < timers.length ? timers[state] : TIMER_UNDEFINED;
+            timer = timer == TIMER_UNDEFINED ? timers[STATE_ID_ANY] : timer;
+            return timer == TIMER_UNDEFINED ? 0 : timer;
         }
 
         /**
@@ -1742,16 +1822,33 @@ public class NetworkTypeController extends StateMachine {
             // TODO: Remove this method added to make STATE_CONNECTED_RRC_IDLE backwards compatible
             //  with STATE_CONNECTED once carrier configs are updated.
             return mOverrideType != TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE
-                    || !mPrimaryTimers.isEmpty() || !mSecondaryTimers.isEmpty();
+                    || hasTimer(mPrimaryTimers) || hasTimer(mSecondaryTimers);
+        }
+
+        private static boolean hasTimer(int[] timers) {
+            for (int timer : timers) {
+                if (timer != TIMER_UNDEFINED) return true;
+            }
+            return false;
+        }
+
+        private static String timersToString(int[] timers) {
+            StringBuilder sb = new StringBuilder("{");
+            for (int state = 0; state < timers.length; state++) {
+                if (timers[state] == TIMER_UNDEFINED) continue;
+                if (sb.length() > 1) sb.append(", ");
+                sb.append(stateIdToString(state)).append("=").append(timers[state]);
+            }
+            return sb.append("}").toString();
         }
 
         @Override
         public String toString() {
-            return "{mState=" + mState
+            return "{mState=" + stateIdToString(mState)
                     + ", mOverrideType="
                     + TelephonyDisplayInfo.overrideNetworkTypeToString(mOverrideType)
-                    + ", mPrimaryTimers=" + mPrimaryTimers
-                    + ", mSecondaryTimers=" + mSecondaryTimers + "}";
+                    + ", mPrimaryTimers=" + timersToString(mPrimaryTimers)
+                    + ", mSecondaryTimers=" + timersToString(mSecondaryTimers) + "}";
         }
     }
 
@@ -1871,14 +1968,14 @@ public class NetworkTypeController extends StateMachine {
 
     @Override
     public String toString() {
-        return "mOverrideTimerRules=" + mOverrideTimerRules.toString()
+        return "mOverrideTimerRules=" + Arrays.toString(mOverrideTimerRules)
                 + ", mLteEnhancedPattern=" + mLteEnhancedPattern
                 + ", mIsPhysicalChannelConfigOn=" + mIsPhysicalChannelConfigOn
                 + ", mIsPrimaryTimerActive=" + mIsPrimaryTimerActive
                 + ", mIsSecondaryTimerActive=" + mIsSecondaryTimerActive
-                + ", mPrimaryTimerState=" + mPrimaryTimerState
-                + ", mSecondaryTimerState=" + mSecondaryTimerState
-                + ", mPreviousState=" + mPreviousState
+                + ", mPrimaryTimerState=" + stateIdToString(mPrimaryTimerState)
+                + ", mSecondaryTimerState=" + stateIdToString(mSecondaryTimerState)
+                + ", mPreviousState=" + stateIdToString(mPreviousState)
                 + ", mIsNrAdvanced=" + isNrAdvanced();
     }
 
@@ -1890,7 +1987,7 @@ public class NetworkTypeController extends StateMachine {
         pw.flush();
         pw.increaseIndent();
         pw.println("mSubId=" + mPhone.getSubId());
-        pw.println("mOverrideTimerRules=" + mOverrideTimerRules);
+        pw.println("mOverrideTimerRules=" + Arrays.toString(mOverrideTimerRules));
         pw.println("mLteEnhancedPattern=" + mLteEnhancedPattern);
         pw.println("mIsPhysicalChannelConfigOn=" + mIsPhysicalChannelConfigOn);
         pw.println("mIsPrimaryTimerActive=" + mIsPrimaryTimerActive);
@@ -1909,9 +2006,11 @@ public class NetworkTypeController extends StateMachine {
         pw.println("mRatchetedNrBands=" + mRatchetedNrBands);
         pw.println("mLastAnchorNrCellId=" + mLastAnchorNrCellId);
         pw.println("mDoesPccListIndicateIdle=" + mDoesPccListIndicateIdle);
-        pw.println("mPrimaryTimerState=" + mPrimaryTimerState);
-        pw.println("mSecondaryTimerState=" + mSecondaryTimerState);
-        pw.println("mPreviousState=" + mPreviousState);
+        pw.println("mSkippedPhysicalChannelConfigUpdateCount="
+                + mSkippedPhysicalChannelConfigUpdateCount);
+        pw.println("mPrimaryTimerState=" + stateIdToString(mPrimaryTimerState));
+        pw.println("mSecondaryTimerState=" + stateIdToString(mSecondaryTimerState));
+        pw.println("mPreviousState=" + stateIdToString(mPreviousState));
         pw.println("mPhysicalLinkStatus=" + DataUtils.linkStatusToString(mPhysicalLinkStatus));
         pw.println("mIsPhysicalChannelConfig16Supported=" + mIsPhysicalChannelConfig16Supported);
         pw.println("mIsNrAdvancedAllowedByPco=" + mIsNrAdvancedAllowedByPco);
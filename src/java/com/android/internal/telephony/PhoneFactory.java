@@ -31,6 +31,7 @@ import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.net.LocalServerSocket;
 import android.os.Build;
+import android.os.Handler;
 import android.os.Looper;
 import android.preference.PreferenceManager;
 import android.provider.Settings;
@@ -41,6 +42,7 @@ import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.LocalLog;
 
+import com.android.internal.os.BackgroundThread;
 import com.android.internal.telephony.data.CellularNetworkValidator;
 import com.android.internal.telephony.data.PhoneSwitcher;
 import com.android.internal.telephony.data.TelephonyNetworkProvider;
@@ -51,6 +53,7 @@ import com.android.internal.telephony.flags.FeatureFlagsImpl;
 import com.android.internal.telephony.imsphone.ImsPhone;
 import com.android.internal.telephony.imsphone.ImsPhoneFactory;
 import com.android.internal.telephony.metrics.MetricsCollector;
+import com.android.internal.telephony.metrics.PersistAtomsStorage;
 import com.android.internal.telephony.subscription.SubscriptionManagerService;
 import com.android.internal.telephony.uicc.UiccController;
 import com.android.internal.telephony.util.NotificationChannelController;
@@ -62,6 +65,7 @@ import java.io.PrintWriter;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @hide
@@ -104,6 +108,7 @@ public class PhoneFactory {
     static private final HashMap<String, LocalLog>sLocalLogs = new HashMap<String, LocalLog>();
     private static MetricsCollector sMetricsCollector;
     private static RadioInterfaceCapabilityController sRadioHalCapabilities;
+    private static @Nullable StartupTrace sStartupTrace;
     private static @NonNull FeatureFlags sFeatureFlags = new FeatureFlagsImpl();
 
     //***** Class Methods
@@ -151,10 +156,20 @@ public class PhoneFactory {
                     }
                 }
 
-                // register statsd pullers.
-                sMetricsCollector = new MetricsCollector(context, sFeatureFlags);
+                final StartupTrace trace = new StartupTrace();
+                sStartupTrace = trace;
 
-                sPhoneNotifier = new DefaultPhoneNotifier(context, featureFlags);
+                // Load the persisted metrics in background while the radio interfaces are made.
+                final CompletableFuture<PersistAtomsStorage> persistAtomsStorage =
+                        CompletableFuture.supplyAsync(() -> trace.trace("PersistAtomsStorage",
+                                () -> new PersistAtomsStorage(context)),
+                                BackgroundThread.getExecutor());
+
+                // Made before the phones so that all the components share the carrier configs.
+                trace.trace("CarrierConfigCache", () -> CarrierConfigCache.getInstance(context));
+
+                sPhoneNotifier = trace.trace("DefaultPhoneNotifier",
+                        () -> new DefaultPhoneNotifier(context, featureFlags));
 
                 /* In case of multi SIM mode two instances of Phone, RIL are created,
                    where as in single SIM mode only instance. isMultiSimEnabled() function checks
@@ -171,43 +186,59 @@ public class PhoneFactory {
                     networkModes[i] = RILConstants.PREFERRED_NETWORK_MODE;
 
                     Rlog.i(LOG_TAG, "Network Mode set to " + Integer.toString(networkModes[i]));
-                    sCommandsInterfaces[i] = new RIL(context,
-                            RadioAccessFamily.getRafFromNetworkType(networkModes[i]), i,
-                            featureFlags);
+                    final int phoneId = i;
+                    final int networkMode = networkModes[i];
+                    sCommandsInterfaces[i] = trace.trace("RIL[" + i + "]", () -> new RIL(context,
+                            RadioAccessFamily.getRafFromNetworkType(networkMode), phoneId,
+                            featureFlags));
                 }
 
-                if (numPhones > 0) {
-                    final RadioConfig radioConfig = RadioConfig.make(context,
-                            sCommandsInterfaces[0].getHalVersion(HAL_SERVICE_RADIO));
-                    sRadioHalCapabilities = RadioInterfaceCapabilityController.init(radioConfig,
-                            sCommandsInterfaces[0]);
-                } else {
-                    // There is no command interface to go off of
-                    final RadioConfig radioConfig = RadioConfig.make(context, HalVersion.UNKNOWN);
-                    sRadioHalCapabilities = RadioInterfaceCapabilityController.init(
-                            radioConfig, null);
-                }
+                sRadioHalCapabilities = trace.trace("RadioConfig", () -> {
+                    if (numPhones > 0) {
+                        final RadioConfig radioConfig = RadioConfig.make(context,
+                                sCommandsInterfaces[0].getHalVersion(HAL_SERVICE_RADIO));
+                        return RadioInterfaceCapabilityController.init(radioConfig,
+                                sCommandsInterfaces[0]);
+                    } else {
+                        // There is no command interface to go off of
+                        final RadioConfig radioConfig = RadioConfig.make(context,
+                                HalVersion.UNKNOWN);
+                        return RadioInterfaceCapabilityController.init(radioConfig, null);
+                    }
+                });
 
+                // register statsd pullers. The metrics collector must be ready before the
+                // components reporting metrics are made.
+                sMetricsCollector = trace.trace("MetricsCollector",
+                        () -> new MetricsCollector(context, persistAtomsStorage.join(),
+                                sFeatureFlags));
 
                 // Instantiate UiccController so that all other classes can just
                 // call getInstance()
-                sUiccController = UiccController.make(context, featureFlags);
+                sUiccController = trace.trace("UiccController",
+                        () -> UiccController.make(context, featureFlags));
 
                 Rlog.i(LOG_TAG, "Creating SubscriptionManagerService");
-                sSubscriptionManagerService = new SubscriptionManagerService(context,
-                        Looper.myLooper(), featureFlags);
+                sSubscriptionManagerService = trace.trace("SubscriptionManagerService",
+                        () -> new SubscriptionManagerService(context, Looper.myLooper(),
+                                featureFlags));
 
-                TelephonyComponentFactory.getInstance().inject(MultiSimSettingController.class.
-                        getName()).initMultiSimSettingController(context, featureFlags);
+                trace.trace("MultiSimSettingController", () -> TelephonyComponentFactory
+                        .getInstance().inject(MultiSimSettingController.class.getName())
+                        .initMultiSimSettingController(context, featureFlags));
 
                 if (context.getPackageManager().hasSystemFeature(
                         PackageManager.FEATURE_TELEPHONY_EUICC)) {
-                    sEuiccController = EuiccController.init(context, sFeatureFlags);
-                    sEuiccCardController = EuiccCardController.init(context, sFeatureFlags);
+                    sEuiccController = trace.trace("EuiccController",
+                            () -> EuiccController.init(context, sFeatureFlags));
+                    sEuiccCardController = trace.trace("EuiccCardController",
+                            () -> EuiccCardController.init(context, sFeatureFlags));
                 }
 
                 for (int i = 0; i < numPhones; i++) {
-                    sPhones[i] = createPhone(context, i);
+                    final int phoneId = i;
+                    sPhones[i] = trace.trace("Phone[" + i + "]",
+                            () -> createPhone(context, phoneId));
                 }
 
                 // Set the default phone in base class.
@@ -215,24 +246,10 @@ public class PhoneFactory {
                 // FIXME: needs to be done in a more controlled manner in the future.
                 if (numPhones > 0) sPhone = sPhones[0];
 
-                // Ensure that we have a default SMS app. Requesting the app with
-                // updateIfNeeded set to true is enough to configure a default SMS app.
-                ComponentName componentName =
-                        SmsApplication.getDefaultSmsApplication(context, true /* updateIfNeeded */);
-                String packageName = "NONE";
-                if (componentName != null) {
-                    packageName = componentName.getPackageName();
-                }
-                Rlog.i(LOG_TAG, "defaultSmsApplication: " + packageName);
-
-                if (sFeatureFlags.smsMmsDeliverBroadcastsRedirectToMainUser()) {
-                    // Explicitly call this, even if the user has no default Sms application, to
-                    // ensure that the System apps have the appropriate permissions.
-                    SmsApplication.grantPermissionsToSystemApps(context);
-                }
-
-                // Set up monitor to watch for changes to SMS packages
-                SmsApplication.initSmsPackageMonitor(context);
+                // The default SMS app is not needed to bring up the phones, so it is set up
+                // after the rest of telephony is made.
+                new Handler(Looper.myLooper()).post(() -> trace.trace("SmsApplication",
+                        () -> initSmsApplication(context)));
 
                 sMadeDefaults = true;
 
@@ -243,41 +260,73 @@ public class PhoneFactory {
                     // Default phone must be ready before ImsPhone is created because ImsService
                     // might need it when it is being opened.
                     for (int i = 0; i < numPhones; i++) {
-                        sPhones[i].createImsPhone();
+                        trace.trace("ImsPhone[" + i + "]", sPhones[i]::createImsPhone);
                     }
                 } else {
                     Rlog.i(LOG_TAG, "IMS is not supported on this device, skipping ImsResolver.");
                 }
 
-                sPhoneConfigurationManager = PhoneConfigurationManager.init(sContext, featureFlags);
+                sPhoneConfigurationManager = trace.trace("PhoneConfigurationManager",
+                        () -> PhoneConfigurationManager.init(sContext, featureFlags));
                 if (featureFlags.simultaneousCallingIndications()) {
-                    sSimultaneousCallingTracker =
-                            SimultaneousCallingTracker.init(sContext, featureFlags);
+                    sSimultaneousCallingTracker = trace.trace("SimultaneousCallingTracker",
+                            () -> SimultaneousCallingTracker.init(sContext, featureFlags));
                 }
 
-                sCellularNetworkValidator = CellularNetworkValidator.make(sContext, sFeatureFlags);
+                sCellularNetworkValidator = trace.trace("CellularNetworkValidator",
+                        () -> CellularNetworkValidator.make(sContext, sFeatureFlags));
 
                 int maxActivePhones = sPhoneConfigurationManager
                         .getNumberOfModemsWithSimultaneousDataConnections();
 
-                sPhoneSwitcher = TelephonyComponentFactory.getInstance().inject(
-                        PhoneSwitcher.class.getName()).
-                        makePhoneSwitcher(maxActivePhones, sContext, Looper.myLooper(),
-                                featureFlags);
+                sPhoneSwitcher = trace.trace("PhoneSwitcher",
+                        () -> TelephonyComponentFactory.getInstance().inject(
+                                PhoneSwitcher.class.getName()).
+                                makePhoneSwitcher(maxActivePhones, sContext, Looper.myLooper(),
+                                        featureFlags));
 
-                sProxyController = ProxyController.getInstance(context, featureFlags);
+                sProxyController = trace.trace("ProxyController",
+                        () -> ProxyController.getInstance(context, featureFlags));
 
                 sIntentBroadcaster = IntentBroadcaster.getInstance(context);
 
-                sNotificationChannelController = new NotificationChannelController(context);
+                sNotificationChannelController = trace.trace("NotificationChannelController",
+                        () -> new NotificationChannelController(context));
 
                 // Create the TelephonyNetworkProvider instance, which is a singleton.
-                sTelephonyNetworkProvider = new TelephonyNetworkProvider(Looper.myLooper(),
-                        context, featureFlags);
+                sTelephonyNetworkProvider = trace.trace("TelephonyNetworkProvider",
+                        () -> new TelephonyNetworkProvider(Looper.myLooper(), context,
+                                featureFlags));
             }
         }
     }
 
+    /**
+     * Ensure that there is a default SMS app, and watch for changes to SMS packages.
+     *
+     * @param context The context.
+     */
+    private static void initSmsApplication(Context context) {
+        // Ensure that we have a default SMS app. Requesting the app with
+        // updateIfNeeded set to true is enough to configure a default SMS app.
+        ComponentName componentName =
+                SmsApplication.getDefaultSmsApplication(context, true /* updateIfNeeded */);
+        String packageName = "NONE";
+        if (componentName != null) {
+            packageName = componentName.getPackageName();
+        }
+        Rlog.i(LOG_TAG, "defaultSmsApplication: " + packageName);
+
+        if (sFeatureFlags.smsMmsDeliverBroadcastsRedirectToMainUser()) {
+            // Explicitly call this, even if the user has no default Sms application, to
+            // ensure that the System apps have the appropriate permissions.
+            SmsApplication.grantPermissionsToSystemApps(context);
+        }
+
+        // Set up monitor to watch for changes to SMS packages
+        SmsApplication.initSmsPackageMonitor(context);
+    }
+
     /**
      * Upon single SIM to dual SIM switch or vice versa, we dynamically allocate or de-allocate
      * Phone and CommandInterface objects.
@@ -524,6 +573,11 @@ public class PhoneFactory {
         IndentingPrintWriter pw = new IndentingPrintWriter(printwriter, "  ");
         pw.println("PhoneFactory:");
         pw.println(" sMadeDefaults=" + sMadeDefaults);
+        if (sStartupTrace != null) {
+            pw.increaseIndent();
+            sStartupTrace.dump(pw);
+            pw.decreaseIndent();
+        }
 
         sPhoneSwitcher.dump(fd, pw, args);
         pw.println();
@@ -549,6 +603,18 @@ public class PhoneFactory {
         pw.decreaseIndent();
         pw.println("++++++++++++++++++++++++++++++++");
 
+        if (sPhoneNotifier instanceof DefaultPhoneNotifier) {
+            pw.increaseIndent();
+            ((DefaultPhoneNotifier) sPhoneNotifier).dump(pw);
+            pw.decreaseIndent();
+            pw.println("++++++++++++++++++++++++++++++++");
+        }
+
+        pw.increaseIndent();
+        CarrierConfigCache.getInstance(sContext).dump(pw);
+        pw.decreaseIndent();
+        pw.println("++++++++++++++++++++++++++++++++");
+
         pw.println("UiccController:");
         pw.increaseIndent();
         try {
@@ -564,6 +630,13 @@ public class PhoneFactory {
         pw.decreaseIndent();
         pw.println("++++++++++++++++++++++++++++++++");
 
+        if (sMetricsCollector != null) {
+            pw.increaseIndent();
+            sMetricsCollector.dump(pw);
+            pw.decreaseIndent();
+            pw.println("++++++++++++++++++++++++++++++++");
+        }
+
         pw.println("sRadioHalCapabilities:");
         pw.increaseIndent();
         try {
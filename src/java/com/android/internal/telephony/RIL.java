@@ -125,6 +125,8 @@ public class RIL extends BaseCommands implements CommandsInterface {
     static final String RILJ_WAKELOCK_TAG = "*telephony-radio*";
     // Have a separate wakelock instance for Ack
     static final String RILJ_ACK_WAKELOCK_NAME = "RILJ_ACK_WL";
+    // Held while coalesced indications wait for their delayed delivery
+    static final String RILJ_INDICATION_WAKELOCK_NAME = "RILJ_INDICATION_WL";
     static final boolean RILJ_LOGD = true;
     static final boolean RILJ_LOGV = false; // STOPSHIP if true
     static final int RIL_HISTOGRAM_BUCKET_COUNT = 5;
@@ -139,6 +141,17 @@ public class RIL extends BaseCommands implements CommandsInterface {
 
     private static final int DEFAULT_BLOCKING_MESSAGE_RESPONSE_TIMEOUT_MS = 2000;
 
+    /**
+     * Minimum interval between two deliveries of the signal strength, cell info and physical
+     * channel config indications. 0 (the default) only drops exact duplicates.
+     */
+    private static final String PROPERTY_SIGNAL_STRENGTH_MIN_REPORT_INTERVAL_MS =
+            "ro.telephony.signal_strength_min_report_interval_ms";
+    private static final String PROPERTY_CELL_INFO_MIN_REPORT_INTERVAL_MS =
+            "ro.telephony.cell_info_min_report_interval_ms";
+    private static final String PROPERTY_PHYSICAL_CHANNEL_CONFIG_MIN_REPORT_INTERVAL_MS =
+            "ro.telephony.physical_channel_config_min_report_interval_ms";
+
     // Variables used to differentiate ack messages from request while calling clearWakeLock()
     public static final int INVALID_WAKELOCK = -1;
     public static final int FOR_WAKELOCK = 0;
@@ -272,6 +285,10 @@ public class RIL extends BaseCommands implements CommandsInterface {
     final RilHandler mRilHandler;
     private MockModem mMockModem;
 
+    /** Drops duplicated and rate limits high-rate unsolicited indications before conversion. */
+    @NonNull
+    final RadioIndicationCoalescer mIndicationCoalescer;
+
     // Thread-safe HashMap to map from RIL_REQUEST_XXX constant to HalVersion.
     // This is for Radio HAL Fallback Compatibility feature. When a RIL request
     // is received, the HAL method from the mapping HalVersion here (if present),
@@ -516,6 +533,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
         }
 
         setRadioState(TelephonyManager.RADIO_POWER_UNAVAILABLE, true /* forceNotifyRegistrants */);
+        mIndicationCoalescer.reset();
 
         RILRequest.resetSerial();
         // Clear request list on close
@@ -1149,6 +1167,17 @@ public class RIL extends BaseCommands implements CommandsInterface {
         mWakeLock.setReferenceCounted(false);
         mAckWakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, RILJ_ACK_WAKELOCK_NAME);
         mAckWakeLock.setReferenceCounted(false);
+        WakeLock indicationWakeLock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK,
+                RILJ_INDICATION_WAKELOCK_NAME);
+        indicationWakeLock.setReferenceCounted(false);
+        mIndicationCoalescer = new RadioIndicationCoalescer(mRilHandler, indicationWakeLock);
+        mIndicationCoalescer.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH,
+                SystemProperties.getLong(PROPERTY_SIGNAL_STRENGTH_MIN_REPORT_INTERVAL_MS, 0));
+        mIndicationCoalescer.setMinReportIntervalMillis(RIL_UNSOL_CELL_INFO_LIST,
+                SystemProperties.getLong(PROPERTY_CELL_INFO_MIN_REPORT_INTERVAL_MS, 0));
+        mIndicationCoalescer.setMinReportIntervalMillis(RIL_UNSOL_PHYSICAL_CHANNEL_CONFIG,
+                SystemProperties.getLong(
+                        PROPERTY_PHYSICAL_CHANNEL_CONFIG_MIN_REPORT_INTERVAL_MS, 0));
         mWakeLockTimeout = TelephonyProperties.wake_lock_timeout()
                 .orElse(DEFAULT_WAKE_LOCK_TIMEOUT_MS);
         mAckWakeLockTimeout = TelephonyProperties.wake_lock_timeout()
@@ -3483,6 +3512,11 @@ public class RIL extends BaseCommands implements CommandsInterface {
         });
     }
 
+    @Override
+    public void resetIndicationCoalescing() {
+        mIndicationCoalescer.reset();
+    }
+
     @Override
     public void getCellInfoList(Message result, WorkSource workSource) {
         RadioNetworkProxy networkProxy = getRadioServiceProxy(RadioNetworkProxy.class);
@@ -5946,6 +5980,7 @@ public class RIL extends BaseCommands implements CommandsInterface {
         pw.println(" mLastNITZTimeInfo=" + Arrays.toString(mLastNITZTimeInfo));
         pw.println(" mLastRadioPowerResult=" + mLastRadioPowerResult);
         pw.println(" mTestingEmergencyCall=" + mTestingEmergencyCall.get());
+        mIndicationCoalescer.dump(pw);
         mClientWakelockTracker.dumpClientRequestTracker(pw);
     }
 
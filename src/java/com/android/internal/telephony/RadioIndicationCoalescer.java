@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+import android.os.Handler;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.PowerManager.WakeLock;
+import android.os.SystemClock;
+import android.util.IndentingPrintWriter;
+import android.util.SparseArray;
+
+import com.android.internal.annotations.GuardedBy;
+import com.android.internal.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+/**
+ * Coalesces high-rate unsolicited radio indications before they are converted into framework
+ * objects.
+ *
+ * <p>The raw HAL payload of each indication is compared against the last one accepted for the
+ * same indication type, and exact duplicates are dropped before any conversion happens. The
+ * payloads are written to parcels kept per type and compared in place, so accepting or dropping
+ * an indication does not allocate. An
+ * optional per-type minimum report interval can be configured, in which case indications arriving
+ * within the interval are held back and only the latest one is delivered once the interval
+ * expires. A wake lock is held while an indication is held back, so it is not delayed further
+ * by the device suspending.
+ *
+ * <p>The last seen payloads must be forgotten with {@link #reset()} whenever the framework resets
+ * the state derived from these indications (e.g. radio off), otherwise a modem re-sending the
+ * same value afterwards would be suppressed. Solicited responses carrying the same data must be
+ * recorded with {@link #onSolicitedResponse}, since they also update the framework state.
+ *
+ * <p>One instance is owned by each {@link RIL}, so the state is kept per phone.
+ */
+public class RadioIndicationCoalescer {
+    /** Extra time the wake lock is held past the scheduled delivery, in case the handler lags. */
+    private static final long WAKE_LOCK_TIMEOUT_MARGIN_MS = 1000;
+
+    /** Per indication type coalescing state. */
+    private static class IndicationState {
+        /** The payload of the last accepted (delivered or pending) indication. */
+        @NonNull final Parcel mLastPayload = Parcel.obtain();
+        /** Whether {@link #mLastPayload} is known. */
+        boolean mHasLastPayload;
+        /** The payload of the last delivered indication or solicited response. */
+        @NonNull final Parcel mLastDeliveredPayload = Parcel.obtain();
+        /** Whether {@link #mLastDeliveredPayload} is known. */
+        boolean mHasLastDeliveredPayload;
+        /** The time the last indication was delivered, in elapsed realtime milliseconds. */
+        long mLastDeliveredTimeMs;
+        /** The minimum interval between two deliveries. 0 means no rate limiting. */
+        long mMinIntervalMs;
+        /** The latest indication held back by rate limiting, if any. */
+        @Nullable Runnable mPendingDelivery;
+        /** The runnable posted to the handler to flush {@link #mPendingDelivery}. */
+        @Nullable Runnable mFlushRunnable;
+        /** Number of indications received from the HAL. */
+        long mReceivedCount;
+        /** Number of indications dropped as duplicates or superseded by a newer one. */
+        long mSuppressedCount;
+    }
+
+    @NonNull
+    private final Handler mHandler;
+
+    /** Held while any indication is held back by rate limiting. Not reference counted. */
+    @NonNull
+    private final WakeLock mWakeLock;
+
+    /** The time the wake lock times out, in elapsed realtime milliseconds. */
+    @GuardedBy("this")
+    private long mWakeLockTimeoutTimeMs;
+
+    @GuardedBy("this")
+    private final SparseArray<IndicationState> mStates = new SparseArray<>();
+
+    /** The parcel the payload of the indication being processed is written to. */
+    @GuardedBy("this")
+    private final Parcel mPayload = Parcel.obtain();
+
+    /**
+     * Constructor.
+     *
+     * @param handler The handler used to deliver indications held back by rate limiting.
+     * @param wakeLock The wake lock held while indications are held back. It must not be
+     * reference counted.
+     */
+    public RadioIndicationCoalescer(@NonNull Handler handler, @NonNull WakeLock wakeLock) {
+        mHandler = handler;
+        mWakeLock = wakeLock;
+    }
+
+    /**
+     * Set the minimum interval between two deliveries of the given indication type. Indications
+     * arriving within the interval are coalesced, and only the latest one is delivered when the
+     * interval expires.
+     *
+     * @param unsolResponse The indication type, one of the {@code RIL_UNSOL_XXX} constants.
+     * @param intervalMs The minimum interval in milliseconds. 0 disables rate limiting.
+     */
+    public synchronized void setMinReportIntervalMillis(int unsolResponse, long intervalMs) {
+        getOrCreateState(unsolResponse).mMinIntervalMs = Math.max(0, intervalMs);
+    }
+
+    /**
+     * Process an indication received from the HAL.
+     *
+     * @param unsolResponse The indication type, one of the {@code RIL_UNSOL_XXX} constants.
+     * @param payload The raw HAL payload, or {@code null} if the payload cannot be compared, in
+     * which case duplicate detection is skipped.
+     * @param delivery The runnable that converts the payload and notifies the registrants. It is
+     * either run synchronously on the calling thread, on the handler thread later if rate limited,
+     * or never if the indication is suppressed.
+     */
+    public void onIndication(int unsolResponse, @Nullable Parcelable payload,
+            @NonNull Runnable delivery) {
+        onIndicationInternal(unsolResponse, payload, delivery);
+    }
+
+    /**
+     * Process an indication whose payload is an array, see
+     * {@link #onIndication(int, Parcelable, Runnable)}.
+     */
+    public void onIndication(int unsolResponse, @Nullable Parcelable[] payload,
+            @NonNull Runnable delivery) {
+        onIndicationInternal(unsolResponse, payload, delivery);
+    }
+
+    private void onIndicationInternal(int unsolResponse, @Nullable Object payload,
+            @NonNull Runnable delivery) {
+        synchronized (this) {
+            IndicationState state = getOrCreateState(unsolResponse);
+            state.mReceivedCount++;
+
+            boolean comparable = writePayloadLocked(payload);
+            if (comparable) {
+                if (state.mHasLastPayload && isSamePayload(mPayload, state.mLastPayload)) {
+                    state.mSuppressedCount++;
+                    return;
+                }
+                if (state.mPendingDelivery != null && state.mHasLastDeliveredPayload
+                        && isSamePayload(mPayload, state.mLastDeliveredPayload)) {
+                    // The value went back to what was last delivered, so the pending one is not
+                    // needed anymore.
+                    dropPendingLocked(state);
+                    copyPayload(mPayload, state.mLastPayload);
+                    state.mHasLastPayload = true;
+                    state.mSuppressedCount++;
+                    return;
+                }
+                copyPayload(mPayload, state.mLastPayload);
+            }
+            state.mHasLastPayload = comparable;
+
+            long now = SystemClock.elapsedRealtime();
+            if (state.mMinIntervalMs > 0
+                    && now - state.mLastDeliveredTimeMs < state.mMinIntervalMs) {
+                if (state.mPendingDelivery != null) {
+                    // Latest value wins.
+                    state.mSuppressedCount++;
+                } else {
+                    long delayMs = state.mLastDeliveredTimeMs + state.mMinIntervalMs - now;
+                    state.mFlushRunnable = () -> flushPending(unsolResponse);
+                    mHandler.postDelayed(state.mFlushRunnable, delayMs);
+                    acquireWakeLockLocked(now + delayMs + WAKE_LOCK_TIMEOUT_MARGIN_MS);
+                }
+                state.mPendingDelivery = delivery;
+                return;
+            }
+            state.mLastDeliveredTimeMs = now;
+            setLastDeliveredLocked(state);
+        }
+        delivery.run();
+    }
+
+    /**
+     * Record a solicited response carrying the same data as an indication type, e.g. the result
+     * of a signal strength poll. The framework state now reflects that response, so an indication
+     * held back by rate limiting is older and dropped, and the next indication is compared
+     * against the response.
+     *
+     * @param unsolResponse The indication type, one of the {@code RIL_UNSOL_XXX} constants.
+     * @param payload The raw HAL payload of the response, or {@code null} if unknown.
+     */
+    public synchronized void onSolicitedResponse(int unsolResponse,
+            @Nullable Parcelable payload) {
+        onSolicitedResponseLocked(unsolResponse, payload);
+    }
+
+    /**
+     * Record a solicited response whose payload is an array, see
+     * {@link #onSolicitedResponse(int, Parcelable)}.
+     */
+    public synchronized void onSolicitedResponse(int unsolResponse,
+            @Nullable Parcelable[] payload) {
+        onSolicitedResponseLocked(unsolResponse, payload);
+    }
+
+    @GuardedBy("this")
+    private void onSolicitedResponseLocked(int unsolResponse, @Nullable Object payload) {
+        IndicationState state = mStates.get(unsolResponse);
+        if (state == null) return;
+        dropPendingLocked(state);
+        state.mHasLastPayload = writePayloadLocked(payload);
+        if (state.mHasLastPayload) {
+            copyPayload(mPayload, state.mLastPayload);
+        }
+        setLastDeliveredLocked(state);
+    }
+
+    /**
+     * Write a payload to {@link #mPayload}.
+     *
+     * @param payload The HAL parcelable or array of HAL parcelables.
+     * @return {@code true} if the payload was written and can be compared.
+     */
+    @GuardedBy("this")
+    private boolean writePayloadLocked(@Nullable Object payload) {
+        if (payload == null) return false;
+        mPayload.setDataSize(0);
+        try {
+            if (payload instanceof Parcelable[]) {
+                mPayload.writeTypedArray((Parcelable[]) payload, 0);
+            } else {
+                ((Parcelable) payload).writeToParcel(mPayload, 0);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record the last accepted payload as the last delivered one.
+     */
+    @GuardedBy("this")
+    private void setLastDeliveredLocked(@NonNull IndicationState state) {
+        state.mHasLastDeliveredPayload = state.mHasLastPayload;
+        if (state.mHasLastPayload) {
+            copyPayload(state.mLastPayload, state.mLastDeliveredPayload);
+        }
+    }
+
+    private static boolean isSamePayload(@NonNull Parcel a, @NonNull Parcel b) {
+        return a.dataSize() == b.dataSize() && a.compareData(b) == 0;
+    }
+
+    private static void copyPayload(@NonNull Parcel from, @NonNull Parcel to) {
+        to.setDataSize(0);
+        to.appendFrom(from, 0, from.dataSize());
+    }
+
+    private void flushPending(int unsolResponse) {
+        Runnable delivery;
+        synchronized (this) {
+            IndicationState state = mStates.get(unsolResponse);
+            if (state == null || state.mPendingDelivery == null) {
+                releaseWakeLockIfIdle();
+                return;
+            }
+            delivery = state.mPendingDelivery;
+            state.mPendingDelivery = null;
+            state.mFlushRunnable = null;
+            state.mLastDeliveredTimeMs = SystemClock.elapsedRealtime();
+            setLastDeliveredLocked(state);
+        }
+        try {
+            delivery.run();
+        } finally {
+            releaseWakeLockIfIdle();
+        }
+    }
+
+    /**
+     * Drop the indication held back by rate limiting, if any, and count it as suppressed.
+     */
+    @GuardedBy("this")
+    private void dropPendingLocked(@NonNull IndicationState state) {
+        if (state.mPendingDelivery == null) return;
+        mHandler.removeCallbacks(state.mFlushRunnable);
+        state.mFlushRunnable = null;
+        state.mPendingDelivery = null;
+        state.mSuppressedCount++;
+        releaseWakeLockIfIdle();
+    }
+
+    /**
+     * Acquire the wake lock, or extend it so it is held at least until the given time.
+     *
+     * @param timeoutTimeMs The time the wake lock may time out, in elapsed realtime milliseconds.
+     */
+    @GuardedBy("this")
+    private void acquireWakeLockLocked(long timeoutTimeMs) {
+        long now = SystemClock.elapsedRealtime();
+        if (mWakeLock.isHeld() && mWakeLockTimeoutTimeMs >= timeoutTimeMs) return;
+        mWakeLockTimeoutTimeMs = timeoutTimeMs;
+        mWakeLock.acquire(timeoutTimeMs - now);
+    }
+
+    /**
+     * Release the wake lock if no indication is held back anymore.
+     */
+    private synchronized void releaseWakeLockIfIdle() {
+        for (int i = 0; i < mStates.size(); i++) {
+            if (mStates.valueAt(i).mPendingDelivery != null) return;
+        }
+        if (mWakeLock.isHeld()) {
+            mWakeLock.release();
+        }
+    }
+
+    /**
+     * Forget all the last seen payloads and drop pending indications. This should be called when
+     * the radio service is reset, and whenever the framework resets the state derived from these
+     * indications, so the next indication is always delivered. Counters are kept.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < mStates.size(); i++) {
+            IndicationState state = mStates.valueAt(i);
+            dropPendingLocked(state);
+            state.mHasLastPayload = false;
+            state.mHasLastDeliveredPayload = false;
+            state.mLastDeliveredTimeMs = 0;
+        }
+    }
+
+    /**
+     * @param unsolResponse The indication type.
+     * @return The number of indications of that type received from the HAL.
+     */
+    @VisibleForTesting
+    public synchronized long getReceivedCount(int unsolResponse) {
+        IndicationState state = mStates.get(unsolResponse);
+        return state == null ? 0 : state.mReceivedCount;
+    }
+
+    /**
+     * @param unsolResponse The indication type.
+     * @return The number of indications of that type dropped as duplicates or superseded.
+     */
+    @VisibleForTesting
+    public synchronized long getSuppressedCount(int unsolResponse) {
+        IndicationState state = mStates.get(unsolResponse);
+        return state == null ? 0 : state.mSuppressedCount;
+    }
+
+    @GuardedBy("this")
+    @NonNull
+    private IndicationState getOrCreateState(int unsolResponse) {
+        IndicationState state = mStates.get(unsolResponse);
+        if (state == null) {
+            state = new IndicationState();
+            mStates.put(unsolResponse, state);
+        }
+        return state;
+    }
+
+    /**
+     * Dump the state of the coalescer.
+     *
+     * @param pw The print writer.
+     */
+    public synchronized void dump(@NonNull PrintWriter pw) {
+        IndentingPrintWriter ipw = new IndentingPrintWriter(pw, "  ");
+        ipw.println("RadioIndicationCoalescer:");
+        ipw.increaseIndent();
+        for (int i = 0; i < mStates.size(); i++) {
+            IndicationState state = mStates.valueAt(i);
+            ipw.println(RILUtils.responseToString(mStates.keyAt(i))
+                    + ": received=" + state.mReceivedCount
+                    + ", suppressed=" + state.mSuppressedCount
+                    + ", minIntervalMs=" + state.mMinIntervalMs
+                    + ", pending=" + (state.mPendingDelivery != null));
+        }
+        ipw.println("wakeLockHeld=" + mWakeLock.isHeld());
+        ipw.decreaseIndent();
+    }
+}
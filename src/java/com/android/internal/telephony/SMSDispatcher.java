@@ -53,7 +53,6 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
-import android.os.PersistableBundle;
 import android.os.Process;
 import android.os.SystemClock;
 import android.os.UserHandle;
@@ -3237,15 +3236,8 @@ public abstract class SMSDispatcher extends Handler {
         //TODO: Do not rely on calling identity here, we should store UID & clear identity earlier.
         long token = Binder.clearCallingIdentity();
         try {
-            CarrierConfigManager configManager = (CarrierConfigManager) mContext.getSystemService(
-                    Context.CARRIER_CONFIG_SERVICE);
-            PersistableBundle pb = null;
-            pb = configManager.getConfigForSubId(mPhone.getSubId());
-            if (pb != null) {
-                return pb.getBoolean(CarrierConfigManager
-                        .KEY_ASCII_7_BIT_SUPPORT_FOR_LONG_MESSAGE_BOOL);
-            }
-            return false;
+            return CarrierConfigCache.getInstance(mContext).getBoolean(mPhone.getSubId(),
+                    CarrierConfigManager.KEY_ASCII_7_BIT_SUPPORT_FOR_LONG_MESSAGE_BOOL);
         } finally {
             Binder.restoreCallingIdentity(token);
         }
@@ -189,7 +189,17 @@ public class ServiceStateTracker extends Handler {
     private static final long CELL_INFO_LIST_QUERY_TIMEOUT = 2000;
 
     private long mLastCellInfoReqTime;
+    // The time the last CellInfo list was received, either solicited or unsolicited. Requests that
+    // arrive within MinInterval of it are served from the cache as well, since the list is fresh.
+    // @GuardedBy("mPendingCellInfoRequests")
+    private long mLastCellInfoTime;
     private List<CellInfo> mLastCellInfoList = null;
+
+    // Counters of CellInfo requests from all the consumers of this phone, and how they were served.
+    private int mCellInfoRequestCount;
+    private int mCellInfoCachedResponseCount;
+    private int mCellInfoPendingResponseCount;
+    private int mCellInfoModemRequestCount;
     private List<PhysicalChannelConfig> mLastPhysicalChannelConfigList = null;
 
     private final Set<Integer> mRadioPowerOffReasons = new HashSet<>();
@@ -700,11 +710,9 @@ public class ServiceStateTracker extends Handler {
         mRestrictedState = new RestrictedState();
 
         mCarrierConfig = getCarrierConfig();
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
         // Callback which directly handle config change should be executed in handler thread
-        if (ccm != null) {
-            ccm.registerCarrierConfigChangeListener(this::post, mCarrierConfigChangeListener);
-        }
+        CarrierConfigCache.getInstance(mPhone.getContext()).registerCarrierConfigChangeListener(
+                this::post, mCarrierConfigChangeListener);
 
         mAccessNetworksManager = mPhone.getAccessNetworksManager();
         mOutOfServiceSS = new ServiceState();
@@ -835,14 +843,18 @@ public class ServiceStateTracker extends Handler {
         mSS.setOutOfService(false);
         mNewSS = new ServiceState();
         mNewSS.setOutOfService(false);
-        mLastCellInfoReqTime = 0;
-        mLastCellInfoList = null;
+        synchronized (mPendingCellInfoRequests) {
+            mLastCellInfoReqTime = 0;
+            mLastCellInfoTime = 0;
+            mLastCellInfoList = null;
+        }
         mStartedGprsRegCheck = false;
         mReportedGprsNoReg = false;
         mLastNitzData = null;
         mNitzState.handleNetworkUnavailable();
         mCellIdentity = null;
         mPhone.getSignalStrengthController().setSignalStrengthDefaultValues();
+        mCi.resetIndicationCoalescing();
         mLastKnownCellIdentity = null;
 
         //cancel any pending pollstate request on voice tech switching
@@ -900,9 +912,9 @@ public class ServiceStateTracker extends Handler {
         mPhone.getCarrierActionAgent().unregisterForCarrierAction(this,
                 CARRIER_ACTION_SET_RADIO_ENABLED);
         mPhone.getContext().unregisterReceiver(mIntentReceiver);
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (ccm != null && mCarrierConfigChangeListener != null) {
-            ccm.unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
+        if (mCarrierConfigChangeListener != null) {
+            CarrierConfigCache.getInstance(mPhone.getContext())
+                    .unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
         }
         if (mCSST != null) {
             mCSST.dispose();
@@ -1248,7 +1260,10 @@ public class ServiceStateTracker extends Handler {
                     } else {
                         cellInfo = (List<CellInfo>) ar.result;
                         updateOperatorNameForCellInfo(cellInfo);
-                        mLastCellInfoList = cellInfo;
+                        synchronized (mPendingCellInfoRequests) {
+                            mLastCellInfoList = cellInfo;
+                            mLastCellInfoTime = SystemClock.elapsedRealtime();
+                        }
                         mPhone.notifyCellInfo(cellInfo);
                         if (VDBG) {
                             log("CELL_INFO_LIST: size=" + cellInfo.size() + " list=" + cellInfo);
@@ -1270,6 +1285,7 @@ public class ServiceStateTracker extends Handler {
                         // wrong.
                         loge("Timeout waiting for CellInfo; (everybody panic)!");
                         mLastCellInfoList = null;
+                        mCi.resetIndicationCoalescing();
                         // Since the timeout is applicable, fall through and update all synchronous
                         // callers with the failure.
                     }
@@ -2797,6 +2813,8 @@ public class ServiceStateTracker extends Handler {
             mNewSS.addNetworkRegistrationInfo(nri);
         }
         mPhone.getSignalStrengthController().setSignalStrengthDefaultValues();
+        // The modem may report the same values again once the radio is back.
+        mCi.resetIndicationCoalescing();
         mLastNitzData = null;
         mNitzState.handleNetworkUnavailable();
     }
@@ -4362,8 +4380,9 @@ public class ServiceStateTracker extends Handler {
     /**
      * Request the latest CellInfo from the modem.
      *
-     * If sufficient time has elapsed, then this request will be sent to the modem. Otherwise
-     * the latest cached List<CellInfo> will be returned.
+     * If sufficient time has elapsed since the last request and the last received CellInfo, then
+     * this request will be sent to the modem. Otherwise the latest cached List<CellInfo> will be
+     * returned. Concurrent requests share the response of the pending modem request.
      *
      * @param workSource of the caller for power accounting
      * @param rspMsg an optional response message to get the response to the CellInfo request. If
@@ -4379,16 +4398,22 @@ public class ServiceStateTracker extends Handler {
             return;
         }
         synchronized (mPendingCellInfoRequests) {
+            mCellInfoRequestCount++;
             // If there are pending requests, then we already have a request active, so add this
             // request to the response queue without initiating a new request.
             if (mIsPendingCellInfoRequest) {
+                mCellInfoPendingResponseCount++;
                 if (rspMsg != null) mPendingCellInfoRequests.add(rspMsg);
                 return;
             }
             // Check to see whether the elapsed time is sufficient for a new request; if not, then
-            // return the result of the last request (if expected).
+            // return the result of the last request (if expected). An unsolicited CellInfo that
+            // arrived recently is as good as the result of a request.
             final long curTime = SystemClock.elapsedRealtime();
-            if ((curTime - mLastCellInfoReqTime) < mCellInfoMinIntervalMs) {
+            if ((curTime - mLastCellInfoReqTime) < mCellInfoMinIntervalMs
+                    || (mLastCellInfoList != null
+                            && (curTime - mLastCellInfoTime) < mCellInfoMinIntervalMs)) {
+                mCellInfoCachedResponseCount++;
                 if (rspMsg != null) {
                     if (DBG) log("SST.requestAllCellInfo(): return last, back to back calls");
                     AsyncResult.forMessage(rspMsg, mLastCellInfoList, null);
@@ -4403,6 +4428,7 @@ public class ServiceStateTracker extends Handler {
             mLastCellInfoReqTime = curTime;
             // Set a flag to remember that we have a pending cell info request
             mIsPendingCellInfoRequest = true;
+            mCellInfoModemRequestCount++;
             // Send a cell info request and also chase it with a timeout message
             Message msg = obtainMessage(EVENT_GET_CELL_INFO_LIST);
             mCi.getCellInfoList(msg, workSource);
@@ -4448,6 +4474,13 @@ public class ServiceStateTracker extends Handler {
                 mPendingRadioPowerOffReason));
         pw.println(" mCellIdentity=" + Rlog.pii(VDBG, mCellIdentity));
         pw.println(" mLastCellInfoReqTime=" + mLastCellInfoReqTime);
+        pw.println(" mLastCellInfoTime=" + mLastCellInfoTime);
+        synchronized (mPendingCellInfoRequests) {
+            pw.println(" CellInfo requests=" + mCellInfoRequestCount
+                    + ", cached=" + mCellInfoCachedResponseCount
+                    + ", pending=" + mCellInfoPendingResponseCount
+                    + ", modem=" + mCellInfoModemRequestCount);
+        }
         dumpCellInfoList(pw);
         pw.flush();
         pw.println(" mAllowedNetworkTypes=" + mAllowedNetworkTypes);
@@ -4748,17 +4781,9 @@ public class ServiceStateTracker extends Handler {
      */
     @NonNull
     private PersistableBundle getCarrierConfig() {
-        CarrierConfigManager configManager = (CarrierConfigManager) mPhone.getContext()
-                .getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        if (configManager != null) {
-            // If an invalid subId is used, this bundle will contain default values.
-            PersistableBundle config = configManager.getConfigForSubId(mPhone.getSubId());
-            if (config != null) {
-                return config;
-            }
-        }
-        // Return static default defined in CarrierConfigManager.
-        return CarrierConfigManager.getDefaultConfig();
+        // If an invalid subId is used, this bundle will contain default values.
+        return CarrierConfigCache.getInstance(mPhone.getContext())
+                .getConfigForSubId(mPhone.getSubId());
     }
 
     public LocaleTracker getLocaleTracker() {
@@ -20,7 +20,6 @@ import static android.telephony.TelephonyManager.HAL_SERVICE_NETWORK;
 
 import android.annotation.NonNull;
 import android.annotation.Nullable;
-import android.content.Context;
 import android.os.AsyncResult;
 import android.os.Handler;
 import android.os.IBinder;
@@ -161,14 +160,11 @@ public class SignalStrengthController extends Handler {
         mCi.setOnSignalStrengthUpdate(this, EVENT_SIGNAL_STRENGTH_UPDATE, null);
         setSignalStrengthDefaultValues();
 
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
         mCarrierConfig = getCarrierConfig();
         // Callback which directly handle config change should be executed on handler thread
-        if (ccm != null) {
-            ccm.registerCarrierConfigChangeListener(this::post,
-                    (slotIndex, subId, carrierId, specificCarrierId) ->
-                            onCarrierConfigurationChanged(slotIndex));
-        }
+        CarrierConfigCache.getInstance(mPhone.getContext()).registerCarrierConfigChangeListener(
+                this::post, (slotIndex, subId, carrierId, specificCarrierId) ->
+                        onCarrierConfigurationChanged(slotIndex));
 
         mPhone.registerForServiceStateChanged(this, EVENT_SERVICE_STATE_CHANGED, null);
     }
@@ -985,17 +981,9 @@ public class SignalStrengthController extends Handler {
      */
     @NonNull
     private PersistableBundle getCarrierConfig() {
-        CarrierConfigManager configManager = (CarrierConfigManager) mPhone.getContext()
-                .getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        if (configManager != null) {
-            // If an invalid subId is used, this bundle will contain default values.
-            PersistableBundle config = configManager.getConfigForSubId(mPhone.getSubId());
-            if (config != null) {
-                return config;
-            }
-        }
-        // Return static default defined in CarrierConfigManager.
-        return CarrierConfigManager.getDefaultConfig();
+        // If an invalid subId is used, this bundle will contain default values.
+        return CarrierConfigCache.getInstance(mPhone.getContext())
+                .getConfigForSubId(mPhone.getSubId());
     }
 
     private class SignalRequestRecord implements IBinder.DeathRecipient {
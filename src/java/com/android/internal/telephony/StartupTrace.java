@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import android.annotation.NonNull;
+import android.os.SystemClock;
+import android.os.Trace;
+
+import com.android.internal.util.IndentingPrintWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each telephony component takes to initialize at startup. Every step is also
+ * emitted as a systrace section, and the recorded steps are printed in the PhoneFactory dump.
+ */
+public class StartupTrace {
+    /** A recorded initialization step. */
+    private static class Step {
+        @NonNull
+        final String name;
+        @NonNull
+        final String threadName;
+        /** Start time relative to the start of the trace. */
+        final long startMillis;
+        final long durationMillis;
+
+        Step(@NonNull String name, @NonNull String threadName, long startMillis,
+                long durationMillis) {
+            this.name = name;
+            this.threadName = threadName;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": start=+" + startMillis + "ms, duration=" + durationMillis + "ms"
+                    + ", thread=" + threadName;
+        }
+    }
+
+    /** The time the trace was created. */
+    private final long mStartTime = SystemClock.elapsedRealtime();
+
+    /** The recorded steps in completion order. */
+    @NonNull
+    private final List<Step> mSteps = new ArrayList<>();
+
+    /**
+     * Run and record an initialization step.
+     *
+     * @param name The name of the step.
+     * @param step The step, which returns the initialized component.
+     * @return The initialized component.
+     */
+    public <T> T trace(@NonNull String name, @NonNull Supplier<T> step) {
+        long start = SystemClock.elapsedRealtime();
+        Trace.traceBegin(Trace.TRACE_TAG_NETWORK, name);
+        try {
+            return step.get();
+        } finally {
+            Trace.traceEnd(Trace.TRACE_TAG_NETWORK);
+            record(name, start);
+        }
+    }
+
+    /**
+     * Run and record an initialization step.
+     *
+     * @param name The name of the step.
+     * @param step The step.
+     */
+    public void trace(@NonNull String name, @NonNull Runnable step) {
+        trace(name, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    private void record(@NonNull String name, long start) {
+        Step step = new Step(name, Thread.currentThread().getName(), start - mStartTime,
+                SystemClock.elapsedRealtime() - start);
+        synchronized (mSteps) {
+            mSteps.add(step);
+        }
+    }
+
+    /**
+     * Dump the recorded steps.
+     *
+     * @param pw The print writer.
+     */
+    public void dump(@NonNull IndentingPrintWriter pw) {
+        pw.println("Startup trace:");
+        pw.increaseIndent();
+        synchronized (mSteps) {
+            for (Step step : mSteps) {
+                pw.println(step);
+            }
+        }
+        pw.decreaseIndent();
+    }
+}
@@ -127,13 +127,13 @@ class BerTlv {
                     " length=" + length);
         }
 
-        List<ComprehensionTlv> ctlvs = ComprehensionTlv.decodeMany(data,
-                curIndex);
+        // The COMPREHENSION-TLV objects are read in place, and only created when accessed.
+        ComprehensionTlvList ctlvs = ComprehensionTlvList.decode(data, curIndex);
 
         if (tag == BER_PROACTIVE_COMMAND_TAG) {
             int totalLength = 0;
-            for (ComprehensionTlv item : ctlvs) {
-                int itemLength = item.getLength();
+            for (int i = 0; i < ctlvs.size(); i++) {
+                int itemLength = ctlvs.getLength(i);
                 if (itemLength >= 0x80 && itemLength <= 0xFF) {
                     totalLength += itemLength + 3; //3: 'tag'(1 byte) and 'length'(2 bytes).
                 } else if (itemLength >= 0 && itemLength < 0x80) {
@@ -1127,6 +1127,8 @@ public class CatService extends Handler implements AppInterface {
                 if (msg.obj != null) {
                     AsyncResult ar = (AsyncResult) msg.obj;
                     if (ar != null && ar.result != null) {
+                        // Icons read from the SIM may have been updated.
+                        IconLoader.clearIconCache();
                         broadcastCardStateAndIccRefreshResp(CardState.CARDSTATE_PRESENT,
                                     (IccRefreshResponse) ar.result);
                     } else {
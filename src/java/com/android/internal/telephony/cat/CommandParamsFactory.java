@@ -33,6 +33,7 @@ import android.os.Handler;
 import android.os.Message;
 import android.telephony.AnomalyReporter;
 import android.telephony.SmsMessage;
+import android.telephony.SubscriptionManager;
 import android.text.TextUtils;
 
 import com.android.internal.telephony.GsmAlphabet;
@@ -110,19 +111,34 @@ public class CommandParamsFactory extends Handler {
      */
     public static synchronized CommandParamsFactory getInstance(RilMessageDecoder caller,
             IccFileHandler fh, Context context) {
+        return getInstance(caller, fh, context, SubscriptionManager.INVALID_PHONE_INDEX);
+    }
+
+    /**
+     * Returns a singleton instance of CommandParamsFactory
+     * @param caller Class used for queuing raw ril messages, decoding them into
+     *               CommandParams objects and sending the result back to the CAT Service.
+     * @param fh IccFileHandler Object
+     * @param context The Context
+     * @param phoneId The phone of the SIM the proactive commands come from, used to cache icons
+     * @return CommandParamsFactory instance
+     */
+    public static synchronized CommandParamsFactory getInstance(RilMessageDecoder caller,
+            IccFileHandler fh, Context context, int phoneId) {
         if (sInstance != null) {
             return sInstance;
         }
         if (fh != null) {
-            return new CommandParamsFactory(caller, fh, context);
+            return new CommandParamsFactory(caller, fh, context, phoneId);
         }
         return null;
     }
 
-    private CommandParamsFactory(RilMessageDecoder caller, IccFileHandler fh, Context context) {
+    private CommandParamsFactory(RilMessageDecoder caller, IccFileHandler fh, Context context,
+            int phoneId) {
         mCaller = caller;
         mContext = context;
-        mIconLoader = IconLoader.getInstance(this, fh);
+        mIconLoader = IconLoader.getInstance(this, fh, phoneId);
         try {
             mNoAlphaUsrCnf = context.getResources().getBoolean(
                     com.android.internal.R.bool.config_stkNoAlphaUsrCnf);
@@ -349,6 +365,10 @@ public class CommandParamsFactory extends Handler {
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
     private ComprehensionTlv searchForTag(ComprehensionTlvTag tag,
             List<ComprehensionTlv> ctlvs) {
+        if (ctlvs instanceof ComprehensionTlvList) {
+            // Search the tags in place without creating the objects skipped.
+            return ((ComprehensionTlvList) ctlvs).findTag(tag.value());
+        }
         Iterator<ComprehensionTlv> iter = ctlvs.iterator();
         return searchForNextTag(tag, iter);
     }
@@ -369,6 +389,9 @@ public class CommandParamsFactory extends Handler {
     private ComprehensionTlv searchForNextTag(ComprehensionTlvTag tag,
             Iterator<ComprehensionTlv> iter) {
         int tagValue = tag.value();
+        if (iter instanceof ComprehensionTlvList.Cursor) {
+            return ((ComprehensionTlvList.Cursor) iter).nextWithTag(tagValue);
+        }
         while (iter.hasNext()) {
             ComprehensionTlv ctlv = iter.next();
             if (ctlv.getTag() == tagValue) {
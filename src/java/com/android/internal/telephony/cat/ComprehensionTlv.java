@@ -33,6 +33,14 @@ import java.util.List;
  */
 public class ComprehensionTlv {
     private static final String LOG_TAG = "ComprehensionTlv";
+
+    // Layout of the header decoded by decodeHeader().
+    static final int HEADER_TAG = 0;
+    static final int HEADER_CR = 1;
+    static final int HEADER_LENGTH = 2;
+    static final int HEADER_VALUE_INDEX = 3;
+    static final int HEADER_SIZE = 4;
+
     private int mTag;
     private boolean mCr;
     private int mLength;
@@ -119,6 +127,28 @@ public class ComprehensionTlv {
      */
     public static ComprehensionTlv decode(byte[] data, int startIndex)
             throws ResultException {
+        int[] header = new int[HEADER_SIZE];
+        if (!decodeHeader(data, startIndex, header)) {
+            return null;
+        }
+        return new ComprehensionTlv(header[HEADER_TAG], header[HEADER_CR] != 0,
+                header[HEADER_LENGTH], data, header[HEADER_VALUE_INDEX]);
+    }
+
+    /**
+     * Parses the header of a COMPREHENSION-TLV object from a byte array, without creating any
+     * object.
+     *
+     * @param data A byte array containing data to be parsed
+     * @param startIndex Index in data at which to start parsing
+     * @param header Receives the tag, comprehension required flag (1 or 0), length and value
+     *        index of the object, at {@link #HEADER_TAG}, {@link #HEADER_CR},
+     *        {@link #HEADER_LENGTH} and {@link #HEADER_VALUE_INDEX}
+     * @return false if the first tag byte is invalid and decoding should stop
+     * @throws ResultException
+     */
+    static boolean decodeHeader(byte[] data, int startIndex, int[] header)
+            throws ResultException {
         int curIndex = startIndex;
         int endIndex = data.length;
 
@@ -134,9 +164,9 @@ public class ComprehensionTlv {
                 Rlog.d("CAT     ", "decode: unexpected first tag byte=" + Integer.toHexString(temp) +
                         ", startIndex=" + startIndex + " curIndex=" + curIndex +
                         " endIndex=" + endIndex);
-                // Return null which will stop decoding, this has occurred
+                // Return false which will stop decoding, this has occurred
                 // with Ghana MTN simcard and JDI simcard.
-                return null;
+                return false;
 
             case 0x7f: // tag is in three-byte format
                 tag = ((data[curIndex] & 0xff) << 8)
@@ -198,7 +228,11 @@ public class ComprehensionTlv {
 
             }
 
-            return new ComprehensionTlv(tag, cr, length, data, curIndex);
+            header[HEADER_TAG] = tag;
+            header[HEADER_CR] = cr ? 1 : 0;
+            header[HEADER_LENGTH] = length;
+            header[HEADER_VALUE_INDEX] = curIndex;
+            return true;
 
         } catch (IndexOutOfBoundsException e) {
             throw new ResultException(ResultCode.CMD_DATA_NOT_UNDERSTOOD,
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A list of COMPREHENSION-TLV objects read in place from the raw bytes of a BER-TLV object.
+ *
+ * <p>Only the headers (tag, comprehension required flag, length and value index) are decoded, into
+ * primitive arrays. The {@link ComprehensionTlv} objects, which reference the raw bytes without
+ * copying them, are only created for the elements actually returned by {@link #get(int)} or by the
+ * {@link Cursor}. Searching for a tag does not create any object.
+ *
+ * @hide
+ */
+class ComprehensionTlvList extends AbstractList<ComprehensionTlv> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final byte[] mRawValue;
+    private int mSize;
+    private int[] mTags = new int[INITIAL_CAPACITY];
+    private int[] mLengths = new int[INITIAL_CAPACITY];
+    private int[] mValueIndexes = new int[INITIAL_CAPACITY];
+    private boolean[] mCrs = new boolean[INITIAL_CAPACITY];
+    private ComprehensionTlv[] mCtlvs;
+
+    private ComprehensionTlvList(byte[] data) {
+        mRawValue = data;
+    }
+
+    /**
+     * Reads the COMPREHENSION-TLV objects of a byte array, the same way as
+     * {@link ComprehensionTlv#decodeMany(byte[], int)}.
+     *
+     * @param data A byte array containing data to be parsed
+     * @param startIndex Index in data at which to start parsing
+     * @return A list of COMPREHENSION-TLV objects read
+     * @throws ResultException
+     */
+    static ComprehensionTlvList decode(byte[] data, int startIndex) throws ResultException {
+        ComprehensionTlvList list = new ComprehensionTlvList(data);
+        int[] header = new int[ComprehensionTlv.HEADER_SIZE];
+        int endIndex = data.length;
+        while (startIndex < endIndex) {
+            if (!ComprehensionTlv.decodeHeader(data, startIndex, header)) {
+                CatLog.d("ComprehensionTlvList", "decode: ctlv is null, stop decoding");
+                break;
+            }
+            list.add(header);
+            startIndex = header[ComprehensionTlv.HEADER_VALUE_INDEX]
+                    + header[ComprehensionTlv.HEADER_LENGTH];
+        }
+        list.mCtlvs = new ComprehensionTlv[list.mSize];
+        return list;
+    }
+
+    private void add(int[] header) {
+        if (mSize == mTags.length) {
+            int capacity = mSize * 2;
+            mTags = Arrays.copyOf(mTags, capacity);
+            mLengths = Arrays.copyOf(mLengths, capacity);
+            mValueIndexes = Arrays.copyOf(mValueIndexes, capacity);
+            mCrs = Arrays.copyOf(mCrs, capacity);
+        }
+        mTags[mSize] = header[ComprehensionTlv.HEADER_TAG];
+        mCrs[mSize] = header[ComprehensionTlv.HEADER_CR] != 0;
+        mLengths[mSize] = header[ComprehensionTlv.HEADER_LENGTH];
+        mValueIndexes[mSize] = header[ComprehensionTlv.HEADER_VALUE_INDEX];
+        mSize++;
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public ComprehensionTlv get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+        }
+        ComprehensionTlv ctlv = mCtlvs[index];
+        if (ctlv == null) {
+            ctlv = new ComprehensionTlv(mTags[index], mCrs[index], mLengths[index], mRawValue,
+                    mValueIndexes[index]);
+            mCtlvs[index] = ctlv;
+        }
+        return ctlv;
+    }
+
+    /** Gets the tag of the element at {@code index} without creating it. */
+    int getTag(int index) {
+        return mTags[index];
+    }
+
+    /** Gets the length of the element at {@code index} without creating it. */
+    int getLength(int index) {
+        return mLengths[index];
+    }
+
+    /**
+     * Gets the index of the first element with the given tag at or after {@code fromIndex}.
+     *
+     * @return The index of the element found, or -1 if there is none.
+     */
+    int indexOfTag(int tag, int fromIndex) {
+        for (int i = fromIndex; i < mSize; i++) {
+            if (mTags[i] == tag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the first element with the given tag.
+     *
+     * @return The element found, or null if there is none.
+     */
+    ComprehensionTlv findTag(int tag) {
+        int index = indexOfTag(tag, 0);
+        return index >= 0 ? get(index) : null;
+    }
+
+    @Override
+    public Cursor iterator() {
+        return new Cursor();
+    }
+
+    /**
+     * An iterator that can skip to the next element with a given tag without creating the
+     * elements skipped.
+     */
+    class Cursor implements Iterator<ComprehensionTlv> {
+        private int mNextIndex;
+
+        @Override
+        public boolean hasNext() {
+            return mNextIndex < mSize;
+        }
+
+        @Override
+        public ComprehensionTlv next() {
+            if (mNextIndex >= mSize) {
+                throw new NoSuchElementException();
+            }
+            return get(mNextIndex++);
+        }
+
+        /**
+         * Moves past the next element with the given tag and returns it.
+         *
+         * @return The element found, or null if there is none, in which case the cursor is at
+         *         the end of the list.
+         */
+        ComprehensionTlv nextWithTag(int tag) {
+            int index = indexOfTag(tag, mNextIndex);
+            if (index < 0) {
+                mNextIndex = mSize;
+                return null;
+            }
+            mNextIndex = index + 1;
+            return get(index);
+        }
+    }
+}
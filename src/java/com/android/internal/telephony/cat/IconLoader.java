@@ -25,38 +25,51 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
+import android.telephony.SubscriptionManager;
+import android.text.TextUtils;
+import android.util.LruCache;
+import android.util.Pair;
+import android.util.SparseArray;
 
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.uicc.IccFileHandler;
+import com.android.internal.telephony.uicc.UiccController;
+import com.android.internal.telephony.uicc.UiccPort;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class for loading icons from the SIM card. Has two states: single, for loading
  * one icon. Multi, for loading icons list.
  *
+ * <p>All the records of a multi icons load are read from the SIM at the same time instead of one
+ * after the other. Loaded icons are kept in a cache shared by all the SIMs, keyed by ICCID and
+ * EF-IMG record number and bounded by the size of the bitmaps, so the icons of a menu that is set
+ * up again, e.g. after a SIM refresh, do not have to be read again.
  */
 class IconLoader extends Handler {
     // members
-    private int mState = STATE_SINGLE_ICON;
-    private ImageDescriptor mId = null;
-    private Bitmap mCurrentIcon = null;
-    private int mRecordNumber;
     private IccFileHandler mSimFH = null;
-    private Message mEndMsg = null;
-    private byte[] mIconData = null;
-    // multi icons state members
-    private int[] mRecordNumbers = null;
-    private int mCurrentRecordIndex = 0;
-    private Bitmap[] mIcons = null;
-    private HashMap<Integer, Bitmap> mIconsCache = null;
+    private final int mPhoneId;
 
     private static IconLoader sLoader = null;
     private static HandlerThread sThread = null;
 
-    // Loader state values.
-    private static final int STATE_SINGLE_ICON = 1;
-    private static final int STATE_MULTI_ICONS = 2;
+    // Maximum size in bytes of the cached icons. An icon is at most 255x255 pixels.
+    private static final int MAX_ICON_CACHE_BYTES = 1024 * 1024;
 
+    // Icons loaded from any SIM, keyed by ICCID and EF-IMG record number.
+    private static final LruCache<Pair<String, Integer>, Bitmap> sIconCache =
+            new LruCache<Pair<String, Integer>, Bitmap>(MAX_ICON_CACHE_BYTES) {
+                @Override
+                protected int sizeOf(Pair<String, Integer> key, Bitmap icon) {
+                    return icon.getByteCount();
+                }
+            };
+
+    // Start loading the icons of a LoadRequest, on the loader thread.
+    private static final int EVENT_START_LOAD               = 0;
     // Finished loading single record from a linear-fixed EF-IMG.
     private static final int EVENT_READ_EF_IMG_RECOED_DONE  = 1;
     // Finished loading single icon from a Transparent DF-Graphics.
@@ -69,22 +82,58 @@ class IconLoader extends Handler {
     // CLUT entry size, {Red, Green, Black}
     private static final int CLUT_ENTRY_SIZE = 3;
 
+    /** A request to load one icon, or a list of icons. */
+    private static class LoadRequest {
+        final int[] mRecordNumbers;
+        final boolean mMultiIcons;
+        final Message mEndMsg;
+        final Bitmap[] mIcons;
+        // Number of records still being read from the SIM.
+        int mPendingRecords;
+
+        LoadRequest(int[] recordNumbers, boolean multiIcons, Message endMsg) {
+            mRecordNumbers = recordNumbers;
+            mMultiIcons = multiIcons;
+            mEndMsg = endMsg;
+            mIcons = new Bitmap[recordNumbers.length];
+        }
+    }
 
-    private IconLoader(Looper looper , IccFileHandler fh) {
+    /** The state of the read of one EF-IMG record, used by all the icons showing it. */
+    private static class RecordLoad {
+        final LoadRequest mRequest;
+        final int mRecordNumber;
+        final Pair<String, Integer> mCacheKey;
+        final List<Integer> mIconIndexes = new ArrayList<>();
+        ImageDescriptor mId;
+        byte[] mIconData;
+
+        RecordLoad(LoadRequest request, int recordNumber, Pair<String, Integer> cacheKey) {
+            mRequest = request;
+            mRecordNumber = recordNumber;
+            mCacheKey = cacheKey;
+        }
+    }
+
+    @VisibleForTesting
+    IconLoader(Looper looper, IccFileHandler fh, int phoneId) {
         super(looper);
         mSimFH = fh;
-
-        mIconsCache = new HashMap<Integer, Bitmap>(50);
+        mPhoneId = phoneId;
     }
 
     static IconLoader getInstance(Handler caller, IccFileHandler fh) {
+        return getInstance(caller, fh, SubscriptionManager.INVALID_PHONE_INDEX);
+    }
+
+    static IconLoader getInstance(Handler caller, IccFileHandler fh, int phoneId) {
         if (sLoader != null) {
             return sLoader;
         }
         if (fh != null) {
             sThread = new HandlerThread("Cat Icon Loader");
             sThread.start();
-            return new IconLoader(sThread.getLooper(), fh);
+            return new IconLoader(sThread.getLooper(), fh, phoneId);
         }
         return null;
     }
@@ -93,13 +142,8 @@ class IconLoader extends Handler {
         if (recordNumbers == null || recordNumbers.length == 0 || msg == null) {
             return;
         }
-        mEndMsg = msg;
-        // initialize multi icons load variables.
-        mIcons = new Bitmap[recordNumbers.length];
-        mRecordNumbers = recordNumbers;
-        mCurrentRecordIndex = 0;
-        mState = STATE_MULTI_ICONS;
-        startLoadingIcon(recordNumbers[0]);
+        obtainMessage(EVENT_START_LOAD, new LoadRequest(recordNumbers, true, msg))
+                .sendToTarget();
     }
 
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
@@ -107,72 +151,111 @@ class IconLoader extends Handler {
         if (msg == null) {
             return;
         }
-        mEndMsg = msg;
-        mState = STATE_SINGLE_ICON;
-        startLoadingIcon(recordNumber);
+        obtainMessage(EVENT_START_LOAD, new LoadRequest(new int[] {recordNumber}, false, msg))
+                .sendToTarget();
     }
 
-    private void startLoadingIcon(int recordNumber) {
-        // Reset the load variables.
-        mId = null;
-        mIconData = null;
-        mCurrentIcon = null;
-        mRecordNumber = recordNumber;
-
-        // make sure the icon was not already loaded and saved in the local cache.
-        if (mIconsCache.containsKey(recordNumber)) {
-            mCurrentIcon = mIconsCache.get(recordNumber);
-            postIcon();
-            return;
+    /**
+     * Clear the icons cached for all the SIMs, e.g. when a SIM is refreshed and its icons may
+     * have been updated.
+     */
+    static void clearIconCache() {
+        sIconCache.evictAll();
+    }
+
+    /** @return the number of icons cached for all the SIMs. */
+    @VisibleForTesting
+    static int getCachedIconCount() {
+        return sIconCache.snapshot().size();
+    }
+
+    private String getIccId() {
+        if (mPhoneId == SubscriptionManager.INVALID_PHONE_INDEX) {
+            return null;
         }
+        UiccPort port = UiccController.getInstance().getUiccPort(mPhoneId);
+        return port != null ? port.getIccId() : null;
+    }
 
-        // start the first phase ==> loading Image Descriptor.
-        readId();
+    private void startLoadingIcons(LoadRequest request) {
+        // Icons can only be cached once the SIM they come from is known.
+        String iccId = getIccId();
+        SparseArray<RecordLoad> recordLoads = new SparseArray<>();
+        for (int i = 0; i < request.mRecordNumbers.length; i++) {
+            int recordNumber = request.mRecordNumbers[i];
+            if (recordNumber < 0) {
+                continue;
+            }
+            Pair<String, Integer> cacheKey = TextUtils.isEmpty(iccId)
+                    ? null : new Pair<>(iccId, recordNumber);
+            // make sure the icon was not already loaded and saved in the cache.
+            Bitmap cachedIcon = cacheKey != null ? sIconCache.get(cacheKey) : null;
+            if (cachedIcon != null) {
+                request.mIcons[i] = cachedIcon;
+                continue;
+            }
+            // Items showing the same icon share the read of its record.
+            RecordLoad recordLoad = recordLoads.get(recordNumber);
+            if (recordLoad == null) {
+                recordLoad = new RecordLoad(request, recordNumber, cacheKey);
+                recordLoads.put(recordNumber, recordLoad);
+            }
+            recordLoad.mIconIndexes.add(i);
+        }
+
+        request.mPendingRecords = recordLoads.size();
+        if (request.mPendingRecords == 0) {
+            postIcons(request);
+            return;
+        }
+        // start the first phase for all the records ==> loading Image Descriptor.
+        for (int i = 0; i < recordLoads.size(); i++) {
+            readId(recordLoads.valueAt(i));
+        }
     }
 
     @Override
     public void handleMessage(Message msg) {
-        AsyncResult ar;
+        if (msg.what == EVENT_START_LOAD) {
+            startLoadingIcons((LoadRequest) msg.obj);
+            return;
+        }
 
+        AsyncResult ar = (AsyncResult) msg.obj;
+        RecordLoad recordLoad = (RecordLoad) ar.userObj;
         try {
             switch (msg.what) {
             case EVENT_READ_EF_IMG_RECOED_DONE:
-                ar = (AsyncResult) msg.obj;
-                if (handleImageDescriptor((byte[]) ar.result)) {
-                    readIconData();
+                if (handleImageDescriptor(recordLoad, (byte[]) ar.result)) {
+                    readIconData(recordLoad);
                 } else {
                     throw new Exception("Unable to parse image descriptor");
                 }
                 break;
             case EVENT_READ_ICON_DONE:
                 CatLog.d(this, "load icon done");
-                ar = (AsyncResult) msg.obj;
                 byte[] rawData = ((byte[]) ar.result);
-                if (mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_BASIC) {
-                    mCurrentIcon = parseToBnW(rawData, rawData.length);
-                    mIconsCache.put(mRecordNumber, mCurrentIcon);
-                    postIcon();
-                } else if (mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_COLOUR) {
-                    mIconData = rawData;
-                    readClut();
+                if (recordLoad.mId.mCodingScheme == ImageDescriptor.CODING_SCHEME_BASIC) {
+                    onIconLoaded(recordLoad, parseToBnW(rawData, rawData.length));
+                } else if (recordLoad.mId.mCodingScheme
+                        == ImageDescriptor.CODING_SCHEME_COLOUR) {
+                    recordLoad.mIconData = rawData;
+                    readClut(recordLoad);
                 } else {
                     CatLog.d(this, "else  /postIcon ");
-                    postIcon();
+                    onIconLoaded(recordLoad, null);
                 }
                 break;
             case EVENT_READ_CLUT_DONE:
-                ar = (AsyncResult) msg.obj;
                 byte [] clut = ((byte[]) ar.result);
-                mCurrentIcon = parseToRGB(mIconData, mIconData.length,
-                        false, clut);
-                mIconsCache.put(mRecordNumber, mCurrentIcon);
-                postIcon();
+                onIconLoaded(recordLoad, parseToRGB(recordLoad.mIconData,
+                        recordLoad.mIconData.length, false, clut));
                 break;
             }
         } catch (Exception e) {
             CatLog.d(this, "Icon load failed");
             // post null icon back to the caller.
-            postIcon();
+            onIconLoaded(recordLoad, null);
         }
     }
 
@@ -180,58 +263,66 @@ class IconLoader extends Handler {
      * Handles Image descriptor parsing and required processing. This is the
      * first step required to handle retrieving icons from the SIM.
      *
+     * @param recordLoad The load of the record the image descriptor was read from.
      * @param rawData byte [] containing Image Instance descriptor as defined in
      * TS 51.011.
      */
-    private boolean handleImageDescriptor(byte[] rawData) {
-        mId = ImageDescriptor.parse(rawData, 1);
-        if (mId == null) {
+    private boolean handleImageDescriptor(RecordLoad recordLoad, byte[] rawData) {
+        recordLoad.mId = ImageDescriptor.parse(rawData, 1);
+        if (recordLoad.mId == null) {
             return false;
         }
         return true;
     }
 
     // Start reading color lookup table from SIM card.
-    private void readClut() {
-        int length = mIconData[3] * CLUT_ENTRY_SIZE;
-        Message msg = obtainMessage(EVENT_READ_CLUT_DONE);
-        mSimFH.loadEFImgTransparent(mId.mImageId,
-                mIconData[CLUT_LOCATION_OFFSET],
-                mIconData[CLUT_LOCATION_OFFSET + 1], length, msg);
+    private void readClut(RecordLoad recordLoad) {
+        byte[] iconData = recordLoad.mIconData;
+        int length = iconData[3] * CLUT_ENTRY_SIZE;
+        Message msg = obtainMessage(EVENT_READ_CLUT_DONE, recordLoad);
+        mSimFH.loadEFImgTransparent(recordLoad.mId.mImageId,
+                iconData[CLUT_LOCATION_OFFSET],
+                iconData[CLUT_LOCATION_OFFSET + 1], length, msg);
     }
 
     // Start reading Image Descriptor from SIM card.
-    private void readId() {
-        if (mRecordNumber < 0) {
-            mCurrentIcon = null;
-            postIcon();
+    private void readId(RecordLoad recordLoad) {
+        if (mSimFH == null) {
+            onIconLoaded(recordLoad, null);
             return;
         }
-        Message msg = obtainMessage(EVENT_READ_EF_IMG_RECOED_DONE);
-        mSimFH.loadEFImgLinearFixed(mRecordNumber, msg);
+        Message msg = obtainMessage(EVENT_READ_EF_IMG_RECOED_DONE, recordLoad);
+        mSimFH.loadEFImgLinearFixed(recordLoad.mRecordNumber, msg);
     }
 
     // Start reading icon bytes array from SIM card.
-    private void readIconData() {
-        Message msg = obtainMessage(EVENT_READ_ICON_DONE);
-        mSimFH.loadEFImgTransparent(mId.mImageId, 0, 0, mId.mLength ,msg);
+    private void readIconData(RecordLoad recordLoad) {
+        Message msg = obtainMessage(EVENT_READ_ICON_DONE, recordLoad);
+        mSimFH.loadEFImgTransparent(recordLoad.mId.mImageId, 0, 0, recordLoad.mId.mLength, msg);
     }
 
-    // When all is done pass icon back to caller.
-    private void postIcon() {
-        if (mState == STATE_SINGLE_ICON) {
-            mEndMsg.obj = mCurrentIcon;
-            mEndMsg.sendToTarget();
-        } else if (mState == STATE_MULTI_ICONS) {
-            mIcons[mCurrentRecordIndex++] = mCurrentIcon;
-            // If not all icons were loaded, start loading the next one.
-            if (mCurrentRecordIndex < mRecordNumbers.length) {
-                startLoadingIcon(mRecordNumbers[mCurrentRecordIndex]);
-            } else {
-                mEndMsg.obj = mIcons;
-                mEndMsg.sendToTarget();
-            }
+    // Record the icon of a record, and pass the icons back to the caller when all are done.
+    private void onIconLoaded(RecordLoad recordLoad, Bitmap icon) {
+        if (icon != null && recordLoad.mCacheKey != null) {
+            sIconCache.put(recordLoad.mCacheKey, icon);
+        }
+        LoadRequest request = recordLoad.mRequest;
+        for (int index : recordLoad.mIconIndexes) {
+            request.mIcons[index] = icon;
+        }
+        if (--request.mPendingRecords == 0) {
+            postIcons(request);
+        }
+    }
+
+    // When all is done pass icons back to caller.
+    private void postIcons(LoadRequest request) {
+        if (request.mMultiIcons) {
+            request.mEndMsg.obj = request.mIcons;
+        } else {
+            request.mEndMsg.obj = request.mIcons[0];
         }
+        request.mEndMsg.sendToTarget();
     }
 
     /**
@@ -372,7 +463,7 @@ class IconLoader extends Handler {
             sThread.quit();
             sThread = null;
         }
-        mIconsCache = null;
+        // The icon cache is kept, icons are still valid if the same SIM is used again.
         sLoader = null;
     }
 }
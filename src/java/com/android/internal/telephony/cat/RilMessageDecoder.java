@@ -79,7 +79,7 @@ public class RilMessageDecoder extends StateMachine {
 
         if (slotId != SubscriptionManager.INVALID_SIM_SLOT_INDEX && slotId < mSimCount) {
             if (null == mInstance[slotId]) {
-                mInstance[slotId] = new RilMessageDecoder(caller, fh, context);
+                mInstance[slotId] = new RilMessageDecoder(caller, fh, context, slotId);
             }
         } else {
             CatLog.d("RilMessageDecoder", "invaild slot id: " + slotId);
@@ -126,7 +126,7 @@ public class RilMessageDecoder extends StateMachine {
         }
     }
 
-    private RilMessageDecoder(Handler caller, IccFileHandler fh, Context context) {
+    private RilMessageDecoder(Handler caller, IccFileHandler fh, Context context, int phoneId) {
         super("RilMessageDecoder");
 
         addState(mStateStart);
@@ -135,7 +135,7 @@ public class RilMessageDecoder extends StateMachine {
 
         synchronized (mLock) {
             mCaller = caller;
-            mCmdParamsFactory = CommandParamsFactory.getInstance(this, fh, context);
+            mCmdParamsFactory = CommandParamsFactory.getInstance(this, fh, context, phoneId);
         }
     }
 
@@ -158,6 +158,8 @@ public class AutoDataSwitchController extends Handler {
     private static final int EVENT_STABILITY_CHECK_PASSED = 5;
     /** Event when subscriptions changed. */
     private static final int EVENT_SUBSCRIPTIONS_CHANGED = 6;
+    /** Event when the signal level of a phone stayed the same for the debounce interval. */
+    private static final int EVENT_SIGNAL_STRENGTH_SETTLED = 7;
 
     /** Fragment "key" argument passed thru {@link #SETTINGS_EXTRA_SHOW_FRAGMENT_ARGUMENTS} */
     private static final String SETTINGS_EXTRA_FRAGMENT_ARG_KEY = ":settings:fragment_args_key";
@@ -181,6 +183,12 @@ public class AutoDataSwitchController extends Handler {
     private static final long RETRY_LONG_DELAY_TIMER_THRESHOLD_MILLIS = TimeUnit
             .MINUTES.toMillis(1);
 
+    /**
+     * The time a new signal level must be kept before it triggers an evaluation. Signal level
+     * flapping back and forth within this interval does not trigger any evaluation.
+     */
+    private static final long SIGNAL_STRENGTH_DEBOUNCE_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
     @NonNull
     private final LocalLog mLocalLog = new LocalLog(128);
     @NonNull
@@ -257,6 +265,11 @@ public class AutoDataSwitchController extends Handler {
      * The phone Id of the pending switching phone. Used for pruning frequent switch evaluation.
      */
     private int mSelectedTargetPhoneId = INVALID_PHONE_INDEX;
+    /** The number of evaluations run, where index corresponds to the evaluation reason. */
+    @NonNull
+    private final int[] mEvaluationCounts = new int[EVALUATION_REASON_CARRIER_CONFIG_CHANGED + 1];
+    /** The number of signal level changes that settled without triggering an evaluation. */
+    private int mDebouncedSignalStrengthCount = 0;
 
     /**
      * To track the signal status of a phone in order to evaluate whether it's a good candidate to
@@ -288,8 +301,14 @@ public class AutoDataSwitchController extends Handler {
         @NonNull private TelephonyDisplayInfo mDisplayInfo;
         /** Signal strength of the phone */
         @NonNull private SignalStrength mSignalStrength;
+        /** The signal level that was last evaluated, used to debounce signal level changes. */
+        private int mSettledSignalLevel;
+        /** The RAT and signal strength score, updated when any of its inputs changes. */
+        private int mRatSignalScore;
         /** {@code true} if this slot is listening for events. */
         private boolean mListeningForEvents;
+        /** The callback to update the score when the scoring config changes. */
+        @Nullable private DataConfigManager.DataConfigManagerCallback mDataConfigCallback;
         private PhoneSignalStatus(@NonNull Phone phone) {
             this.mPhone = phone;
             this.mDataRegState = phone.getServiceState().getNetworkRegistrationInfo(
@@ -298,6 +317,8 @@ public class AutoDataSwitchController extends Handler {
                     .getRegistrationState();
             this.mDisplayInfo = phone.getDisplayInfoController().getTelephonyDisplayInfo();
             this.mSignalStrength = phone.getSignalStrength();
+            this.mSettledSignalLevel = mSignalStrength.getLevel();
+            updateRatSignalScore();
         }
 
         /**
@@ -305,7 +326,15 @@ public class AutoDataSwitchController extends Handler {
          * selected as the secondary data candidate.
          */
         private int getRatSignalScore() {
-            return isInService(mDataRegState)
+            return mRatSignalScore;
+        }
+
+        /**
+         * Update the cached score. Must be called whenever the registration state, the display
+         * info, the signal strength or the scoring config of the phone changes.
+         */
+        private void updateRatSignalScore() {
+            mRatSignalScore = isInService(mDataRegState)
                     ? mPhone.getDataNetworkController().getDataConfigManager()
                     .getAutoDataSwitchScore(mDisplayInfo, mSignalStrength) : 0;
         }
@@ -346,6 +375,7 @@ public class AutoDataSwitchController extends Handler {
                     + NetworkRegistrationInfo.registrationStateToString(mDataRegState)
                     + " " + getUsableState() + " " + mDisplayInfo
                     + " signalStrength=" + mSignalStrength.getLevel()
+                    + " settledSignalStrength=" + mSettledSignalLevel
                     + " listeningForEvents=" + mListeningForEvents
                     + "}";
 
@@ -537,7 +567,22 @@ public class AutoDataSwitchController extends Handler {
                     this, EVENT_SIGNAL_STRENGTH_CHANGED, phoneId);
             phone.getServiceStateTracker().registerForServiceStateChanged(this,
                     EVENT_SERVICE_STATE_CHANGED, phoneId);
-            mPhonesSignalStatus[phoneId].mListeningForEvents = true;
+            PhoneSignalStatus status = mPhonesSignalStatus[phoneId];
+            status.mDataConfigCallback =
+                    new DataConfigManager.DataConfigManagerCallback(this::post) {
+                        @Override
+                        public void onCarrierConfigChanged() {
+                            status.updateRatSignalScore();
+                        }
+
+                        @Override
+                        public void onDeviceConfigChanged() {
+                            status.updateRatSignalScore();
+                        }
+                    };
+            phone.getDataNetworkController().getDataConfigManager()
+                    .registerCallback(status.mDataConfigCallback);
+            status.mListeningForEvents = true;
             logl("registerAllEventsForPhone: registered listeners for phone " + phoneId);
         } else {
             logle("Unexpected null phone " + phoneId + " when register all events");
@@ -554,6 +599,12 @@ public class AutoDataSwitchController extends Handler {
             phone.getDisplayInfoController().unregisterForTelephonyDisplayInfoChanged(this);
             phone.getSignalStrengthController().unregisterForSignalStrengthChanged(this);
             phone.getServiceStateTracker().unregisterForServiceStateChanged(this);
+            removeMessages(EVENT_SIGNAL_STRENGTH_SETTLED, phoneId);
+            if (mPhonesSignalStatus[phoneId].mDataConfigCallback != null) {
+                phone.getDataNetworkController().getDataConfigManager()
+                        .unregisterCallback(mPhonesSignalStatus[phoneId].mDataConfigCallback);
+                mPhonesSignalStatus[phoneId].mDataConfigCallback = null;
+            }
             mPhonesSignalStatus[phoneId].mListeningForEvents = false;
             logl("unregisterAllEventsForPhone: unregistered listeners for phone " + phoneId);
         } else {
@@ -621,6 +672,7 @@ public class AutoDataSwitchController extends Handler {
                 }
             }
             case EVENT_SUBSCRIPTIONS_CHANGED -> onSubscriptionsChanged();
+            case EVENT_SIGNAL_STRENGTH_SETTLED -> onSignalStrengthSettled((int) msg.obj);
             default -> loge("Unexpected event " + msg.what);
         }
     }
@@ -639,6 +691,7 @@ public class AutoDataSwitchController extends Handler {
                     .getRegistrationState();
             if (newRegState != oldRegState) {
                 mPhonesSignalStatus[phoneId].mDataRegState = newRegState;
+                mPhonesSignalStatus[phoneId].updateRatSignalScore();
                 if (isInService(oldRegState) != isInService(newRegState)
                         || isHomeService(oldRegState) != isHomeService(newRegState)) {
                     logl("onServiceStateChanged: phone " + phoneId + " "
@@ -675,6 +728,7 @@ public class AutoDataSwitchController extends Handler {
             TelephonyDisplayInfo displayInfo = phone.getDisplayInfoController()
                     .getTelephonyDisplayInfo();
             mPhonesSignalStatus[phoneId].mDisplayInfo = displayInfo;
+            mPhonesSignalStatus[phoneId].updateRatSignalScore();
             if (getBetterCandidatePhoneIdBasedOnScore() != mSelectedTargetPhoneId) {
                 logl("onDisplayInfoChanged: phone " + phoneId + " " + displayInfo);
                 evaluateAutoDataSwitch(EVALUATION_REASON_DISPLAY_INFO_CHANGED);
@@ -685,27 +739,49 @@ public class AutoDataSwitchController extends Handler {
     }
 
     /**
-     * Called when {@link SignalStrength} changed.
+     * Called when {@link SignalStrength} changed. The score is updated right away, but the
+     * evaluation is only considered once the new signal level is kept for
+     * {@link #SIGNAL_STRENGTH_DEBOUNCE_MILLIS}.
      * @param phoneId The phone that changed.
      */
     private void onSignalStrengthChanged(int phoneId) {
         Phone phone = PhoneFactory.getPhone(phoneId);
         if (phone != null && isActiveModemPhone(phoneId)) {
+            PhoneSignalStatus status = mPhonesSignalStatus[phoneId];
             SignalStrength newSignalStrength = phone.getSignalStrength();
-            SignalStrength oldSignalStrength = mPhonesSignalStatus[phoneId].mSignalStrength;
-            if (oldSignalStrength.getLevel() != newSignalStrength.getLevel()) {
-                mPhonesSignalStatus[phoneId].mSignalStrength = newSignalStrength;
-                if (getBetterCandidatePhoneIdBasedOnScore() != mSelectedTargetPhoneId) {
-                    logl("onSignalStrengthChanged: phone " + phoneId + " "
-                            + oldSignalStrength.getLevel() + "->" + newSignalStrength.getLevel());
-                    evaluateAutoDataSwitch(EVALUATION_REASON_SIGNAL_STRENGTH_CHANGED);
-                }
+            if (status.mSignalStrength.getLevel() != newSignalStrength.getLevel()) {
+                status.mSignalStrength = newSignalStrength;
+                status.updateRatSignalScore();
+                // Restart the debounce timer.
+                removeMessages(EVENT_SIGNAL_STRENGTH_SETTLED, phoneId);
+                sendMessageDelayed(obtainMessage(EVENT_SIGNAL_STRENGTH_SETTLED, phoneId),
+                        SIGNAL_STRENGTH_DEBOUNCE_MILLIS);
             }
         } else {
             logle("Unexpected null phone " + phoneId + " upon its signal strength changed");
         }
     }
 
+    /**
+     * Called when the signal level of a phone stayed the same for
+     * {@link #SIGNAL_STRENGTH_DEBOUNCE_MILLIS}.
+     * @param phoneId The phone that changed.
+     */
+    private void onSignalStrengthSettled(int phoneId) {
+        if (!isActiveModemPhone(phoneId)) return;
+        PhoneSignalStatus status = mPhonesSignalStatus[phoneId];
+        int oldLevel = status.mSettledSignalLevel;
+        int newLevel = status.mSignalStrength.getLevel();
+        status.mSettledSignalLevel = newLevel;
+        if (oldLevel != newLevel
+                && getBetterCandidatePhoneIdBasedOnScore() != mSelectedTargetPhoneId) {
+            logl("onSignalStrengthChanged: phone " + phoneId + " " + oldLevel + "->" + newLevel);
+            evaluateAutoDataSwitch(EVALUATION_REASON_SIGNAL_STRENGTH_CHANGED);
+        } else {
+            mDebouncedSignalStrengthCount++;
+        }
+    }
+
     /**
      * Checks for a better data phone candidate based on signal strength.Compares the preferred data
      * phone and DDS, potentially switching to another active phone with a significantly better
@@ -779,6 +855,9 @@ public class AutoDataSwitchController extends Handler {
      * @param reason The reason for the evaluation.
      */
     private void onEvaluateAutoDataSwitch(@AutoDataSwitchEvaluationReason int reason) {
+        if (reason >= 0 && reason < mEvaluationCounts.length) {
+            mEvaluationCounts[reason]++;
+        }
         if (sFeatureFlags.monitorCarrierConfigChangeForAutoDataSwitch()
                 && reason == EVALUATION_REASON_CARRIER_CONFIG_CHANGED
                 && shouldExcludeOpportunisticForSwitch()
@@ -1438,6 +1517,15 @@ public class AutoDataSwitchController extends Handler {
         STABILITY_CHECK_TIMER_MAP.forEach((key, value)
                 -> pw.println(switchTypeToString(key) + ": " + value));
         pw.println("mSelectedTargetPhoneId=" + mSelectedTargetPhoneId);
+        pw.println("Evaluation counts:");
+        pw.increaseIndent();
+        for (int reason = 0; reason < mEvaluationCounts.length; reason++) {
+            if (mEvaluationCounts[reason] > 0) {
+                pw.println(evaluationReasonToString(reason) + ": " + mEvaluationCounts[reason]);
+            }
+        }
+        pw.decreaseIndent();
+        pw.println("mDebouncedSignalStrengthCount=" + mDebouncedSignalStrengthCount);
         if (sFeatureFlags.monitorCarrierConfigChangeForAutoDataSwitch()) {
             pw.println("autoDataSwitchPolicyForOppt=" + opportunisticNetworkSwitchPolicyToString(
                     getOpptSwitchPolicyForPrimaryPhone()));
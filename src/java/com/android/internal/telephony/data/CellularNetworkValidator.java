@@ -311,6 +311,14 @@ public class CellularNetworkValidator {
         return mState != STATE_IDLE;
     }
 
+    /**
+     * Return whether the network of the subscription passed validation recently enough for the
+     * validation to be reported as passed as soon as the network is available.
+     */
+    public boolean isRecentlyValidated(int subId) {
+        return mValidatedNetworkCache.isRecentlyValidated(subId);
+    }
+
     private NetworkRequest createNetworkRequest(int subId) {
         NetworkRequest.Builder req = new NetworkRequest.Builder()
                 .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
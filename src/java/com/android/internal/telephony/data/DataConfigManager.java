@@ -324,6 +324,10 @@ public class DataConfigManager extends Handler {
     /** Rules for handover between IWLAN and cellular network. */
     @NonNull
     private final List<HandoverRule> mHandoverRuleList = new ArrayList<>();
+
+    /** {@link #mHandoverRuleList} compiled for matching. */
+    @NonNull
+    private volatile HandoverRuleTable mHandoverRuleTable = HandoverRuleTable.EMPTY;
     /** {@code True} keep IMS network in case of moving to non VOPS area; {@code false} otherwise.*/
     private boolean mShouldKeepNetworkUpInNonVops = false;
     /** The set of network types that enable VOPS even in non VOPS area. */
@@ -1318,6 +1322,7 @@ public class DataConfigManager extends Handler {
                     }
                 }
             }
+            mHandoverRuleTable = new HandoverRuleTable(mHandoverRuleList);
         }
     }
 
@@ -1397,6 +1402,17 @@ public class DataConfigManager extends Handler {
         return Collections.unmodifiableList(mHandoverRuleList);
     }
 
+    /**
+     * @return The rules for handover between IWLAN and cellular networks, compiled into a table
+     * indexed by source and target access networks.
+     *
+     * @see #getHandoverRules()
+     */
+    @NonNull
+    public HandoverRuleTable getHandoverRuleTable() {
+        return mHandoverRuleTable;
+    }
+
     /**
      * @return Get the delay in milliseconds for re-evaluating unsatisfied network requests.
      */
@@ -1593,6 +1609,7 @@ public class DataConfigManager extends Handler {
         mDataSetupRetryRules.forEach(pw::println);
         pw.decreaseIndent();
         pw.println("isIwlanHandoverPolicyEnabled=" + isIwlanHandoverPolicyEnabled());
+        mHandoverRuleTable.dump(pw);
         pw.println("Data handover retry rules:");
         pw.increaseIndent();
         mDataHandoverRetryRules.forEach(pw::println);
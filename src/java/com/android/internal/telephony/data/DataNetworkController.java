@@ -2444,8 +2444,6 @@ public class DataNetworkController extends Handler {
         }
 
         if (mDataConfigManager.isIwlanHandoverPolicyEnabled()) {
-            List<HandoverRule> handoverRules = mDataConfigManager.getHandoverRules();
-
             int sourceNetworkType = getDataNetworkType(dataNetwork.getTransport());
             if (sourceNetworkType == TelephonyManager.NETWORK_TYPE_UNKNOWN) {
                 // Using the data network type stored in the data network. We
@@ -2479,39 +2477,20 @@ public class DataNetworkController extends Handler {
                     + ", ServiceState=" + mServiceState
                     + ", capabilities=" + capabilities);
 
-            // Matching the rules by the configured order. Bail out if find first matching rule.
-            for (HandoverRule rule : handoverRules) {
-                // Check if the rule is only for roaming and we are not  aroaming.
-                if (rule.isOnlyForRoaming && !isRoaming) {
-                    // If the rule is for roaming only, and the device is not roaming, then bypass
-                    // this rule.
-                    continue;
-                }
-                if (rule.isOnlyForIncall && (!mFeatureFlags.incallHandoverPolicy() || !isIncall)) {
-                    // If the rule is for incall only, and the device is not incall, then bypass
-                    // this rule.
-                    continue;
-                }
-
-                if (rule.sourceAccessNetworks.contains(sourceAccessNetwork)
-                        && rule.targetAccessNetworks.contains(targetAccessNetwork)) {
-                    // if no capability rule specified,
-                    // data network capability is considered matched.
-                    // otherwise, any capabilities overlap is also considered matched.
-                    if (rule.networkCapabilities.isEmpty()
-                            || rule.networkCapabilities.stream()
-                            .anyMatch(capabilities::hasCapability)) {
-                        log("evaluateDataNetworkHandover: Matched " + rule);
-                        if (rule.type == HandoverRule.RULE_TYPE_DISALLOWED) {
-                            dataEvaluation.addDataDisallowedReason(
-                                    DataDisallowedReason.NOT_ALLOWED_BY_POLICY);
-                        } else {
-                            dataEvaluation.addDataAllowedReason(DataAllowedReason.NORMAL);
-                        }
-                        log("evaluateDataNetworkHandover: " + dataEvaluation);
-                        return dataEvaluation;
-                    }
+            // Matching the rules of the source and target access networks by the configured
+            // order.
+            HandoverRule rule = mDataConfigManager.getHandoverRuleTable().match(
+                    sourceAccessNetwork, targetAccessNetwork, isRoaming, isIncall, capabilities);
+            if (rule != null) {
+                log("evaluateDataNetworkHandover: Matched " + rule);
+                if (rule.type == HandoverRule.RULE_TYPE_DISALLOWED) {
+                    dataEvaluation.addDataDisallowedReason(
+                            DataDisallowedReason.NOT_ALLOWED_BY_POLICY);
+                } else {
+                    dataEvaluation.addDataAllowedReason(DataAllowedReason.NORMAL);
                 }
+                log("evaluateDataNetworkHandover: " + dataEvaluation);
+                return dataEvaluation;
             }
             log("evaluateDataNetworkHandover: Did not find matching rule.");
         } else {
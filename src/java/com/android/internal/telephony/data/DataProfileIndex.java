@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.data;
+
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+import android.provider.Telephony;
+import android.telephony.Annotation.NetworkType;
+import android.telephony.TelephonyManager;
+import android.telephony.data.ApnSetting;
+import android.telephony.data.DataProfile;
+
+import java.util.List;
+
+/**
+ * An immutable index of the data profiles of the current carrier, built when the data profiles are
+ * updated, so that a data profile can be selected for a network request by intersecting bitmasks
+ * instead of filtering all data profiles again for every request.
+ *
+ * <p>Bit {@code i} of every mask represents the data profile at index {@code i} of the list the
+ * index was built from. Only the immutable attributes of the data profiles are indexed. The last
+ * setup timestamp and the permanent failure state change over time and are checked when a data
+ * profile is selected.
+ */
+final class DataProfileIndex {
+    /** The maximum number of data profiles that can be indexed. */
+    private static final int MAX_DATA_PROFILES = Long.SIZE;
+
+    /** Index with no data profiles. */
+    static final DataProfileIndex EMPTY = new DataProfileIndex(List.of(),
+            Telephony.Carriers.NO_APN_SET_ID);
+
+    /** The indexed data profiles. {@code null} if there are too many to be indexed. */
+    @Nullable
+    private final DataProfile[] mDataProfiles;
+    /** Data profiles with APN setting. */
+    private final long mApnSettingMask;
+    /** APN type bit position to the data profiles that can handle the APN type. */
+    @NonNull
+    private final long[] mApnTypeMasks = new long[Integer.SIZE];
+    /** Network type to the data profiles that can support the network type. */
+    @NonNull
+    private final long[] mNetworkTypeMasks;
+    /** Data profiles for cellular infrastructure. */
+    private final long mCellularMask;
+    /** Data profiles for satellite infrastructure. */
+    private final long mSatelliteMask;
+    /** Data profiles for eSIM bootstrap provisioning. */
+    private final long mEsimBootstrapProvisioningMask;
+    /** Data profiles matching the preferred data profile set id. */
+    private final long mApnSetMask;
+
+    /**
+     * Constructor
+     *
+     * @param dataProfiles The data profiles to index.
+     * @param preferredDataProfileSetId The preferred data profile set id.
+     */
+    DataProfileIndex(@NonNull List<DataProfile> dataProfiles, int preferredDataProfileSetId) {
+        int maxNetworkType = TelephonyManager.NETWORK_TYPE_UNKNOWN;
+        for (int networkType : TelephonyManager.getAllNetworkTypes()) {
+            maxNetworkType = Math.max(maxNetworkType, networkType);
+        }
+        mNetworkTypeMasks = new long[maxNetworkType + 1];
+        if (dataProfiles.size() > MAX_DATA_PROFILES) {
+            mDataProfiles = null;
+            mApnSettingMask = mCellularMask = mSatelliteMask = mEsimBootstrapProvisioningMask =
+                    mApnSetMask = 0;
+            return;
+        }
+
+        mDataProfiles = dataProfiles.toArray(new DataProfile[0]);
+        long apnSettingMask = 0, cellularMask = 0, satelliteMask = 0, esimMask = 0, apnSetMask = 0;
+        for (int i = 0; i < mDataProfiles.length; i++) {
+            ApnSetting apnSetting = mDataProfiles[i].getApnSetting();
+            if (apnSetting == null) continue;
+            long bit = 1L << i;
+            apnSettingMask |= bit;
+            for (int typeBit = 0; typeBit < mApnTypeMasks.length; typeBit++) {
+                if (apnSetting.canHandleType(1 << typeBit)) {
+                    mApnTypeMasks[typeBit] |= bit;
+                }
+            }
+            for (int networkType = 0; networkType < mNetworkTypeMasks.length; networkType++) {
+                if (apnSetting.canSupportNetworkType(networkType)) {
+                    mNetworkTypeMasks[networkType] |= bit;
+                }
+            }
+            if (apnSetting.isForInfrastructure(ApnSetting.INFRASTRUCTURE_CELLULAR)) {
+                cellularMask |= bit;
+            }
+            if (apnSetting.isForInfrastructure(ApnSetting.INFRASTRUCTURE_SATELLITE)) {
+                satelliteMask |= bit;
+            }
+            if (apnSetting.isEsimBootstrapProvisioning()) {
+                esimMask |= bit;
+            }
+            if (apnSetting.getApnSetId() == Telephony.Carriers.MATCH_ALL_APN_SET_ID
+                    || apnSetting.getApnSetId() == preferredDataProfileSetId) {
+                apnSetMask |= bit;
+            }
+        }
+        mApnSettingMask = apnSettingMask;
+        mCellularMask = cellularMask;
+        mSatelliteMask = satelliteMask;
+        mEsimBootstrapProvisioningMask = esimMask;
+        mApnSetMask = apnSetMask;
+    }
+
+    /**
+     * @return {@code true} if the data profiles could be indexed. If not, the data profiles must
+     * be filtered one by one.
+     */
+    boolean isIndexed() {
+        return mDataProfiles != null;
+    }
+
+    /** @return The data profile represented by bit {@code i} of the masks. */
+    @NonNull
+    DataProfile get(int i) {
+        return mDataProfiles[i];
+    }
+
+    /**
+     * Get the data profiles that can satisfy the network request. The APN type index is used to
+     * skip the data profiles that can't handle the APN types of the request, and only the rest is
+     * checked with {@link TelephonyNetworkRequest#canBeSatisfiedBy(DataProfile)}.
+     *
+     * @param networkRequest The network request.
+     * @return The mask of data profiles.
+     */
+    long getSatisfyingMask(@NonNull TelephonyNetworkRequest networkRequest) {
+        long candidates = mDataProfiles.length == MAX_DATA_PROFILES
+                ? -1L : (1L << mDataProfiles.length) - 1;
+        if (!networkRequest.hasAttribute(
+                TelephonyNetworkRequest.CAPABILITY_ATTRIBUTE_TRAFFIC_DESCRIPTOR_OS_APP_ID)
+                || networkRequest.getOsAppId() == null) {
+            // Same APN type matching as TelephonyNetworkRequest#canBeSatisfiedBy.
+            candidates &= mApnSettingMask;
+            int[] capabilities = networkRequest.getCapabilities();
+            boolean hasEnterprise = false;
+            for (int capability : capabilities) {
+                hasEnterprise |= DataUtils.networkCapabilityToApnType(capability)
+                        == ApnSetting.TYPE_ENTERPRISE;
+            }
+            for (int capability : capabilities) {
+                int apnType = DataUtils.networkCapabilityToApnType(capability);
+                if (apnType == ApnSetting.TYPE_NONE
+                        || (hasEnterprise && apnType == ApnSetting.TYPE_DEFAULT)) {
+                    continue;
+                }
+                candidates &= mApnTypeMasks[Integer.numberOfTrailingZeros(apnType)];
+            }
+        }
+
+        long mask = 0;
+        for (long bits = candidates; bits != 0; bits &= bits - 1) {
+            int i = Long.numberOfTrailingZeros(bits);
+            if (networkRequest.canBeSatisfiedBy(mDataProfiles[i])) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Get the data profiles that can be used in the current environment.
+     *
+     * @param networkType The current data network type.
+     * @param isNtn {@code true} if the device is currently attached to non-terrestrial network.
+     * @param isEsimBootstrapProvisioning {@code true} if eSIM bootstrap provisioning is active.
+     * @return The mask of data profiles.
+     */
+    long getUsableMask(@NetworkType int networkType, boolean isNtn,
+            boolean isEsimBootstrapProvisioning) {
+        long mask = getNetworkTypeMask(networkType)
+                & (isNtn ? mSatelliteMask : mCellularMask);
+        return isEsimBootstrapProvisioning ? mask & mEsimBootstrapProvisioningMask
+                : mask & ~mEsimBootstrapProvisioningMask;
+    }
+
+    /** @return The data profiles that can support the network type. */
+    private long getNetworkTypeMask(@NetworkType int networkType) {
+        if (networkType >= 0 && networkType < mNetworkTypeMasks.length) {
+            return mNetworkTypeMasks[networkType];
+        }
+        long mask = 0;
+        for (int i = 0; i < mDataProfiles.length; i++) {
+            ApnSetting apnSetting = mDataProfiles[i].getApnSetting();
+            if (apnSetting != null && apnSetting.canSupportNetworkType(networkType)) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /** @return The data profiles matching the preferred data profile set id. */
+    long getApnSetMask() {
+        return mApnSetMask;
+    }
+
+    /**
+     * Select the data profile that hasn't been used for the longest time, so all the data profiles
+     * can be tried. Among the data profiles with the same last setup time, the first one is
+     * selected.
+     *
+     * @param mask The mask of the data profiles to select from.
+     * @param ignorePermanentFailure {@code true} to ignore {@link ApnSetting#getPermanentFailed()}.
+     * @return The data profile. {@code null} if all the data profiles are permanently failed.
+     */
+    @Nullable
+    DataProfile selectLeastRecentlyUsed(long mask, boolean ignorePermanentFailure) {
+        DataProfile selected = null;
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            DataProfile dataProfile = mDataProfiles[Long.numberOfTrailingZeros(bits)];
+            if (!ignorePermanentFailure && (dataProfile.getApnSetting() == null
+                    || dataProfile.getApnSetting().getPermanentFailed())) {
+                continue;
+            }
+            if (selected == null
+                    || dataProfile.getLastSetupTimestamp() < selected.getLastSetupTimestamp()) {
+                selected = dataProfile;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public String toString() {
+        if (mDataProfiles == null) return "DataProfileIndex{not indexed}";
+        return "DataProfileIndex{size=" + mDataProfiles.length
+                + ", cellular=" + Long.toBinaryString(mCellularMask)
+                + ", satellite=" + Long.toBinaryString(mSatelliteMask)
+                + ", esimBootstrap=" + Long.toBinaryString(mEsimBootstrapProvisioningMask)
+                + ", apnSet=" + Long.toBinaryString(mApnSetMask) + "}";
+    }
+}
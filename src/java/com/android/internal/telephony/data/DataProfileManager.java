@@ -116,6 +116,10 @@ public class DataProfileManager extends Handler {
     /** Preferred data profile set id. */
     private int mPreferredDataProfileSetId = Telephony.Carriers.NO_APN_SET_ID;
 
+    /** Index of {@link #mAllDataProfiles}, rebuilt when the data profiles are updated. */
+    @NonNull
+    private volatile DataProfileIndex mDataProfileIndex = DataProfileIndex.EMPTY;
+
     /** Data profile manager callbacks. */
     @NonNull
     private final Set<DataProfileManagerCallback> mDataProfileManagerCallbacks = new ArraySet<>();
@@ -375,6 +379,7 @@ public class DataProfileManager extends Handler {
             mPreferredDataProfileSetId = setId;
             profilesChanged = true;
         }
+        mDataProfileIndex = new DataProfileIndex(mAllDataProfiles, mPreferredDataProfileSetId);
 
         updateDataProfilesAtModem();
         updateInitialAttachDataProfileAtModem(forceUpdateIa);
@@ -755,6 +760,70 @@ public class DataProfileManager extends Handler {
                 }
         }
 
+        DataProfileIndex index = mDataProfileIndex;
+        if (!index.isIndexed()) {
+            return filterApnSettingForNetworkRequest(networkRequest, networkType, isNtn,
+                    isEsimBootStrapProvisioning, ignorePermanentFailure);
+        }
+
+        // Filter out the data profile that can't satisfy the request.
+        long mask = index.getSatisfyingMask(networkRequest);
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            DataProfile dataProfile = index.get(Long.numberOfTrailingZeros(bits));
+            logv("Satisfied profile: " + dataProfile + ", last setup="
+                    + DataUtils.elapsedTimeToString(dataProfile.getLastSetupTimestamp()));
+        }
+        if (mask == 0) {
+            log("Can't find any data profile that can satisfy " + networkRequest);
+            return null;
+        }
+
+        // Check if the remaining data profiles can used in current data network type.
+        mask &= index.getUsableMask(networkType, isNtn, isEsimBootStrapProvisioning);
+        if (mask == 0) {
+            log("Can't find any data profile for network type "
+                    + TelephonyManager.getNetworkTypeName(networkType) + " and infrastructure for "
+                    + NetworkRegistrationInfo.isNonTerrestrialNetworkToString(isNtn));
+            return null;
+        }
+
+        // Check if preferred data profile set id matches.
+        mask &= index.getApnSetMask();
+        if (mask == 0) {
+            log("Can't find any data profile has APN set id matched. mPreferredDataProfileSetId="
+                    + mPreferredDataProfileSetId);
+            return null;
+        }
+
+        // The longest time hasn't used data profile is selected so all the data profiles can be
+        // tried.
+        DataProfile dataProfile = index.selectLeastRecentlyUsed(mask, ignorePermanentFailure);
+        if (dataProfile == null) {
+            log("The suitable data profiles are all in permanent failed state.");
+            return null;
+        }
+
+        if (isEsimBootStrapProvisioning) {
+            log("Found esim bootstrap provisioning data profile for network request: "
+                    + dataProfile.getApnSetting());
+        }
+        return dataProfile.getApnSetting();
+    }
+
+    /**
+     * Get the APN setting for the network request by filtering all data profiles. Only used when
+     * there are too many data profiles to be indexed by {@link DataProfileIndex}.
+     *
+     * @param networkRequest The network request.
+     * @param networkType The current data network type.
+     * @param isNtn {@code true} if the device is currently attached to non-terrestrial network.
+     * @param ignorePermanentFailure {@code true} to ignore {@link ApnSetting#getPermanentFailed()}.
+     * @return The APN setting. {@code null} if can't find any satisfiable data profile.
+     */
+    @Nullable
+    private ApnSetting filterApnSettingForNetworkRequest(
+            @NonNull TelephonyNetworkRequest networkRequest, @NetworkType int networkType,
+            boolean isNtn, boolean isEsimBootStrapProvisioning, boolean ignorePermanentFailure) {
         // Filter out the data profile that can't satisfy the request.
         // Preferred data profile should be returned in the top of the list.
         List<DataProfile> dataProfiles = mAllDataProfiles.stream()
@@ -1170,6 +1239,7 @@ public class DataProfileManager extends Handler {
         pw.println("Preferred data profile from db=" + getPreferredDataProfileFromDb());
         pw.println("Preferred data profile from config=" + getPreferredDataProfileFromConfig());
         pw.println("Preferred data profile set id=" + mPreferredDataProfileSetId);
+        pw.println("Data profile index=" + mDataProfileIndex);
         pw.println("Last internet data profile for=");
         pw.increaseIndent();
         mLastInternetDataProfiles.snapshot().forEach((key, value) -> pw.println(key + ":" + value));
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.data;
+
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+import android.net.NetworkCapabilities;
+import android.telephony.AccessNetworkConstants.AccessNetworkType;
+import android.telephony.AccessNetworkConstants.RadioAccessNetworkType;
+import android.util.IndentingPrintWriter;
+
+import com.android.internal.telephony.data.DataNetworkController.HandoverRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The handover rules from carrier config, compiled into a table indexed by source and target
+ * access networks.
+ *
+ * <p>Each cell of the table holds the rules applicable to the pair of access networks, in the
+ * configured order, with their network capabilities compiled into a bitmask. Matching a data
+ * network only goes through the rules of its own cell instead of all the rules.
+ *
+ * @see android.telephony.CarrierConfigManager#KEY_IWLAN_HANDOVER_POLICY_STRING_ARRAY
+ */
+public class HandoverRuleTable {
+    /** Table with no rules. */
+    public static final HandoverRuleTable EMPTY = new HandoverRuleTable(List.of());
+
+    /** A rule compiled for matching. */
+    private static class CompiledRule {
+        /** The original rule. */
+        @NonNull
+        final HandoverRule rule;
+
+        /**
+         * The network capabilities of the rule as a bitmask, or 0 if the rule applies to any
+         * network capabilities. All the network capabilities are below 64.
+         */
+        final long capabilityMask;
+
+        CompiledRule(@NonNull HandoverRule rule) {
+            this.rule = rule;
+            long mask = 0;
+            for (int capability : rule.networkCapabilities) {
+                mask |= 1L << capability;
+            }
+            capabilityMask = mask;
+        }
+
+        @Override
+        public String toString() {
+            return "type=" + (rule.type == HandoverRule.RULE_TYPE_ALLOWED ? "allowed"
+                    : "disallowed") + ", isRoaming=" + rule.isOnlyForRoaming
+                    + ", isIncall=" + rule.isOnlyForIncall + ", capabilities=0x"
+                    + Long.toHexString(capabilityMask);
+        }
+    }
+
+    /** The compiled rules, indexed by source and target access networks. */
+    @NonNull
+    private final CompiledRule[][][] mTable;
+
+    /** The number of rules compiled. */
+    private final int mRuleCount;
+
+    /**
+     * Constructor
+     *
+     * @param rules The handover rules in the configured order.
+     */
+    public HandoverRuleTable(@NonNull List<HandoverRule> rules) {
+        int maxAccessNetwork = AccessNetworkType.UNKNOWN;
+        for (HandoverRule rule : rules) {
+            for (int accessNetwork : rule.sourceAccessNetworks) {
+                maxAccessNetwork = Math.max(maxAccessNetwork, accessNetwork);
+            }
+            for (int accessNetwork : rule.targetAccessNetworks) {
+                maxAccessNetwork = Math.max(maxAccessNetwork, accessNetwork);
+            }
+        }
+
+        List<List<List<CompiledRule>>> table = new ArrayList<>();
+        for (int source = 0; source <= maxAccessNetwork; source++) {
+            List<List<CompiledRule>> row = new ArrayList<>();
+            for (int target = 0; target <= maxAccessNetwork; target++) {
+                row.add(new ArrayList<>());
+            }
+            table.add(row);
+        }
+        for (HandoverRule rule : rules) {
+            CompiledRule compiledRule = new CompiledRule(rule);
+            for (int source : rule.sourceAccessNetworks) {
+                for (int target : rule.targetAccessNetworks) {
+                    if (source >= 0 && target >= 0) {
+                        table.get(source).get(target).add(compiledRule);
+                    }
+                }
+            }
+        }
+
+        mTable = new CompiledRule[maxAccessNetwork + 1][maxAccessNetwork + 1][];
+        for (int source = 0; source <= maxAccessNetwork; source++) {
+            for (int target = 0; target <= maxAccessNetwork; target++) {
+                mTable[source][target] = table.get(source).get(target)
+                        .toArray(new CompiledRule[0]);
+            }
+        }
+        mRuleCount = rules.size();
+    }
+
+    /**
+     * Get the first rule matching a handover.
+     *
+     * @param sourceAccessNetwork The source access network.
+     * @param targetAccessNetwork The target access network.
+     * @param isRoaming {@code true} if the device is roaming.
+     * @param isIncall {@code true} if the device is in a call.
+     * @param capabilities The network capabilities of the data network.
+     * @return The first matching rule in the configured order, or {@code null} if no rule matches.
+     */
+    @Nullable
+    public HandoverRule match(@RadioAccessNetworkType int sourceAccessNetwork,
+            @RadioAccessNetworkType int targetAccessNetwork, boolean isRoaming, boolean isIncall,
+            @NonNull NetworkCapabilities capabilities) {
+        if (sourceAccessNetwork < 0 || sourceAccessNetwork >= mTable.length
+                || targetAccessNetwork < 0 || targetAccessNetwork >= mTable.length) {
+            return null;
+        }
+        CompiledRule[] rules = mTable[sourceAccessNetwork][targetAccessNetwork];
+        if (rules.length == 0) return null;
+
+        long capabilityMask = 0;
+        for (int capability : capabilities.getCapabilities()) {
+            capabilityMask |= 1L << capability;
+        }
+        for (CompiledRule compiledRule : rules) {
+            if (compiledRule.rule.isOnlyForRoaming && !isRoaming) continue;
+            if (compiledRule.rule.isOnlyForIncall && !isIncall) continue;
+            // If no capability is specified, the data network capabilities are considered
+            // matched. Otherwise, any capabilities overlap is also considered matched.
+            if (compiledRule.capabilityMask == 0
+                    || (compiledRule.capabilityMask & capabilityMask) != 0) {
+                return compiledRule.rule;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Dump the compiled table.
+     *
+     * @param pw The print writer.
+     */
+    public void dump(@NonNull IndentingPrintWriter pw) {
+        pw.println("Compiled handover rules: " + mRuleCount + " rules");
+        pw.increaseIndent();
+        for (int source = 0; source < mTable.length; source++) {
+            for (int target = 0; target < mTable.length; target++) {
+                if (mTable[source][target].length == 0) continue;
+                pw.println(AccessNetworkType.toString(source) + "->"
+                        + AccessNetworkType.toString(target) + ": "
+                        + Arrays.toString(mTable[source][target]));
+            }
+        }
+        pw.decreaseIndent();
+    }
+}
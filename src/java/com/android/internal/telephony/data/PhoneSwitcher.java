@@ -50,6 +50,7 @@ import android.os.Message;
 import android.os.PersistableBundle;
 import android.os.RegistrantList;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.telephony.CarrierConfigManager;
 import android.telephony.PhoneStateListener;
 import android.telephony.SubscriptionInfo;
@@ -352,6 +353,8 @@ public class PhoneSwitcher extends Handler {
     private class DefaultNetworkCallback extends ConnectivityManager.NetworkCallback {
         public int mExpectedSubId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
         public int mSwitchReason = TelephonyEvent.DataSwitch.Reason.DATA_SWITCH_REASON_UNKNOWN;
+        /** The {@link SystemClock#elapsedRealtime()} when the switch started. */
+        public long mSwitchStartTime;
         @Override
         public void onCapabilitiesChanged(@NonNull Network network,
                 NetworkCapabilities networkCapabilities) {
@@ -363,6 +366,8 @@ public class PhoneSwitcher extends Handler {
                             mExpectedSubId,
                             TelephonyEvent.EventState.EVENT_STATE_END,
                             mSwitchReason);
+                    logl("Data switch due to " + switchReasonToString(mSwitchReason) + " took "
+                            + (SystemClock.elapsedRealtime() - mSwitchStartTime) + "ms");
                     mExpectedSubId = SubscriptionManager.INVALID_SUBSCRIPTION_ID;
                     mSwitchReason = TelephonyEvent.DataSwitch.Reason.DATA_SWITCH_REASON_UNKNOWN;
                 }
@@ -1003,6 +1008,7 @@ public class PhoneSwitcher extends Handler {
     private void registerDefaultNetworkChangeCallback(int expectedSubId, int reason) {
         mDefaultNetworkCallback.mExpectedSubId = expectedSubId;
         mDefaultNetworkCallback.mSwitchReason = reason;
+        mDefaultNetworkCallback.mSwitchStartTime = SystemClock.elapsedRealtime();
     }
 
     /**
@@ -1530,6 +1536,11 @@ public class PhoneSwitcher extends Handler {
         mPendingSwitchNeedValidation = needValidation;
         mSetOpptSubCallback = callback;
         long validationTimeout = getValidationTimeout(subIdToValidate, needValidation);
+        // With a recently passed validation, the validator reports the validation as passed as
+        // soon as the network of the target subscription is available.
+        if (mValidator.isRecentlyValidated(subIdToValidate)) {
+            logl("validate: reuse recent validation of subId " + subIdToValidate);
+        }
         mValidator.validate(subIdToValidate, validationTimeout,
                 mPendingSwitchNeedValidation, mValidationCallback);
     }
@@ -30,6 +30,7 @@ import android.telephony.data.NrQos;
 import android.telephony.data.NrQosSessionAttributes;
 import android.telephony.data.QosBearerFilter;
 import android.telephony.data.QosBearerSession;
+import android.util.ArraySet;
 
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.metrics.RcsStats;
@@ -40,7 +41,7 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -66,6 +67,18 @@ public class QosCallbackTracker extends Handler {
     @NonNull
     private final Map<Integer, IFilter> mCallbacksToFilter;
 
+    /**
+     * Qos bearer session id to the ids of the callbacks whose filter matches the session. Every
+     * session in {@link #mQosBearerSessions} has an entry. The match only depends on the bearer
+     * filters of the session, so it is reused as long as the session keeps the same filters.
+     */
+    @NonNull
+    private final Map<Integer, ArraySet<Integer>> mSessionsToMatchedCallbacks;
+
+    /** The ids of the incoming sessions, reused across session updates. */
+    @NonNull
+    private final ArraySet<Integer> mIncomingSessionIds = new ArraySet<>();
+
     private final int mPhoneId;
 
     /**
@@ -110,6 +123,7 @@ public class QosCallbackTracker extends Handler {
     public QosCallbackTracker(@NonNull TelephonyNetworkAgent networkAgent, @NonNull Phone phone) {
         mQosBearerSessions = new HashMap<>();
         mCallbacksToFilter = new HashMap<>();
+        mSessionsToMatchedCallbacks = new HashMap<>();
         mNetworkAgent = networkAgent;
         mPhoneId = phone.getPhoneId();
         mRcsStats = RcsStats.getInstance();
@@ -129,6 +143,9 @@ public class QosCallbackTracker extends Handler {
             // actual QoS callback at client side will receive QosCallbackException
             // #EX_TYPE_FILTER_NETWORK_RELEASED through the Connectivity service and unregistered.
             mCallbacksToFilter.clear();
+            for (final ArraySet<Integer> matchedCallbacks : mSessionsToMatchedCallbacks.values()) {
+                matchedCallbacks.clear();
+            }
             mNetworkAgent = networkAgent;
             registerTelephonyNetworkAgentCallback(mNetworkAgent);
             log("updateNetworkAgent done netId:" + (mNetworkAgent).getNetwork().getNetId());
@@ -182,7 +199,11 @@ public class QosCallbackTracker extends Handler {
 
             //On first change. Check all sessions and send.
             for (final QosBearerSession session : mQosBearerSessions.values()) {
+                final ArraySet<Integer> matchedCallbacks =
+                        mSessionsToMatchedCallbacks.get(session.getQosBearerSessionId());
+                matchedCallbacks.remove(callbackId);
                 if (doFiltersMatch(session, filter)) {
+                    matchedCallbacks.add(callbackId);
                     sendSessionAvailable(callbackId, session, filter);
 
                     notifyMetricDedicatedBearerListenerAdded(callbackId, session);
@@ -200,12 +221,19 @@ public class QosCallbackTracker extends Handler {
         post(() -> {
             log("removeFilter: callbackId=" + callbackId);
             mCallbacksToFilter.remove(callbackId);
+            for (final ArraySet<Integer> matchedCallbacks : mSessionsToMatchedCallbacks.values()) {
+                matchedCallbacks.remove(callbackId);
+            }
             notifyMetricDedicatedBearerListenerRemoved(callbackId);
         });
     }
 
     /**
-     * Update the list of qos sessions and send out corresponding events
+     * Update the list of qos sessions and send out corresponding events.
+     *
+     * <p>A session that comes back with the same id and bearer filters keeps its matched
+     * callbacks, so only new sessions and sessions with changed filters are matched against the
+     * registered filters, and the events are only sent to the matched callbacks.
      *
      * @param sessions the new list of qos sessions
      */
@@ -215,90 +243,99 @@ public class QosCallbackTracker extends Handler {
 
             int bearerState = DEDICATED_BEARER_EVENT_STATE_NONE;
 
-            final List<QosBearerSession> sessionsToAdd = new ArrayList<>();
-            final Map<Integer, QosBearerSession> incomingSessions = new HashMap<>();
-            final HashSet<Integer> sessionsReportedToMetric = new HashSet<>();
+            mIncomingSessionIds.clear();
             for (final QosBearerSession incomingSession : sessions) {
-                int sessionId = incomingSession.getQosBearerSessionId();
-                incomingSessions.put(sessionId, incomingSession);
+                final int sessionId = incomingSession.getQosBearerSessionId();
+                mIncomingSessionIds.add(sessionId);
 
                 final QosBearerSession existingSession = mQosBearerSessions.get(sessionId);
-                for (final int callbackId : mCallbacksToFilter.keySet()) {
-                    final IFilter filter = mCallbacksToFilter.get(callbackId);
+                final ArraySet<Integer> existingMatches = existingSession != null
+                        ? mSessionsToMatchedCallbacks.get(sessionId) : null;
+                final ArraySet<Integer> incomingMatches;
+                if (existingSession != null && existingSession.getQosBearerFilterList().equals(
+                        incomingSession.getQosBearerFilterList())) {
+                    incomingMatches = existingMatches;
+                } else {
+                    incomingMatches = getMatchedCallbacks(incomingSession);
+                }
+                final boolean qosChanged = existingSession != null
+                        && !incomingSession.getQos().equals(existingSession.getQos());
 
-                    final boolean incomingSessionMatch = doFiltersMatch(incomingSession, filter);
-                    final boolean existingSessionMatch =
-                            existingSession != null && doFiltersMatch(existingSession, filter);
+                boolean reportedToMetric = false;
+                for (int i = 0; i < incomingMatches.size(); i++) {
+                    final int callbackId = incomingMatches.valueAt(i);
+                    final IFilter filter = mCallbacksToFilter.get(callbackId);
 
-                    if (!existingSessionMatch && incomingSessionMatch) {
+                    if (existingMatches == null || !existingMatches.contains(callbackId)) {
                         // The filter matches now and didn't match earlier
                         sendSessionAvailable(callbackId, incomingSession, filter);
-
                         bearerState = DEDICATED_BEARER_EVENT_STATE_ADDED;
-                    }
-
-                    if (existingSessionMatch && incomingSessionMatch) {
+                    } else if (qosChanged) {
                         // The same sessions matches the same filter, but if the qos changed,
                         // the callback still needs to be notified
-                        if (!incomingSession.getQos().equals(existingSession.getQos())) {
-                            sendSessionAvailable(callbackId, incomingSession, filter);
-                            bearerState = DEDICATED_BEARER_EVENT_STATE_MODIFIED;
-                        }
+                        sendSessionAvailable(callbackId, incomingSession, filter);
+                        bearerState = DEDICATED_BEARER_EVENT_STATE_MODIFIED;
                     }
 
                     // this QosBearerSession has registered QosCallbackId
-                    if (!sessionsReportedToMetric.contains(sessionId) && incomingSessionMatch) {
+                    if (!reportedToMetric) {
                         // this session has listener
                         notifyMetricDedicatedBearerEvent(incomingSession, bearerState, true);
-                        sessionsReportedToMetric.add(sessionId);
+                        reportedToMetric = true;
                     }
                 }
 
                 // this QosBearerSession does not have registered QosCallbackId
-                if (!sessionsReportedToMetric.contains(sessionId)) {
+                if (!reportedToMetric) {
                     // no listener is registered to this session
                     bearerState = DEDICATED_BEARER_EVENT_STATE_ADDED;
                     notifyMetricDedicatedBearerEvent(incomingSession, bearerState, false);
-                    sessionsReportedToMetric.add(sessionId);
                 }
-                sessionsToAdd.add(incomingSession);
+
+                // Add in the new or existing sessions with updated information
+                mQosBearerSessions.put(sessionId, incomingSession);
+                mSessionsToMatchedCallbacks.put(sessionId, incomingMatches);
             }
 
-            final List<Integer> sessionsToRemove = new ArrayList<>();
-            sessionsReportedToMetric.clear();
             bearerState = DEDICATED_BEARER_EVENT_STATE_DELETED;
             // Find sessions that no longer exist
-            for (final QosBearerSession existingSession : mQosBearerSessions.values()) {
+            final Iterator<QosBearerSession> iterator = mQosBearerSessions.values().iterator();
+            while (iterator.hasNext()) {
+                final QosBearerSession existingSession = iterator.next();
                 final int sessionId = existingSession.getQosBearerSessionId();
-                if (!incomingSessions.containsKey(sessionId)) {
-                    for (final int callbackId : mCallbacksToFilter.keySet()) {
-                        final IFilter filter = mCallbacksToFilter.get(callbackId);
-                        // The filter matches which means it was previously available, and now is
-                        // lost
-                        if (doFiltersMatch(existingSession, filter)) {
-                            sendSessionLost(callbackId, existingSession);
-                            notifyMetricDedicatedBearerEvent(existingSession, bearerState, true);
-                            sessionsReportedToMetric.add(sessionId);
-                        }
-                    }
-                    sessionsToRemove.add(sessionId);
-                    if (!sessionsReportedToMetric.contains(sessionId)) {
-                        notifyMetricDedicatedBearerEvent(existingSession, bearerState, false);
-                        sessionsReportedToMetric.add(sessionId);
-                    }
+                if (mIncomingSessionIds.contains(sessionId)) continue;
+
+                // The matched callbacks were previously available, and now are lost
+                final ArraySet<Integer> matchedCallbacks =
+                        mSessionsToMatchedCallbacks.remove(sessionId);
+                for (int i = 0; i < matchedCallbacks.size(); i++) {
+                    sendSessionLost(matchedCallbacks.valueAt(i), existingSession);
+                    notifyMetricDedicatedBearerEvent(existingSession, bearerState, true);
                 }
+                if (matchedCallbacks.isEmpty()) {
+                    notifyMetricDedicatedBearerEvent(existingSession, bearerState, false);
+                }
+                // Remove any old sessions
+                iterator.remove();
             }
+        });
+    }
 
-            // Add in the new or existing sessions with updated information
-            for (final QosBearerSession sessionToAdd : sessionsToAdd) {
-                mQosBearerSessions.put(sessionToAdd.getQosBearerSessionId(), sessionToAdd);
-            }
-
-            // Remove any old sessions
-            for (final int sessionToRemove : sessionsToRemove) {
-                mQosBearerSessions.remove(sessionToRemove);
+    /**
+     * Match a qos session against all the registered filters.
+     *
+     * @param qosBearerSession The qos session.
+     * @return The ids of the callbacks whose filter matches the session.
+     */
+    @NonNull
+    private ArraySet<Integer> getMatchedCallbacks(@NonNull QosBearerSession qosBearerSession) {
+        final ArraySet<Integer> matchedCallbacks = new ArraySet<>();
+        for (final Map.Entry<Integer, IFilter> entry : mCallbacksToFilter.entrySet()) {
+            if (doFiltersMatch(qosBearerSession, entry.getValue())) {
+                matchedCallbacks.add(entry.getKey());
             }
-        });
+        }
+        return matchedCallbacks;
     }
 
     private boolean doFiltersMatch(@NonNull final QosBearerSession qosBearerSession,
@@ -36,7 +36,6 @@ import android.os.AsyncResult;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
-import android.os.PersistableBundle;
 import android.os.ResultReceiver;
 import android.telephony.CarrierConfigManager;
 import android.telephony.PhoneNumberUtils;
@@ -50,6 +49,7 @@ import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.CallForwardInfo;
 import com.android.internal.telephony.CallStateException;
 import com.android.internal.telephony.CallWaitingController;
+import com.android.internal.telephony.CarrierConfigCache;
 import com.android.internal.telephony.CommandException;
 import com.android.internal.telephony.CommandsInterface;
 import com.android.internal.telephony.GsmCdmaPhone;
@@ -185,6 +185,7 @@ public final class GsmMmiCode extends Handler implements MmiCode {
 
 
     // See TS 22.030 6.5.2 "Structure of the MMI"
+    // Dial strings are parsed by MmiDialString, which is equivalent to this pattern.
 
     @UnsupportedAppUsage
     static Pattern sPatternSuppService = Pattern.compile(
@@ -241,7 +242,6 @@ public final class GsmMmiCode extends Handler implements MmiCode {
 
     public static GsmMmiCode newFromDialString(String dialString, GsmCdmaPhone phone,
             UiccCardApplication app, ResultReceiver wrappedCallback) {
-        Matcher m;
         GsmMmiCode ret = null;
 
         if ((phone.getServiceState().getVoiceRoaming()
@@ -256,23 +256,21 @@ public final class GsmMmiCode extends Handler implements MmiCode {
             dialString = convertCdmaMmiCodesTo3gppMmiCodes(dialString);
         }
 
-        m = sPatternSuppService.matcher(dialString);
+        MmiDialString parsed = MmiDialString.parse(dialString);
 
         // Is this formatted like a standard supplementary service code?
-        if (m.matches()) {
+        if (parsed != null) {
             ret = new GsmMmiCode(phone, app);
-            ret.mPoundString = makeEmptyNull(m.group(MATCH_GROUP_POUND_STRING));
-            ret.mAction = makeEmptyNull(m.group(MATCH_GROUP_ACTION));
-            ret.mSc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
-            ret.mSia = makeEmptyNull(m.group(MATCH_GROUP_SIA));
-            ret.mSib = makeEmptyNull(m.group(MATCH_GROUP_SIB));
-            ret.mSic = makeEmptyNull(m.group(MATCH_GROUP_SIC));
-            ret.mPwd = makeEmptyNull(m.group(MATCH_GROUP_PWD_CONFIRM));
-            ret.mDialingNumber = makeEmptyNull(m.group(MATCH_GROUP_DIALING_NUMBER));
-
-            if(ret.mDialingNumber != null &&
-                    ret.mDialingNumber.endsWith("#") &&
-                    dialString.endsWith("#")){
+            ret.mPoundString = parsed.getPoundString();
+            ret.mAction = parsed.getAction();
+            ret.mSc = parsed.getServiceCode();
+            ret.mSia = parsed.getSia();
+            ret.mSib = parsed.getSib();
+            ret.mSic = parsed.getSic();
+            ret.mPwd = parsed.getPwd();
+            ret.mDialingNumber = parsed.getDialingNumber();
+
+            if (parsed.isUssdWithDialingNumber()) {
                 // According to TS 22.030 6.5.2 "Structure of the MMI",
                 // the dialing number should not ending with #.
                 // The dialing number ending # is treated as unique USSD,
@@ -813,17 +811,8 @@ public final class GsmMmiCode extends Handler implements MmiCode {
 
     private static String[] getTwoDigitNumberPattern(Context context, int subId) {
         Rlog.d(LOG_TAG, "Get two digit number pattern: subId=" + subId);
-        String[] twoDigitNumberPattern = null;
-        CarrierConfigManager configManager = (CarrierConfigManager)
-                context.getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        if (configManager != null) {
-            PersistableBundle bundle = configManager.getConfigForSubId(subId);
-            if (bundle != null) {
-                Rlog.d(LOG_TAG, "Two Digit Number Pattern from carrir config");
-                twoDigitNumberPattern = bundle.getStringArray(CarrierConfigManager
-                        .KEY_MMI_TWO_DIGIT_NUMBER_PATTERN_STRING_ARRAY);
-            }
-        }
+        String[] twoDigitNumberPattern = CarrierConfigCache.getInstance(context).getStringArray(
+                subId, CarrierConfigManager.KEY_MMI_TWO_DIGIT_NUMBER_PATTERN_STRING_ARRAY);
 
         // Do NOT return null array
         if (twoDigitNumberPattern == null) {
@@ -927,18 +916,9 @@ public final class GsmMmiCode extends Handler implements MmiCode {
      */
     @VisibleForTesting
     public static boolean isCarrierSupportCallerIdVerticalServiceCodes(Phone phone) {
-        CarrierConfigManager configManager = phone.getContext().getSystemService(
-                CarrierConfigManager.class);
-        PersistableBundle b = null;
-        if (configManager != null) {
-            // If an invalid subId is used, this bundle will contain default values.
-            b = configManager.getConfigForSubId(phone.getSubId());
-        }
-        if (b != null) {
-            return b == null ? false : b.getBoolean(CarrierConfigManager
-                    .KEY_CARRIER_SUPPORTS_CALLER_ID_VERTICAL_SERVICE_CODES_BOOL);
-        }
-        return false;
+        // If an invalid subId is used, the default value is returned.
+        return CarrierConfigCache.getInstance(phone.getContext()).getBoolean(phone.getSubId(),
+                CarrierConfigManager.KEY_CARRIER_SUPPORTS_CALLER_ID_VERTICAL_SERVICE_CODES_BOOL);
     }
 
     /**
@@ -993,17 +973,12 @@ public final class GsmMmiCode extends Handler implements MmiCode {
             // bail early. It is likely a true USSD which shares the same code as the FAC.
             return false;
         }
-        CarrierConfigManager configManager = (CarrierConfigManager)
-                mPhone.getContext().getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        PersistableBundle b = configManager.getConfigForSubId(mPhone.getSubId());
-        if (b != null) {
-            String[] dialFacList = b.getStringArray(CarrierConfigManager
-                    .KEY_FEATURE_ACCESS_CODES_STRING_ARRAY);
-            if (!ArrayUtils.isEmpty(dialFacList)) {
-                for (String fac : dialFacList) {
-                    if (fac.equals(mSc)) {
-                        return true;
-                    }
+        String[] dialFacList = CarrierConfigCache.getInstance(mPhone.getContext()).getStringArray(
+                mPhone.getSubId(), CarrierConfigManager.KEY_FEATURE_ACCESS_CODES_STRING_ARRAY);
+        if (!ArrayUtils.isEmpty(dialFacList)) {
+            for (String fac : dialFacList) {
+                if (fac.equals(mSc)) {
+                    return true;
                 }
             }
         }
@@ -1924,18 +1899,8 @@ public final class GsmMmiCode extends Handler implements MmiCode {
      * @return integer value of corresponding key.
      */
     private int getIntCarrierConfig(String key) {
-        CarrierConfigManager ConfigManager = mContext.getSystemService(CarrierConfigManager.class);
-        PersistableBundle b = null;
-        if (ConfigManager != null) {
-            // If an invalid subId is used, this bundle will contain default values.
-            b = ConfigManager.getConfigForSubId(mPhone.getSubId());
-        }
-        if (b != null) {
-            return b.getInt(key);
-        } else {
-            // Return static default defined in CarrierConfigManager.
-            return CarrierConfigManager.getDefaultConfig().getInt(key);
-        }
+        // If an invalid subId is used, the default value is returned.
+        return CarrierConfigCache.getInstance(mContext).getInt(mPhone.getSubId(), key);
     }
 
     public ResultReceiver getUssdCallbackReceiver() {
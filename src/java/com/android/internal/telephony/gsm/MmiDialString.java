@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+import android.annotation.NonNull;
+import android.annotation.Nullable;
+
+/**
+ * A dial string parsed according to the structure of the MMI defined in TS 22.030 6.5.2:
+ * <pre>
+ *   ACTION SC [* SIA [* SIB [* SIC [* PWD]]]] # [DIALING NUMBER]
+ * </pre>
+ * where ACTION is one of {@code *}, {@code #}, {@code *#}, {@code **} or {@code ##} and SC is a
+ * two or three digit service code.
+ *
+ * <p>The dial string is scanned once by a hand written tokenizer instead of being matched against
+ * a regular expression, and the result is kept so that the same dial string is not parsed again
+ * by the different checks done for one dial attempt. It accepts exactly the same dial strings as
+ * the {@code sPatternSuppService} regular expression of {@link GsmMmiCode}:
+ * <pre>
+ *   ((\*|#|\*#|\*\*|##)(\d{2,3})(\*([^*#]*)(\*([^*#]*)(\*([^*#]*)(\*([^*#]*))?)?)?)?#)(.*)
+ * </pre>
+ *
+ * <p>Instances are immutable. Empty fields are reported as {@code null}.
+ */
+public final class MmiDialString {
+    /** Maximum number of '*' separated fields after the service code: SIA, SIB, SIC and PWD. */
+    private static final int MAX_FIELDS = 4;
+
+    /** The last parsed dial string and its result, shared by all callers. */
+    private static volatile MmiDialString sLastParsed;
+
+    @NonNull private final String mDialString;
+    @NonNull private final String mPoundString;
+    @NonNull private final String mAction;
+    @NonNull private final String mServiceCode;
+    @Nullable private final String mSia;
+    @Nullable private final String mSib;
+    @Nullable private final String mSic;
+    @Nullable private final String mPwd;
+    @Nullable private final String mDialingNumber;
+
+    private MmiDialString(@NonNull String dialString, @NonNull String poundString,
+            @NonNull String action, @NonNull String serviceCode, @NonNull String[] fields,
+            @Nullable String dialingNumber) {
+        mDialString = dialString;
+        mPoundString = poundString;
+        mAction = action;
+        mServiceCode = serviceCode;
+        mSia = fields[0];
+        mSib = fields[1];
+        mSic = fields[2];
+        mPwd = fields[3];
+        mDialingNumber = dialingNumber;
+    }
+
+    /**
+     * Parse a dial string.
+     *
+     * @param dialString The dial string.
+     * @return The parsed supplementary service string, or {@code null} if the dial string is not
+     * formatted like a standard supplementary service code.
+     */
+    @Nullable
+    public static MmiDialString parse(@Nullable String dialString) {
+        if (dialString == null) return null;
+        MmiDialString last = sLastParsed;
+        if (last != null && last.mDialString.equals(dialString)) {
+            return last;
+        }
+        MmiDialString parsed = tokenize(dialString);
+        if (parsed != null) {
+            sLastParsed = parsed;
+        }
+        return parsed;
+    }
+
+    @Nullable
+    private static MmiDialString tokenize(@NonNull String s) {
+        final int length = s.length();
+        int pos = 0;
+
+        // Action: "**", "*#", "##", "*" or "#".
+        if (length < 1) return null;
+        char first = s.charAt(0);
+        if (first != '*' && first != '#') return null;
+        pos = 1;
+        if (length > 1) {
+            char second = s.charAt(1);
+            if ((first == '*' && second == '*') || second == '#') {
+                pos = 2;
+            }
+        }
+        String action = s.substring(0, pos);
+
+        // Service code: 2 or 3 digits.
+        int scStart = pos;
+        while (pos < length && pos - scStart < 3 && isDigit(s.charAt(pos))) {
+            pos++;
+        }
+        if (pos - scStart < 2) return null;
+        String serviceCode = s.substring(scStart, pos);
+
+        // Up to 4 '*' separated fields, terminated by '#'.
+        String[] fields = new String[MAX_FIELDS];
+        int field = 0;
+        while (pos < length && s.charAt(pos) == '*') {
+            if (field == MAX_FIELDS) return null;
+            int fieldStart = ++pos;
+            while (pos < length && s.charAt(pos) != '*' && s.charAt(pos) != '#') {
+                pos++;
+            }
+            fields[field++] = emptyToNull(s.substring(fieldStart, pos));
+        }
+        if (pos >= length || s.charAt(pos) != '#') return null;
+        pos++;
+        String poundString = s.substring(0, pos);
+
+        // Dialing number: anything but line terminators, as matched by ".".
+        for (int i = pos; i < length; i++) {
+            if (isLineTerminator(s.charAt(i))) return null;
+        }
+        String dialingNumber = emptyToNull(s.substring(pos));
+
+        return new MmiDialString(s, poundString, action, serviceCode, fields, dialingNumber);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    @Nullable
+    private static String emptyToNull(@NonNull String s) {
+        return s.isEmpty() ? null : s;
+    }
+
+    /** @return The full string up to and including the '#' terminating the MMI. */
+    @NonNull
+    public String getPoundString() {
+        return mPoundString;
+    }
+
+    /** @return The action (activation/interrogation/registration/erasure). */
+    @NonNull
+    public String getAction() {
+        return mAction;
+    }
+
+    /** @return The service code. */
+    @NonNull
+    public String getServiceCode() {
+        return mServiceCode;
+    }
+
+    /** @return The supplementary information A, or {@code null} if absent. */
+    @Nullable
+    public String getSia() {
+        return mSia;
+    }
+
+    /** @return The supplementary information B, or {@code null} if absent. */
+    @Nullable
+    public String getSib() {
+        return mSib;
+    }
+
+    /** @return The supplementary information C, or {@code null} if absent. */
+    @Nullable
+    public String getSic() {
+        return mSic;
+    }
+
+    /** @return The password confirmation, or {@code null} if absent. */
+    @Nullable
+    public String getPwd() {
+        return mPwd;
+    }
+
+    /** @return The dialing number following the MMI, or {@code null} if absent. */
+    @Nullable
+    public String getDialingNumber() {
+        return mDialingNumber;
+    }
+
+    /**
+     * @return {@code true} if a dialing number ending with '#' follows the MMI and the whole
+     * dial string must be handled as a USSD string instead, e.g. "*400#16 digit number#" to
+     * recharge a prepaid card (see TS 22.030 6.5.2).
+     */
+    public boolean isUssdWithDialingNumber() {
+        return mDialingNumber != null && mDialingNumber.endsWith("#")
+                && mDialString.endsWith("#");
+    }
+
+    @Override
+    public String toString() {
+        return "MmiDialString{action=" + mAction + ", sc=" + mServiceCode
+                + ", sia=" + (mSia != null ? "[...]" : null)
+                + ", sib=" + (mSib != null ? "[...]" : null)
+                + ", sic=" + (mSic != null ? "[...]" : null)
+                + ", pwd=" + (mPwd != null ? "[...]" : null)
+                + ", dialingNumber=" + (mDialingNumber != null ? "[...]" : null) + "}";
+    }
+}
@@ -137,6 +137,7 @@ import com.android.internal.telephony.Call;
 import com.android.internal.telephony.CallFailCause;
 import com.android.internal.telephony.CallStateException;
 import com.android.internal.telephony.CallTracker;
+import com.android.internal.telephony.CarrierConfigCache;
 import com.android.internal.telephony.CommandException;
 import com.android.internal.telephony.CommandsInterface;
 import com.android.internal.telephony.Connection;
@@ -1269,17 +1270,11 @@ public class ImsPhoneCallTracker extends CallTracker implements ImsPullCall {
         intentfilter.addAction(TelecomManager.ACTION_DEFAULT_DIALER_CHANGED);
         mPhone.getContext().registerReceiver(mReceiver, intentfilter);
 
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
         // Callback of listener directly access global states which are limited on main thread.
         // The callback can only be executed on main thread.
-        if (ccm != null) {
-            ccm.registerCarrierConfigChangeListener(
-                    mPhone.getContext().getMainExecutor(), mCarrierConfigChangeListener);
-            updateCarrierConfiguration(
-                    mPhone.getSubId(), getCarrierConfigBundle(mPhone.getSubId()));
-        } else {
-            loge("CarrierConfigManager is not available.");
-        }
+        CarrierConfigCache.getInstance(mPhone.getContext()).registerCarrierConfigChangeListener(
+                mPhone.getContext().getMainExecutor(), mCarrierConfigChangeListener);
+        updateCarrierConfiguration(mPhone.getSubId(), getCarrierConfigBundle(mPhone.getSubId()));
 
         mSettingsCallback = new DataSettingsManager.DataSettingsManagerCallback(this::post) {
                 @Override
@@ -1541,9 +1536,9 @@ public class ImsPhoneCallTracker extends CallTracker implements ImsPullCall {
 
         clearDisconnected();
         mPhone.getContext().unregisterReceiver(mReceiver);
-        CarrierConfigManager ccm = mPhone.getContext().getSystemService(CarrierConfigManager.class);
-        if (ccm != null && mCarrierConfigChangeListener != null) {
-            ccm.unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
+        if (mCarrierConfigChangeListener != null) {
+            CarrierConfigCache.getInstance(mPhone.getContext())
+                    .unregisterCarrierConfigChangeListener(mCarrierConfigChangeListener);
         }
         mPhone.getDefaultPhone().getDataSettingsManager().unregisterCallback(mSettingsCallback);
         mImsManagerConnector.disconnect();
@@ -5336,21 +5331,11 @@ public class ImsPhoneCallTracker extends CallTracker implements ImsPullCall {
      *
      * @param subId The subId to get the carrier config for.
      * @return The PersistableBundle containing the carrier config  from
-     * {@link CarrierConfigManager} for the subId specified.
+     * {@link CarrierConfigCache} for the subId specified. The bundle is shared and must not be
+     * modified.
      */
     private PersistableBundle getCarrierConfigBundle(int subId) {
-        CarrierConfigManager carrierConfigManager = (CarrierConfigManager)
-                mPhone.getContext().getSystemService(Context.CARRIER_CONFIG_SERVICE);
-        if (carrierConfigManager == null) {
-            loge("getCarrierConfigBundle: No carrier config service found");
-            return null;
-        }
-        PersistableBundle carrierConfig = carrierConfigManager.getConfigForSubId(subId);
-        if (carrierConfig == null) {
-            loge("getCarrierConfigBundle: carrier config is null, skipping.");
-            return null;
-        }
-        return carrierConfig;
+        return CarrierConfigCache.getInstance(mPhone.getContext()).getConfigForSubId(subId);
     }
 
     /**
@@ -65,6 +65,7 @@ import com.android.internal.telephony.MmiCode;
 import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.flags.FeatureFlags;
 import com.android.internal.telephony.gsm.GsmMmiCode;
+import com.android.internal.telephony.gsm.MmiDialString;
 import com.android.internal.telephony.uicc.IccRecords;
 import com.android.telephony.Rlog;
 
@@ -221,32 +222,8 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
     //***** Class Variables
 
 
-    // See TS 22.030 6.5.2 "Structure of the MMI"
+    // See TS 22.030 6.5.2 "Structure of the MMI", parsed by MmiDialString
 
-    private static Pattern sPatternSuppService = Pattern.compile(
-        "((\\*|#|\\*#|\\*\\*|##)(\\d{2,3})(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*)(\\*([^*#]*))?)?)?)?#)(.*)");
-/*       1  2                    3          4  5       6   7         8    9     10  11             12
-
-         1 = Full string up to and including #
-         2 = action (activation/interrogation/registration/erasure)
-         3 = service code
-         5 = SIA
-         7 = SIB
-         9 = SIC
-         10 = dialing number
-*/
-
-    private static final int MATCH_GROUP_POUND_STRING = 1;
-
-    private static final int MATCH_GROUP_ACTION = 2;
-                        //(activation/interrogation/registration/erasure)
-
-    private static final int MATCH_GROUP_SERVICE_CODE = 3;
-    private static final int MATCH_GROUP_SIA = 5;
-    private static final int MATCH_GROUP_SIB = 7;
-    private static final int MATCH_GROUP_SIC = 9;
-    private static final int MATCH_GROUP_PWD_CONFIRM = 11;
-    private static final int MATCH_GROUP_DIALING_NUMBER = 12;
     static private String[] sTwoDigitNumberPattern;
 
     private final FeatureFlags mFeatureFlags;
@@ -275,7 +252,6 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
 
     static ImsPhoneMmiCode newFromDialString(String dialString, ImsPhone phone,
             ResultReceiver wrappedCallback, FeatureFlags featureFlags) {
-        Matcher m;
         ImsPhoneMmiCode ret = null;
 
         if ((phone.getDefaultPhone().getServiceState().getVoiceRoaming()
@@ -290,28 +266,26 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
             dialString = convertCdmaMmiCodesTo3gppMmiCodes(dialString);
         }
 
-        m = sPatternSuppService.matcher(dialString);
+        MmiDialString parsed = MmiDialString.parse(dialString);
 
         // Is this formatted like a standard supplementary service code?
-        if (m.matches()) {
+        if (parsed != null) {
             ret = new ImsPhoneMmiCode(phone, featureFlags);
-            ret.mPoundString = makeEmptyNull(m.group(MATCH_GROUP_POUND_STRING));
-            ret.mAction = makeEmptyNull(m.group(MATCH_GROUP_ACTION));
-            ret.mSc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
-            ret.mSia = makeEmptyNull(m.group(MATCH_GROUP_SIA));
-            ret.mSib = makeEmptyNull(m.group(MATCH_GROUP_SIB));
-            ret.mSic = makeEmptyNull(m.group(MATCH_GROUP_SIC));
-            ret.mPwd = makeEmptyNull(m.group(MATCH_GROUP_PWD_CONFIRM));
-            ret.mDialingNumber = makeEmptyNull(m.group(MATCH_GROUP_DIALING_NUMBER));
+            ret.mPoundString = parsed.getPoundString();
+            ret.mAction = parsed.getAction();
+            ret.mSc = parsed.getServiceCode();
+            ret.mSia = parsed.getSia();
+            ret.mSib = parsed.getSib();
+            ret.mSic = parsed.getSic();
+            ret.mPwd = parsed.getPwd();
+            ret.mDialingNumber = parsed.getDialingNumber();
             ret.mCallbackReceiver = wrappedCallback;
             // According to TS 22.030 6.5.2 "Structure of the MMI",
             // the dialing number should not ending with #.
             // The dialing number ending # is treated as unique USSD,
             // eg, *400#16 digit number# to recharge the prepaid card
             // in India operator(Mumbai MTNL)
-            if (ret.mDialingNumber != null &&
-                    ret.mDialingNumber.endsWith("#") &&
-                    dialString.endsWith("#")){
+            if (parsed.isUssdWithDialingNumber()) {
                 ret = new ImsPhoneMmiCode(phone, featureFlags);
                 ret.mPoundString = dialString;
             }
@@ -400,9 +374,9 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
 
     static boolean isScMatchesSuppServType(String dialString) {
         boolean isMatch = false;
-        Matcher m = sPatternSuppService.matcher(dialString);
-        if (m.matches()) {
-            String sc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
+        MmiDialString parsed = MmiDialString.parse(dialString);
+        if (parsed != null) {
+            String sc = parsed.getServiceCode();
             if (sc.equals(SC_CFUT)) {
                 isMatch = true;
             } else if(sc.equals(SC_BS_MT)) {
@@ -529,9 +503,9 @@ public final class ImsPhoneMmiCode extends Handler implements MmiCode {
             dialString = convertCdmaMmiCodesTo3gppMmiCodes(dialString);
         }
 
-        Matcher m = sPatternSuppService.matcher(dialString);
-        if (m.matches()) {
-            String sc = makeEmptyNull(m.group(MATCH_GROUP_SERVICE_CODE));
+        MmiDialString parsed = MmiDialString.parse(dialString);
+        if (parsed != null) {
+            String sc = parsed.getServiceCode();
             if (isServiceCodeCallForwarding(sc)) {
                 return true;
             } else if (isServiceCodeCallBarring(sc)) {
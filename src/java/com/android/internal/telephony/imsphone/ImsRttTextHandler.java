@@ -19,6 +19,7 @@ package com.android.internal.telephony.imsphone;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.telecom.Connection;
 
 import com.android.internal.annotations.VisibleForTesting;
@@ -27,6 +28,9 @@ import com.android.telephony.Rlog;
 import java.io.IOException;
 import java.nio.channels.ClosedByInterruptException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ImsRttTextHandler extends Handler {
     public interface NetworkWriter {
@@ -55,11 +59,9 @@ public class ImsRttTextHandler extends Handler {
     // Send a string received from the network to the in-call app. Should have the string in
     // msg.obj.
     private static final int SEND_TO_INCALL = 3;
-    // Send as many characters as possible, as constrained by the rate limit. No extra data.
+    // Send as many characters as possible, as constrained by the rate limit. msg.arg1 is set to
+    // 1 for the single attempt scheduled for when the rate limiter gives tokens back.
     private static final int ATTEMPT_SEND_TO_NETWORK = 4;
-    // Indicates that N characters were sent a second ago and should be ignored by the rate
-    // limiter. msg.arg1 should be set to N.
-    private static final int EXPIRE_SENT_CODEPOINT_COUNT = 5;
     // Indicates that the call is over and we should teardown everything we have set up.
     private static final int TEARDOWN = 9999;
 
@@ -67,39 +69,75 @@ public class ImsRttTextHandler extends Handler {
     // For synchronization during testing
     private CountDownLatch mReadNotifier;
 
-    private class InCallReaderThread extends Thread {
-        private final Connection.RttTextStream mReaderThreadRttTextStream;
+    // Reader shared by the RTT text streams of all calls. RttTextStream only supports blocking
+    // reads, so each active stream still occupies one thread while it is being read, but the
+    // threads are pooled and reused across calls instead of being created for each call.
+    private static final ExecutorService sInCallReaderExecutor = Executors.newCachedThreadPool(
+            r -> {
+                Thread t = new Thread(r, "ImsRttInCallReader");
+                t.setDaemon(true);
+                return t;
+            });
 
-        public InCallReaderThread(Connection.RttTextStream textStream) {
-            mReaderThreadRttTextStream = textStream;
+    private class InCallReader implements Runnable {
+        private final Connection.RttTextStream mReaderRttTextStream;
+        private volatile boolean mCancelled;
+
+        InCallReader(Connection.RttTextStream textStream) {
+            mReaderRttTextStream = textStream;
+        }
+
+        /**
+         * Stop the reader. Once this returns, the reader doesn't deliver anything to the handler
+         * anymore.
+         */
+        synchronized void cancel() {
+            mCancelled = true;
+        }
+
+        /**
+         * Send a message to the handler unless the reader was cancelled. Synchronized with
+         * {@link #cancel}, so a message can't be sent after it.
+         *
+         * @return {@code true} if the message was sent.
+         */
+        private synchronized boolean sendToHandler(int what, Object obj) {
+            if (mCancelled) return false;
+            obtainMessage(what, obj).sendToTarget();
+            return true;
         }
 
         @Override
         public void run() {
-            while (true) {
+            while (!mCancelled) {
                 String charsReceived;
                 try {
-                    charsReceived = mReaderThreadRttTextStream.read();
+                    charsReceived = mReaderRttTextStream.read();
                 } catch (ClosedByInterruptException e) {
-                    Rlog.i(LOG_TAG, "RttReaderThread - Thread interrupted. Finishing.");
+                    Rlog.i(LOG_TAG, "RttReader - Thread interrupted. Finishing.");
                     break;
                 } catch (IOException e) {
-                    Rlog.e(LOG_TAG, "RttReaderThread - IOException encountered " +
+                    if (mCancelled) break;
+                    Rlog.e(LOG_TAG, "RttReader - IOException encountered " +
                             "reading from in-call: ", e);
-                    obtainMessage(TEARDOWN).sendToTarget();
+                    sendToHandler(TEARDOWN, null);
+                    break;
+                }
+                if (mCancelled) {
                     break;
                 }
                 if (charsReceived == null) {
-                    Rlog.e(LOG_TAG, "RttReaderThread - Stream closed unexpectedly. Attempt to " +
+                    Rlog.e(LOG_TAG, "RttReader - Stream closed unexpectedly. Attempt to " +
                             "reinitialize.");
-                    obtainMessage(TEARDOWN).sendToTarget();
+                    sendToHandler(TEARDOWN, null);
                     break;
                 }
                 if (charsReceived.length() == 0) {
                     continue;
                 }
-                obtainMessage(APPEND_TO_NETWORK_BUFFER, charsReceived)
-                        .sendToTarget();
+                if (!sendToHandler(APPEND_TO_NETWORK_BUFFER, charsReceived)) {
+                    break;
+                }
                 if (mReadNotifier != null) {
                     mReadNotifier.countDown();
                 }
@@ -107,9 +145,71 @@ public class ImsRttTextHandler extends Handler {
         }
     }
 
-    private int mCodepointsAvailableForTransmission = MAX_CODEPOINTS_PER_SECOND;
+    /**
+     * Limits the number of codepoints sent to the network to {@link #MAX_CODEPOINTS_PER_SECOND}
+     * in any one second window.
+     *
+     * Each codepoint sent takes a token from the bucket, and the tokens are given back exactly
+     * one second after they were taken. Sends still waiting for their tokens to be given back are
+     * kept in fixed size arrays, so no object is allocated per send and a single timer is needed
+     * to wait for the next tokens.
+     */
+    @VisibleForTesting
+    public static class CodepointRateLimiter {
+        private final int mCapacity;
+        private final long mWindowMillis;
+        // Ring of the sends whose tokens have not been given back yet. Every send takes at least
+        // one token, so there can't be more outstanding sends than tokens.
+        private final long[] mSendTimes;
+        private final int[] mSendCounts;
+        private int mHead;
+        private int mSize;
+        private int mAvailable;
+
+        public CodepointRateLimiter(int capacity, long windowMillis) {
+            mCapacity = capacity;
+            mWindowMillis = windowMillis;
+            mSendTimes = new long[capacity];
+            mSendCounts = new int[capacity];
+            mAvailable = capacity;
+        }
+
+        /** @return The number of codepoints that can be sent at the given time. */
+        public int getAvailable(long nowMillis) {
+            while (mSize > 0 && mSendTimes[mHead] + mWindowMillis <= nowMillis) {
+                mAvailable += mSendCounts[mHead];
+                mHead = (mHead + 1) % mCapacity;
+                mSize--;
+            }
+            return mAvailable;
+        }
+
+        /**
+         * Take tokens for codepoints sent at the given time. The count must not exceed
+         * {@link #getAvailable(long)}.
+         */
+        public void consume(int count, long nowMillis) {
+            if (count <= 0) return;
+            int tail = (mHead + mSize) % mCapacity;
+            mSendTimes[tail] = nowMillis;
+            mSendCounts[tail] = count;
+            mSize++;
+            mAvailable -= count;
+        }
+
+        /** @return The time tokens are next given back, or -1 if all tokens are available. */
+        public long getNextRefillTimeMillis() {
+            return mSize == 0 ? -1 : mSendTimes[mHead] + mWindowMillis;
+        }
+    }
+
+    private final CodepointRateLimiter mRateLimiter =
+            new CodepointRateLimiter(MAX_CODEPOINTS_PER_SECOND, MILLIS_PER_SECOND);
+    // Whether an attempt to send is scheduled for when the rate limiter gives tokens back.
+    private boolean mRefillAttemptScheduled;
     private StringBuffer mBufferedTextToNetwork = new StringBuffer();
-    private InCallReaderThread mReaderThread;
+    private InCallReader mReader;
+    private Future<?> mReaderFuture;
     // This is only ever used when the pipes fail and we have to re-setup. Messages received
     // from the network are buffered here until Telecom gets back to us with the new pipes.
     private StringBuffer mBufferedTextToIncall = new StringBuffer();
@@ -119,13 +219,13 @@ public class ImsRttTextHandler extends Handler {
     public void handleMessage(Message msg) {
         switch (msg.what) {
             case INITIALIZE:
-                if (mRttTextStream != null || mReaderThread != null) {
+                if (mRttTextStream != null || mReader != null) {
                     Rlog.e(LOG_TAG, "RTT text stream already initialized. Ignoring.");
                     return;
                 }
                 mRttTextStream = (Connection.RttTextStream) msg.obj;
-                mReaderThread = new InCallReaderThread(mRttTextStream);
-                mReaderThread.start();
+                mReader = new InCallReader(mRttTextStream);
+                mReaderFuture = sInCallReaderExecutor.submit(mReader);
                 break;
             case SEND_TO_INCALL:
                 if (msg.obj == null) {
@@ -161,42 +261,45 @@ public class ImsRttTextHandler extends Handler {
                 }
                 break;
             case ATTEMPT_SEND_TO_NETWORK:
+                if (msg.arg1 == 1) {
+                    mRefillAttemptScheduled = false;
+                }
                 // Check to see how many codepoints we can send, and send that many.
+                long now = SystemClock.uptimeMillis();
                 int numCodePointsAvailableInBuffer = mBufferedTextToNetwork.codePointCount(0,
                         mBufferedTextToNetwork.length());
                 int numCodePointsSent = Math.min(numCodePointsAvailableInBuffer,
-                        mCodepointsAvailableForTransmission);
-                if (numCodePointsSent == 0) {
-                    break;
-                }
-                int endSendIndex = mBufferedTextToNetwork.offsetByCodePoints(0,
-                        numCodePointsSent);
+                        mRateLimiter.getAvailable(now));
+                if (numCodePointsSent > 0) {
+                    int endSendIndex = mBufferedTextToNetwork.offsetByCodePoints(0,
+                            numCodePointsSent);
 
-                String stringToSend = mBufferedTextToNetwork.substring(0, endSendIndex);
+                    String stringToSend = mBufferedTextToNetwork.substring(0, endSendIndex);
 
-                mBufferedTextToNetwork.delete(0, endSendIndex);
-                mNetworkWriter.write(stringToSend);
-                mCodepointsAvailableForTransmission -= numCodePointsSent;
-                sendMessageDelayed(
-                        obtainMessage(EXPIRE_SENT_CODEPOINT_COUNT, numCodePointsSent, 0),
-                        MILLIS_PER_SECOND);
-                break;
-            case EXPIRE_SENT_CODEPOINT_COUNT:
-                mCodepointsAvailableForTransmission += msg.arg1;
-                if (mCodepointsAvailableForTransmission > 0) {
-                    sendMessage(obtainMessage(ATTEMPT_SEND_TO_NETWORK));
+                    mBufferedTextToNetwork.delete(0, endSendIndex);
+                    mNetworkWriter.write(stringToSend);
+                    mRateLimiter.consume(numCodePointsSent, now);
+                }
+                // If the rate limit held text back, send it when tokens are given back.
+                if (numCodePointsSent < numCodePointsAvailableInBuffer
+                        && !mRefillAttemptScheduled) {
+                    long refillTime = mRateLimiter.getNextRefillTimeMillis();
+                    if (refillTime >= 0) {
+                        mRefillAttemptScheduled = true;
+                        sendMessageAtTime(obtainMessage(ATTEMPT_SEND_TO_NETWORK, 1, 0),
+                                refillTime);
+                    }
                 }
                 break;
             case TEARDOWN:
-                try {
-                    if (mReaderThread != null) {
-                        mReaderThread.interrupt();
-                        mReaderThread.join(1000);
-                    }
-                } catch (InterruptedException e) {
-                    // Ignore and assume it'll finish on its own.
+                if (mReader != null) {
+                    // The reader stops as soon as its blocking read returns, and won't deliver
+                    // anything to this handler anymore.
+                    mReader.cancel();
+                    mReaderFuture.cancel(true);
                 }
-                mReaderThread = null;
+                mReader = null;
+                mReaderFuture = null;
                 mRttTextStream = null;
                 break;
         }
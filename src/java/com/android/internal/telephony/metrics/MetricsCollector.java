@@ -68,6 +68,8 @@ import static com.android.internal.telephony.util.TelephonyUtils.IS_DEBUGGABLE;
 import android.annotation.NonNull;
 import android.app.StatsManager;
 import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
 import android.telephony.SubscriptionManager;
 import android.telephony.TelephonyManager;
 import android.util.StatsEvent;
@@ -123,13 +125,16 @@ import com.android.internal.telephony.uicc.UiccSlot;
 import com.android.internal.util.ConcurrentUtils;
 import com.android.telephony.Rlog;
 
+import java.io.PrintWriter;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Implements statsd pullers for Telephony.
@@ -164,6 +169,17 @@ public class MetricsCollector implements StatsManager.StatsPullAtomCallback {
      */
     private static final long MIN_CALLS_PER_BUCKET = DBG ? 0L : 5L;
 
+    /** Number of threads used to serve concurrent atom pulls. */
+    private static final int PULL_THREAD_POOL_SIZE = 2;
+
+    /**
+     * Executor running the pull callbacks. Pulls for independent atoms run concurrently instead of
+     * occupying the binder threads of the phone process. Shared by all instances, so the threads
+     * live as long as the process and never need to be shut down.
+     */
+    private static final Executor sPullExecutor = ConcurrentUtils.newFixedThreadPool(
+            PULL_THREAD_POOL_SIZE, "TelephonyMetricsPull", Process.THREAD_PRIORITY_BACKGROUND);
+
     /** Bucket size in milliseconds to round call durations info. */
     private static final long DURATION_BUCKET_MILLIS =
             DBG ? 2L * MILLIS_PER_SECOND : 5L * MILLIS_PER_MINUTE;
@@ -190,11 +206,46 @@ public class MetricsCollector implements StatsManager.StatsPullAtomCallback {
     private final AirplaneModeStats mAirplaneModeStats;
     private final DefaultNetworkMonitor mDefaultNetworkMonitor;
     private final Set<DataCallSessionStats> mOngoingDataCallStats = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, AtomPullStats> mPullStats = new ConcurrentHashMap<>();
+
+    /** Duration and size statistics of the pulls of one atom. */
+    private static class AtomPullStats {
+        private long mPullCount;
+        private long mSkipCount;
+        private long mTotalDurationNanos;
+        private long mMaxDurationNanos;
+        private int mLastSize;
+        private int mMaxSize;
+
+        synchronized void onPulled(long durationNanos, int size, int result) {
+            mPullCount++;
+            if (result != StatsManager.PULL_SUCCESS) mSkipCount++;
+            mTotalDurationNanos += durationNanos;
+            mMaxDurationNanos = Math.max(mMaxDurationNanos, durationNanos);
+            mLastSize = size;
+            mMaxSize = Math.max(mMaxSize, size);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return mPullCount + ", " + mSkipCount + ", "
+                    + (mPullCount == 0 ? 0 : mTotalDurationNanos / mPullCount / 1000) + "/"
+                    + mMaxDurationNanos / 1000 + ", " + mLastSize + "/" + mMaxSize;
+        }
+    }
     private static final Random sRandom = new Random();
 
     public MetricsCollector(Context context, @NonNull FeatureFlags featureFlags) {
-        this(context, new PersistAtomsStorage(context),
-                new DeviceStateHelper(context), new VonrHelper(featureFlags),
+        this(context, new PersistAtomsStorage(context), featureFlags);
+    }
+
+    /**
+     * @param storage The persisted atoms storage, which can be loaded from file in background
+     * before the collector is made.
+     */
+    public MetricsCollector(Context context, @NonNull PersistAtomsStorage storage,
+            @NonNull FeatureFlags featureFlags) {
+        this(context, storage, new DeviceStateHelper(context), new VonrHelper(featureFlags),
                 new DefaultNetworkMonitor(context, featureFlags), featureFlags);
     }
 
@@ -274,6 +325,15 @@ public class MetricsCollector implements StatsManager.StatsPullAtomCallback {
      */
     @Override
     public int onPullAtom(int atomTag, List<StatsEvent> data) {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        int sizeBefore = data.size();
+        int result = pullAtom(atomTag, data);
+        getPullStats(atomTag).onPulled(SystemClock.elapsedRealtimeNanos() - startNanos,
+                data.size() - sizeBefore, result);
+        return result;
+    }
+
+    private int pullAtom(int atomTag, List<StatsEvent> data) {
         switch (atomTag) {
             case CELLULAR_DATA_SERVICE_SWITCH:
                 return pullCellularDataServiceSwitch(data);
@@ -369,6 +429,24 @@ public class MetricsCollector implements StatsManager.StatsPullAtomCallback {
         }
     }
 
+    @NonNull
+    private AtomPullStats getPullStats(int atomTag) {
+        return mPullStats.computeIfAbsent(atomTag, tag -> new AtomPullStats());
+    }
+
+    /**
+     * Dump the per-atom pull statistics, to identify atoms that are expensive to pull.
+     *
+     * @param pw The print writer.
+     */
+    public void dump(@NonNull PrintWriter pw) {
+        pw.println("MetricsCollector pull stats (atom: pulls, skips, avg/max duration us, "
+                + "last/max size):");
+        mPullStats.entrySet().stream()
+                .sorted(Comparator.comparingInt(Map.Entry::getKey))
+                .forEach(entry -> pw.println("  " + entry.getKey() + ": " + entry.getValue()));
+    }
+
     /** Returns the {@link PersistAtomsStorage} backing the puller. */
     public PersistAtomsStorage getAtomsStorage() {
         return mStorage;
@@ -1110,7 +1188,7 @@ public class MetricsCollector implements StatsManager.StatsPullAtomCallback {
     /** Registers a pulled atom ID {@code atomId}. */
     private void registerAtom(int atomId) {
         mStatsManager.setPullAtomCallback(atomId, /* metadata= */ null,
-                ConcurrentUtils.DIRECT_EXECUTOR, this);
+                sPullExecutor, this);
     }
 
     private static StatsEvent buildStatsEvent(CellularDataServiceSwitch serviceSwitch) {
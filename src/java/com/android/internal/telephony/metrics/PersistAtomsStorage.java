@@ -27,6 +27,7 @@ import android.telephony.TelephonyManager;
 import android.telephony.TelephonyManager.NetworkTypeBitMask;
 import android.util.SparseIntArray;
 
+import com.android.internal.annotations.GuardedBy;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.os.BackgroundThread;
 import com.android.internal.telephony.nano.PersistAtomsProto.CarrierIdMismatch;
@@ -197,6 +198,18 @@ public class PersistAtomsStorage {
 
     private final Context mContext;
     private final Handler mHandler;
+
+    /** Lock serializing writes of atom snapshots to the file. */
+    private final Object mFileLock = new Object();
+
+    /** Sequence number of the last serialized snapshot. */
+    @GuardedBy("this")
+    private long mSnapshotSequence;
+
+    /** Sequence number of the last snapshot written to the file. */
+    @GuardedBy("mFileLock")
+    private long mWrittenSnapshotSequence;
+
     private static final SecureRandom sRandom = new SecureRandom();
 
     private Runnable mSaveRunnable =
@@ -1040,17 +1053,26 @@ public class PersistAtomsStorage {
      * ago, otherwise returns {@code null}.
      */
     @Nullable
-    public synchronized DataCallSession[] getDataCallSessions(long minIntervalMillis) {
+    public DataCallSession[] getDataCallSessions(long minIntervalMillis) {
+        DataCallSession[] previousDataCallSession = takeDataCallSessions(minIntervalMillis);
+        if (previousDataCallSession == null) return null;
+        // The sessions are detached from the storage at this point, so they can be post-processed
+        // without holding the storage lock.
+        for (DataCallSession dataCallSession : previousDataCallSession) {
+            // sort to de-correlate any potential pattern for UII concern
+            sortBaseOnArray(dataCallSession.handoverFailureCauses,
+                    dataCallSession.handoverFailureRat);
+        }
+        return previousDataCallSession;
+    }
+
+    @Nullable
+    private synchronized DataCallSession[] takeDataCallSessions(long minIntervalMillis) {
         if (getWallTimeMillis() - mAtoms.dataCallSessionPullTimestampMillis > minIntervalMillis) {
             mAtoms.dataCallSessionPullTimestampMillis = getWallTimeMillis();
             DataCallSession[] previousDataCallSession = mAtoms.dataCallSession;
             mAtoms.dataCallSession = new DataCallSession[0];
             saveAtomsToFile(SAVE_TO_FILE_DELAY_FOR_GET_MILLIS);
-            for (DataCallSession dataCallSession : previousDataCallSession) {
-                // sort to de-correlate any potential pattern for UII concern
-                sortBaseOnArray(dataCallSession.handoverFailureCauses,
-                        dataCallSession.handoverFailureRat);
-            }
             return previousDataCallSession;
         } else {
             return null;
@@ -1063,7 +1085,7 @@ public class PersistAtomsStorage {
      * @param primary The primary array to be sorted.
      * @param other The other array to be sorted in the order of primary array.
      */
-    private void sortBaseOnArray(int[] primary, int[] other) {
+    private static void sortBaseOnArray(int[] primary, int[] other) {
         if (other.length != primary.length) return;
         int[] index = IntStream.range(0, primary.length).boxed()
                 .sorted(Comparator.comparingInt(i -> primary[i]))
@@ -2066,11 +2088,25 @@ public class PersistAtomsStorage {
     }
 
     /** Saves a copy of {@link PersistAtoms} to a file in private storage. */
-    private synchronized void saveAtomsToFileNow() {
-        try (FileOutputStream stream = mContext.openFileOutput(FILENAME, Context.MODE_PRIVATE)) {
-            stream.write(PersistAtoms.toByteArray(mAtoms));
-        } catch (IOException e) {
-            Rlog.e(TAG, "cannot save PersistAtoms", e);
+    private void saveAtomsToFileNow() {
+        // Only serialization needs the storage lock. The file write happens on an immutable
+        // snapshot so that pulls and updates are not blocked by disk I/O.
+        byte[] snapshot;
+        long sequence;
+        synchronized (this) {
+            snapshot = PersistAtoms.toByteArray(mAtoms);
+            sequence = ++mSnapshotSequence;
+        }
+        synchronized (mFileLock) {
+            // A newer snapshot may have been written by another thread in the meantime.
+            if (sequence <= mWrittenSnapshotSequence) return;
+            try (FileOutputStream stream =
+                    mContext.openFileOutput(FILENAME, Context.MODE_PRIVATE)) {
+                stream.write(snapshot);
+                mWrittenSnapshotSequence = sequence;
+            } catch (IOException e) {
+                Rlog.e(TAG, "cannot save PersistAtoms", e);
+            }
         }
     }
 
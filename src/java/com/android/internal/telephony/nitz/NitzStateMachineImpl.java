@@ -152,7 +152,7 @@ public final class NitzStateMachineImpl implements NitzStateMachine {
 
         int slotIndex = phone.getPhoneId();
         DeviceState deviceState = new DeviceStateImpl(phone);
-        TimeZoneLookupHelper timeZoneLookupHelper = new TimeZoneLookupHelper();
+        TimeZoneLookupHelper timeZoneLookupHelper = TimeZoneLookupHelper.getInstance();
         TimeZoneSuggester timeZoneSuggester = new TimeZoneSuggesterImpl(deviceState,
                 timeZoneLookupHelper);
         TimeServiceHelper newTimeServiceHelper = new TimeServiceHelperImpl(phone);
@@ -506,6 +506,7 @@ public final class NitzStateMachineImpl implements NitzStateMachine {
             pw.println(" NitzStateMachineImpl.mMobileCountries=" + mMobileCountries);
         }
         mTimeServiceHelper.dumpState(pw);
+        TimeZoneLookupHelper.getInstance().dump(pw);
         pw.flush();
     }
 
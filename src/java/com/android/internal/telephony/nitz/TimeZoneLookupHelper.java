@@ -24,28 +24,108 @@ import android.annotation.IntDef;
 import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.icu.util.TimeZone;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.timezone.CountryTimeZones;
 import android.timezone.CountryTimeZones.OffsetResult;
 import android.timezone.CountryTimeZones.TimeZoneMapping;
 import android.timezone.MobileCountries;
 import android.timezone.TimeZoneFinder;
+import android.util.LruCache;
 
+import com.android.internal.annotations.GuardedBy;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.NitzData;
 
+import java.io.PrintWriter;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An interface to various time zone lookup behaviors.
+ *
+ * <p>Lookup results are memoized, so the same NITZ signal or country information received again
+ * (e.g. on border cells, or by several SIMs) does not search the time zone data again. The cache
+ * is cleared when the time zone data version changes.
  */
 @VisibleForTesting
 public final class TimeZoneLookupHelper {
 
+    /** The maximum number of memoized lookup results. */
+    private static final int MAX_CACHED_RESULTS = 64;
+
+    /** The minimum interval between two checks of the time zone data version. */
+    private static final long TZ_DATA_VERSION_CHECK_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Stored in the cache for lookups without a result, as the cache can't hold null. */
+    private static final Object NO_RESULT = new Object();
+
+    private static final int LOOKUP_NITZ = 1;
+    private static final int LOOKUP_NITZ_COUNTRY = 2;
+    private static final int LOOKUP_NITZ_MOBILE_COUNTRIES = 3;
+    private static final int LOOKUP_COUNTRY = 4;
+    private static final int LOOKUP_MOBILE_COUNTRIES = 5;
+
+    /** The instance shared by the NITZ state machines of all the phones. */
+    private static TimeZoneLookupHelper sInstance;
+
+    /** The key of a memoized lookup result. */
+    private static final class LookupKey {
+        private final int mLookupType;
+        @NonNull
+        private final Set<String> mCountryIsoCodes;
+        @Nullable
+        private final String mDefaultCountryIsoCode;
+        private final int mUtcOffsetMillis;
+        @Nullable
+        private final Boolean mIsDst;
+        private final long mWhenMillis;
+        @Nullable
+        private final String mBiasZoneId;
+
+        LookupKey(int lookupType, @NonNull Set<String> countryIsoCodes,
+                @Nullable String defaultCountryIsoCode, int utcOffsetMillis,
+                @Nullable Boolean isDst, long whenMillis, @Nullable String biasZoneId) {
+            mLookupType = lookupType;
+            mCountryIsoCodes = countryIsoCodes;
+            mDefaultCountryIsoCode = defaultCountryIsoCode;
+            mUtcOffsetMillis = utcOffsetMillis;
+            mIsDst = isDst;
+            mWhenMillis = whenMillis;
+            mBiasZoneId = biasZoneId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            LookupKey that = (LookupKey) o;
+            return mLookupType == that.mLookupType
+                    && mUtcOffsetMillis == that.mUtcOffsetMillis
+                    && mWhenMillis == that.mWhenMillis
+                    && mCountryIsoCodes.equals(that.mCountryIsoCodes)
+                    && Objects.equals(mDefaultCountryIsoCode, that.mDefaultCountryIsoCode)
+                    && Objects.equals(mIsDst, that.mIsDst)
+                    && Objects.equals(mBiasZoneId, that.mBiasZoneId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mLookupType, mCountryIsoCodes, mDefaultCountryIsoCode,
+                    mUtcOffsetMillis, mIsDst, mWhenMillis, mBiasZoneId);
+        }
+    }
+
     /**
      * The result of looking up a time zone using country information.
      */
@@ -130,11 +210,36 @@ public final class TimeZoneLookupHelper {
     }
 
     /** The last CountryTimeZones object retrieved. */
+    @GuardedBy("this")
     @Nullable
     private CountryTimeZones mLastCountryTimeZones;
 
+    /** The memoized lookup results. */
+    private final LruCache<LookupKey, Object> mResultCache = new LruCache<>(MAX_CACHED_RESULTS);
+
+    /** The version of the time zone data the cached results are computed with. */
+    @GuardedBy("this")
+    @Nullable
+    private String mIanaVersion;
+
+    /** The last time the time zone data version was checked, in elapsed realtime. */
+    @GuardedBy("this")
+    private long mLastIanaVersionCheckMillis;
+
     @VisibleForTesting
-    public TimeZoneLookupHelper() {}
+    public TimeZoneLookupHelper() {
+        mIanaVersion = TimeZoneFinder.getInstance().getIanaVersion();
+        mLastIanaVersionCheckMillis = SystemClock.elapsedRealtime();
+    }
+
+    /** Returns the instance shared by all phones. */
+    @NonNull
+    public static synchronized TimeZoneLookupHelper getInstance() {
+        if (sInstance == null) {
+            sInstance = new TimeZoneLookupHelper();
+        }
+        return sInstance;
+    }
 
     /**
      * Looks for a time zone for the supplied NITZ and country information.
@@ -148,6 +253,19 @@ public final class TimeZoneLookupHelper {
     @Nullable
     public OffsetResult lookupByNitzCountry(
             @NonNull NitzData nitzData, @NonNull String countryIsoCode) {
+        LookupKey key = createNitzLookupKey(LOOKUP_NITZ_COUNTRY, nitzData,
+                Collections.singleton(countryIsoCode), countryIsoCode,
+                TimeZone.getDefault().getID());
+        Object cached = getCachedResult(key);
+        if (cached != null) {
+            return cached == NO_RESULT ? null : (OffsetResult) cached;
+        }
+        return putCachedResult(key, lookupByNitzCountryUncached(nitzData, countryIsoCode));
+    }
+
+    @Nullable
+    private OffsetResult lookupByNitzCountryUncached(
+            @NonNull NitzData nitzData, @NonNull String countryIsoCode) {
         CountryTimeZones countryTimeZones = getCountryTimeZones(countryIsoCode);
         if (countryTimeZones == null) {
             return null;
@@ -183,6 +301,17 @@ public final class TimeZoneLookupHelper {
     @VisibleForTesting
     @Nullable
     public OffsetResult lookupByNitz(@NonNull NitzData nitzData) {
+        LookupKey key = createNitzLookupKey(LOOKUP_NITZ, nitzData, Collections.emptySet(),
+                null /* defaultCountryIsoCode */, null /* biasZoneId */);
+        Object cached = getCachedResult(key);
+        if (cached != null) {
+            return cached == NO_RESULT ? null : (OffsetResult) cached;
+        }
+        return putCachedResult(key, lookupByNitzUncached(nitzData));
+    }
+
+    @Nullable
+    private OffsetResult lookupByNitzUncached(@NonNull NitzData nitzData) {
         int utcOffsetMillis = nitzData.getLocalOffsetMillis();
         long timeMillis = nitzData.getCurrentTimeInMillis();
 
@@ -217,9 +346,24 @@ public final class TimeZoneLookupHelper {
     @Nullable
     public OffsetResult lookupByNitzMobileCountries(
             @NonNull NitzData nitzData, @NonNull MobileCountries mobileCountries) {
+        LookupKey key = createNitzLookupKey(LOOKUP_NITZ_MOBILE_COUNTRIES, nitzData,
+                mobileCountries.getCountryIsoCodes(), mobileCountries.getDefaultCountryIsoCode(),
+                TimeZone.getDefault().getID());
+        Object cached = getCachedResult(key);
+        if (cached != null) {
+            return cached == NO_RESULT ? null : (OffsetResult) cached;
+        }
+        return putCachedResult(key, lookupByNitzMobileCountriesUncached(nitzData,
+                mobileCountries));
+    }
+
+    @Nullable
+    private OffsetResult lookupByNitzMobileCountriesUncached(
+            @NonNull NitzData nitzData, @NonNull MobileCountries mobileCountries) {
         List<OffsetResult> validResults =
                 mobileCountries.getCountryIsoCodes().stream()
-                        .map(countryIsoCode -> lookupByNitzCountry(nitzData, countryIsoCode))
+                        .map(countryIsoCode ->
+                                lookupByNitzCountryUncached(nitzData, countryIsoCode))
                         .filter(Objects::nonNull)
                         .distinct()
                         .collect(toList());
@@ -241,7 +385,8 @@ public final class TimeZoneLookupHelper {
             // MobileCountries#getCountryIsoCodes contains the default country ISO code. If all
             // countries in `mobileCountries` share the same offset, then we set the time
             // zone to the default country.
-            return lookupByNitzCountry(nitzData, mobileCountries.getDefaultCountryIsoCode());
+            return lookupByNitzCountryUncached(nitzData,
+                    mobileCountries.getDefaultCountryIsoCode());
         }
 
         // could not infer the time zone based on NitzData
@@ -259,6 +404,19 @@ public final class TimeZoneLookupHelper {
     @Nullable
     public CountryResult lookupByMobileCountries(@NonNull MobileCountries mobileCountries,
             long whenMillis) {
+        LookupKey key = new LookupKey(LOOKUP_MOBILE_COUNTRIES,
+                mobileCountries.getCountryIsoCodes(), mobileCountries.getDefaultCountryIsoCode(),
+                0 /* utcOffsetMillis */, null /* isDst */, whenMillis, null /* biasZoneId */);
+        Object cached = getCachedResult(key);
+        if (cached != null) {
+            return cached == NO_RESULT ? null : (CountryResult) cached;
+        }
+        return putCachedResult(key, lookupByMobileCountriesUncached(mobileCountries, whenMillis));
+    }
+
+    @Nullable
+    private CountryResult lookupByMobileCountriesUncached(
+            @NonNull MobileCountries mobileCountries, long whenMillis) {
         List<CountryResult> validResults =
                 mobileCountries.getCountryIsoCodes().stream()
                         .map(countryIsoCode -> lookupByCountry(countryIsoCode, whenMillis))
@@ -301,7 +459,14 @@ public final class TimeZoneLookupHelper {
     @VisibleForTesting
     @Nullable
     public CountryResult lookupByCountry(@NonNull String countryIsoCode, long whenMillis) {
-        return lookupByCountry(countryIsoCode, whenMillis, null);
+        LookupKey key = new LookupKey(LOOKUP_COUNTRY, Collections.singleton(countryIsoCode),
+                countryIsoCode, 0 /* utcOffsetMillis */, null /* isDst */, whenMillis,
+                null /* biasZoneId */);
+        Object cached = getCachedResult(key);
+        if (cached != null) {
+            return cached == NO_RESULT ? null : (CountryResult) cached;
+        }
+        return putCachedResult(key, lookupByCountry(countryIsoCode, whenMillis, null));
     }
 
     @Nullable
@@ -452,4 +617,81 @@ public final class TimeZoneLookupHelper {
             return countryTimeZones;
         }
     }
+
+    @NonNull
+    private static LookupKey createNitzLookupKey(int lookupType, @NonNull NitzData nitzData,
+            @NonNull Set<String> countryIsoCodes, @Nullable String defaultCountryIsoCode,
+            @Nullable String biasZoneId) {
+        // As for the lookups themselves, only whether the carrier suggests DST matters.
+        Integer dstAdjustmentMillis = nitzData.getDstAdjustmentMillis();
+        Boolean isDst = dstAdjustmentMillis == null ? null : dstAdjustmentMillis != 0;
+        return new LookupKey(lookupType, countryIsoCodes, defaultCountryIsoCode,
+                nitzData.getLocalOffsetMillis(), isDst, nitzData.getCurrentTimeInMillis(),
+                biasZoneId);
+    }
+
+    /**
+     * Returns the memoized result for the key, {@link #NO_RESULT} if the lookup was memoized
+     * without a result, or {@code null} if the lookup must be done.
+     */
+    @Nullable
+    private Object getCachedResult(@NonNull LookupKey key) {
+        invalidateCacheIfTimeZoneDataChanged();
+        return mResultCache.get(key);
+    }
+
+    /**
+     * Clears the cache if the time zone data version changed. The version is checked at most once
+     * every {@link #TZ_DATA_VERSION_CHECK_INTERVAL_MILLIS}, so lookups don't pay for it.
+     */
+    private synchronized void invalidateCacheIfTimeZoneDataChanged() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - mLastIanaVersionCheckMillis < TZ_DATA_VERSION_CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        mLastIanaVersionCheckMillis = now;
+        String ianaVersion = TimeZoneFinder.getInstance().getIanaVersion();
+        if (!Objects.equals(ianaVersion, mIanaVersion)) {
+            mIanaVersion = ianaVersion;
+            clearCacheLocked();
+        }
+    }
+
+    @Nullable
+    private <T> T putCachedResult(@NonNull LookupKey key, @Nullable T result) {
+        mResultCache.put(key, result != null ? result : NO_RESULT);
+        return result;
+    }
+
+    /** Clears all the memoized lookup results. */
+    public synchronized void clearCache() {
+        clearCacheLocked();
+    }
+
+    @GuardedBy("this")
+    private void clearCacheLocked() {
+        mResultCache.evictAll();
+        mLastCountryTimeZones = null;
+    }
+
+    /** Returns the number of lookups answered from the cache. */
+    @VisibleForTesting
+    public int getCacheHitCount() {
+        return mResultCache.hitCount();
+    }
+
+    /** Returns the number of lookups that searched the time zone data. */
+    @VisibleForTesting
+    public int getCacheMissCount() {
+        return mResultCache.missCount();
+    }
+
+    /** Dumps the state of the lookup cache. */
+    public synchronized void dump(@NonNull PrintWriter pw) {
+        pw.println(" TimeZoneLookupHelper: ianaVersion=" + mIanaVersion
+                + ", cacheSize=" + mResultCache.size()
+                + ", hits=" + mResultCache.hitCount()
+                + ", misses=" + mResultCache.missCount()
+                + ", evictions=" + mResultCache.evictionCount());
+    }
 }
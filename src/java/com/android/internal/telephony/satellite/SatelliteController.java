@@ -40,10 +40,7 @@ import static android.telephony.CarrierConfigManager.KEY_SATELLITE_DISPLAY_NAME_
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ENTITLEMENT_SUPPORTED_BOOL;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ESOS_SUPPORTED_BOOL;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_NIDD_APN_NAME_STRING;
-import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ROAMING_ESOS_INACTIVITY_TIMEOUT_SEC_INT;
-import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ROAMING_P2P_SMS_INACTIVITY_TIMEOUT_SEC_INT;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ROAMING_P2P_SMS_SUPPORTED_BOOL;
-import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ROAMING_SCREEN_OFF_INACTIVITY_TIMEOUT_SEC_INT;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_ROAMING_TURN_OFF_SESSION_FOR_EMERGENCY_CALL_BOOL;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_SOS_MAX_DATAGRAM_SIZE_BYTES_INT;
 import static android.telephony.CarrierConfigManager.KEY_SATELLITE_SUPPORTED_MSG_APPS_STRING_ARRAY;
@@ -162,6 +159,7 @@ import com.android.internal.R;
 import com.android.internal.annotations.GuardedBy;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.os.SomeArgs;
+import com.android.internal.telephony.CarrierConfigCache;
 import com.android.internal.telephony.CommandsInterface;
 import com.android.internal.telephony.DeviceStateMonitor;
 import com.android.internal.telephony.IBooleanConsumer;
@@ -537,11 +535,6 @@ public class SatelliteController extends Handler {
     private final AtomicBoolean mRegisteredForSatelliteCommunicationAccessStateChanged =
         new AtomicBoolean(false);
 
-    /**
-     * Map key: subId, value: PersistableBundle
-     */
-    @NonNull private final ConcurrentHashMap<Integer, PersistableBundle> mCarrierConfigArray =
-            new ConcurrentHashMap<>();
     /**
      * Map key: subId, value: callback to get error code of the provision request.
      */
@@ -605,7 +598,7 @@ public class SatelliteController extends Handler {
             mSatModeCapabilitiesForCarrierRoaming = new ConcurrentHashMap<>();
 
     @NonNull private final List<String> mSatellitePlmnListFromOverlayConfig;
-    @NonNull private final CarrierConfigManager mCarrierConfigManager;
+    @NonNull private final CarrierConfigCache mCarrierConfigCache;
     @NonNull private final CarrierConfigManager.CarrierConfigChangeListener
             mCarrierConfigChangeListener;
     @NonNull private final ConfigProviderAdaptor.Callback mConfigDataUpdatedCallback;
@@ -1000,7 +993,7 @@ public class SatelliteController extends Handler {
         registerForSignalStrengthChanged();
         registerForSatelliteCommunicationAccessStateChanged();
         mContentResolver = mContext.getContentResolver();
-        mCarrierConfigManager = mContext.getSystemService(CarrierConfigManager.class);
+        mCarrierConfigCache = CarrierConfigCache.getInstance(mContext);
 
         mBTWifiNFCSateReceiver = new BTWifiNFCStateReceiver();
         mUwbAdapterStateCallback = new UwbAdapterStateCallback();
@@ -1036,10 +1029,8 @@ public class SatelliteController extends Handler {
             handleCarrierConfigChanged(slotIndex, subId, carrierId, specificCarrierId);
         };
 
-        if (mCarrierConfigManager != null) {
-            mCarrierConfigManager.registerCarrierConfigChangeListener(
-                    new HandlerExecutor(new Handler(looper)), mCarrierConfigChangeListener);
-        }
+        mCarrierConfigCache.registerCarrierConfigChangeListener(
+                new HandlerExecutor(new Handler(looper)), mCarrierConfigChangeListener);
 
         mConfigDataUpdatedCallback = new ConfigProviderAdaptor.Callback() {
             @Override
@@ -6232,40 +6223,8 @@ public class SatelliteController extends Handler {
     }
 
     @NonNull private PersistableBundle getConfigForSubId(int subId) {
-        PersistableBundle config = null;
-        if (mCarrierConfigManager != null) {
-            try {
-                config = mCarrierConfigManager.getConfigForSubId(subId,
-                        KEY_CARRIER_SUPPORTED_SATELLITE_SERVICES_PER_PROVIDER_BUNDLE,
-                        KEY_SATELLITE_ATTACH_SUPPORTED_BOOL,
-                        KEY_SATELLITE_DISPLAY_NAME_STRING,
-                        KEY_SATELLITE_ROAMING_TURN_OFF_SESSION_FOR_EMERGENCY_CALL_BOOL,
-                        KEY_SATELLITE_CONNECTION_HYSTERESIS_SEC_INT,
-                        KEY_SATELLITE_ENTITLEMENT_SUPPORTED_BOOL,
-                        KEY_CARRIER_ROAMING_SATELLITE_DEFAULT_SERVICES_INT_ARRAY,
-                        KEY_EMERGENCY_MESSAGING_SUPPORTED_BOOL,
-                        KEY_EMERGENCY_CALL_TO_SATELLITE_T911_HANDOVER_TIMEOUT_MILLIS_INT,
-                        KEY_SATELLITE_ESOS_SUPPORTED_BOOL,
-                        KEY_SATELLITE_ROAMING_P2P_SMS_SUPPORTED_BOOL,
-                        KEY_SATELLITE_NIDD_APN_NAME_STRING,
-                        KEY_CARRIER_ROAMING_NTN_CONNECT_TYPE_INT,
-                        KEY_CARRIER_SUPPORTED_SATELLITE_NOTIFICATION_HYSTERESIS_SEC_INT,
-                        KEY_CARRIER_ROAMING_NTN_EMERGENCY_CALL_TO_SATELLITE_HANDOVER_TYPE_INT,
-                        KEY_SATELLITE_ROAMING_SCREEN_OFF_INACTIVITY_TIMEOUT_SEC_INT,
-                        KEY_SATELLITE_ROAMING_P2P_SMS_INACTIVITY_TIMEOUT_SEC_INT,
-                        KEY_SATELLITE_ROAMING_ESOS_INACTIVITY_TIMEOUT_SEC_INT,
-                        KEY_SATELLITE_SOS_MAX_DATAGRAM_SIZE_BYTES_INT,
-                        KEY_SATELLITE_SUPPORTED_MSG_APPS_STRING_ARRAY,
-                        KEY_REGIONAL_SATELLITE_EARFCN_BUNDLE,
-                        KEY_SATELLITE_DATA_SUPPORT_MODE_INT,
-                        KEY_SATELLITE_CONNECTED_NOTIFICATION_THROTTLE_MILLIS_INT,
-                        KEY_SATELLITE_CONFIGS_PER_PLMN_BUNDLE
-                );
-            } catch (Exception e) {
-                logw("getConfigForSubId: " + e);
-            }
-        }
-        if (config == null || config.isEmpty()) {
+        PersistableBundle config = mCarrierConfigCache.getConfigForSubId(subId);
+        if (config.isEmpty()) {
             config = CarrierConfigManager.getDefaultConfig();
         }
         return config;
@@ -6281,7 +6240,6 @@ public class SatelliteController extends Handler {
         }
 
         getSatelliteEnabledForCarrierAtModem(subId);
-        updateCarrierConfig(subId);
         updateSatelliteESOSSupported(subId);
         updateSatelliteProvisionedStatePerSubscriberId();
         updateEntitlementPlmnListPerCarrier(subId);
@@ -6315,11 +6273,6 @@ public class SatelliteController extends Handler {
                 SATELLITE_COMMUNICATION_RESTRICTION_REASON_USER, null);
     }
 
-    @VisibleForTesting(visibility = VisibleForTesting.Visibility.PRIVATE)
-    protected void updateCarrierConfig(int subId) {
-        mCarrierConfigArray.put(subId, getConfigForSubId(subId));
-    }
-
     /**
      * If there is no cached entitlement plmn list, read it from the db and use it if it is not an
      * empty list.
@@ -7871,17 +7824,13 @@ public class SatelliteController extends Handler {
      * Read carrier config items for satellite
      *
      * @param subId Associated subscription ID
-     * @return PersistableBundle including carrier config values
+     * @return PersistableBundle including carrier config values. The bundle is shared through
+     * {@link CarrierConfigCache} and must not be modified.
      */
     @VisibleForTesting(visibility = VisibleForTesting.Visibility.PACKAGE)
     @NonNull
     protected PersistableBundle getPersistableBundle(int subId) {
-        PersistableBundle config = mCarrierConfigArray.get(subId);
-        if (config == null) {
-            config = getConfigForSubId(subId);
-            mCarrierConfigArray.put(subId, config);
-        }
-        return config;
+        return getConfigForSubId(subId);
     }
 
     // Should be invoked only when session termination done or session termination failed.
@@ -8207,10 +8156,8 @@ public class SatelliteController extends Handler {
 
     // to check if the contents of carrier config is loaded properly
     private Boolean isCarrierConfigLoaded(int subId) {
-        PersistableBundle carrierConfig = mCarrierConfigManager
-                .getConfigForSubId(subId, KEY_CARRIER_CONFIG_APPLIED_BOOL);
-        return carrierConfig != null ? carrierConfig.getBoolean(
-                CarrierConfigManager.KEY_CARRIER_CONFIG_APPLIED_BOOL) : false;
+        return mCarrierConfigCache.getConfigForSubId(subId).getBoolean(
+                KEY_CARRIER_CONFIG_APPLIED_BOOL);
     }
 
     // The subscriberId for ntnOnly SIMs is the Iccid, whereas for ESOS supported SIMs, the
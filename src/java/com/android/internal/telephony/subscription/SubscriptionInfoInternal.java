@@ -73,6 +73,12 @@ import java.util.Objects;
  * are stored as integer, or string arrays are stored as a single comma separated string.
  */
 public class SubscriptionInfoInternal {
+    /** Remove the ICCID, card string and group UUID from the converted {@link SubscriptionInfo}. */
+    public static final int REDACT_IDENTIFIERS = 1 << 0;
+
+    /** Remove the phone number from the converted {@link SubscriptionInfo}. */
+    public static final int REDACT_PHONE_NUMBER = 1 << 1;
+
     /**
      * Subscription Identifier, this is a device unique number
      * and not an index into an array
@@ -534,6 +540,16 @@ public class SubscriptionInfoInternal {
      */
     @NonNull private final String mSatellitePlmnsVoiceServicePolicy;
 
+    /**
+     * The converted {@link SubscriptionInfo}, indexed by the combination of
+     * {@link #REDACT_IDENTIFIERS} and {@link #REDACT_PHONE_NUMBER}. Made on first use. Since both
+     * classes are immutable, the conversion can be shared by all the callers. A race only results
+     * in an identical conversion being made twice.
+     */
+    @NonNull
+    private final SubscriptionInfo[] mSubscriptionInfos =
+            new SubscriptionInfo[(REDACT_IDENTIFIERS | REDACT_PHONE_NUMBER) + 1];
+
     /**
      * Constructor from builder.
      *
@@ -1386,6 +1402,51 @@ public class SubscriptionInfoInternal {
     /** @return converted {@link SubscriptionInfo}. */
     @NonNull
     public SubscriptionInfo toSubscriptionInfo() {
+        return toSubscriptionInfo(0);
+    }
+
+    /**
+     * Get the converted {@link SubscriptionInfo} with the fields the caller has no access to
+     * removed.
+     *
+     * @param redaction The fields to remove. The combination of {@link #REDACT_IDENTIFIERS} and
+     * {@link #REDACT_PHONE_NUMBER}.
+     * @return converted {@link SubscriptionInfo}.
+     */
+    @NonNull
+    public SubscriptionInfo toSubscriptionInfo(int redaction) {
+        SubscriptionInfo subInfo = mSubscriptionInfos[redaction];
+        if (subInfo == null) {
+            subInfo = redaction == 0 ? buildSubscriptionInfo()
+                    : redact(toSubscriptionInfo(0), redaction);
+            mSubscriptionInfos[redaction] = subInfo;
+        }
+        return subInfo;
+    }
+
+    /**
+     * Remove fields from the subscription info.
+     *
+     * @param subInfo The subscription info.
+     * @param redaction The fields to remove.
+     * @return The redacted subscription info.
+     */
+    @NonNull
+    static SubscriptionInfo redact(@NonNull SubscriptionInfo subInfo, int redaction) {
+        SubscriptionInfo.Builder result = new SubscriptionInfo.Builder(subInfo);
+        if ((redaction & REDACT_IDENTIFIERS) != 0) {
+            result.setIccId(null);
+            result.setCardString(null);
+            result.setGroupUuid(null);
+        }
+        if ((redaction & REDACT_PHONE_NUMBER) != 0) {
+            result.setNumber(null);
+        }
+        return result.build();
+    }
+
+    @NonNull
+    private SubscriptionInfo buildSubscriptionInfo() {
         return new SubscriptionInfo.Builder()
                 .setId(mId)
                 .setIccId(mIccId)
@@ -846,27 +846,52 @@ public class SubscriptionManagerService extends ISub.Stub {
     private SubscriptionInfo conditionallyRemoveIdentifiers(@NonNull SubscriptionInfo subInfo,
             @NonNull String callingPackage, @Nullable String callingFeatureId,
             @Nullable String message) {
-        int subId = subInfo.getSubscriptionId();
-        boolean hasIdentifierAccess = hasSubscriberIdentifierAccess(subId, callingPackage,
-                callingFeatureId, message, true);
-        boolean hasPhoneNumberAccess = hasPhoneNumberAccess(subId, callingPackage,
+        int redaction = getRedaction(subInfo.getSubscriptionId(), callingPackage,
                 callingFeatureId, message);
+        return redaction == 0 ? subInfo : SubscriptionInfoInternal.redact(subInfo, redaction);
+    }
 
-        if (hasIdentifierAccess && hasPhoneNumberAccess) {
-            return subInfo;
-        }
+    /**
+     * Same as {@link #conditionallyRemoveIdentifiers(SubscriptionInfo, String, String, String)},
+     * but uses the conversions cached in {@link SubscriptionInfoInternal}.
+     *
+     * @param subInfo The subscription info.
+     * @param callingPackage The package making the call.
+     * @param callingFeatureId The feature in the package.
+     * @param message Message to include in the exception or NoteOp.
+     *
+     * @return The {@link SubscriptionInfo} depending on caller's permission.
+     */
+    @NonNull
+    private SubscriptionInfo conditionallyRemoveIdentifiers(
+            @NonNull SubscriptionInfoInternal subInfo, @NonNull String callingPackage,
+            @Nullable String callingFeatureId, @Nullable String message) {
+        return subInfo.toSubscriptionInfo(getRedaction(subInfo.getSubscriptionId(),
+                callingPackage, callingFeatureId, message));
+    }
 
-        SubscriptionInfo.Builder result = new SubscriptionInfo.Builder(subInfo);
-        if (!hasIdentifierAccess) {
-            result.setIccId(null);
-            result.setCardString(null);
-            result.setGroupUuid(null);
+    /**
+     * Get the fields to remove from {@link SubscriptionInfo} depending on caller's permission.
+     *
+     * @param subId The subscription id.
+     * @param callingPackage The package making the call.
+     * @param callingFeatureId The feature in the package.
+     * @param message Message to include in the exception or NoteOp.
+     *
+     * @return The combination of {@link SubscriptionInfoInternal#REDACT_IDENTIFIERS} and
+     * {@link SubscriptionInfoInternal#REDACT_PHONE_NUMBER}.
+     */
+    private int getRedaction(int subId, @NonNull String callingPackage,
+            @Nullable String callingFeatureId, @Nullable String message) {
+        int redaction = 0;
+        if (!hasSubscriberIdentifierAccess(subId, callingPackage, callingFeatureId, message,
+                true)) {
+            redaction |= SubscriptionInfoInternal.REDACT_IDENTIFIERS;
         }
-
-        if (!hasPhoneNumberAccess) {
-            result.setNumber(null);
+        if (!hasPhoneNumberAccess(subId, callingPackage, callingFeatureId, message)) {
+            redaction |= SubscriptionInfoInternal.REDACT_PHONE_NUMBER;
         }
-        return result.build();
+        return redaction;
     }
 
     /**
@@ -1959,7 +1984,7 @@ public class SubscriptionManagerService extends ISub.Stub {
                 // Remove the identifier if the caller does not have sufficient permission.
                 // carrier apps will get full subscription info on the subscriptions associated
                 // to them.
-                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo.toSubscriptionInfo(),
+                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo,
                         callingPackage, callingFeatureId, "getAllSubInfoList"))
                 .sorted(Comparator.comparing(SubscriptionInfo::getSimSlotIndex)
                         .thenComparing(SubscriptionInfo::getSubscriptionId))
@@ -2000,7 +2025,7 @@ public class SubscriptionManagerService extends ISub.Stub {
         SubscriptionInfoInternal subInfo = mSubscriptionDatabaseManager
                 .getSubscriptionInfoInternal(subId);
         if (subInfo != null && subInfo.isActive()) {
-            return conditionallyRemoveIdentifiers(subInfo.toSubscriptionInfo(), callingPackage,
+            return conditionallyRemoveIdentifiers(subInfo, callingPackage,
                     callingFeatureId, "getActiveSubscriptionInfo");
         }
         return null;
@@ -2085,7 +2110,7 @@ public class SubscriptionManagerService extends ISub.Stub {
         SubscriptionInfoInternal subInfo = mSubscriptionDatabaseManager
                 .getSubscriptionInfoInternal(subId);
         if (subInfo != null && subInfo.isActive()) {
-            return conditionallyRemoveIdentifiers(subInfo.toSubscriptionInfo(), callingPackage,
+            return conditionallyRemoveIdentifiers(subInfo, callingPackage,
                     callingFeatureId, "getActiveSubscriptionInfoForSimSlotIndex");
         }
 
@@ -2142,7 +2167,7 @@ public class SubscriptionManagerService extends ISub.Stub {
                 // Remove the identifier if the caller does not have sufficient permission.
                 // carrier apps will get full subscription info on the subscriptions associated
                 // to them.
-                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo.toSubscriptionInfo(),
+                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo,
                         callingPackage, callingFeatureId, "getActiveSubscriptionInfoList"))
                 .sorted(Comparator.comparing(SubscriptionInfo::getSimSlotIndex)
                         .thenComparing(SubscriptionInfo::getSubscriptionId))
@@ -2841,7 +2866,7 @@ public class SubscriptionManagerService extends ISub.Stub {
                 // Remove the identifier if the caller does not have sufficient permission.
                 // carrier apps will get full subscription info on the subscriptions associated
                 // to them.
-                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo.toSubscriptionInfo(),
+                .map(subInfo -> conditionallyRemoveIdentifiers(subInfo,
                         callingPackage, callingFeatureId, "getOpportunisticSubscriptions"))
                 .sorted(Comparator.comparing(SubscriptionInfo::getSimSlotIndex)
                         .thenComparing(SubscriptionInfo::getSubscriptionId))
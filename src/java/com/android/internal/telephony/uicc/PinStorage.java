@@ -51,6 +51,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.PersistableBundle;
+import android.os.SystemClock;
 import android.os.WorkSource;
 import android.provider.Settings;
 import android.security.keystore.KeyGenParameterSpec;
@@ -59,6 +60,7 @@ import android.telephony.TelephonyManager;
 import android.telephony.TelephonyManager.SimState;
 import android.util.Base64;
 import android.util.IndentingPrintWriter;
+import android.util.LocalLog;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -79,6 +81,7 @@ import com.android.telephony.Rlog;
 
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.security.GeneralSecurityException;
 import java.security.KeyStore;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -164,6 +167,47 @@ public class PinStorage extends Handler {
     /** RAM storage is used on secure devices before the device is unlocked. */
     private final SparseArray<byte[]> mRamStorage;
 
+    /** The operations on multiple slots in progress, or null if there is none. */
+    @Nullable
+    private Batch mBatch;
+
+    /** Log of the duration of the operations on multiple slots. */
+    private final LocalLog mBatchLog = new LocalLog(16);
+
+    /**
+     * Operations on the PINs of multiple slots.
+     *
+     * The {@link Cipher} instances are created once and initialized again for each slot, and all
+     * the changes to disk are committed with a single {@link SharedPreferences.Editor}. The time
+     * spent in each phase is logged when the batch is finished.
+     */
+    private static class Batch {
+        final String mName;
+        final long mStartNanos = SystemClock.elapsedRealtimeNanos();
+        @Nullable Cipher mEncryptCipher;
+        @Nullable Cipher mDecryptCipher;
+        @Nullable SharedPreferences.Editor mEditor;
+        /** Whether all the changes added to {@link #mEditor} were successfully prepared. */
+        boolean mResult = true;
+        int mLoadCount;
+        int mSaveCount;
+        long mLoadNanos;
+        long mSaveNanos;
+        long mCommitNanos;
+
+        Batch(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: loaded=%d saved=%d load=%dus save=%dus commit=%dus total=%dus", mName,
+                    mLoadCount, mSaveCount, mLoadNanos / 1000, mSaveNanos / 1000,
+                    mCommitNanos / 1000, (SystemClock.elapsedRealtimeNanos() - mStartNanos) / 1000);
+        }
+    }
+
     /** Receiver for the required intents. */
     private final BroadcastReceiver mBroadcastReceiver = new BroadcastReceiver() {
         @Override
@@ -320,6 +364,7 @@ public class PinStorage extends Handler {
         }
 
         int numSlots = getSlotCount();
+        startBatch("prepareUnattendedReboot");
         SparseArray<StoredPin> storedPins = loadPinInformation();
 
         // Delete any previous short-term key, if present: a new one is created (if needed).
@@ -356,6 +401,13 @@ public class PinStorage extends Handler {
             }
         }
 
+        // Save number of PINs to generate metrics after reboot
+        saveNumberOfCachedPins(storedCount);
+
+        if (!finishBatch()) {
+            result = TelephonyManager.PREPARE_UNATTENDED_REBOOT_ERROR;
+        }
+
         // Generate metrics
         String callingPackage = workSource == null || workSource.size() == 0
                                     ? "" : workSource.getPackageName(0);
@@ -371,9 +423,6 @@ public class PinStorage extends Handler {
                     callingPackage);
         }
 
-        // Save number of PINs to generate metrics after reboot
-        saveNumberOfCachedPins(storedCount);
-
         return result;
     }
 
@@ -408,9 +457,11 @@ public class PinStorage extends Handler {
                 initializeSecretKey(KEYSTORE_ALIAS_LONG_TERM_USER_AUTH, /*createIfAbsent=*/ true);
 
         // Save the PINs previously in RAM to disk, overwriting any PIN that might already exists.
+        startBatch("onUserUnlocked");
         for (int i = 0; i < storedPinInRam.size(); i++) {
             savePinInformation(storedPinInRam.keyAt(i), storedPinInRam.valueAt(i));
         }
+        finishBatch();
 
         // At this point the module is fully initialized. Execute the start logic.
         onDeviceReady();
@@ -436,6 +487,7 @@ public class PinStorage extends Handler {
 
         int verificationReadyCount = 0;
         int slotCount = getSlotCount();
+        startBatch("onDeviceReady");
         for (int slotId = 0; slotId < slotCount; slotId++) {
             // Read PIN information from storage
             StoredPin storedPin = loadPinInformation(slotId);
@@ -464,6 +516,7 @@ public class PinStorage extends Handler {
                 verificationReadyCount++;
             }
         }
+        finishBatch();
         if (verificationReadyCount > 0) {
             startTimer(TIMER_VALUE_AFTER_OTA_MILLIS);
         }
@@ -489,6 +542,7 @@ public class PinStorage extends Handler {
 
         int discardedPin = 0;
         int slotCount = getSlotCount();
+        startBatch("onTimerExpiration");
         for (int slotId = 0; slotId < slotCount; slotId++) {
             // Read PIN information from storage
             StoredPin storedPin = loadPinInformation(slotId);
@@ -523,6 +577,7 @@ public class PinStorage extends Handler {
 
         // Reset number of stored PINs (applicable if timer expired before unattended reboot).
         saveNumberOfCachedPins(0);
+        finishBatch();
 
         // Write metrics about number of discarded PINs
         if (discardedPin > 0) {
@@ -667,6 +722,7 @@ public class PinStorage extends Handler {
             return null;
         }
 
+        long startNanos = SystemClock.elapsedRealtimeNanos();
         StoredPin result = null;
 
         if (mIsDeviceLocked) {
@@ -700,6 +756,10 @@ public class PinStorage extends Handler {
         } else {
             logv("Load PIN for slot %d: null", slotId);
         }
+        if (mBatch != null) {
+            mBatch.mLoadCount++;
+            mBatch.mLoadNanos += SystemClock.elapsedRealtimeNanos() - startNanos;
+        }
         return result;
     }
 
@@ -777,11 +837,10 @@ public class PinStorage extends Handler {
         }
 
         // Remove any prvious key related to this slot.
-        SharedPreferences.Editor editor =
-                mContext.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE)
-                    .edit()
-                    .remove(SHARED_PREFS_AVAILABLE_PIN_BASE_KEY + slotId)
-                    .remove(SHARED_PREFS_REBOOT_PIN_BASE_KEY + slotId);
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        SharedPreferences.Editor editor = getEditor()
+                .remove(SHARED_PREFS_AVAILABLE_PIN_BASE_KEY + slotId)
+                .remove(SHARED_PREFS_REBOOT_PIN_BASE_KEY + slotId);
 
         boolean result = true;
         if (storedPin != null) {
@@ -799,10 +858,65 @@ public class PinStorage extends Handler {
             logv("Deleting PIN for slot %d (if existed)", slotId);
         }
 
+        if (mBatch != null) {
+            // The changes are committed with the other slots when the batch is finished.
+            mBatch.mSaveCount++;
+            mBatch.mSaveNanos += SystemClock.elapsedRealtimeNanos() - startNanos;
+            mBatch.mResult &= result;
+            return result;
+        }
         mLastCommitResult = editor.commit() && result;
         return mLastCommitResult;
     }
 
+    /**
+     * Returns the editor used to change the PIN information on disk: the one of the batch in
+     * progress, if any, or a new one.
+     */
+    private SharedPreferences.Editor getEditor() {
+        if (mBatch != null) {
+            if (mBatch.mEditor == null) {
+                mBatch.mEditor = mContext.getSharedPreferences(
+                        SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+            }
+            return mBatch.mEditor;
+        }
+        return mContext.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE).edit();
+    }
+
+    /** Starts a batch of operations on the PINs of multiple slots. */
+    private void startBatch(String name) {
+        if (mBatch != null) {
+            loge("startBatch %s - %s still in progress", name, mBatch.mName);
+            finishBatch();
+        }
+        mBatch = new Batch(name);
+    }
+
+    /**
+     * Finishes the batch of operations in progress, committing all its changes to disk.
+     *
+     * @return true if all the changes were successfully saved, false otherwise.
+     */
+    private boolean finishBatch() {
+        Batch batch = mBatch;
+        if (batch == null) {
+            return true;
+        }
+        mBatch = null;
+        boolean result = true;
+        if (batch.mEditor != null) {
+            long startNanos = SystemClock.elapsedRealtimeNanos();
+            mLastCommitResult = batch.mEditor.commit() && batch.mResult;
+            batch.mCommitNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+            result = mLastCommitResult;
+        }
+        String summary = batch.toString();
+        mBatchLog.log(summary);
+        logd(summary);
+        return result;
+    }
+
     /**
      * Store the PIN information to a specific file in non-volatile memory.
      *
@@ -943,7 +1057,11 @@ public class PinStorage extends Handler {
                 mContext.getSharedPreferences(SHARED_PREFS_NAME, Context.MODE_PRIVATE);
 
         int previousValue = sharedPrefs.getInt(SHARED_PREFS_STORED_PINS, 0);
-        sharedPrefs.edit().putInt(SHARED_PREFS_STORED_PINS, storedCount).commit();
+        SharedPreferences.Editor editor =
+                getEditor().putInt(SHARED_PREFS_STORED_PINS, storedCount);
+        if (mBatch == null) {
+            editor.commit();
+        }
         return previousValue;
     }
 
@@ -1165,7 +1283,7 @@ public class PinStorage extends Handler {
         }
 
         try {
-            final Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+            final Cipher cipher = getCipher(Cipher.ENCRYPT_MODE);
             cipher.init(Cipher.ENCRYPT_MODE, secretKey);
 
             EncryptedPin encryptedPin = new EncryptedPin();
@@ -1191,7 +1309,7 @@ public class PinStorage extends Handler {
             EncryptedPin encryptedPin = EncryptedPin.parseFrom(input);
             if (!ArrayUtils.isEmpty(encryptedPin.encryptedStoredPin)
                     && !ArrayUtils.isEmpty(encryptedPin.iv)) {
-                final Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+                final Cipher cipher = getCipher(Cipher.DECRYPT_MODE);
                 final GCMParameterSpec spec =
                         new GCMParameterSpec(GCM_PARAMETER_TAG_BIT_LEN, encryptedPin.iv);
                 cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
@@ -1205,6 +1323,26 @@ public class PinStorage extends Handler {
         return new byte[0];
     }
 
+    /**
+     * Returns a {@link Cipher} for {@code opmode}: the one of the batch in progress, if any, or a
+     * new one. The returned instance must be initialized before each use.
+     */
+    private Cipher getCipher(int opmode) throws GeneralSecurityException {
+        if (mBatch == null) {
+            return Cipher.getInstance(CIPHER_TRANSFORMATION);
+        }
+        if (opmode == Cipher.ENCRYPT_MODE) {
+            if (mBatch.mEncryptCipher == null) {
+                mBatch.mEncryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+            }
+            return mBatch.mEncryptCipher;
+        }
+        if (mBatch.mDecryptCipher == null) {
+            mBatch.mDecryptCipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+        }
+        return mBatch.mDecryptCipher;
+    }
+
     private static void logv(String format, Object... args) {
         if (VDBG) {
             Rlog.d(TAG, String.format(format, args));
@@ -1236,6 +1374,10 @@ public class PinStorage extends Handler {
         for (int i = 0; i < slotCount; i++) {
             pw.println("isCacheAllowedByCarrier[" + i + "]=" + isCacheAllowedByCarrier(i));
         }
+        pw.println("Batch log:");
+        pw.increaseIndent();
+        mBatchLog.dump(fd, pw, args);
+        pw.decreaseIndent();
         if (VDBG) {
             SparseArray<StoredPin> storedPins = loadPinInformation();
             for (int i = 0; i < storedPins.size(); i++) {
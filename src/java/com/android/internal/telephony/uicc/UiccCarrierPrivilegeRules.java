@@ -31,17 +31,20 @@ import android.telephony.UiccAccessRule;
 import android.text.TextUtils;
 import android.util.IndentingPrintWriter;
 import android.util.LocalLog;
+import android.util.LruCache;
 
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.telephony.CommandException;
 import com.android.telephony.Rlog;
 
+import java.io.ByteArrayOutputStream;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -51,6 +54,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The rules are read when the class is created, hence it should only be created
  * after the UICC can be read. And it should be deleted when a UICC is changed.
  *
+ * The rules read from the ARA-M of a UICC are cached with the ARA-M refresh tag, keyed by ICCID.
+ * When the same UICC is loaded again, only the refresh tag is read, and the cached rules are used
+ * if it did not change.
+ *
  * Document: https://source.android.com/devices/tech/config/uicc.html
  *
  * @hide
@@ -70,6 +77,9 @@ public class UiccCarrierPrivilegeRules extends Handler {
     private static final int P2_EXTENDED_DATA = 0x60;
     private static final int P3 = 0x00;
     private static final String DATA = "";
+    // GET DATA [Refresh-Tag], GlobalPlatform Secure Element Access Control 3.4.
+    private static final int P1_REFRESH_TAG = 0xDF;
+    private static final int P2_REFRESH_TAG = 0x20;
 
     /*
      * Rules format:
@@ -93,20 +103,27 @@ public class UiccCarrierPrivilegeRules extends Handler {
      *       DB
      */
     // Values from the data standard.
-    private static final String TAG_ALL_REF_AR_DO = "FF40";
-    private static final String TAG_REF_AR_DO = "E2";
-    private static final String TAG_REF_DO = "E1";
-    private static final String TAG_DEVICE_APP_ID_REF_DO = "C1";
-    private static final String TAG_PKG_REF_DO = "CA";
-    private static final String TAG_AR_DO = "E3";
-    private static final String TAG_PERM_AR_DO = "DB";
-    private static final String TAG_AID_REF_DO = "4F";
-    private static final String CARRIER_PRIVILEGE_AID = "FFFFFFFFFFFF";
+    private static final int TAG_ALL_REF_AR_DO = 0xFF40;
+    private static final int TAG_REF_AR_DO = 0xE2;
+    private static final int TAG_REF_DO = 0xE1;
+    private static final int TAG_DEVICE_APP_ID_REF_DO = 0xC1;
+    private static final int TAG_PKG_REF_DO = 0xCA;
+    private static final int TAG_AR_DO = 0xE3;
+    private static final int TAG_PERM_AR_DO = 0xDB;
+    private static final int TAG_AID_REF_DO = 0x4F;
+    private static final int TAG_REFRESH_TAG = 0xDF20;
+    private static final byte[] CARRIER_PRIVILEGE_AID =
+            {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF};
+
+    // Maximum number of UICCs the rules are cached for.
+    private static final int MAX_CACHED_RULES = 4;
 
     private static final int EVENT_OPEN_LOGICAL_CHANNEL_DONE = 1;
     private static final int EVENT_TRANSMIT_LOGICAL_CHANNEL_DONE = 2;
     private static final int EVENT_CLOSE_LOGICAL_CHANNEL_DONE = 3;
     private static final int EVENT_PKCS15_READ_DONE = 4;
+    private static final int EVENT_READ_REFRESH_TAG_DONE = 5;
+    private static final int EVENT_CHECK_REFRESH_TAG_DONE = 6;
 
     // State of the object.
     private static final int STATE_LOADING  = 0;
@@ -190,12 +207,120 @@ public class UiccCarrierPrivilegeRules extends Handler {
         }
     }
 
+    /**
+     * A TLV data object located in a byte array. The value is not copied, it is the range
+     * [{@link #valueOffset}, {@link #end}) of the array the object was parsed from.
+     */
+    private static final class ByteTlv {
+        // Number of bytes used by the length field.
+        final int lengthFieldSize;
+        final int length;
+        final int valueOffset;
+        final int end;
+
+        private ByteTlv(int lengthFieldSize, int length, int valueOffset) {
+            this.lengthFieldSize = lengthFieldSize;
+            this.length = length;
+            this.valueOffset = valueOffset;
+            this.end = valueOffset + length;
+        }
+
+        /**
+         * Parses the data object with the given tag at {@code offset}, the same way as
+         * {@link TLV#parse(String, boolean)}.
+         *
+         * @param data The bytes to parse.
+         * @param offset The offset of the data object.
+         * @param limit The end of the bytes the data object must fit in.
+         * @param tag The expected tag.
+         * @param tagSize The number of bytes of the tag.
+         * @param shouldConsumeAll Whether the data object must end at {@code limit}.
+         * @throws IllegalArgumentException if the data object could not be parsed.
+         */
+        static ByteTlv parse(byte[] data, int offset, int limit, int tag, int tagSize,
+                boolean shouldConsumeAll) {
+            if (!startsWith(data, offset, limit, tag, tagSize)) {
+                throw new IllegalArgumentException("Tags don't match.");
+            }
+            int index = offset + tagSize;
+            if (index >= limit) {
+                throw new IllegalArgumentException("No length.");
+            }
+            int firstByte = data[index] & 0xFF;
+            int lengthFieldSize;
+            int length;
+            if (firstByte < TLV.SINGLE_BYTE_MAX_LENGTH) {
+                lengthFieldSize = 1;
+                length = firstByte;
+            } else {
+                int numBytes = firstByte - TLV.SINGLE_BYTE_MAX_LENGTH;
+                if (numBytes < 1 || numBytes > 3 || index + 1 + numBytes > limit) {
+                    throw new IllegalArgumentException("Invalid length.");
+                }
+                lengthFieldSize = 1 + numBytes;
+                length = 0;
+                for (int i = 1; i <= numBytes; i++) {
+                    length = (length << 8) | (data[index + i] & 0xFF);
+                }
+            }
+            index += lengthFieldSize;
+            int remainingLength = limit - (index + length);
+            if (remainingLength < 0) {
+                throw new IllegalArgumentException("Not enough data.");
+            }
+            if (shouldConsumeAll && remainingLength != 0) {
+                throw new IllegalArgumentException("Did not consume all.");
+            }
+            return new ByteTlv(lengthFieldSize, length, index);
+        }
+
+        static boolean startsWith(byte[] data, int offset, int limit, int tag, int tagSize) {
+            if (offset + tagSize > limit) {
+                return false;
+            }
+            for (int i = 0; i < tagSize; i++) {
+                int expected = (tag >> (8 * (tagSize - 1 - i))) & 0xFF;
+                if ((data[offset + i] & 0xFF) != expected) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The rules read from one applet of a UICC, with the refresh tag they were read with. */
+    private static final class CachedRules {
+        final int mAidId;
+        final byte[] mRefreshTag;
+        final List<UiccAccessRule> mAccessRules;
+
+        CachedRules(int aidId, byte[] refreshTag, List<UiccAccessRule> accessRules) {
+            mAidId = aidId;
+            mRefreshTag = refreshTag;
+            mAccessRules = accessRules;
+        }
+    }
+
+    // The rules of the UICCs loaded since the process started, keyed by ICCID and applet. Only
+    // the ARA-M rules are cached, as only the ARA-M has a refresh tag to validate them with.
+    private static final LruCache<String, CachedRules> sCachedRules =
+            new LruCache<>(MAX_CACHED_RULES);
+
     private UiccProfile mUiccProfile;  // Parent
     private UiccPkcs15 mUiccPkcs15; // ARF fallback
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
     private AtomicInteger mState;
     private List<UiccAccessRule> mAccessRules;
-    private String mRules;
+    // The rules bytes read so far from the current applet.
+    private ByteArrayOutputStream mRules;
+    // The rules read from the ARA-M, cached once the refresh tag is read.
+    private List<UiccAccessRule> mAramRules;
+    // The ICCID the rules are cached for, or null if they should not be cached.
+    private final String mIccId;
+    // Whether the ARA-M rules are being checked against the cached rules for mIccId.
+    private boolean mCheckingCachedRules;
+    // Whether the ARA-M rules were loaded from the cache.
+    private boolean mLoadedFromCache;
     @UnsupportedAppUsage(maxTargetSdk = Build.VERSION_CODES.R, trackingBug = 170729553)
     private Message mLoadedCallback;
     // LocalLog buffer to hold important status messages for debugging.
@@ -220,12 +345,25 @@ public class UiccCarrierPrivilegeRules extends Handler {
     }
 
     public UiccCarrierPrivilegeRules(UiccProfile uiccProfile, Message loadedCallback) {
+        this(uiccProfile, null, loadedCallback);
+    }
+
+    /**
+     * Creates an instance and starts reading the rules from the UICC.
+     *
+     * @param uiccProfile The profile of the UICC.
+     * @param iccId The ICCID of the UICC used to cache the rules, or null to not cache them.
+     * @param loadedCallback The message sent when the rules are loaded.
+     */
+    public UiccCarrierPrivilegeRules(UiccProfile uiccProfile, String iccId,
+            Message loadedCallback) {
         log("Creating UiccCarrierPrivilegeRules");
         mUiccProfile = uiccProfile;
+        mIccId = TextUtils.isEmpty(iccId) ? null : iccId;
         mState = new AtomicInteger(STATE_LOADING);
         mStatusMessage.log("Not loaded.");
         mLoadedCallback = loadedCallback;
-        mRules = "";
+        mRules = new ByteArrayOutputStream();
         mAccessRules = new ArrayList<>();
 
         // Open logical channel with ARA_D.
@@ -237,10 +375,21 @@ public class UiccCarrierPrivilegeRules extends Handler {
     public UiccCarrierPrivilegeRules(List<UiccAccessRule> rules) {
         mAccessRules = rules;
         mState = new AtomicInteger(STATE_LOADED);
-        mRules = "";
+        mRules = new ByteArrayOutputStream();
+        mIccId = null;
         mStatusMessage.log("Loaded from test rules.");
     }
 
+    private static String getCacheKey(String iccId, int aidId) {
+        return iccId + "/" + aidId;
+    }
+
+    /** Clears the rules cached for all the UICCs. */
+    @VisibleForTesting
+    public static void clearCachedRules() {
+        sCachedRules.evictAll();
+    }
+
     /**
      * Returns true if the carrier privilege rules have finished loading.
      */
@@ -429,6 +578,15 @@ public class UiccCarrierPrivilegeRules extends Handler {
             case EVENT_OPEN_LOGICAL_CHANNEL_DONE:
                 log("EVENT_OPEN_LOGICAL_CHANNEL_DONE");
                 ar = (AsyncResult) msg.obj;
+                if (mCheckingCachedRules) {
+                    if (ar.exception == null && ar.result instanceof int[]) {
+                        mChannelId = ((int[]) ar.result)[0];
+                        transmitGetRefreshTag(EVENT_CHECK_REFRESH_TAG_DONE);
+                        break;
+                    }
+                    log("Cannot check the refresh tag, read the rules again.");
+                    mCheckingCachedRules = false;
+                }
                 if (ar.exception == null && ar.result != null && ar.result instanceof int[]) {
                     mChannelId = ((int[]) ar.result)[0];
                     mUiccProfile.iccTransmitApduLogicalChannel(mChannelId, CLA, COMMAND, P1, P2, P3,
@@ -450,8 +608,7 @@ public class UiccCarrierPrivilegeRules extends Handler {
                     } else {
                         if (mAIDInUse == ARAD) {
                             // Open logical channel with ARA_M.
-                            mRules = "";
-                            openChannel(ARAM);
+                            openAramChannel();
                         }
                         if (mAIDInUse == ARAM) {
                             if (mCheckedRules) {
@@ -478,21 +635,25 @@ public class UiccCarrierPrivilegeRules extends Handler {
             case EVENT_TRANSMIT_LOGICAL_CHANNEL_DONE:
                 log("EVENT_TRANSMIT_LOGICAL_CHANNEL_DONE");
                 ar = (AsyncResult) msg.obj;
+                boolean readRefreshTag = false;
                 if (ar.exception == null && ar.result != null) {
                     IccIoResult response = (IccIoResult) ar.result;
                     if (response.sw1 == 0x90 && response.sw2 == 0x00
                             && response.payload != null && response.payload.length > 0) {
                         try {
-                            mRules += IccUtils.bytesToHexString(response.payload)
-                                    .toUpperCase(Locale.US);
-                            if (isDataComplete()) {
+                            mRules.write(response.payload, 0, response.payload.length);
+                            byte[] rules = mRules.toByteArray();
+                            if (isDataComplete(rules)) {
                                 //TODO: here's where AccessRules are being updated from the psim
                                 // b/139133814
-                                mAccessRules.addAll(parseRules(mRules));
+                                List<UiccAccessRule> accessRules = parseRules(rules);
+                                mAccessRules.addAll(accessRules);
                                 if (mAIDInUse == ARAD) {
                                     mCheckedRules = true;
                                 } else {
                                     updateState(STATE_LOADED, "Success!");
+                                    mAramRules = accessRules;
+                                    readRefreshTag = mIccId != null;
                                 }
                             } else {
                                 mUiccProfile.iccTransmitApduLogicalChannel(mChannelId, CLA, COMMAND,
@@ -531,17 +692,53 @@ public class UiccCarrierPrivilegeRules extends Handler {
                     }
                 }
 
-                mUiccProfile.iccCloseLogicalChannel(mChannelId, false /*isEs10*/, obtainMessage(
-                        EVENT_CLOSE_LOGICAL_CHANNEL_DONE, 0, mAIDInUse));
-                mChannelId = -1;
+                if (readRefreshTag) {
+                    // Read the refresh tag on the same channel to cache the rules.
+                    transmitGetRefreshTag(EVENT_READ_REFRESH_TAG_DONE);
+                    break;
+                }
+                closeChannel(EVENT_CLOSE_LOGICAL_CHANNEL_DONE);
+                break;
+
+            case EVENT_READ_REFRESH_TAG_DONE:
+                log("EVENT_READ_REFRESH_TAG_DONE");
+                byte[] refreshTag = parseRefreshTag((AsyncResult) msg.obj);
+                if (refreshTag != null && mAramRules != null) {
+                    sCachedRules.put(getCacheKey(mIccId, ARAM),
+                            new CachedRules(ARAM, refreshTag, mAramRules));
+                }
+                mAramRules = null;
+                closeChannel(EVENT_CLOSE_LOGICAL_CHANNEL_DONE);
+                break;
+
+            case EVENT_CHECK_REFRESH_TAG_DONE:
+                log("EVENT_CHECK_REFRESH_TAG_DONE");
+                refreshTag = parseRefreshTag((AsyncResult) msg.obj);
+                String cacheKey = getCacheKey(mIccId, ARAM);
+                CachedRules cachedRules = sCachedRules.get(cacheKey);
+                mCheckingCachedRules = false;
+                if (refreshTag != null && cachedRules != null
+                        && Arrays.equals(refreshTag, cachedRules.mRefreshTag)) {
+                    mLoadedFromCache = true;
+                    mAIDInUse = cachedRules.mAidId;
+                    mAccessRules.addAll(cachedRules.mAccessRules);
+                    updateState(STATE_LOADED, "Success! Refresh tag unchanged.");
+                    closeChannel(EVENT_CLOSE_LOGICAL_CHANNEL_DONE);
+                } else {
+                    // The rules changed, read them again on the same channel.
+                    sCachedRules.remove(cacheKey);
+                    mRules.reset();
+                    mUiccProfile.iccTransmitApduLogicalChannel(mChannelId, CLA, COMMAND, P1, P2,
+                            P3, DATA, false /*isEs10Command*/, obtainMessage(
+                                    EVENT_TRANSMIT_LOGICAL_CHANNEL_DONE, mChannelId, ARAM));
+                }
                 break;
 
             case EVENT_CLOSE_LOGICAL_CHANNEL_DONE:
                 log("EVENT_CLOSE_LOGICAL_CHANNEL_DONE");
                 if (mAIDInUse == ARAD) {
                     // Close logical channel with ARA_D and then open logical channel with ARA_M.
-                    mRules = "";
-                    openChannel(ARAM);
+                    openAramChannel();
                 }
                 break;
 
@@ -564,122 +761,176 @@ public class UiccCarrierPrivilegeRules extends Handler {
         }
     }
 
+    /*
+     * Opens the ARA-M, checking its refresh tag first if its rules are cached for mIccId. The
+     * ARA-D rules are always read, as they cannot be validated against a refresh tag.
+     */
+    private void openAramChannel() {
+        mRules.reset();
+        mCheckingCachedRules = mIccId != null
+                && sCachedRules.get(getCacheKey(mIccId, ARAM)) != null;
+        openChannel(ARAM);
+    }
+
+    private void transmitGetRefreshTag(int event) {
+        mUiccProfile.iccTransmitApduLogicalChannel(mChannelId, CLA, COMMAND, P1_REFRESH_TAG,
+                P2_REFRESH_TAG, P3, DATA, false /*isEs10Command*/,
+                obtainMessage(event, mChannelId, ARAM));
+    }
+
+    private void closeChannel(int event) {
+        mUiccProfile.iccCloseLogicalChannel(mChannelId, false /*isEs10*/, obtainMessage(
+                event, 0, mAIDInUse));
+        mChannelId = -1;
+    }
+
+    /*
+     * Returns the refresh tag from the response to GET DATA [Refresh-Tag], or null if it could
+     * not be read.
+     */
+    private static byte[] parseRefreshTag(AsyncResult ar) {
+        if (ar.exception != null || !(ar.result instanceof IccIoResult)) {
+            return null;
+        }
+        IccIoResult response = (IccIoResult) ar.result;
+        if (response.sw1 != 0x90 || response.sw2 != 0x00 || response.payload == null) {
+            return null;
+        }
+        try {
+            byte[] payload = response.payload;
+            ByteTlv refreshTag = ByteTlv.parse(payload, 0, payload.length,
+                    TAG_REFRESH_TAG, 2, true);
+            if (refreshTag.length == 0) {
+                return null;
+            }
+            return Arrays.copyOfRange(payload, refreshTag.valueOffset, refreshTag.end);
+        } catch (IllegalArgumentException ex) {
+            log("Invalid refresh tag: " + ex);
+            return null;
+        }
+    }
+
     /*
      * Check if all rule bytes have been read from UICC.
      * For long payload, we need to fetch it repeatly before start parsing it.
      */
-    private boolean isDataComplete() {
-        log("isDataComplete mRules:" + mRules);
-        if (mRules.startsWith(TAG_ALL_REF_AR_DO)) {
-            TLV allRules = new TLV(TAG_ALL_REF_AR_DO);
-            String lengthBytes = allRules.parseLength(mRules);
-            log("isDataComplete lengthBytes: " + lengthBytes);
-            if (mRules.length() == TAG_ALL_REF_AR_DO.length() + lengthBytes.length() +
-                    allRules.length) {
-                log("isDataComplete yes");
-                return true;
-            } else {
-                log("isDataComplete no");
-                return false;
-            }
-        } else {
+    private static boolean isDataComplete(byte[] rules) {
+        if (!ByteTlv.startsWith(rules, 0, rules.length, TAG_ALL_REF_AR_DO, 2)) {
             throw new IllegalArgumentException("Tags don't match.");
         }
+        try {
+            ByteTlv allRules = ByteTlv.parse(rules, 0, rules.length, TAG_ALL_REF_AR_DO, 2,
+                    false);
+            boolean complete = allRules.end == rules.length;
+            log("isDataComplete " + (complete ? "yes" : "no"));
+            return complete;
+        } catch (IllegalArgumentException ex) {
+            // The length field or the value is not complete yet.
+            log("isDataComplete no");
+            return false;
+        }
     }
 
     /*
-     * Parses the rules from the input string.
+     * Parses the rules from the input bytes.
      */
-    private static List<UiccAccessRule> parseRules(String rules) {
-        log("Got rules: " + rules);
+    private static List<UiccAccessRule> parseRules(byte[] rules) {
+        if (DBG) log("Got rules: " + IccUtils.bytesToHexString(rules));
 
-        TLV allRefArDo = new TLV(TAG_ALL_REF_AR_DO); //FF40
-        allRefArDo.parse(rules, true);
+        ByteTlv allRefArDo = ByteTlv.parse(rules, 0, rules.length, TAG_ALL_REF_AR_DO, 2,
+                true); //FF40
 
-        String arDos = allRefArDo.value;
         List<UiccAccessRule> accessRules = new ArrayList<>();
-        while (!arDos.isEmpty()) {
-            TLV refArDo = new TLV(TAG_REF_AR_DO); //E2
-            arDos = refArDo.parse(arDos, false);
-            UiccAccessRule accessRule = parseRefArdo(refArDo.value);
+        int offset = allRefArDo.valueOffset;
+        while (offset < allRefArDo.end) {
+            ByteTlv refArDo = ByteTlv.parse(rules, offset, allRefArDo.end, TAG_REF_AR_DO,
+                    1, false); //E2
+            offset = refArDo.end;
+            UiccAccessRule accessRule = parseRefArdo(rules, refArDo.valueOffset, refArDo.end);
             if (accessRule != null) {
                 accessRules.add(accessRule);
             } else {
-                Rlog.e(LOG_TAG, "Skip unrecognized rule." + refArDo.value);
+                Rlog.e(LOG_TAG, "Skip unrecognized rule." + IccUtils.bytesToHexString(
+                        Arrays.copyOfRange(rules, refArDo.valueOffset, refArDo.end)));
             }
         }
         return accessRules;
     }
 
     /*
-     * Parses a single rule.
+     * Parses a single rule, in the range [offset, end) of the input bytes.
      */
-    private static UiccAccessRule parseRefArdo(String rule) {
-        log("Got rule: " + rule);
-
-        String certificateHash = null;
+    private static UiccAccessRule parseRefArdo(byte[] rules, int offset, int end) {
+        byte[] certificateHash = null;
         String packageName = null;
-        String tmp = null;
         long accessType = 0;
 
-        while (!rule.isEmpty()) {
-            if (rule.startsWith(TAG_REF_DO)) {
-                TLV refDo = new TLV(TAG_REF_DO); //E1
-                rule = refDo.parse(rule, false);
+        while (offset < end) {
+            if (ByteTlv.startsWith(rules, offset, end, TAG_REF_DO, 1)) {
+                ByteTlv refDo = ByteTlv.parse(rules, offset, end, TAG_REF_DO, 1,
+                        false); //E1
+                offset = refDo.end;
                 // Allow 4F tag with a default value "FF FF FF FF FF FF" to be compatible with
                 // devices having GP access control enforcer:
                 //  - If no 4F tag is present, it's a CP rule.
                 //  - If 4F tag has value "FF FF FF FF FF FF", it's a CP rule.
                 //  - If 4F tag has other values, it's not a CP rule and Android should ignore it.
-                TLV deviceDo = new TLV(TAG_DEVICE_APP_ID_REF_DO); //C1
-                if (refDo.value.startsWith(TAG_AID_REF_DO)) {
-                    TLV cpDo = new TLV(TAG_AID_REF_DO); //4F
-                    String remain = cpDo.parse(refDo.value, false);
-                    if (!cpDo.lengthBytes.equals("06") || !cpDo.value.equals(CARRIER_PRIVILEGE_AID)
-                            || remain.isEmpty() || !remain.startsWith(TAG_DEVICE_APP_ID_REF_DO)) {
+                int remain = refDo.valueOffset;
+                if (ByteTlv.startsWith(rules, remain, refDo.end, TAG_AID_REF_DO, 1)) {
+                    ByteTlv cpDo = ByteTlv.parse(rules, remain, refDo.end, TAG_AID_REF_DO, 1,
+                            false); //4F
+                    remain = cpDo.end;
+                    if (cpDo.lengthFieldSize != 1
+                            || !Arrays.equals(rules, cpDo.valueOffset, cpDo.end,
+                                    CARRIER_PRIVILEGE_AID, 0,
+                                    CARRIER_PRIVILEGE_AID.length)
+                            || !ByteTlv.startsWith(rules, remain, refDo.end,
+                                    TAG_DEVICE_APP_ID_REF_DO, 1)) {
                         return null;
                     }
-                    tmp = deviceDo.parse(remain, false);
-                    certificateHash = deviceDo.value;
-                } else if (refDo.value.startsWith(TAG_DEVICE_APP_ID_REF_DO)) {
-                    tmp = deviceDo.parse(refDo.value, false);
-                    certificateHash = deviceDo.value;
-                } else {
+                } else if (!ByteTlv.startsWith(rules, remain, refDo.end,
+                        TAG_DEVICE_APP_ID_REF_DO, 1)) {
                     return null;
                 }
-                if (!tmp.isEmpty()) {
-                    if (!tmp.startsWith(TAG_PKG_REF_DO)) {
+                ByteTlv deviceDo = ByteTlv.parse(rules, remain, refDo.end,
+                        TAG_DEVICE_APP_ID_REF_DO, 1, false); //C1
+                certificateHash = Arrays.copyOfRange(rules, deviceDo.valueOffset, deviceDo.end);
+                remain = deviceDo.end;
+                if (remain < refDo.end) {
+                    if (!ByteTlv.startsWith(rules, remain, refDo.end, TAG_PKG_REF_DO, 1)) {
                         return null;
                     }
-                    TLV pkgDo = new TLV(TAG_PKG_REF_DO); //CA
-                    pkgDo.parse(tmp, true);
-                    packageName = new String(IccUtils.hexStringToBytes(pkgDo.value));
+                    ByteTlv pkgDo = ByteTlv.parse(rules, remain, refDo.end,
+                            TAG_PKG_REF_DO, 1, true); //CA
+                    packageName = new String(rules, pkgDo.valueOffset, pkgDo.length,
+                            StandardCharsets.UTF_8);
                 } else {
                     packageName = null;
                 }
-            } else if (rule.startsWith(TAG_AR_DO)) {
-                TLV arDo = new TLV(TAG_AR_DO); //E3
-                rule = arDo.parse(rule, false);
+            } else if (ByteTlv.startsWith(rules, offset, end, TAG_AR_DO, 1)) {
+                ByteTlv arDo = ByteTlv.parse(rules, offset, end, TAG_AR_DO, 1,
+                        false); //E3
+                offset = arDo.end;
                 // Skip all the irrelevant tags (All the optional tags here are two bytes
                 // according to the spec GlobalPlatform Secure Element Access Control).
-                String remain = arDo.value;
-                while (!remain.isEmpty() && !remain.startsWith(TAG_PERM_AR_DO)) {
-                    TLV tmpDo = new TLV(remain.substring(0, 2));
-                    remain = tmpDo.parse(remain, false);
+                int remain = arDo.valueOffset;
+                while (remain < arDo.end
+                        && !ByteTlv.startsWith(rules, remain, arDo.end, TAG_PERM_AR_DO, 1)) {
+                    ByteTlv tmpDo = ByteTlv.parse(rules, remain, arDo.end, rules[remain] & 0xFF,
+                            1, false);
+                    remain = tmpDo.end;
                 }
-                if (remain.isEmpty()) {
+                if (remain >= arDo.end) {
                     return null;
                 }
-                TLV permDo = new TLV(TAG_PERM_AR_DO); //DB
-                permDo.parse(remain, true);
+                ByteTlv.parse(rules, remain, arDo.end, TAG_PERM_AR_DO, 1, true); //DB
             } else  {
                 // Spec requires it must be either TAG_REF_DO or TAG_AR_DO.
                 throw new RuntimeException("Invalid Rule type");
             }
         }
 
-        UiccAccessRule accessRule = new UiccAccessRule(
-                IccUtils.hexStringToBytes(certificateHash), packageName, accessType);
+        UiccAccessRule accessRule = new UiccAccessRule(certificateHash, packageName, accessType);
         return accessRule;
     }
 
@@ -711,6 +962,7 @@ public class UiccCarrierPrivilegeRules extends Handler {
         pw.println("UiccCarrierPrivilegeRules:");
         pw.increaseIndent();
         pw.println("mState=" + getStateString(mState.get()));
+        pw.println("mLoadedFromCache=" + mLoadedFromCache);
         pw.println("mStatusMessage=");
         mStatusMessage.dump(fd, pw, args);
         if (mAccessRules != null) {
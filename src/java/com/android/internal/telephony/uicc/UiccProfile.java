@@ -1151,7 +1151,9 @@ public class UiccProfile extends IccCard {
             log("Before privilege rules: " + mCarrierPrivilegeRules + " : " + ics.mCardState);
             if (mCarrierPrivilegeRules == null && ics.mCardState == CardState.CARDSTATE_PRESENT
                     && mLastReportedNumOfUiccApplications > 0) {
+                UiccPort port = mUiccCard.getUiccPortForPhone(mPhoneId);
                 mCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(this,
+                        port != null ? port.getIccId() : null,
                         mHandler.obtainMessage(EVENT_CARRIER_PRIVILEGES_LOADED));
             } else if (mCarrierPrivilegeRules != null
                     && ics.mCardState != CardState.CARDSTATE_PRESENT) {
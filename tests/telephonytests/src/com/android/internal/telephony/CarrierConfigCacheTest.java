@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.os.PersistableBundle;
+import android.telephony.CarrierConfigManager;
+import android.telephony.CarrierConfigManager.CarrierConfigChangeListener;
+import android.telephony.TelephonyManager;
+import android.testing.AndroidTestingRunner;
+import android.testing.TestableLooper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+
+@RunWith(AndroidTestingRunner.class)
+@TestableLooper.RunWithLooper
+public class CarrierConfigCacheTest extends TelephonyTest {
+    private static final int SUB_ID = 1;
+
+    private PersistableBundle mBundle;
+    private CarrierConfigCache mCarrierConfigCache;
+    private CarrierConfigChangeListener mCarrierConfigChangeListener;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(getClass().getSimpleName());
+        mBundle = mContextFixture.getCarrierConfigBundle();
+        mBundle.putInt(CarrierConfigManager.KEY_LTE_PLUS_THRESHOLD_BANDWIDTH_KHZ_INT, 20000);
+
+        ArgumentCaptor<CarrierConfigChangeListener> listenerArgumentCaptor =
+                ArgumentCaptor.forClass(CarrierConfigChangeListener.class);
+        mCarrierConfigCache = new CarrierConfigCache(mContext);
+        verify(mCarrierConfigManager).registerCarrierConfigChangeListener(any(),
+                listenerArgumentCaptor.capture());
+        mCarrierConfigChangeListener = listenerArgumentCaptor.getValue();
+        clearInvocations(mCarrierConfigManager);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCarrierConfigCache = null;
+        mCarrierConfigChangeListener = null;
+        mBundle = null;
+        super.tearDown();
+    }
+
+    @Test
+    public void testConfigRequestedOncePerChange() {
+        assertThat(mCarrierConfigCache.getInt(SUB_ID,
+                CarrierConfigManager.KEY_LTE_PLUS_THRESHOLD_BANDWIDTH_KHZ_INT)).isEqualTo(20000);
+        assertThat(mCarrierConfigCache.getConfigForSubId(SUB_ID)).isSameInstanceAs(mBundle);
+        verify(mCarrierConfigManager, times(1)).getConfigForSubId(anyInt());
+
+        CarrierConfigChangeListener listener = mock(CarrierConfigChangeListener.class);
+        mCarrierConfigCache.registerCarrierConfigChangeListener(Runnable::run, listener);
+        mCarrierConfigChangeListener.onCarrierConfigChanged(0, SUB_ID,
+                TelephonyManager.UNKNOWN_CARRIER_ID, TelephonyManager.UNKNOWN_CARRIER_ID);
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(anyInt());
+        verify(listener).onCarrierConfigChanged(0, SUB_ID,
+                TelephonyManager.UNKNOWN_CARRIER_ID, TelephonyManager.UNKNOWN_CARRIER_ID);
+
+        // the listener reads the refreshed config from the cache
+        mCarrierConfigCache.getConfigForSubId(SUB_ID);
+        verify(mCarrierConfigManager, times(2)).getConfigForSubId(anyInt());
+
+        mCarrierConfigCache.unregisterCarrierConfigChangeListener(listener);
+        mCarrierConfigChangeListener.onCarrierConfigChanged(0, SUB_ID,
+                TelephonyManager.UNKNOWN_CARRIER_ID, TelephonyManager.UNKNOWN_CARRIER_ID);
+        verify(listener, times(1)).onCarrierConfigChanged(anyInt(), anyInt(), anyInt(),
+                anyInt());
+    }
+}
@@ -33,6 +33,7 @@ import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
@@ -673,6 +674,39 @@ public class CarrierPrivilegesTrackerTest extends TelephonyTest {
                 List.of(new Pair<>(Set.of(PACKAGE_1), Set.of(UID_1))));
     }
 
+    @Test
+    public void testPackageAddedOnlyReevaluatesAddedPackage() throws Exception {
+        setupCarrierConfigRules(
+                carrierConfigRuleString(getHash(CERT_1)), carrierConfigRuleString(getHash(CERT_2)));
+        setupInstalledPackages(new PackageCertInfo(PACKAGE_1, CERT_1, USER_1, UID_1));
+        mCarrierPrivilegesTracker = createCarrierPrivilegesTracker();
+        clearInvocations(mPackageManager);
+
+        setupInstalledPackages(
+                new PackageCertInfo(PACKAGE_1, CERT_1, USER_1, UID_1),
+                new PackageCertInfo(PACKAGE_2, CERT_2, USER_1, UID_2));
+        sendPackageChangedIntent(Intent.ACTION_PACKAGE_ADDED, PACKAGE_2);
+        mTestableLooper.processAllMessages();
+
+        verifyCurrentState(PRIVILEGED_PACKAGES, PRIVILEGED_UIDS);
+        verify(mPackageManager, never()).getPackageInfoAsUser(eq(PACKAGE_1), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testSimRuleTakesPrecedenceOverCarrierConfigRule() throws Exception {
+        setupCarrierConfigRules(carrierConfigRuleString(getHash(CERT_1)));
+        setupSimLoadedRules(ruleWithHashOnly(getHash(CERT_1)));
+        setupInstalledPackages(new PackageCertInfo(PACKAGE_1, CERT_1, USER_1, UID_1));
+        ResolveInfo carrierService = new ResolveInfoBuilder().setService(PACKAGE_1).build();
+        // Use doReturn instead of when/thenReturn which has NPE with unknown reason
+        doReturn(List.of(carrierService)).when(
+                mPackageManager).queryIntentServicesAsUser(any(), anyInt(), anyInt());
+        mCarrierPrivilegesTracker = createCarrierPrivilegesTracker();
+
+        // Only SIM privileged packages are eligible for carrier service
+        assertEquals(PACKAGE_1, mCarrierPrivilegesTracker.getCarrierServicePackageName());
+    }
+
     @Test
     public void testPackageAddedMultipleUsers() throws Exception {
         // Start with certs and no packages installed
@@ -42,6 +42,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.Arrays;
+import java.util.List;
 
 @RunWith(AndroidTestingRunner.class)
 @TestableLooper.RunWithLooper
@@ -89,6 +90,7 @@ public class CarrierResolverTest extends TelephonyTest {
     private static final int SIM_LOAD_EVENT       = 1;
     private static final int ICC_CHANGED_EVENT    = 2;
     private static final int PREFER_APN_SET_EVENT = 3;
+    private static final int CARRIER_ID_DB_UPDATE_EVENT = 4;
 
     private CarrierResolver mCarrierResolver;
 
@@ -96,6 +98,7 @@ public class CarrierResolverTest extends TelephonyTest {
     public void setUp() throws Exception {
         logd("CarrierResolverTest +Setup!");
         super.setUp(getClass().getSimpleName());
+        CarrierResolver.clearCarrierIdTable();
         ((MockContentResolver) mContext.getContentResolver()).addProvider(
                 CarrierId.AUTHORITY, new CarrierIdContentProvider());
         mCarrierResolver = new CarrierResolver(mPhone, mFeatureFlags);
@@ -109,6 +112,7 @@ public class CarrierResolverTest extends TelephonyTest {
         logd("CarrierResolver -tearDown");
         mCarrierResolver.removeCallbacksAndMessages(null);
         mCarrierResolver = null;
+        CarrierResolver.clearCarrierIdTable();
         super.tearDown();
     }
 
@@ -248,6 +252,35 @@ public class CarrierResolverTest extends TelephonyTest {
         assertEquals(CID_FI, carrierid);
     }
 
+    @Test
+    @SmallTest
+    public void testCarrierIdTableSharedAcrossLookups() {
+        int phoneId = mPhone.getPhoneId();
+        doReturn(MCCMNC).when(mTelephonyManager).getSimOperatorNumericForPhone(eq(phoneId));
+        mCarrierResolver.sendEmptyMessage(SIM_LOAD_EVENT);
+        processAllMessages();
+        assertEquals(CID_VZW, mCarrierResolver.getCarrierId());
+        int loadCount = CarrierResolver.getCarrierIdTableLoadCount();
+
+        doReturn(MCCMNC_VODAFONE).when(mTelephonyManager)
+                .getSimOperatorNumericForPhone(eq(phoneId));
+        doReturn(SPN_VODAFONE).when(mSimRecords).getServiceProviderName();
+        mCarrierResolver.sendEmptyMessage(SIM_LOAD_EVENT);
+        processAllMessages();
+        assertEquals(CID_VODAFONE, mCarrierResolver.getCarrierId());
+
+        assertEquals(CID_VZW, CarrierResolver.getCarrierIdFromMccMnc(mContext, MCCMNC));
+        assertEquals(NAME, CarrierResolver.getCarrierNameFromMccMnc(mContext, MCCMNC));
+        assertEquals(List.of(CID_FI),
+                CarrierResolver.getCarrierIdsFromApnQuery(mContext, MCCMNC, "spn", SPN_FI));
+
+        // database update without a new carrier list version does not reload the table.
+        mCarrierResolver.sendEmptyMessage(CARRIER_ID_DB_UPDATE_EVENT);
+        processAllMessages();
+        assertEquals(CID_VODAFONE, mCarrierResolver.getCarrierId());
+        assertEquals(loadCount, CarrierResolver.getCarrierIdTableLoadCount());
+    }
+
     @Test
     @SmallTest
     public void testCarrierMatchPreferApnChange() {
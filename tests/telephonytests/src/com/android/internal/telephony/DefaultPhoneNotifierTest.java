@@ -26,10 +26,13 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import android.telephony.BarringInfo;
 import android.telephony.CellIdentityGsm;
 import android.telephony.CellInfo;
 import android.telephony.CellularIdentifierDisclosure;
@@ -38,8 +41,11 @@ import android.telephony.PreciseCallState;
 import android.telephony.PreciseDisconnectCause;
 import android.telephony.SecurityAlgorithmUpdate;
 import android.telephony.SignalStrength;
+import android.telephony.TelephonyDisplayInfo;
 import android.telephony.TelephonyManager;
 import android.telephony.ims.ImsCallProfile;
+import android.testing.AndroidTestingRunner;
+import android.testing.TestableLooper;
 import android.util.ArraySet;
 
 import androidx.test.filters.SmallTest;
@@ -50,13 +56,17 @@ import com.android.internal.telephony.imsphone.ImsPhoneCall;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+@RunWith(AndroidTestingRunner.class)
+@TestableLooper.RunWithLooper
 public class DefaultPhoneNotifierTest extends TelephonyTest {
     private static final int PHONE_ID = 1;
     private static final int SUB_ID = 0;
@@ -92,6 +102,8 @@ public class DefaultPhoneNotifierTest extends TelephonyTest {
 
     @After
     public void tearDown() throws Exception {
+        // The coalescing window is shared by all instances.
+        mDefaultPhoneNotifierUT.setCoalescingWindowMillis(0);
         mDefaultPhoneNotifierUT = null;
         super.tearDown();
     }
@@ -172,6 +184,112 @@ public class DefaultPhoneNotifierTest extends TelephonyTest {
         assertEquals(mCellInfo, cellInfoArgumentCaptor.getValue().get(0));
     }
 
+    @Test @SmallTest
+    public void testNotifyDisplayInfoCoalesced() {
+        mDefaultPhoneNotifierUT.setCoalescingWindowMillis(60 * 1000);
+        doReturn(PHONE_ID).when(mPhone).getPhoneId();
+        doReturn(SUB_ID).when(mPhone).getSubId();
+        TelephonyDisplayInfo lteDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE, false, false, false);
+        TelephonyDisplayInfo nrDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NR_NSA, false, false, false);
+
+        // The first notification is sent right away.
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, lteDisplayInfo);
+        verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                lteDisplayInfo);
+
+        // The ones within the window are held until the window ends. The last one is the same as
+        // the one sent, so nothing is sent when the window ends.
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, nrDisplayInfo);
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, lteDisplayInfo);
+        moveTimeForward(60 * 1000);
+        processAllMessages();
+        verify(mTelephonyRegistryManager, times(1)).notifyDisplayInfoChanged(anyInt(), anyInt(),
+                any(TelephonyDisplayInfo.class));
+
+        // The last one held is sent when the window ends.
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, nrDisplayInfo);
+        verify(mTelephonyRegistryManager, never()).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                nrDisplayInfo);
+        moveTimeForward(60 * 1000);
+        processAllMessages();
+        verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                nrDisplayInfo);
+        verify(mTelephonyRegistryManager, times(2)).notifyDisplayInfoChanged(anyInt(), anyInt(),
+                any(TelephonyDisplayInfo.class));
+    }
+
+    @Test @SmallTest
+    public void testNotifyCoalescedInOrder() {
+        mDefaultPhoneNotifierUT.setCoalescingWindowMillis(60 * 1000);
+        doReturn(PHONE_ID).when(mPhone).getPhoneId();
+        doReturn(SUB_ID).when(mPhone).getSubId();
+        TelephonyDisplayInfo lteDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE, false, false, false);
+        TelephonyDisplayInfo nrDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NR_NSA, false, false, false);
+        BarringInfo barringInfo = new BarringInfo();
+
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, lteDisplayInfo);
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, nrDisplayInfo);
+
+        // Other types are coalesced separately, but the display info held is sent first.
+        mDefaultPhoneNotifierUT.notifyBarringInfoChanged(mPhone, barringInfo);
+        InOrder inOrder = inOrder(mTelephonyRegistryManager);
+        inOrder.verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                lteDisplayInfo);
+        inOrder.verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                nrDisplayInfo);
+        inOrder.verify(mTelephonyRegistryManager).notifyBarringInfoChanged(PHONE_ID, SUB_ID,
+                barringInfo);
+
+        // Nothing is left to send when the windows end.
+        moveTimeForward(60 * 1000);
+        processAllMessages();
+        verify(mTelephonyRegistryManager, times(2)).notifyDisplayInfoChanged(anyInt(), anyInt(),
+                any(TelephonyDisplayInfo.class));
+        verify(mTelephonyRegistryManager, times(1)).notifyBarringInfoChanged(anyInt(), anyInt(),
+                any(BarringInfo.class));
+    }
+
+    @Test @SmallTest
+    public void testNotifyHeldBeforeUncoalesced() {
+        mDefaultPhoneNotifierUT.setCoalescingWindowMillis(60 * 1000);
+        doReturn(PHONE_ID).when(mPhone).getPhoneId();
+        doReturn(SUB_ID).when(mPhone).getSubId();
+        TelephonyDisplayInfo lteDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NONE, false, false, false);
+        TelephonyDisplayInfo nrDisplayInfo = new TelephonyDisplayInfo(
+                TelephonyManager.NETWORK_TYPE_LTE,
+                TelephonyDisplayInfo.OVERRIDE_NETWORK_TYPE_NR_NSA, false, false, false);
+
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, lteDisplayInfo);
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, nrDisplayInfo);
+
+        // Once coalescing is disabled, the display info held is sent before the next one, and
+        // not again when its window ends.
+        mDefaultPhoneNotifierUT.setCoalescingWindowMillis(0);
+        mDefaultPhoneNotifierUT.notifyDisplayInfoChanged(mPhone, lteDisplayInfo);
+        InOrder inOrder = inOrder(mTelephonyRegistryManager);
+        inOrder.verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                lteDisplayInfo);
+        inOrder.verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                nrDisplayInfo);
+        inOrder.verify(mTelephonyRegistryManager).notifyDisplayInfoChanged(PHONE_ID, SUB_ID,
+                lteDisplayInfo);
+
+        moveTimeForward(60 * 1000);
+        processAllMessages();
+        verify(mTelephonyRegistryManager, times(3)).notifyDisplayInfoChanged(anyInt(), anyInt(),
+                any(TelephonyDisplayInfo.class));
+    }
+
     @Test @SmallTest
     public void testNotifyMessageWaiting() throws Exception {
         doReturn(1).when(mPhone).getPhoneId();
@@ -61,6 +61,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
@@ -250,6 +252,22 @@ public class DeviceStateMonitorTest extends TelephonyTest {
                 nullable(Message.class));
     }
 
+    @Test
+    public void testDumpIndicationPolicy() throws Exception {
+        updateState(STATE_TYPE_SCREEN, STATE_ON);
+        int skippedCount = getPrivateField(mDSM, "mSkippedFilterUpdateCount", Integer.class);
+        // Charging doesn't change the filter, so it's not sent again.
+        updateState(STATE_TYPE_CHARGING, STATE_ON);
+        assertEquals(skippedCount + 1, (int) getPrivateField(mDSM, "mSkippedFilterUpdateCount",
+                Integer.class));
+
+        StringWriter stringWriter = new StringWriter();
+        mDSM.dump(null, new PrintWriter(stringWriter), null);
+        String dump = stringWriter.toString();
+        assertTrue(dump.contains("SIGNAL_STRENGTH: enabled=true"));
+        assertTrue(dump.contains("REGISTRATION_FAILURE: enabled=true"));
+    }
+
     @Test
     public void testScreenOnOff() {
         // screen was off by default, turn it on now
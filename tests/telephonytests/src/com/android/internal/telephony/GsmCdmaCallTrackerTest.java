@@ -137,6 +137,36 @@ public class GsmCdmaCallTrackerTest extends TelephonyTest {
         assertEquals(GsmCdmaCall.State.IDLE, mCTUT.mBackgroundCall.getState());
     }
 
+    @Test
+    @SmallTest
+    public void testUnchangedPollResultSkipped() {
+        testMOCallPickUp();
+        long pollsIssued = mCTUT.getPollsIssuedCount();
+        long obsoleteResults = mCTUT.getObsoletePollResultsCount();
+        long unchangedResults = mCTUT.getUnchangedPollResultsCount();
+        long resultsWithChanges = mCTUT.getPollResultsWithChangesCount();
+
+        // The other requests arrive while the first poll is in flight, so they are collapsed
+        // into a single poll issued once the result of the first one, which is discarded,
+        // arrives.
+        mCTUT.sendEmptyMessage(CallTracker.EVENT_CALL_STATE_CHANGE);
+        mCTUT.sendEmptyMessage(CallTracker.EVENT_CALL_STATE_CHANGE);
+        mCTUT.sendEmptyMessage(CallTracker.EVENT_CALL_STATE_CHANGE);
+        processAllMessages();
+
+        assertEquals(pollsIssued + 2, mCTUT.getPollsIssuedCount());
+        assertEquals(obsoleteResults + 1, mCTUT.getObsoletePollResultsCount());
+        assertEquals(unchangedResults + 1, mCTUT.getUnchangedPollResultsCount());
+        assertEquals(resultsWithChanges, mCTUT.getPollResultsWithChangesCount());
+        assertEquals(GsmCdmaCall.State.ACTIVE, mCTUT.mForegroundCall.getState());
+
+        // A real change is still processed.
+        mSimulatedCommands.triggerRing("+17005554141");
+        processAllMessages();
+        assertEquals(resultsWithChanges + 1, mCTUT.getPollResultsWithChangesCount());
+        assertEquals(GsmCdmaCall.State.WAITING, mCTUT.mRingingCall.getState());
+    }
+
     @FlakyTest
     @Ignore
     @Test
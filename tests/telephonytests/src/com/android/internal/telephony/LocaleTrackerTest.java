@@ -235,6 +235,29 @@ public class LocaleTrackerTest extends TelephonyTest {
         assertEquals(US_COUNTRY_CODE, mLocaleTracker.getCurrentCountry());
     }
 
+    @Test
+    @SmallTest
+    public void testCellInfoPollingPausedWhileScreenOff() throws Exception {
+        mLocaleTracker.updateOperatorNumeric("");
+        sendServiceState(ServiceState.STATE_OUT_OF_SERVICE);
+        assertTrue(mLocaleTracker.isTracking());
+        verify(mPhone, times(1)).requestCellInfoUpdate(any(), any());
+
+        // screen off, periodic polling should be paused
+        mLocaleTracker.obtainMessage(8 /* EVENT_SCREEN_STATE_CHANGED */, 0, 0).sendToTarget();
+        processAllMessages();
+        moveTimeForward(10 * 60 * 1000);
+        processAllMessages();
+        verify(mPhone, times(1)).requestCellInfoUpdate(any(), any());
+
+        // screen on, periodic polling should be resumed
+        mLocaleTracker.obtainMessage(8 /* EVENT_SCREEN_STATE_CHANGED */, 1, 0).sendToTarget();
+        processAllMessages();
+        moveTimeForward(10 * 60 * 1000);
+        processAllMessages();
+        verify(mPhone, times(2)).requestCellInfoUpdate(any(), any());
+    }
+
     @Test
     @SmallTest
     public void testToggleAirplaneModeOosPlmn() throws Exception {
@@ -666,6 +666,49 @@ public class NetworkTypeControllerTest extends TelephonyTest {
         assertEquals("connected_mmwave", getCurrentState().getName());
     }
 
+    @Test
+    public void testEventPhysicalChannelConfigUnchanged() throws Exception {
+        testTransitionToCurrentStateNrConnected();
+        mBundle.putIntArray(CarrierConfigManager.KEY_ADDITIONAL_NR_ADVANCED_BANDS_INT_ARRAY,
+                new int[]{41});
+        sendCarrierConfigChanged();
+
+        List<PhysicalChannelConfig> physicalChannelConfigs = new ArrayList<>();
+        physicalChannelConfigs.add(new PhysicalChannelConfig.Builder()
+                .setNetworkType(TelephonyManager.NETWORK_TYPE_NR)
+                .setPhysicalCellId(1)
+                .setCellConnectionStatus(CellInfo.CONNECTION_PRIMARY_SERVING)
+                .setBand(41)
+                .build());
+        doReturn(physicalChannelConfigs).when(mSST).getPhysicalChannelConfigList();
+        mNetworkTypeController.sendMessage(11 /* EVENT_PHYSICAL_CHANNEL_CONFIGS_CHANGED */,
+                new AsyncResult(null, physicalChannelConfigs, null));
+        processAllMessages();
+        assertEquals("connected_mmwave", getCurrentState().getName());
+
+        // the same configs should not be processed again
+        mNetworkTypeController.sendMessage(11 /* EVENT_PHYSICAL_CHANNEL_CONFIGS_CHANGED */,
+                new AsyncResult(null, new ArrayList<>(physicalChannelConfigs), null));
+        processAllMessages();
+        assertEquals("connected_mmwave", getCurrentState().getName());
+        assertEquals(1, (int) getPrivateField(mNetworkTypeController,
+                "mSkippedPhysicalChannelConfigUpdateCount", Integer.class));
+
+        // configs modified in place should be processed
+        physicalChannelConfigs.set(0, new PhysicalChannelConfig.Builder()
+                .setNetworkType(TelephonyManager.NETWORK_TYPE_NR)
+                .setPhysicalCellId(2)
+                .setCellConnectionStatus(CellInfo.CONNECTION_PRIMARY_SERVING)
+                .setBand(78)
+                .build());
+        mNetworkTypeController.sendMessage(11 /* EVENT_PHYSICAL_CHANNEL_CONFIGS_CHANGED */,
+                new AsyncResult(null, physicalChannelConfigs, null));
+        processAllMessages();
+        assertEquals("connected", getCurrentState().getName());
+        assertEquals(1, (int) getPrivateField(mNetworkTypeController,
+                "mSkippedPhysicalChannelConfigUpdateCount", Integer.class));
+    }
+
     @Test
     public void testEventPhysicalChannelConfigChangedWithoutRatcheting() throws Exception {
         testTransitionToCurrentStateNrConnected();
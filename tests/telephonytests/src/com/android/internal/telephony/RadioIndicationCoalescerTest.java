@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import static com.android.internal.telephony.RILConstants.RIL_UNSOL_CELL_INFO_LIST;
+import static com.android.internal.telephony.RILConstants.RIL_UNSOL_SIGNAL_STRENGTH;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.os.Handler;
+import android.os.PowerManager;
+import android.testing.AndroidTestingRunner;
+import android.testing.TestableLooper;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidTestingRunner.class)
+@TestableLooper.RunWithLooper
+public class RadioIndicationCoalescerTest extends TelephonyTest {
+    private static final android.hardware.radio.network.SignalStrength PAYLOAD_1 =
+            createSignalStrength(10);
+    private static final android.hardware.radio.network.SignalStrength PAYLOAD_2 =
+            createSignalStrength(20);
+    private static final android.hardware.radio.network.SignalStrength PAYLOAD_3 =
+            createSignalStrength(30);
+
+    private PowerManager.WakeLock mWakeLock;
+    private RadioIndicationCoalescer mCoalescerUT;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(getClass().getSimpleName());
+        mWakeLock = mContext.getSystemService(PowerManager.class).newWakeLock(
+                PowerManager.PARTIAL_WAKE_LOCK, getClass().getSimpleName());
+        mWakeLock.setReferenceCounted(false);
+        mCoalescerUT = new RadioIndicationCoalescer(new Handler(mTestableLooper.getLooper()),
+                mWakeLock);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCoalescerUT = null;
+        mWakeLock = null;
+        super.tearDown();
+    }
+
+    private static android.hardware.radio.network.SignalStrength createSignalStrength(
+            int gsmSignalStrength) {
+        android.hardware.radio.network.SignalStrength ss =
+                new android.hardware.radio.network.SignalStrength();
+        ss.gsm = new android.hardware.radio.network.GsmSignalStrength();
+        ss.gsm.signalStrength = gsmSignalStrength;
+        return ss;
+    }
+
+    @Test
+    @SmallTest
+    public void testDuplicatePayloadSuppressed() {
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+        Runnable third = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, createSignalStrength(10), first);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, createSignalStrength(10), second);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, createSignalStrength(20), third);
+
+        verify(first).run();
+        verify(second, never()).run();
+        verify(third).run();
+        assertEquals(3, mCoalescerUT.getReceivedCount(RIL_UNSOL_SIGNAL_STRENGTH));
+        assertEquals(1, mCoalescerUT.getSuppressedCount(RIL_UNSOL_SIGNAL_STRENGTH));
+    }
+
+    @Test
+    @SmallTest
+    public void testNullPayloadAlwaysDelivered() {
+        Runnable delivery = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH,
+                (android.hardware.radio.network.SignalStrength) null, delivery);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH,
+                (android.hardware.radio.network.SignalStrength) null, delivery);
+
+        verify(delivery, times(2)).run();
+        assertEquals(0, mCoalescerUT.getSuppressedCount(RIL_UNSOL_SIGNAL_STRENGTH));
+    }
+
+    @Test
+    @SmallTest
+    public void testTypesAreIndependent() {
+        Runnable signal = mock(Runnable.class);
+        Runnable cellInfo = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, signal);
+        mCoalescerUT.onIndication(RIL_UNSOL_CELL_INFO_LIST,
+                new android.hardware.radio.network.CellInfo[0], cellInfo);
+
+        verify(signal).run();
+        verify(cellInfo).run();
+    }
+
+    @Test
+    @SmallTest
+    public void testRateLimitLatestValueWins() {
+        mCoalescerUT.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH, 1000);
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+        Runnable third = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2, second);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_3, third);
+        verify(first).run();
+        verify(second, never()).run();
+        verify(third, never()).run();
+
+        moveTimeForward(1000);
+        processAllMessages();
+
+        verify(second, never()).run();
+        verify(third).run();
+        assertEquals(1, mCoalescerUT.getSuppressedCount(RIL_UNSOL_SIGNAL_STRENGTH));
+    }
+
+    @Test
+    @SmallTest
+    public void testRateLimitPendingCancelledWhenValueReverts() {
+        mCoalescerUT.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH, 1000);
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+        Runnable third = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2, second);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, third);
+
+        moveTimeForward(1000);
+        processAllMessages();
+
+        verify(first).run();
+        verify(second, never()).run();
+        verify(third, never()).run();
+        // Both the pending indication and the one reverting it were dropped.
+        assertEquals(2, mCoalescerUT.getSuppressedCount(RIL_UNSOL_SIGNAL_STRENGTH));
+        assertFalse(mWakeLock.isHeld());
+    }
+
+    @Test
+    @SmallTest
+    public void testWakeLockHeldWhileDeliveryPending() {
+        mCoalescerUT.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH, 1000);
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        assertFalse(mWakeLock.isHeld());
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2, second);
+        assertTrue(mWakeLock.isHeld());
+
+        moveTimeForward(1000);
+        processAllMessages();
+
+        verify(second).run();
+        assertFalse(mWakeLock.isHeld());
+    }
+
+    @Test
+    @SmallTest
+    public void testResetDeliversSamePayloadAgain() {
+        Runnable delivery = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, delivery);
+        mCoalescerUT.reset();
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, delivery);
+
+        verify(delivery, times(2)).run();
+    }
+
+    @Test
+    @SmallTest
+    public void testResetDropsPendingDelivery() {
+        mCoalescerUT.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH, 1000);
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2, second);
+        mCoalescerUT.reset();
+        assertFalse(mWakeLock.isHeld());
+
+        moveTimeForward(1000);
+        processAllMessages();
+        verify(second, never()).run();
+    }
+
+    @Test
+    @SmallTest
+    public void testArrayPayloadComparedByContent() {
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_CELL_INFO_LIST,
+                new android.hardware.radio.network.CellInfo[0], first);
+        mCoalescerUT.onIndication(RIL_UNSOL_CELL_INFO_LIST,
+                new android.hardware.radio.network.CellInfo[0], second);
+
+        verify(first).run();
+        verify(second, never()).run();
+    }
+
+    @Test
+    @SmallTest
+    public void testSolicitedResponseRecorded() {
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+        Runnable third = mock(Runnable.class);
+
+        // A poll returns a different value after an indication, so the framework now has that
+        // value and the first one must be delivered again.
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        mCoalescerUT.onSolicitedResponse(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, createSignalStrength(10), second);
+        verify(first).run();
+        verify(second).run();
+
+        // An indication with the value just polled is a duplicate.
+        mCoalescerUT.onSolicitedResponse(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, createSignalStrength(20), third);
+        verify(third, never()).run();
+    }
+
+    @Test
+    @SmallTest
+    public void testSolicitedResponseDropsPendingDelivery() {
+        mCoalescerUT.setMinReportIntervalMillis(RIL_UNSOL_SIGNAL_STRENGTH, 1000);
+        Runnable first = mock(Runnable.class);
+        Runnable second = mock(Runnable.class);
+
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_1, first);
+        mCoalescerUT.onIndication(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_2, second);
+        mCoalescerUT.onSolicitedResponse(RIL_UNSOL_SIGNAL_STRENGTH, PAYLOAD_3);
+        assertFalse(mWakeLock.isHeld());
+
+        moveTimeForward(1000);
+        processAllMessages();
+        verify(second, never()).run();
+    }
+}
@@ -135,6 +135,7 @@ public class ServiceStateTrackerTest extends TelephonyTest {
 
     private SubscriptionInfoInternal mSubInfoInternal;
     private ServiceStateStats mServiceStateStats;
+    private CarrierConfigCache mCarrierConfigCache;
 
     private CellularNetworkService mCellularNetworkService;
     private CarrierConfigManager.CarrierConfigChangeListener mCarrierConfigChangeListener;
@@ -230,6 +231,7 @@ public class ServiceStateTrackerTest extends TelephonyTest {
         mServiceStateStats = Mockito.mock(ServiceStateStats.class);
 
         mSatelliteController = Mockito.mock(SatelliteController.class);
+        mCarrierConfigCache = Mockito.mock(CarrierConfigCache.class);
         replaceInstance(SatelliteController.class, "sInstance", null,
                 mSatelliteController);
         doReturn(new ArrayList<>()).when(mSatelliteController).getSatellitePlmnsForCarrier(
@@ -258,9 +260,11 @@ public class ServiceStateTrackerTest extends TelephonyTest {
         doReturn(new ServiceState()).when(mPhone).getServiceState();
 
         replaceInstance(ProxyController.class, "sProxyController", null, mProxyController);
+        replaceInstance(CarrierConfigCache.class, "sInstance", null, mCarrierConfigCache);
         mBundle = mContextFixture.getCarrierConfigBundle();
         when(mCarrierConfigManager.getConfigForSubId(anyInt(), any())).thenReturn(mBundle);
         when(mCarrierConfigManager.getConfigForSubId(anyInt())).thenReturn(mBundle);
+        when(mCarrierConfigCache.getConfigForSubId(anyInt())).thenReturn(mBundle);
         mBundle.putStringArray(
                 CarrierConfigManager.KEY_ROAMING_OPERATOR_STRING_ARRAY, new String[]{"123456"});
 
@@ -289,16 +293,16 @@ public class ServiceStateTrackerTest extends TelephonyTest {
         doReturn(mSsc).when(mPhone).getSignalStrengthController();
 
         // Capture listener registered for ServiceStateTracker to emulate the carrier config
-        // change notification used later. In this test, it's the third one. The first one
-        // comes from RatRatcheter and the second one comes from SignalStrengthController.
+        // change notification used later. In this test, it's the last one registered with the
+        // carrier config cache. The first one comes from SignalStrengthController.
         ArgumentCaptor<CarrierConfigManager.CarrierConfigChangeListener>
                 listenerArgumentCaptor =
                 ArgumentCaptor.forClass(
                         CarrierConfigManager.CarrierConfigChangeListener.class);
         sst = new ServiceStateTracker(mPhone, mSimulatedCommands, mFeatureFlags);
-        verify(mCarrierConfigManager, atLeast(3)).registerCarrierConfigChangeListener(any(),
+        verify(mCarrierConfigCache, atLeast(2)).registerCarrierConfigChangeListener(any(),
                 listenerArgumentCaptor.capture());
-        mCarrierConfigChangeListener = listenerArgumentCaptor.getAllValues().get(2);
+        mCarrierConfigChangeListener = listenerArgumentCaptor.getValue();
 
         sst.setServiceStateStats(mServiceStateStats);
         doReturn(sst).when(mPhone).getServiceStateTracker();
@@ -886,6 +890,24 @@ public class ServiceStateTrackerTest extends TelephonyTest {
         assertEquals(sst.getAllCellInfo(), list);
     }
 
+    @Test
+    public void testCellInfoRequestServedByUnsolCellInfo() throws Exception {
+        ArrayList<CellInfo> list = new ArrayList();
+        list.add(getCellInfoGsm());
+        sst.sendMessage(sst.obtainMessage(ServiceStateTracker.EVENT_UNSOL_CELL_INFO_LIST,
+                new AsyncResult(null, list, null)));
+        processAllMessages();
+
+        // a recent unsol cell info should be returned without requesting the modem
+        Message rspMsg = Message.obtain(mTestHandler);
+        sst.requestAllCellInfo(null, rspMsg);
+        assertEquals(list, ((AsyncResult) rspMsg.obj).result);
+        assertEquals(1, (int) getPrivateField(sst, "mCellInfoCachedResponseCount",
+                Integer.class));
+        assertEquals(0, (int) getPrivateField(sst, "mCellInfoModemRequestCount",
+                Integer.class));
+    }
+
     @Test
     public void testImsRegState() {
         // Simulate IMS registered
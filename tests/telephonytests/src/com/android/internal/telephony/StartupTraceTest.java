@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import com.android.internal.util.IndentingPrintWriter;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+public class StartupTraceTest {
+    @Test
+    public void testTraceRecordsSteps() {
+        StartupTrace trace = new StartupTrace();
+        assertThat(trace.trace("Component", () -> "component")).isEqualTo("component");
+        boolean[] ran = new boolean[1];
+        trace.trace("Runnable", () -> {
+            ran[0] = true;
+        });
+        assertThat(ran[0]).isTrue();
+        assertThrows(IllegalStateException.class, () -> trace.trace("Failed", () -> {
+            throw new IllegalStateException();
+        }));
+
+        StringWriter stringWriter = new StringWriter();
+        trace.dump(new IndentingPrintWriter(stringWriter, "  "));
+        String dump = stringWriter.toString();
+        assertThat(dump).contains("Component: start=+");
+        assertThat(dump).contains("Runnable: start=+");
+        assertThat(dump).contains("Failed: start=+");
+    }
+}
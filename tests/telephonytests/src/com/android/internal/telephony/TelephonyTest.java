@@ -962,6 +962,8 @@ public abstract class TelephonyTest {
                 new CommandsInterface[] {mSimulatedCommands});
         replaceInstance(PhoneFactory.class, "sMetricsCollector", null, mMetricsCollector);
         replaceInstance(SatelliteController.class, "sInstance", null, mSatelliteController);
+        // The carrier config cache is made on demand with the mocked CarrierConfigManager.
+        replaceInstance(CarrierConfigCache.class, "sInstance", null, null);
 
         setReady(false);
         // create default TestableLooper for test and add to list of monitored loopers
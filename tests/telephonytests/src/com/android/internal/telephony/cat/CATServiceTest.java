@@ -27,6 +27,7 @@ import static org.mockito.Mockito.anyInt;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -37,6 +38,7 @@ import android.app.Activity;
 import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.os.AsyncResult;
+import android.os.Handler;
 import android.os.Message;
 import android.os.UserHandle;
 import android.telephony.SmsManager;
@@ -55,6 +57,7 @@ import com.android.internal.telephony.uicc.IccCardApplicationStatus;
 import com.android.internal.telephony.uicc.IccCardStatus;
 import com.android.internal.telephony.uicc.IccFileHandler;
 import com.android.internal.telephony.uicc.IccIoResult;
+import com.android.internal.telephony.uicc.IccRefreshResponse;
 import com.android.internal.telephony.uicc.IccUtils;
 import com.android.internal.telephony.uicc.UiccCard;
 import com.android.internal.telephony.uicc.UiccProfile;
@@ -393,4 +396,40 @@ public class CATServiceTest extends TelephonyTest {
         assertThat(captorIntent.getAllValues().stream().map(Intent::getAction).toList())
                 .doesNotContain(TelephonyManager.ACTION_STK_SETUP_EVENT_LIST);
     }
+
+    @Test
+    public void testIccRefreshClearsIconCache() {
+        IconLoader.clearIconCache();
+        // Load an icon from a SIM whose image descriptor and body reads complete right away.
+        doReturn("89014103211118510720").when(mUiccPort).getIccId();
+        doAnswer(invocation -> {
+            Message msg = invocation.getArgument(1);
+            AsyncResult.forMessage(msg, new byte[] {1, 1, 1,
+                    (byte) ImageDescriptor.CODING_SCHEME_BASIC, 0, 1, 0, 0, 0, 3}, null);
+            msg.sendToTarget();
+            return null;
+        }).when(mIccFileHandler).loadEFImgLinearFixed(anyInt(), any(Message.class));
+        doAnswer(invocation -> {
+            Message msg = invocation.getArgument(4);
+            AsyncResult.forMessage(msg, new byte[] {1, 1, 0}, null);
+            msg.sendToTarget();
+            return null;
+        }).when(mIccFileHandler).loadEFImgTransparent(anyInt(), anyInt(), anyInt(), anyInt(),
+                any(Message.class));
+        IconLoader iconLoader = new IconLoader(mTestableLooper.getLooper(), mIccFileHandler, 0);
+        iconLoader.loadIcon(1, new Handler(mTestableLooper.getLooper()).obtainMessage());
+        processAllMessages();
+        assertEquals(1, IconLoader.getCachedIconCount());
+
+        ArgumentCaptor<Handler> handlerCaptor = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Integer> whatCaptor = ArgumentCaptor.forClass(Integer.class);
+        verify(mSimulatedCommands).registerForIccRefresh(handlerCaptor.capture(),
+                whatCaptor.capture(), any());
+        Message msg = handlerCaptor.getValue().obtainMessage(whatCaptor.getValue(),
+                new AsyncResult(null, new IccRefreshResponse(), null));
+        handlerCaptor.getValue().handleMessage(msg);
+        processAllMessages();
+
+        assertEquals(0, IconLoader.getCachedIconCount());
+    }
 }
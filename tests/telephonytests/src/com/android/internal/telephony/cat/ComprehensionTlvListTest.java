@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.android.internal.telephony.uicc.IccUtils;
+
+import org.junit.Test;
+
+import java.util.List;
+
+public class ComprehensionTlvListTest {
+    // Proactive commands as sent by SIM cards, from ETSI TS 102 384 test sequences.
+    /** SET UP MENU "Toolkit Menu" with 4 items. */
+    private static final String SET_UP_MENU =
+            "D03B810301250082028182850C546F6F6C6B6974204D656E758F07014974656D20318F0702"
+                    + "4974656D20328F07034974656D20338F07044974656D2034";
+    /** DISPLAY TEXT "Toolkit Test 1". */
+    private static final String DISPLAY_TEXT =
+            "D01A8103012180820281028D0F04546F6F6C6B697420546573742031";
+    /** SEND SMS "Sending request ..." with a packed TPDU. */
+    private static final String SEND_SMS =
+            "D059810301130082028183051353656E64696E672072657175657374202E2E2E0607911989548056780B"
+                    + "3051FF05812143F500F6082502700000201115001500BFFF01BA23C2169EA9B02D7A7FBAA0"
+                    + "DAABFEE8B8DE9DA06DCD234E";
+
+    /** SET UP MENU with enough items to need a two byte BER-TLV length. */
+    private static String createLargeSetUpMenu(int itemCount) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 1; i <= itemCount; i++) {
+            items.append(String.format("8F07%02X4974656D2031", i));
+        }
+        String ctlvs = "810301250082028182850C546F6F6C6B6974204D656E75" + items;
+        return String.format("D081%02X", ctlvs.length() / 2) + ctlvs;
+    }
+
+    private static void assertSameCtlvs(String hex) throws Exception {
+        byte[] data = IccUtils.hexStringToBytes(hex);
+        BerTlv berTlv = BerTlv.decode(data);
+        int startIndex = (data[1] & 0xff) == 0x81 ? 3 : 2;
+        List<ComprehensionTlv> expected = ComprehensionTlv.decodeMany(data, startIndex);
+        List<ComprehensionTlv> actual = berTlv.getComprehensionTlvs();
+
+        assertThat(berTlv.isLengthValid()).isTrue();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTag(), actual.get(i).getTag());
+            assertEquals(expected.get(i).isComprehensionRequired(),
+                    actual.get(i).isComprehensionRequired());
+            assertEquals(expected.get(i).getLength(), actual.get(i).getLength());
+            assertEquals(expected.get(i).getValueIndex(), actual.get(i).getValueIndex());
+            assertSame(data, actual.get(i).getRawValue());
+        }
+    }
+
+    @Test
+    public void testDecodeCorpus() throws Exception {
+        assertSameCtlvs(SET_UP_MENU);
+        assertSameCtlvs(DISPLAY_TEXT);
+        assertSameCtlvs(SEND_SMS);
+        assertSameCtlvs(createLargeSetUpMenu(20));
+    }
+
+    @Test
+    public void testFindTag() throws Exception {
+        ComprehensionTlvList ctlvs = ComprehensionTlvList.decode(
+                IccUtils.hexStringToBytes(DISPLAY_TEXT), 2);
+
+        ComprehensionTlv textString = ctlvs.findTag(ComprehensionTlvTag.TEXT_STRING.value());
+        assertEquals("Toolkit Test 1", ValueParser.retrieveTextString(textString));
+        assertSame(textString, ctlvs.get(2));
+        assertNull(ctlvs.findTag(ComprehensionTlvTag.ICON_ID.value()));
+    }
+
+    @Test
+    public void testCursorNextWithTag() throws Exception {
+        ComprehensionTlvList ctlvs = ComprehensionTlvList.decode(
+                IccUtils.hexStringToBytes(SET_UP_MENU), 2);
+        ComprehensionTlvList.Cursor cursor = ctlvs.iterator();
+
+        for (int i = 1; i <= 4; i++) {
+            Item item = ValueParser.retrieveItem(
+                    cursor.nextWithTag(ComprehensionTlvTag.ITEM.value()));
+            assertEquals(i, item.id);
+            assertEquals("Item " + i, item.text);
+        }
+        assertNull(cursor.nextWithTag(ComprehensionTlvTag.ITEM.value()));
+        assertThat(cursor.hasNext()).isFalse();
+    }
+}
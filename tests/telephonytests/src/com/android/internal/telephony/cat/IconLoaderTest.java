@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.cat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.graphics.Bitmap;
+import android.os.AsyncResult;
+import android.os.Handler;
+import android.os.Message;
+import android.testing.AndroidTestingRunner;
+import android.testing.TestableLooper;
+import android.util.SparseArray;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.internal.telephony.TelephonyTest;
+import com.android.internal.telephony.uicc.IccFileHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidTestingRunner.class)
+@TestableLooper.RunWithLooper
+public class IconLoaderTest extends TelephonyTest {
+    private static final int PHONE_ID = 0;
+    private static final String ICCID = "89014103211118510720";
+
+    // Pending EF-IMG record reads, keyed by record number.
+    private final SparseArray<Message> mPendingRecordReads = new SparseArray<>();
+    // Pending icon body reads, keyed by image instance file id.
+    private final SparseArray<Message> mPendingIconReads = new SparseArray<>();
+
+    private IccFileHandler mIccFileHandler;
+    private Handler mResultHandler;
+    private Object mResult;
+    private IconLoader mIconLoaderUT;
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(getClass().getSimpleName());
+        IconLoader.clearIconCache();
+        doReturn(ICCID).when(mUiccPort).getIccId();
+
+        mIccFileHandler = mock(IccFileHandler.class);
+        doAnswer(invocation -> {
+            mPendingRecordReads.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(mIccFileHandler).loadEFImgLinearFixed(anyInt(), any(Message.class));
+        doAnswer(invocation -> {
+            mPendingIconReads.put(invocation.getArgument(0), invocation.getArgument(4));
+            return null;
+        }).when(mIccFileHandler).loadEFImgTransparent(anyInt(), anyInt(), anyInt(), anyInt(),
+                any(Message.class));
+
+        mResultHandler = new Handler(mTestableLooper.getLooper()) {
+            @Override
+            public void handleMessage(Message msg) {
+                mResult = msg.obj;
+            }
+        };
+        mIconLoaderUT = new IconLoader(mTestableLooper.getLooper(), mIccFileHandler, PHONE_ID);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        IconLoader.clearIconCache();
+        mPendingRecordReads.clear();
+        mPendingIconReads.clear();
+        mIconLoaderUT = null;
+        mResultHandler = null;
+        mResult = null;
+        super.tearDown();
+    }
+
+    /**
+     * Image instance descriptor of a black and white icon whose width is the record number, and
+     * which is stored in the image instance file of the same number.
+     */
+    private static byte[] getImageDescriptor(int recordNumber) {
+        return new byte[] {1, (byte) recordNumber, 1, (byte) ImageDescriptor.CODING_SCHEME_BASIC,
+                0, (byte) recordNumber, 0, 0, 0, 3};
+    }
+
+    private void replyRecordRead(int recordNumber) {
+        reply(mPendingRecordReads, recordNumber, getImageDescriptor(recordNumber));
+    }
+
+    private void replyIconRead(int recordNumber) {
+        reply(mPendingIconReads, recordNumber, new byte[] {(byte) recordNumber, 1, 0});
+    }
+
+    private void reply(SparseArray<Message> pendingReads, int key, byte[] data) {
+        Message msg = pendingReads.get(key);
+        assertNotNull(msg);
+        pendingReads.remove(key);
+        AsyncResult.forMessage(msg, data, null);
+        msg.sendToTarget();
+        processAllMessages();
+    }
+
+    private Bitmap loadIcon(int recordNumber) {
+        mIconLoaderUT.loadIcon(recordNumber, mResultHandler.obtainMessage());
+        processAllMessages();
+        if (mPendingRecordReads.get(recordNumber) != null) {
+            replyRecordRead(recordNumber);
+            replyIconRead(recordNumber);
+        }
+        return (Bitmap) mResult;
+    }
+
+    @Test
+    @SmallTest
+    public void testCachedIconNotReadAgain() {
+        assertEquals(1, loadIcon(1).getWidth());
+        assertEquals(1, IconLoader.getCachedIconCount());
+
+        mResult = null;
+        assertEquals(1, loadIcon(1).getWidth());
+        verify(mIccFileHandler, times(1)).loadEFImgLinearFixed(eq(1), any(Message.class));
+    }
+
+    @Test
+    @SmallTest
+    public void testClearIconCache() {
+        loadIcon(1);
+        IconLoader.clearIconCache();
+        assertEquals(0, IconLoader.getCachedIconCount());
+
+        assertEquals(1, loadIcon(1).getWidth());
+        verify(mIccFileHandler, times(2)).loadEFImgLinearFixed(eq(1), any(Message.class));
+    }
+
+    @Test
+    @SmallTest
+    public void testRecordsReadInParallelAndAssembledInOrder() {
+        mIconLoaderUT.loadIcons(new int[] {1, 2, 3, 2}, mResultHandler.obtainMessage());
+        processAllMessages();
+
+        // All the records are read at once, and the record shown twice is read once.
+        assertEquals(3, mPendingRecordReads.size());
+        verify(mIccFileHandler, times(1)).loadEFImgLinearFixed(eq(2), any(Message.class));
+
+        // Complete the reads out of order.
+        replyRecordRead(3);
+        replyRecordRead(1);
+        replyRecordRead(2);
+        replyIconRead(2);
+        replyIconRead(3);
+        assertNull(mResult);
+        replyIconRead(1);
+
+        Bitmap[] icons = (Bitmap[]) mResult;
+        assertEquals(4, icons.length);
+        assertEquals(1, icons[0].getWidth());
+        assertEquals(2, icons[1].getWidth());
+        assertEquals(3, icons[2].getWidth());
+        assertEquals(2, icons[3].getWidth());
+    }
+}
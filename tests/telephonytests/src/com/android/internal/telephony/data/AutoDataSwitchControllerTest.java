@@ -616,6 +616,27 @@ public class AutoDataSwitchControllerTest extends TelephonyTest {
         prepareIdealUsesNonDdsCondition();
     }
 
+    @Test
+    public void testSignalStrengthJitterDebounced() throws Exception {
+        prepareIdealUsesNonDdsCondition();
+        serviceStateChanged(PHONE_1, NetworkRegistrationInfo.REGISTRATION_STATE_HOME);
+        processAllFutureMessages();
+        clearInvocations(mMockedPhoneSwitcherCallback);
+        int debouncedCount = getPrivateField(mAutoDataSwitchControllerUT,
+                "mDebouncedSignalStrengthCount", Integer.class);
+
+        // Signal strength on default phone briefly became as good as the secondary.
+        signalStrengthChanged(PHONE_1, SignalStrength.SIGNAL_STRENGTH_GREAT);
+        signalStrengthChanged(PHONE_1, SignalStrength.SIGNAL_STRENGTH_POOR);
+        processAllFutureMessages();
+
+        verify(mMockedPhoneSwitcherCallback, never())
+                .onRequireCancelAnyPendingAutoSwitchValidation();
+        verify(mMockedPhoneSwitcherCallback, never()).onRequireValidation(anyInt(), anyBoolean());
+        assertThat(getPrivateField(mAutoDataSwitchControllerUT, "mDebouncedSignalStrengthCount",
+                Integer.class)).isEqualTo(debouncedCount + 1);
+    }
+
     @Test
     public void testOnNonDdsSwitchBackToPrimary_rat_signalStrength() {
         prepareIdealUsesNonDdsCondition();
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.data;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.provider.Telephony;
+import android.telephony.TelephonyManager;
+import android.telephony.data.ApnSetting;
+import android.telephony.data.DataProfile;
+import android.testing.AndroidTestingRunner;
+import android.testing.TestableLooper;
+
+import com.android.internal.telephony.TelephonyTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+@RunWith(AndroidTestingRunner.class)
+@TestableLooper.RunWithLooper
+public class DataProfileIndexTest extends TelephonyTest {
+    private DataProfile mLteInternetDataProfile;
+    private DataProfile mInternetDataProfile;
+    private DataProfile mImsDataProfile;
+    private DataProfileIndex mDataProfileIndex;
+
+    private static DataProfile createDataProfile(String apnName, int apnTypes,
+            int networkTypeBitmask) {
+        return new DataProfile.Builder()
+                .setApnSetting(new ApnSetting.Builder()
+                        .setEntryName(apnName)
+                        .setApnName(apnName)
+                        .setApnTypeBitmask(apnTypes)
+                        .setNetworkTypeBitmask(networkTypeBitmask)
+                        .setCarrierEnabled(true)
+                        .build())
+                .build();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp(getClass().getSimpleName());
+        mLteInternetDataProfile = createDataProfile("lte", ApnSetting.TYPE_DEFAULT,
+                (int) TelephonyManager.NETWORK_TYPE_BITMASK_LTE);
+        mInternetDataProfile = createDataProfile("internet",
+                ApnSetting.TYPE_DEFAULT | ApnSetting.TYPE_MMS, 0);
+        mImsDataProfile = createDataProfile("ims", ApnSetting.TYPE_IMS, 0);
+        mDataProfileIndex = new DataProfileIndex(
+                List.of(mLteInternetDataProfile, mInternetDataProfile, mImsDataProfile),
+                Telephony.Carriers.NO_APN_SET_ID);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mDataProfileIndex = null;
+        super.tearDown();
+    }
+
+    @Test
+    public void testSelectByCapabilityAndNetworkType() {
+        TelephonyNetworkRequest internetRequest = new TelephonyNetworkRequest(
+                new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .build(), mPhone, mFeatureFlags);
+        long mask = mDataProfileIndex.getSatisfyingMask(internetRequest);
+        assertThat(mask).isEqualTo(0b011L);
+
+        assertThat(mask & mDataProfileIndex.getUsableMask(TelephonyManager.NETWORK_TYPE_LTE,
+                false, false)).isEqualTo(0b011L);
+        assertThat(mask & mDataProfileIndex.getUsableMask(TelephonyManager.NETWORK_TYPE_NR,
+                false, false)).isEqualTo(0b010L);
+        assertThat(mask & mDataProfileIndex.getUsableMask(TelephonyManager.NETWORK_TYPE_LTE,
+                false, true)).isEqualTo(0L);
+
+        TelephonyNetworkRequest mmsRequest = new TelephonyNetworkRequest(
+                new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_MMS)
+                        .build(), mPhone, mFeatureFlags);
+        assertThat(mDataProfileIndex.getSatisfyingMask(mmsRequest)).isEqualTo(0b010L);
+    }
+
+    @Test
+    public void testSelectLeastRecentlyUsed() {
+        assertThat(mDataProfileIndex.selectLeastRecentlyUsed(0b011L, false))
+                .isEqualTo(mLteInternetDataProfile);
+
+        mLteInternetDataProfile.setLastSetupTimestamp(1000L);
+        assertThat(mDataProfileIndex.selectLeastRecentlyUsed(0b011L, false))
+                .isEqualTo(mInternetDataProfile);
+
+        mInternetDataProfile.getApnSetting().setPermanentFailed(true);
+        assertThat(mDataProfileIndex.selectLeastRecentlyUsed(0b011L, false))
+                .isEqualTo(mLteInternetDataProfile);
+        assertThat(mDataProfileIndex.selectLeastRecentlyUsed(0b011L, true))
+                .isEqualTo(mInternetDataProfile);
+        assertThat(mDataProfileIndex.selectLeastRecentlyUsed(0b010L, false)).isNull();
+    }
+}
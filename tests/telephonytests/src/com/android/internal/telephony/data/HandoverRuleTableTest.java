@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.data;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import android.net.NetworkCapabilities;
+import android.telephony.AccessNetworkConstants.AccessNetworkType;
+
+import com.android.internal.telephony.data.DataNetworkController.HandoverRule;
+import com.android.internal.telephony.flags.FeatureFlags;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+public class HandoverRuleTableTest {
+    private final NetworkCapabilities mImsCapabilities = new NetworkCapabilities.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_IMS)
+            .build();
+    private final NetworkCapabilities mInternetCapabilities = new NetworkCapabilities.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build();
+
+    private HandoverRule mRoamingRule;
+    private HandoverRule mImsRule;
+    private HandoverRule mCatchAllRule;
+    private HandoverRuleTable mTable;
+
+    @Before
+    public void setUp() {
+        FeatureFlags featureFlags = mock(FeatureFlags.class);
+        doReturn(true).when(featureFlags).incallHandoverPolicy();
+        mRoamingRule = new HandoverRule("source=IWLAN, target=EUTRAN, type=disallowed, "
+                + "roaming=true", featureFlags);
+        mImsRule = new HandoverRule("source=EUTRAN|NGRAN, target=IWLAN, type=disallowed, "
+                + "capabilities=IMS", featureFlags);
+        mCatchAllRule = new HandoverRule("source=GERAN|UTRAN|EUTRAN|NGRAN|IWLAN, "
+                + "target=GERAN|UTRAN|EUTRAN|NGRAN|IWLAN, type=allowed", featureFlags);
+        mTable = new HandoverRuleTable(List.of(mRoamingRule, mImsRule, mCatchAllRule));
+    }
+
+    @Test
+    public void testMatchInConfiguredOrder() {
+        assertThat(mTable.match(AccessNetworkType.IWLAN, AccessNetworkType.EUTRAN,
+                true, false, mInternetCapabilities)).isSameInstanceAs(mRoamingRule);
+        assertThat(mTable.match(AccessNetworkType.IWLAN, AccessNetworkType.EUTRAN,
+                false, false, mInternetCapabilities)).isSameInstanceAs(mCatchAllRule);
+
+        assertThat(mTable.match(AccessNetworkType.NGRAN, AccessNetworkType.IWLAN,
+                false, false, mImsCapabilities)).isSameInstanceAs(mImsRule);
+        assertThat(mTable.match(AccessNetworkType.NGRAN, AccessNetworkType.IWLAN,
+                false, false, mInternetCapabilities)).isSameInstanceAs(mCatchAllRule);
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(mTable.match(AccessNetworkType.UNKNOWN, AccessNetworkType.IWLAN,
+                false, false, mInternetCapabilities)).isNull();
+        assertThat(HandoverRuleTable.EMPTY.match(AccessNetworkType.EUTRAN,
+                AccessNetworkType.IWLAN, false, false, mInternetCapabilities)).isNull();
+    }
+}
@@ -654,6 +654,35 @@ public class PhoneSwitcherTest extends TelephonyTest {
         assertEquals(0, mPhoneSwitcherUT.getPreferredDataPhoneId());
     }
 
+    @Test
+    public void testSetPreferredDataWithValidation_recentlyValidatedWaitsForResult()
+            throws Exception {
+        doReturn(true).when(mMockRadioConfig).isSetPreferredDataCommandSupported();
+        initialize();
+
+        // Phone 0 has sub 1, phone 1 has sub 2.
+        // Sub 1 is default data sub.
+        setSlotIndexToSubId(0, 1);
+        setSlotIndexToSubId(1, 2);
+        setDefaultDataSubId(1);
+
+        doReturn(new SubscriptionInfoInternal.Builder(mSubscriptionManagerService
+                .getSubscriptionInfoInternal(2)).setOpportunistic(1).build())
+                .when(mSubscriptionManagerService).getSubscriptionInfoInternal(2);
+        doReturn(true).when(mCellularNetworkValidator).isRecentlyValidated(2);
+
+        // Even with a recent validation, the switch waits for the result of the validator.
+        mPhoneSwitcherUT.trySetOpportunisticDataSubscription(2, true, null);
+        processAllMessages();
+        verify(mCellularNetworkValidator).validate(eq(2), anyLong(), eq(true),
+                eq(mPhoneSwitcherUT.mValidationCallback));
+        assertEquals(0, mPhoneSwitcherUT.getPreferredDataPhoneId());
+
+        mPhoneSwitcherUT.mValidationCallback.onValidationDone(true, 2);
+        processAllMessages();
+        assertEquals(1, mPhoneSwitcherUT.getPreferredDataPhoneId());
+    }
+
     private void mockImsRegTech(int phoneId, int regTech) {
         doReturn(regTech).when(mMockImsRegTechProvider).get(any(), eq(phoneId));
         mPhoneSwitcherUT.mImsRegTechProvider = mMockImsRegTechProvider;
@@ -23,6 +23,7 @@ import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -404,6 +405,42 @@ public class QosCallbackTrackerTest extends TelephonyTest {
                 any(QosSession.class), any(EpsBearerQosSessionAttributes.class));
     }
 
+    @Test
+    public void testUnchangedFiltersNotMatchedAgain() throws Exception {
+        Filter filter = spy(new Filter(new InetSocketAddress(
+                InetAddresses.parseNumericAddress("122.22.22.22"), 2222)));
+        mQosCallbackTracker.addFilter(1, filter);
+
+        ArrayList<QosBearerFilter> qosFilters = new ArrayList<>();
+        qosFilters.add(createIpv4QosFilter("122.22.22.22",
+                new QosBearerFilter.PortRange(2222, 2222), 45));
+        ArrayList<QosBearerSession> qosSessions = new ArrayList<>();
+        qosSessions.add(new QosBearerSession(1234, createEpsQos(5, 6, 7, 8), qosFilters));
+        mQosCallbackTracker.updateSessions(qosSessions);
+        processAllMessages();
+
+        verify(mINetworkAgentRegistry, times(1)).sendEpsQosSessionAvailable(eq(1),
+                any(QosSession.class), any(EpsBearerQosSessionAttributes.class));
+
+        // Same session with the same bearer filters is not matched against the filter again.
+        reset(filter);
+        qosSessions.clear();
+        qosSessions.add(new QosBearerSession(1234, createEpsQos(5, 6, 7, 8),
+                new ArrayList<>(qosFilters)));
+        mQosCallbackTracker.updateSessions(qosSessions);
+        processAllMessages();
+
+        verify(filter, never()).matchesLocalAddress(any(InetAddress.class), anyInt(), anyInt());
+        verify(mINetworkAgentRegistry, times(1)).sendEpsQosSessionAvailable(eq(1),
+                any(QosSession.class), any(EpsBearerQosSessionAttributes.class));
+
+        // The session lost is still sent to the matched callback.
+        mQosCallbackTracker.updateSessions(new ArrayList<>());
+        processAllMessages();
+
+        verify(mINetworkAgentRegistry, times(1)).sendQosSessionLost(eq(1), any(QosSession.class));
+    }
+
     @Test
     public void testEmptyQosSessions() throws Exception {
         // Add filter
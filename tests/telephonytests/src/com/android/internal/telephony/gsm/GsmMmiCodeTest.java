@@ -35,6 +35,7 @@ import android.telephony.CarrierConfigManager;
 import android.testing.AndroidTestingRunner;
 import android.testing.TestableLooper;
 
+import com.android.internal.telephony.CarrierConfigCache;
 import com.android.internal.telephony.CommandException;
 import com.android.internal.telephony.GsmCdmaPhone;
 import com.android.internal.telephony.PhoneConstants;
@@ -75,6 +76,8 @@ public class GsmMmiCodeTest extends TelephonyTest {
                 PhoneConstants.PHONE_TYPE_GSM, mTelephonyComponentFactory, (c, p) -> mImsManager,
                 mFeatureFlags);
         setCarrierSupportsCallerIdVerticalServiceCodesCarrierConfig();
+        // Drop the carrier configs cached while the phone was created.
+        replaceInstance(CarrierConfigCache.class, "sInstance", null, null);
     }
 
     @After
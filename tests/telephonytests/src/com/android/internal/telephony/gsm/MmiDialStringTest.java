@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.internal.telephony.gsm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import androidx.test.filters.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.regex.Matcher;
+
+/**
+ * Verifies that {@link MmiDialString} parses dial strings exactly like the
+ * {@link GsmMmiCode#sPatternSuppService} regular expression.
+ */
+@RunWith(Parameterized.class)
+public class MmiDialStringTest {
+    private final String mDialString;
+
+    public MmiDialStringTest(String dialString) {
+        mDialString = dialString;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+                // Supplementary services
+                {"*21#"},
+                {"#21#"},
+                {"*#21#"},
+                {"**21*+15551234567#"},
+                {"##002#"},
+                {"*33*1234#"},
+                {"**03*330*1234*1234#"},
+                {"*21*12345*11*20#"},
+                {"*21*12345*11*20*1#"},
+                {"*21***#"},
+                {"*21**11#"},
+                {"*31#+15551234567"},
+                {"#31#5551234"},
+                {"*43#"},
+                {"*#43#"},
+                {"*100#"},
+                {"*400#1234567890123456#"},
+                {"**04*1234*5678*5678#"},
+                {"**05*12345678*1234*1234#"},
+                // Not matching the structure
+                {""},
+                {"*"},
+                {"#"},
+                {"**"},
+                {"*2#"},
+                {"*2134#"},
+                {"*21"},
+                {"*21*1*2*3*4*5#"},
+                {"*a1#"},
+                {"#*21#"},
+                {"***21#"},
+                {"5551234"},
+                {"+15551234567"},
+                {"*21#\n123"},
+                {"*21#12\r3"},
+                // USSD and short codes
+                {"*#06#"},
+                {"#123*456#"},
+                {"123#"},
+                {"12"},
+        });
+    }
+
+    private static String makeEmptyNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    @Test
+    @SmallTest
+    public void testEquivalentToRegularExpression() {
+        Matcher m = GsmMmiCode.sPatternSuppService.matcher(mDialString);
+        MmiDialString parsed = MmiDialString.parse(mDialString);
+        if (!m.matches()) {
+            assertNull(parsed);
+            return;
+        }
+        assertNotNull(parsed);
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_POUND_STRING)),
+                parsed.getPoundString());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_ACTION)), parsed.getAction());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_SERVICE_CODE)),
+                parsed.getServiceCode());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_SIA)), parsed.getSia());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_SIB)), parsed.getSib());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_SIC)), parsed.getSic());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_PWD_CONFIRM)),
+                parsed.getPwd());
+        assertEquals(makeEmptyNull(m.group(GsmMmiCode.MATCH_GROUP_DIALING_NUMBER)),
+                parsed.getDialingNumber());
+    }
+}
@@ -44,6 +44,8 @@ import java.util.concurrent.TimeUnit;
 public class ImsRttTextHandlerTest extends TelephonyTest {
     private static final int TEST_TIMEOUT = 1000;
     private static final int READ_BUFFER_SIZE = 1000;
+    private static final int LIMITER_CAPACITY = 30;
+    private static final long LIMITER_WINDOW_MILLIS = 1000;
     private static final String SHORT_TEXT = "Hello, World!";
     private static final String LONG_TEXT = "No Soldier shall, in time of peace be quartered in " +
             "any house, without the consent of the Owner, nor in time of war, but in a manner to " +
@@ -263,6 +265,55 @@ public class ImsRttTextHandlerTest extends TelephonyTest {
         Assert.assertEquals(SHORT_TEXT, mRttTextHandler.getBufferedTextToIncall().toString());
     }
 
+    @Test
+    public void testRateLimiterTokensGivenBackAfterWindow() {
+        ImsRttTextHandler.CodepointRateLimiter limiter = createRateLimiter();
+        Assert.assertEquals(LIMITER_CAPACITY, limiter.getAvailable(0));
+        Assert.assertEquals(-1, limiter.getNextRefillTimeMillis());
+
+        limiter.consume(10, 100);
+        limiter.consume(20, 600);
+        Assert.assertEquals(0, limiter.getAvailable(1099));
+        Assert.assertEquals(1100, limiter.getNextRefillTimeMillis());
+
+        Assert.assertEquals(10, limiter.getAvailable(1100));
+        Assert.assertEquals(1600, limiter.getNextRefillTimeMillis());
+        Assert.assertEquals(LIMITER_CAPACITY, limiter.getAvailable(1600));
+        Assert.assertEquals(-1, limiter.getNextRefillTimeMillis());
+    }
+
+    @Test
+    public void testRateLimiterNeverMoreThanCapacityInAnyWindow() {
+        ImsRttTextHandler.CodepointRateLimiter limiter = createRateLimiter();
+        long[] sentAt = new long[LIMITER_CAPACITY * 10];
+        int sent = 0;
+        for (long now = 0; sent < sentAt.length; now += 7) {
+            int count = Math.min(3, limiter.getAvailable(now));
+            limiter.consume(count, now);
+            for (int i = 0; i < count && sent < sentAt.length; i++) {
+                sentAt[sent++] = now;
+            }
+        }
+        for (int i = LIMITER_CAPACITY; i < sentAt.length; i++) {
+            // The codepoint sent LIMITER_CAPACITY codepoints earlier must be at least a window
+            // older.
+            Assert.assertTrue(sentAt[i] - sentAt[i - LIMITER_CAPACITY] >= LIMITER_WINDOW_MILLIS);
+        }
+    }
+
+    @Test
+    public void testRateLimiterOneTokenSendsFillRing() {
+        ImsRttTextHandler.CodepointRateLimiter limiter = createRateLimiter();
+        for (int i = 0; i < LIMITER_CAPACITY; i++) {
+            limiter.consume(1, i);
+        }
+        Assert.assertEquals(0, limiter.getAvailable(LIMITER_CAPACITY));
+        Assert.assertEquals(1, limiter.getAvailable(LIMITER_WINDOW_MILLIS));
+        limiter.consume(1, LIMITER_WINDOW_MILLIS);
+        Assert.assertEquals(0, limiter.getAvailable(LIMITER_WINDOW_MILLIS));
+        Assert.assertEquals(LIMITER_WINDOW_MILLIS + 1, limiter.getNextRefillTimeMillis());
+    }
+
     @After
     public void tearDown() throws Exception {
         mPipeFromHandler.close();
@@ -282,6 +333,11 @@ public class ImsRttTextHandlerTest extends TelephonyTest {
         super.tearDown();
     }
 
+    private ImsRttTextHandler.CodepointRateLimiter createRateLimiter() {
+        return new ImsRttTextHandler.CodepointRateLimiter(LIMITER_CAPACITY,
+                LIMITER_WINDOW_MILLIS);
+    }
+
     private String readAll(InputStreamReader inputStreamReader) throws IOException {
         if (!inputStreamReader.ready()) {
             return null;
@@ -73,6 +73,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -172,6 +174,21 @@ public class MetricsCollectorTest extends TelephonyTest {
         // TODO(b/153196254): verify atom contents
     }
 
+    @Test
+    @SmallTest
+    public void onPullAtom_recordsPullStats() throws Exception {
+        replaceInstance(UiccController.class, "mInstance", mUiccController, null);
+        mMetricsCollector.onPullAtom(SIM_SLOT_STATE, new ArrayList<>());
+        mMetricsCollector.onPullAtom(SIM_SLOT_STATE, new ArrayList<>());
+
+        StringWriter stringWriter = new StringWriter();
+        mMetricsCollector.dump(new PrintWriter(stringWriter));
+
+        // 2 pulls, both skipped, nothing added
+        assertThat(stringWriter.toString()).contains(SIM_SLOT_STATE + ": 2, 2, ");
+        assertThat(stringWriter.toString()).endsWith(", 0/0\n");
+    }
+
     @Test
     @SmallTest
     public void onPullAtom_simSlotState_beforeUiccControllerReady() throws Exception {
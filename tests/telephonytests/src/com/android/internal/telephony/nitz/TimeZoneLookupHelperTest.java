@@ -546,6 +546,59 @@ public class TimeZoneLookupHelperTest {
                         nitzDataNoMatch, frMobileCountriesSameOffset));
     }
 
+    @Test
+    public void testLookupResultsCached() {
+        // NITZ for US west coast during summer, received twice.
+        NitzData nitzData = NitzData.parse("15/06/01,00:00:00-28,1");
+        MobileCountries mobileCountries =
+                MobileCountries.createForTest("310", null, Set.of("us"), "us");
+
+        OffsetResult result =
+                mTimeZoneLookupHelper.lookupByNitzMobileCountries(nitzData, mobileCountries);
+        assertNotNull(result);
+        assertEquals(0, mTimeZoneLookupHelper.getCacheHitCount());
+
+        assertEquals(result,
+                mTimeZoneLookupHelper.lookupByNitzMobileCountries(nitzData, mobileCountries));
+        assertEquals(1, mTimeZoneLookupHelper.getCacheHitCount());
+
+        // Lookups without a result are cached too.
+        NitzData nitzDataNoMatch = NitzData.parse("15/06/01,00:00:00+0,0");
+        assertNull(mTimeZoneLookupHelper.lookupByNitzMobileCountries(
+                nitzDataNoMatch, mobileCountries));
+        assertNull(mTimeZoneLookupHelper.lookupByNitzMobileCountries(
+                nitzDataNoMatch, mobileCountries));
+        assertEquals(2, mTimeZoneLookupHelper.getCacheHitCount());
+
+        // A different DST state is a different lookup.
+        mTimeZoneLookupHelper.lookupByNitzMobileCountries(
+                NitzData.parse("15/06/01,00:00:00-28,0"), mobileCountries);
+        assertEquals(2, mTimeZoneLookupHelper.getCacheHitCount());
+
+        mTimeZoneLookupHelper.clearCache();
+        int missCount = mTimeZoneLookupHelper.getCacheMissCount();
+        assertEquals(result,
+                mTimeZoneLookupHelper.lookupByNitzMobileCountries(nitzData, mobileCountries));
+        assertEquals(missCount + 1, mTimeZoneLookupHelper.getCacheMissCount());
+    }
+
+    @Test
+    public void testLookupByNitzCountry_notCachedAcrossTransition() {
+        // The UK switched to BST at 2015-03-29 01:00:00 UTC, so a GMT NITZ only matches before.
+        long beforeTransitionMillis = createUnixEpochTime(2015, 3, 29, 0, 59, 59);
+        NitzData beforeNitzData = NitzData.parse("15/03/29,00:59:59+0,0");
+        NitzData afterNitzData = NitzData.parse("15/03/29,01:00:00+0,0");
+
+        OffsetResult before = mTimeZoneLookupHelper.lookupByNitzCountry(beforeNitzData, "gb");
+        assertNotNull(before);
+        assertOffsetResultZoneOffsets(beforeTransitionMillis, 0, 0, before);
+
+        // One second later the same offset no longer matches: the cached result must not be used.
+        assertNull(mTimeZoneLookupHelper.lookupByNitzCountry(afterNitzData, "gb"));
+        assertEquals(0, mTimeZoneLookupHelper.getCacheHitCount());
+        assertEquals(2, mTimeZoneLookupHelper.getCacheMissCount());
+    }
+
     @Test
     public void testCountryUsesUtc() {
         assertFalse(mTimeZoneLookupHelper.countryUsesUtc("us", NH_SUMMER_TIME_MILLIS));
@@ -192,6 +192,7 @@ import android.util.IntArray;
 import android.util.Pair;
 
 import com.android.internal.R;
+import com.android.internal.telephony.CarrierConfigCache;
 import com.android.internal.telephony.IBooleanConsumer;
 import com.android.internal.telephony.IIntegerConsumer;
 import com.android.internal.telephony.IVoidConsumer;
@@ -296,6 +297,7 @@ public class SatelliteControllerTest extends TelephonyTest {
     @Mock private ProvisionMetricsStats mMockProvisionMetricsStats;
     @Mock private SessionMetricsStats mMockSessionMetricsStats;
     @Mock private SubscriptionManagerService mMockSubscriptionManagerService;
+    @Mock private CarrierConfigCache mMockCarrierConfigCache;
     @Mock private NotificationManager mMockNotificationManager;
     private List<Integer> mIIntegerConsumerResults =  new ArrayList<>();
     @Mock private ISatelliteTransmissionUpdateCallback mStartTransmissionUpdateCallback;
@@ -639,6 +641,7 @@ public class SatelliteControllerTest extends TelephonyTest {
                 mMockSessionMetricsStats);
         replaceInstance(SubscriptionManagerService.class, "sInstance", null,
                 mMockSubscriptionManagerService);
+        replaceInstance(CarrierConfigCache.class, "sInstance", null, mMockCarrierConfigCache);
         replaceInstance(PhoneFactory.class, "sPhones", null, new Phone[]{mPhone, mPhone2});
         replaceInstance(TelephonyConfigUpdateInstallReceiver.class, "sReceiverAdaptorInstance",
                 null, mMockTelephonyConfigUpdateInstallReceiver);
@@ -684,13 +687,13 @@ public class SatelliteControllerTest extends TelephonyTest {
 
         mCarrierConfigBundle = mContextFixture.getCarrierConfigBundle();
         doReturn(mCarrierConfigBundle)
-                .when(mCarrierConfigManager).getConfigForSubId(anyInt(), any());
+                .when(mMockCarrierConfigCache).getConfigForSubId(anyInt());
         doAnswer(invocation -> {
             Executor executor = invocation.getArgument(0);
             CarrierConfigManager.CarrierConfigChangeListener listener = invocation.getArgument(1);
             mCarrierConfigChangedListenerList.add(new Pair<>(executor, listener));
             return null;
-        }).when(mCarrierConfigManager).registerCarrierConfigChangeListener(
+        }).when(mMockCarrierConfigCache).registerCarrierConfigChangeListener(
                 any(Executor.class),
                 any(CarrierConfigManager.CarrierConfigChangeListener.class));
 
@@ -4159,7 +4162,7 @@ public class SatelliteControllerTest extends TelephonyTest {
                 KEY_EMERGENCY_CALL_TO_SATELLITE_T911_HANDOVER_TIMEOUT_MILLIS_INT,
                 timeoutMillisForCarrier1);
         doReturn(carrierConfigBundle1)
-                .when(mCarrierConfigManager).getConfigForSubId(eq(SUB_ID), any());
+                .when(mMockCarrierConfigCache).getConfigForSubId(eq(SUB_ID));
 
         int timeoutMillisForCarrier2 = 2000;
         PersistableBundle carrierConfigBundle2 = new PersistableBundle();
@@ -4171,7 +4174,7 @@ public class SatelliteControllerTest extends TelephonyTest {
                 KEY_EMERGENCY_CALL_TO_SATELLITE_T911_HANDOVER_TIMEOUT_MILLIS_INT,
                 timeoutMillisForCarrier2);
         doReturn(carrierConfigBundle2)
-                .when(mCarrierConfigManager).getConfigForSubId(eq(SUB_ID1), any());
+                .when(mMockCarrierConfigCache).getConfigForSubId(eq(SUB_ID1));
 
         for (Pair<Executor, CarrierConfigManager.CarrierConfigChangeListener> pair
                 : mCarrierConfigChangedListenerList) {
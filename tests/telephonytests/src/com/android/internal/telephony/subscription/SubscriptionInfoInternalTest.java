@@ -355,6 +355,33 @@ public class SubscriptionInfoInternalTest {
         assertThat(mSubInfo.getTransferStatus()).isEqualTo(1);
     }
 
+    @Test
+    public void testConvertToRedactedSubscriptionInfo() {
+        SubscriptionInfo subInfo = mSubInfo.toSubscriptionInfo();
+        assertThat(mSubInfo.toSubscriptionInfo()).isSameInstanceAs(subInfo);
+
+        SubscriptionInfo noIdentifiers = mSubInfo.toSubscriptionInfo(
+                SubscriptionInfoInternal.REDACT_IDENTIFIERS);
+        assertThat(noIdentifiers.getIccId()).isEmpty();
+        assertThat(noIdentifiers.getCardString()).isEmpty();
+        assertThat(noIdentifiers.getGroupUuid()).isNull();
+        assertThat(noIdentifiers.getNumber()).isEqualTo(
+                SubscriptionDatabaseManagerTest.FAKE_PHONE_NUMBER1);
+
+        SubscriptionInfo redacted = mSubInfo.toSubscriptionInfo(
+                SubscriptionInfoInternal.REDACT_IDENTIFIERS
+                        | SubscriptionInfoInternal.REDACT_PHONE_NUMBER);
+        assertThat(redacted.getIccId()).isEmpty();
+        assertThat(redacted.getNumber()).isEmpty();
+        assertThat(redacted.getSubscriptionId()).isEqualTo(1);
+        assertThat(mSubInfo.toSubscriptionInfo(SubscriptionInfoInternal.REDACT_IDENTIFIERS
+                | SubscriptionInfoInternal.REDACT_PHONE_NUMBER)).isSameInstanceAs(redacted);
+
+        // A new instance is converted again.
+        assertThat(new SubscriptionInfoInternal.Builder(mSubInfo).build().toSubscriptionInfo())
+                .isNotSameInstanceAs(subInfo);
+    }
+
     @Test
     public void testNullability() {
         SubscriptionInfo subInfoNull = mSubInfoNull.toSubscriptionInfo();
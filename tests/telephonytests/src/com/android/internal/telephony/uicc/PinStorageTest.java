@@ -41,7 +41,9 @@ import android.testing.TestableLooper;
 import androidx.test.InstrumentationRegistry;
 
 import com.android.internal.R;
+import com.android.internal.telephony.Phone;
 import com.android.internal.telephony.PhoneConstants;
+import com.android.internal.telephony.PhoneFactory;
 import com.android.internal.telephony.TelephonyTest;
 
 import org.junit.After;
@@ -175,6 +177,27 @@ public class PinStorageTest extends TelephonyTest {
         assertThat(mPinStorage.getPin(0, ICCID_1)).isEqualTo("");
     }
 
+    @Test
+    public void storePin_unattendedRebootMultipleSlots_pinsCanBeRetrievedOnce()
+            throws Exception {
+        doReturn(ICCID_2).when(mPhone2).getFullIccSerialNumber();
+        replaceInstance(PhoneFactory.class, "sPhones", null, new Phone[] {mPhone, mPhone2});
+        mPinStorage.storePin("1234", 0);
+        mPinStorage.storePin("5678", 1);
+
+        int result = mPinStorage.prepareUnattendedReboot(sWorkSource);
+        processAllMessages();
+        assertThat(result).isEqualTo(TelephonyManager.PREPARE_UNATTENDED_REBOOT_SUCCESS);
+
+        simulateReboot();
+
+        // Each PIN can be retrieved only once after unattended reboot
+        assertThat(mPinStorage.getPin(0, ICCID_1)).isEqualTo("1234");
+        assertThat(mPinStorage.getPin(1, ICCID_2)).isEqualTo("5678");
+        assertThat(mPinStorage.getPin(0, ICCID_1)).isEqualTo("");
+        assertThat(mPinStorage.getPin(1, ICCID_2)).isEqualTo("");
+    }
+
     @Test
     public void storePin_unattendedReboot_deviceIsLocked() throws Exception {
         // Simulate the device is still locked
@@ -45,6 +45,7 @@ import org.mockito.stubbing.Answer;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(AndroidTestingRunner.class)
@@ -63,11 +64,13 @@ public class UiccCarrierPrivilegeRulesTest extends TelephonyTest {
     public void setUp() throws Exception {
         super.setUp(getClass().getSimpleName());
         mUiccProfile = mock(UiccProfile.class);
+        UiccCarrierPrivilegeRules.clearCachedRules();
     }
 
     @After
     public void tearDown() throws Exception {
         mUiccCarrierPrivilegeRules = null;
+        UiccCarrierPrivilegeRules.clearCachedRules();
         super.tearDown();
     }
 
@@ -812,4 +815,162 @@ public class UiccCarrierPrivilegeRulesTest extends TelephonyTest {
         assertEquals(0, mUiccCarrierPrivilegeRules.getCarrierPrivilegeStatus(signature,
                 mUiccCarrierPrivilegeRules.getPackageNames().get(0)));
     }
+
+    private static final int P1_REFRESH_TAG = 0xDF;
+    private static final String ICCID = "89014103211118510720";
+
+    @Test
+    @SmallTest
+    public void testAID_CachedRulesReusedWhenRefreshTagUnchanged() {
+        final String rules =
+                "FF4045E243E135C114ABCD92CBB156B280FA4E1429A6ECEEB6E5C1BFE4CA1D636F6D2E676F6F676"
+                        + "C652E616E64726F69642E617070732E6D79617070E30ADB080000000000000001";
+        final AtomicReference<String> refreshTag = new AtomicReference<>("DF20080102030405060708");
+        final AtomicInteger rulesRead = new AtomicInteger();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                String aid = (String) invocation.getArguments()[0];
+                Message message = (Message) invocation.getArguments()[2];
+                // Only the ARA-M is present.
+                AsyncResult ar = new AsyncResult(null, aid.equals(ARAM) ? new int[]{0} : null,
+                        null);
+                message.obj = ar;
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccOpenLogicalChannel(anyString(), anyInt(), any(Message.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                int p1 = (int) invocation.getArguments()[3];
+                Message message = (Message) invocation.getArguments()[8];
+                String response;
+                if (p1 == P1_REFRESH_TAG) {
+                    response = refreshTag.get();
+                } else {
+                    rulesRead.incrementAndGet();
+                    response = rules;
+                }
+                IccIoResult iir = new IccIoResult(0x90, 0x00,
+                        IccUtils.hexStringToBytes(response));
+                AsyncResult ar = new AsyncResult(null, iir, null);
+                message.obj = ar;
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccTransmitApduLogicalChannel(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyInt(), anyInt(), anyString(), eq(false), any(Message.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Message message = (Message) invocation.getArguments()[2];
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccCloseLogicalChannel(anyInt(), eq(false), any(Message.class));
+
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, ICCID, null);
+        processAllMessages();
+        assertTrue(mUiccCarrierPrivilegeRules.hasCarrierPrivilegeRules());
+        assertEquals(1, rulesRead.get());
+
+        // Same refresh tag: the rules are not read again.
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, ICCID, null);
+        processAllMessages();
+        assertTrue(mUiccCarrierPrivilegeRules.hasCarrierPrivilegeRules());
+        assertEquals(1, mUiccCarrierPrivilegeRules.getPackageNames().size());
+        assertEquals("com.google.android.apps.myapp",
+                mUiccCarrierPrivilegeRules.getPackageNames().get(0));
+        assertEquals(1, rulesRead.get());
+
+        // Refresh tag changed: the rules are read again.
+        refreshTag.set("DF20080102030405060709");
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, ICCID, null);
+        processAllMessages();
+        assertTrue(mUiccCarrierPrivilegeRules.hasCarrierPrivilegeRules());
+        assertEquals(1, mUiccCarrierPrivilegeRules.getPackageNames().size());
+        assertEquals(2, rulesRead.get());
+
+        // Without ICCID the rules are never cached.
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, null, null);
+        processAllMessages();
+        assertTrue(mUiccCarrierPrivilegeRules.hasCarrierPrivilegeRules());
+        assertEquals(3, rulesRead.get());
+    }
+
+    @Test
+    @SmallTest
+    public void testAID_AradRulesReadWhenAramRulesCached() {
+        final String aradRules = "FF402AE228E11E4F06FFFFFFFFFFFFC114B61BE34AD2C20D7AFED8493C313A"
+                + "137F89FA2765E306D00101D10101";
+        final String aramRules =
+                "FF4045E243E135C114ABCD92CBB156B280FA4E1429A6ECEEB6E5C1BFE4CA1D636F6D2E676F6F676"
+                        + "C652E616E64726F69642E617070732E6D79617070E30ADB080000000000000001";
+        final int aradChannel = 1;
+        final int aramChannel = 2;
+        final AtomicInteger aradRulesRead = new AtomicInteger();
+        final AtomicInteger aramRulesRead = new AtomicInteger();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                String aid = (String) invocation.getArguments()[0];
+                Message message = (Message) invocation.getArguments()[2];
+                AsyncResult ar = new AsyncResult(null,
+                        new int[]{aid.equals(ARAM) ? aramChannel : aradChannel}, null);
+                message.obj = ar;
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccOpenLogicalChannel(anyString(), anyInt(), any(Message.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                int channel = (int) invocation.getArguments()[0];
+                int p1 = (int) invocation.getArguments()[3];
+                Message message = (Message) invocation.getArguments()[8];
+                String response;
+                if (p1 == P1_REFRESH_TAG) {
+                    response = "DF20080102030405060708";
+                } else if (channel == aramChannel) {
+                    aramRulesRead.incrementAndGet();
+                    response = aramRules;
+                } else {
+                    aradRulesRead.incrementAndGet();
+                    response = aradRules;
+                }
+                IccIoResult iir = new IccIoResult(0x90, 0x00,
+                        IccUtils.hexStringToBytes(response));
+                AsyncResult ar = new AsyncResult(null, iir, null);
+                message.obj = ar;
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccTransmitApduLogicalChannel(anyInt(), anyInt(), anyInt(), anyInt(),
+                anyInt(), anyInt(), anyString(), eq(false), any(Message.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Message message = (Message) invocation.getArguments()[2];
+                message.sendToTarget();
+                return null;
+            }
+        }).when(mUiccProfile).iccCloseLogicalChannel(anyInt(), eq(false), any(Message.class));
+
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, ICCID, null);
+        processAllMessages();
+        assertEquals(2, mUiccCarrierPrivilegeRules.getAccessRules().size());
+
+        // The ARA-M rules come from the cache, the ARA-D rules are read again.
+        mUiccCarrierPrivilegeRules = new UiccCarrierPrivilegeRules(mUiccProfile, ICCID, null);
+        processAllMessages();
+        assertEquals(2, mUiccCarrierPrivilegeRules.getAccessRules().size());
+        assertEquals(1, mUiccCarrierPrivilegeRules.getPackageNames().size());
+        assertEquals(1, aramRulesRead.get());
+        assertEquals(2, aradRulesRead.get());
+    }
 }